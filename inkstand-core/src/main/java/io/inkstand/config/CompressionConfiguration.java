@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.config;
+
+import java.util.Set;
+
+/**
+ * Configuration of the compression of responses sent by the WebServer. Responses are only compressed if the client
+ * accepts a compressed encoding, the content type is one of the configured types and the content is not already
+ * encoded.
+ *
+ * @author <a href="mailto:gerald@inkstand.io">Gerald M&uuml;cke</a>
+ */
+public interface CompressionConfiguration {
+
+    /**
+     * Whether responses are compressed at all.
+     *
+     * @return
+     *  <code>true</code> if compression is enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * The minimum size of a response to be compressed. Responses whose size is not known in advance are always
+     * compressed.
+     *
+     * @return
+     *  the minimum size in bytes
+     */
+    int getMinSize();
+
+    /**
+     * The content types of the responses to be compressed. A type may end with a wildcard subtype, i.e.
+     * <code>text/*</code>.
+     *
+     * @return
+     *  the set of content types, without parameters
+     */
+    Set<String> getContentTypes();
+
+    /**
+     * The compression level from 1 (fastest) to 9 (best compression).
+     *
+     * @return
+     *  the compression level
+     */
+    int getLevel();
+}
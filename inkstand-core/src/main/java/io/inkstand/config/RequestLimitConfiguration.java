@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.config;
+
+/**
+ * Configuration of the limit of concurrently processed requests of each deployment of the WebServer. Requests
+ * exceeding the limit wait in a bounded queue for a limited time. Requests that can not be queued or are not processed
+ * in time are rejected with status 503 (Service Unavailable). The limit is either static or adapts to the observed
+ * latency of the requests.
+ *
+ * @author <a href="mailto:gerald@inkstand.io">Gerald M&uuml;cke</a>
+ */
+public interface RequestLimitConfiguration {
+
+    /**
+     * The maximum number of requests of a deployment that are processed concurrently. For an adaptive limit this is
+     * the initial limit, if not set the adaptive limit starts with a default above its lower bound.
+     *
+     * @return
+     *  the maximum number of concurrent requests or 0 if the requests are not limited by a static limit
+     */
+    int getMaxConcurrentRequests();
+
+    /**
+     * The maximum number of requests of a deployment waiting to be processed.
+     *
+     * @return
+     *  the maximum number of queued requests, 0 to reject all requests exceeding the limit immediately
+     */
+    int getMaxQueueSize();
+
+    /**
+     * The maximum time a request waits in the queue before it is rejected.
+     *
+     * @return
+     *  the queue timeout in milliseconds
+     */
+    int getQueueTimeout();
+
+    /**
+     * The time after which a client should retry a rejected request, sent in the Retry-After header.
+     *
+     * @return
+     *  the retry delay in seconds
+     */
+    int getRetryAfter();
+
+    /**
+     * Whether the limit adapts to the latency of the requests. The limit is lowered when the latency increases, i.e.
+     * because a backend slows down, and raised while the latency is stable.
+     *
+     * @return
+     *  <code>true</code> if the limit is adaptive
+     */
+    boolean isAdaptive();
+
+    /**
+     * The lower bound of an adaptive limit.
+     *
+     * @return
+     *  the minimum number of concurrent requests
+     */
+    int getAdaptiveMinLimit();
+
+    /**
+     * The upper bound of an adaptive limit.
+     *
+     * @return
+     *  the maximum number of concurrent requests
+     */
+    int getAdaptiveMaxLimit();
+}
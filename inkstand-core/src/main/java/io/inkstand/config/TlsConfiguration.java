@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.config;
+
+/**
+ * Configuration of the TLS listener of the WebServer. The listener is only created if a port is configured.
+ *
+ * @author <a href="mailto:gerald@inkstand.io">Gerald M&uuml;cke</a>
+ */
+public interface TlsConfiguration {
+
+    /**
+     * The port of the TLS listener.
+     *
+     * @return
+     *  the TCP port or <code>null</code> if no TLS listener should be created
+     */
+    Integer getPort();
+
+    /**
+     * The location of the keystore containing the private key and certificate of the server.
+     *
+     * @return
+     *  the path to the keystore file
+     */
+    String getKeyStore();
+
+    /**
+     * The password of the keystore that is also used for the private key.
+     *
+     * @return
+     *  the keystore password
+     */
+    String getKeyStorePassword();
+
+    /**
+     * The type of the keystore, i.e. JKS or PKCS12.
+     *
+     * @return
+     *  the keystore type
+     */
+    String getKeyStoreType();
+}
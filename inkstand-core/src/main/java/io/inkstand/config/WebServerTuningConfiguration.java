@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.config;
+
+/**
+ * Configuration of the threads, buffers, socket and protocol options of the WebServer. Each value is optional, if a value is
+ * <code>null</code> the default of the WebServer implementation is used.
+ *
+ * @author <a href="mailto:gerald@inkstand.io">Gerald M&uuml;cke</a>
+ */
+public interface WebServerTuningConfiguration {
+
+    /**
+     * The number of threads handling the non-blocking IO of the connections.
+     *
+     * @return
+     *  the number of IO threads or <code>null</code> for the default
+     */
+    Integer getIoThreads();
+
+    /**
+     * The maximum number of worker threads processing blocking requests.
+     *
+     * @return
+     *  the maximum number of worker threads or <code>null</code> for the default
+     */
+    Integer getWorkerMaxThreads();
+
+    /**
+     * The size of the buffers used for reading requests and writing responses.
+     *
+     * @return
+     *  the buffer size in bytes or <code>null</code> for the default
+     */
+    Integer getBufferSize();
+
+    /**
+     * Whether the buffers are allocated off-heap.
+     *
+     * @return
+     *  <code>true</code> for direct buffers or <code>null</code> for the default
+     */
+    Boolean getDirectBuffers();
+
+    /**
+     * The maximum number of pending connections that have not yet been accepted.
+     *
+     * @return
+     *  the backlog of the server sockets or <code>null</code> for the default
+     */
+    Integer getBacklog();
+
+    /**
+     * Whether Nagle's algorithm is disabled on the connections.
+     *
+     * @return
+     *  <code>true</code> to send data without delay or <code>null</code> for the default
+     */
+    Boolean getTcpNoDelay();
+
+    /**
+     * Whether TCP keep-alive probes are sent on idle connections.
+     *
+     * @return
+     *  <code>true</code> to enable keep-alive probes or <code>null</code> for the default
+     */
+    Boolean getKeepAlive();
+
+    /**
+     * The time after which an idle persistent connection is closed.
+     *
+     * @return
+     *  the idle timeout in milliseconds or <code>null</code> for the default
+     */
+    Integer getIdleTimeout();
+
+    /**
+     * Whether HTTP/2 is offered on the listeners of the WebServer. On cleartext listeners clients may upgrade a
+     * connection to HTTP/2 (h2c), on TLS listeners the protocol is negotiated using ALPN.
+     *
+     * @return
+     *  <code>true</code> to enable HTTP/2 or <code>null</code> for the default, which is HTTP/1.1 only
+     */
+    Boolean getHttp2();
+
+    /**
+     * Whether blocking requests are dispatched to a virtual thread per request instead of the worker threads. Virtual
+     * threads are only used if the JVM supports them, otherwise the worker threads are used.
+     *
+     * @return
+     *  <code>true</code> to dispatch to virtual threads or <code>null</code> for the default, which are the worker
+     *  threads
+     */
+    Boolean getVirtualThreads();
+}
@@ -127,6 +127,17 @@ public class ContainerControlServlet extends HttpServlet {
             out.writeStartObject();
             out.write("msg", "Shutdown request received");
             out.writeEnd();
+            //the microservice is drained right away, the container is shut down after the delay but not before
+            // the draining completed as both tasks are run by the same single thread
+            final MicroServiceController msc = Injector.getBeanInstance(MicroServiceController.class);
+            SCHEDULER.get().execute(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    msc.drain();
+                }
+            });
             LOG.info("Shutting down CDI container in {}s", delay);
             SCHEDULER.get().schedule(new Runnable() {
 
@@ -192,6 +192,7 @@ public class ContainerControlServletTest {
         Thread.sleep(delay * 1000 + 100);
         MockCdiContainer cdi = (MockCdiContainer) CdiContainerLoader.getCdiContainer();
         assertTrue(cdi.isShutdown());
+        verify(msc).drain();
 
     }
 
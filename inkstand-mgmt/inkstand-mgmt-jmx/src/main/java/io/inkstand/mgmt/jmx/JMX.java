@@ -22,6 +22,12 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
 import javax.json.JsonArrayBuilder;
 import javax.json.JsonObjectBuilder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -34,7 +40,10 @@ import java.lang.management.OperatingSystemMXBean;
 import java.lang.management.RuntimeMXBean;
 import java.lang.management.ThreadMXBean;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
+import io.inkstand.InkstandRuntimeException;
 import io.inkstand.Management;
 
 /**
@@ -50,6 +59,18 @@ public class JMX {
     public static final String PATH_THREADS = "/threads";
     public static final String PATH_CLASSLOADING = "/classloading";
     public static final String PATH_COMPILATION = "/compilation";
+    public static final String PATH_REQUESTS = "/requests";
+    public static final String PATH_LIMITS = "/limits";
+
+    /**
+     * Pattern of the names of the MBeans holding the request metrics of the deployments of the web server.
+     */
+    public static final String REQUEST_METRICS_PATTERN = "io.inkstand:type=RequestMetrics,*";
+
+    /**
+     * Pattern of the names of the MBeans holding the request limits of the deployments of the web server.
+     */
+    public static final String REQUEST_LIMITS_PATTERN = "io.inkstand:type=RequestLimit,*";
 
     @GET
     @Produces(APPLICATION_JSON)
@@ -66,6 +87,8 @@ public class JMX {
         links.add("threads", crateHref(PATH_THREADS));
         links.add("classloading", crateHref(PATH_CLASSLOADING));
         links.add("compilation", crateHref(PATH_COMPILATION));
+        links.add("requests", crateHref(PATH_REQUESTS));
+        links.add("limits", crateHref(PATH_LIMITS));
         return links;
     }
 
@@ -200,4 +223,68 @@ public class JMX {
         builder.add("compilationTimeMonitoringSupported", comp.isCompilationTimeMonitoringSupported());
         return builder.build().toString();
     }
+
+    /**
+     * Provides the request metrics of all deployments of the web server, keyed by their context path. The latencies
+     * are in microseconds.
+     * @return
+     *  a json object with one object per deployment containing its metrics
+     */
+    @GET
+    @Path(PATH_REQUESTS)
+    @Produces(APPLICATION_JSON)
+    public String requests() {
+        return getDeploymentMBeans(REQUEST_METRICS_PATTERN);
+    }
+
+    /**
+     * Provides the request limits of all deployments of the web server, keyed by their context path, including the
+     * numbers of rejected requests.
+     * @return
+     *  a json object with one object per deployment containing its limit
+     */
+    @GET
+    @Path(PATH_LIMITS)
+    @Produces(APPLICATION_JSON)
+    public String limits() {
+        return getDeploymentMBeans(REQUEST_LIMITS_PATTERN);
+    }
+
+    private String getDeploymentMBeans(final String pattern) {
+
+        final JsonObjectBuilder builder = createObjectBuilder();
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final Set<ObjectName> names = new TreeSet<>(server.queryNames(new ObjectName(pattern), null));
+            for (ObjectName name : names) {
+                builder.add(ObjectName.unquote(name.getKeyProperty("context")), getAttributes(server, name));
+            }
+        } catch (JMException e) {
+            throw new InkstandRuntimeException("Could not read " + pattern, e);
+        }
+        return builder.build().toString();
+    }
+
+    private JsonObjectBuilder getAttributes(final MBeanServer server, final ObjectName name) throws JMException {
+
+        final MBeanAttributeInfo[] attributeInfos = server.getMBeanInfo(name).getAttributes();
+        final String[] attributeNames = new String[attributeInfos.length];
+        for (int i = 0; i < attributeInfos.length; i++) {
+            attributeNames[i] = attributeInfos[i].getName();
+        }
+        final JsonObjectBuilder builder = createObjectBuilder();
+        final AttributeList attributes = server.getAttributes(name, attributeNames);
+        for (Attribute attribute : attributes.asList()) {
+            final Object value = attribute.getValue();
+            final String key = Character.toLowerCase(attribute.getName().charAt(0)) + attribute.getName().substring(1);
+            if (value instanceof Double || value instanceof Float) {
+                builder.add(key, ((Number) value).doubleValue());
+            } else if (value instanceof Number) {
+                builder.add(key, ((Number) value).longValue());
+            } else if (value != null) {
+                builder.add(key, value.toString());
+            }
+        }
+        return builder;
+    }
 }
@@ -26,8 +26,11 @@ import javax.json.JsonObject;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.StringReader;
 import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.List;
@@ -67,6 +70,8 @@ public class JMXTest {
         assertRelExists(links, "threads");
         assertRelExists(links, "classloading");
         assertRelExists(links, "compilation");
+        assertRelExists(links, "requests");
+        assertRelExists(links, "limits");
     }
 
     private JsonObject getJsonObject(final String result) {
@@ -181,6 +186,61 @@ public class JMXTest {
         assertFalse(json.isNull("compilationTimeMonitoringSupported"));
     }
 
+    @Test
+    public void testRequests() throws Exception {
+        //prepare
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("io.inkstand:type=RequestMetrics,context=" + ObjectName.quote("/test"));
+        server.registerMBean(new TestMetrics(), name);
+
+        //act
+        String result;
+        try {
+            result = subject.requests();
+        } finally {
+            server.unregisterMBean(name);
+        }
+
+        //assert
+        JsonObject json = getJsonObject(result);
+        assertFalse(json.isNull("/test"));
+        final JsonObject metrics = json.getJsonObject("/test");
+        assertEquals("/test", metrics.getString("contextPath"));
+        assertEquals(42, metrics.getJsonNumber("requestCount").longValue());
+        assertEquals(1.5, metrics.getJsonNumber("latencyMean").doubleValue(), 0.0);
+    }
+
+    @Test
+    public void testRequests_noMetrics() throws Exception {
+        //act
+        String result = subject.requests();
+
+        //assert
+        JsonObject json = getJsonObject(result);
+        assertTrue(json.isEmpty());
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        //prepare
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("io.inkstand:type=RequestLimit,context=" + ObjectName.quote("/test"));
+        server.registerMBean(new TestMetrics(), name);
+
+        //act
+        String result;
+        try {
+            result = subject.limits();
+        } finally {
+            server.unregisterMBean(name);
+        }
+
+        //assert
+        JsonObject json = getJsonObject(result);
+        assertFalse(json.isNull("/test"));
+        assertEquals("/test", json.getJsonObject("/test").getString("contextPath"));
+    }
+
     @Test
     public void contract_REST_API() throws Exception {
         Path path = JMX.class.getAnnotation(Path.class);
@@ -192,6 +252,8 @@ public class JMXTest {
         assertResource(GET.class, "/threads", "application/json", JMX.class.getMethod("threads"));
         assertResource(GET.class, "/classloading", "application/json", JMX.class.getMethod("classloading"));
         assertResource(GET.class, "/compilation", "application/json", JMX.class.getMethod("compilation"));
+        assertResource(GET.class, "/requests", "application/json", JMX.class.getMethod("requests"));
+        assertResource(GET.class, "/limits", "application/json", JMX.class.getMethod("limits"));
     }
 
     private void assertResource(final Class<? extends Annotation> expectedAction,
@@ -226,4 +288,34 @@ public class JMXTest {
 
         assertNotNull(method.getAnnotation(actionAnnotation));
     }
+
+    public interface TestMetricsMXBean {
+
+        String getContextPath();
+
+        long getRequestCount();
+
+        double getLatencyMean();
+    }
+
+    public static class TestMetrics implements TestMetricsMXBean {
+
+        @Override
+        public String getContextPath() {
+
+            return "/test";
+        }
+
+        @Override
+        public long getRequestCount() {
+
+            return 42;
+        }
+
+        @Override
+        public double getLatencyMean() {
+
+            return 1.5;
+        }
+    }
 }
@@ -54,7 +54,7 @@ public interface MicroService {
          * <ul>
          *     <li>{@code (create)}: -&gt; NEW</li>
          *     <li>{@code start()}: NEW -&gt; RUNNING</li>
-         *     <li>{@code stop()}: RUNNING -&gt; STOPPED</li>
+         *     <li>{@code stop()}: RUNNING -&gt; (DRAINING -&gt;) STOPPED</li>
          *     <li>{@code start()}: STOPPED -&gt; RUNNING</li>
          * </ul>
          * @return
@@ -64,6 +64,10 @@ public interface MicroService {
         enum State {
             NEW,
             RUNNING,
+            /**
+             * The service rejects new requests and waits for the active requests to complete before it stops.
+             */
+            DRAINING,
             STOPPED,
             ;
         }
@@ -71,4 +75,17 @@ public interface MicroService {
 
     }
 
+    /**
+     * Extension interface for {@link MicroService}. MicroService implementations may implement this interface
+     * to complete the requests in progress before they are stopped.
+     */
+    interface DrainSupport {
+
+        /**
+         * Rejects new requests and waits until the active requests are completed or the drain timeout of the
+         * service has elapsed. The service remains in the DRAINING state until it is stopped.
+         */
+        void drain();
+    }
+
 }
@@ -65,6 +65,17 @@ public class MicroServiceController implements MicroService.StateSupport{
         LOG.info("'{}' stopped", microService);
     }
 
+    /**
+     * Drains the microservice if it provides {@link MicroService.DrainSupport} so that no new requests are accepted
+     * and the active requests are completed before the service is shut down.
+     */
+    public void drain() {
+        if(microService instanceof MicroService.DrainSupport){
+            LOG.info("Draining '{}'", microService);
+            ((MicroService.DrainSupport) microService).drain();
+        }
+    }
+
     @Override
     public State getState(){
         if(microService instanceof MicroService.StateSupport){
@@ -48,6 +48,9 @@ public class MicroServiceControllerTest {
     @Mock(extraInterfaces = MicroService.class)
     private StateSupport statefulMs;
 
+    @Mock(extraInterfaces = MicroService.class)
+    private MicroService.DrainSupport drainableMs;
+
     @InjectMocks
     private MicroServiceController subject;
 
@@ -74,6 +77,31 @@ public class MicroServiceControllerTest {
         verify(ms).stop();
     }
 
+    @Test
+    public void testDrain_drainSupport() throws Exception {
+        //prepare
+        Scribble.inject(drainableMs).asQualifyingInstance().into(subject);
+
+        //act
+        subject.drain();
+
+        //assert
+        verify(drainableMs).drain();
+    }
+
+    @Test
+    public void testDrain_noDrainSupport() throws Exception {
+        //prepare
+        subject.init();
+
+        //act
+        subject.drain();
+
+        //assert
+        //nothing to drain, the service remains running until shutdown
+        assertEquals(StateSupport.State.RUNNING, subject.getState());
+    }
+
     @Test
     public void testGetState_noStateSupport_beforeInit_NEW() throws Exception {
         //prepare
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit that adapts to the observed round trip times of the requests, following the TCP Vegas congestion
+ * control. The shortest round trip time is taken as the time of a request without load. If the current round trip
+ * time exceeds it, requests are assumed to be waiting for a resource, i.e. a slow JCR or LDAP backend, and the number
+ * of waiting requests is estimated as <code>limit * (1 - noLoadRtt / rtt)</code>. The limit is increased while few
+ * requests are waiting and decreased if many requests are waiting, the thresholds grow logarithmically with the limit.
+ * <br>
+ * The samples are aggregated without locking over a window of at least 50 ms and 10 requests, and the limit is updated
+ * once per window using the shortest round trip time of the window. The limit is not changed while less than half of
+ * it is used, as the round trip times then tell nothing about the capacity. To follow a backend that becomes
+ * permanently slower, the no-load round trip time is reset every 100 windows.
+ */
+final class AdaptiveLimit {
+
+    private static final long MIN_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final int PROBE_INTERVAL = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final int windowSamples;
+
+    private final AtomicLong windowMinRtt = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicInteger windowMaxInflight = new AtomicInteger();
+    private final AtomicInteger windowCount = new AtomicInteger();
+    private final AtomicBoolean updating = new AtomicBoolean();
+    private volatile long windowEnd;
+
+    /**
+     * State of the algorithm, modified by the thread holding the updating flag. The limit may also be set externally.
+     */
+    private volatile double limit;
+    private volatile long noLoadRtt;
+    private int windows;
+
+    /**
+     * Creates an adaptive limit.
+     * @param initialLimit
+     *  the limit to start with
+     * @param minLimit
+     *  the lower bound of the limit
+     * @param maxLimit
+     *  the upper bound of the limit
+     */
+    AdaptiveLimit(final int initialLimit, final int minLimit, final int maxLimit) {
+
+        this(initialLimit, minLimit, maxLimit, MIN_WINDOW_NANOS, MIN_WINDOW_SAMPLES);
+    }
+
+    /**
+     * Creates an adaptive limit with a specific sampling window.
+     * @param initialLimit
+     *  the limit to start with
+     * @param minLimit
+     *  the lower bound of the limit
+     * @param maxLimit
+     *  the upper bound of the limit
+     * @param windowNanos
+     *  the minimum duration of a sampling window
+     * @param windowSamples
+     *  the minimum number of samples of a window
+     */
+    AdaptiveLimit(final int initialLimit,
+                  final int minLimit,
+                  final int maxLimit,
+                  final long windowNanos,
+                  final int windowSamples) {
+
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = clamp(initialLimit);
+        this.windowNanos = windowNanos;
+        this.windowSamples = windowSamples;
+        this.windowEnd = System.nanoTime() + windowNanos;
+    }
+
+    /**
+     * @return
+     *  the current limit
+     */
+    int getLimit() {
+
+        return (int) this.limit;
+    }
+
+    /**
+     * Sets the limit from which the algorithm continues to adapt, i.e. when changed by an operator.
+     * @param limit
+     *  the new limit, it is kept within the bounds
+     */
+    void setLimit(final int limit) {
+
+        this.limit = clamp(limit);
+    }
+
+    /**
+     * @return
+     *  the round trip time in nanoseconds assumed for requests without load, 0 if no request has been sampled yet
+     */
+    long getNoLoadRtt() {
+
+        return this.noLoadRtt;
+    }
+
+    /**
+     * Records the round trip time of a completed request.
+     * @param rttNanos
+     *  the time in nanoseconds the request was processed
+     * @param inflight
+     *  the number of requests processed when the request was started, including the request itself
+     * @return
+     *  the new limit if the limit was changed by this sample, otherwise 0
+     */
+    int onSample(final long rttNanos, final int inflight) {
+
+        long currentRtt;
+        while (rttNanos < (currentRtt = this.windowMinRtt.get())
+                && !this.windowMinRtt.compareAndSet(currentRtt, rttNanos)) {
+            //retry
+        }
+        int currentInflight;
+        while (inflight > (currentInflight = this.windowMaxInflight.get())
+                && !this.windowMaxInflight.compareAndSet(currentInflight, inflight)) {
+            //retry
+        }
+        final int count = this.windowCount.incrementAndGet();
+        final long now = System.nanoTime();
+        if (count < this.windowSamples || now - this.windowEnd < 0 || !this.updating.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            final long rtt = this.windowMinRtt.getAndSet(Long.MAX_VALUE);
+            final int maxInflight = this.windowMaxInflight.getAndSet(0);
+            this.windowCount.set(0);
+            this.windowEnd = now + this.windowNanos;
+            final int oldLimit = getLimit();
+            update(Math.max(rtt, 1), maxInflight);
+            final int newLimit = getLimit();
+            return newLimit == oldLimit ? 0 : newLimit;
+        } finally {
+            this.updating.set(false);
+        }
+    }
+
+    private void update(final long rtt, final int inflight) {
+
+        this.windows++;
+        if (this.noLoadRtt == 0 || rtt < this.noLoadRtt || this.windows % PROBE_INTERVAL == 0) {
+            this.noLoadRtt = rtt;
+        }
+        final double current = this.limit;
+        if (inflight * 2 < current) {
+            return;
+        }
+        final double log = Math.max(1, Math.log10(current));
+        final double queueSize = Math.ceil(current * (1 - (double) this.noLoadRtt / rtt));
+        final double newLimit;
+        if (queueSize <= log) {
+            newLimit = current + 6 * log;
+        } else if (queueSize < 3 * log) {
+            newLimit = current + log;
+        } else if (queueSize > 6 * log) {
+            newLimit = current - log;
+        } else {
+            newLimit = current;
+        }
+        this.limit = clamp(newLimit);
+    }
+
+    private double clamp(final double value) {
+
+        return Math.max(this.minLimit, Math.min(this.maxLimit, value));
+    }
+}
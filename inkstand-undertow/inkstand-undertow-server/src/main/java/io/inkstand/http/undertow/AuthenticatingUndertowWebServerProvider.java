@@ -17,6 +17,7 @@
 package io.inkstand.http.undertow;
 
 import javax.annotation.Priority;
+import javax.enterprise.inject.Instance;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -29,7 +30,9 @@ import org.slf4j.LoggerFactory;
 import io.inkstand.InkstandRuntimeException;
 import io.inkstand.ProtectedService;
 import io.inkstand.config.ResourceSecurityConfiguration;
+import io.inkstand.config.TlsConfiguration;
 import io.inkstand.config.WebServerConfiguration;
+import io.inkstand.config.WebServerTuningConfiguration;
 import io.undertow.Undertow;
 import io.undertow.security.api.AuthenticationMechanism;
 import io.undertow.security.api.AuthenticationMode;
@@ -70,6 +73,21 @@ public class AuthenticatingUndertowWebServerProvider {
     @Inject
     private IdentityManager identityManager;
 
+    @Inject
+    private Instance<WebServerTuningConfiguration> tuning;
+
+    @Inject
+    private Instance<TlsConfiguration> tls;
+
+    @Inject
+    private UndertowGracefulShutdown gracefulShutdown;
+
+    @Inject
+    private UndertowRequestMetrics requestMetrics;
+
+    @Inject
+    private UndertowRequestLimits requestLimits;
+
     /**
      * Creates an {@link Undertow} instance that has an {@link IdentityManager} associated to secure the resources
      * served by the undertow http server.
@@ -80,6 +98,8 @@ public class AuthenticatingUndertowWebServerProvider {
     public Undertow getSecuredUndertow() {
 
         this.deploymentInfo.setIdentityManager(this.identityManager);
+        final WebServerTuningConfiguration tuningConfig = this.tuning.isUnsatisfied() ? null : this.tuning.get();
+        UndertowDispatch.apply(this.deploymentInfo, tuningConfig);
 
         final DeploymentManager deploymentManager = Servlets.defaultContainer().addDeployment(this.deploymentInfo);
         deploymentManager.deploy();
@@ -90,10 +110,13 @@ public class AuthenticatingUndertowWebServerProvider {
                      this.config.getPort(),
                      this.deploymentInfo.getContextPath(),
                      this.deploymentInfo.getDeploymentName());
-            return Undertow.builder()
-                           .addHttpListener(this.config.getPort(), this.config.getBindAddress())
-                           .setHandler(addSecurity(deploymentManager.start()))
-                           .build();
+            final Undertow.Builder builder = Undertow.builder();
+            final TlsConfiguration tlsConfig = this.tls.isUnsatisfied() ? null : this.tls.get();
+            final String contextPath = this.deploymentInfo.getContextPath();
+            final HttpHandler limited = this.requestLimits.wrap(contextPath, addSecurity(deploymentManager.start()));
+            final HttpHandler root = this.gracefulShutdown.wrap(this.requestMetrics.wrap(contextPath, limited));
+            UndertowTuning.apply(builder, tuningConfig);
+            return UndertowListeners.addListeners(builder, this.config, tuningConfig, tlsConfig, root).build();
         } catch (final ServletException e) {
             throw new InkstandRuntimeException(e);
         }
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Histogram of latencies with log-linear buckets in the style of the HdrHistogram. The values are divided into ranges
+ * of powers of two, each range is divided linearly into 16 buckets, so the value of a bucket deviates at most 1/16
+ * from the recorded values. Values from 0 to 2<sup>41</sup> are distinguished, larger values are recorded in the last
+ * bucket, which - when recording microseconds - covers more than 25 days.
+ * <br>
+ * Recording a value does not lock or allocate, the bucket counters are striped by thread using
+ * {@link StripedCounters}. Reading the histogram is done by a {@link Snapshot}, which is not atomic with respect to
+ * values recorded concurrently.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * The largest value that is distinguished.
+     */
+    static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    /**
+     * The number of buckets, the counter following the buckets holds the sum of all values.
+     */
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private static final int SUM = BUCKETS;
+
+    private final StripedCounters counters;
+
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram() {
+
+        this.counters = new StripedCounters(BUCKETS + 1);
+    }
+
+    /**
+     * Records a value.
+     * @param value
+     *  the value to record. Negative values are recorded as 0.
+     */
+    void record(final long value) {
+
+        final long v = Math.max(value, 0);
+        this.counters.increment(bucketIndex(v));
+        this.counters.add(SUM, v);
+        long current = this.max.get();
+        while (v > current && !this.max.compareAndSet(current, v)) {
+            current = this.max.get();
+        }
+    }
+
+    /**
+     * Resets the histogram. Values recorded concurrently to the reset may be lost.
+     */
+    void reset() {
+
+        this.counters.reset();
+        this.max.set(0);
+    }
+
+    /**
+     * @return
+     *  a snapshot of the current state of the histogram
+     */
+    Snapshot snapshot() {
+
+        final long[] values = this.counters.getAll();
+        final long[] buckets = new long[BUCKETS];
+        System.arraycopy(values, 0, buckets, 0, BUCKETS);
+        return new Snapshot(buckets, values[SUM], this.max.get());
+    }
+
+    /**
+     * Determines the bucket of a value.
+     * @param value
+     *  a non-negative value
+     * @return
+     *  the index of the bucket
+     */
+    static int bucketIndex(final long value) {
+
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+        final long v = Math.min(value, MAX_VALUE);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((v >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Determines the highest value recorded into a bucket.
+     * @param index
+     *  the index of the bucket
+     * @return
+     *  the highest value of the bucket
+     */
+    static long highestValue(final int index) {
+
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        final long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Immutable snapshot of the histogram.
+     */
+    static final class Snapshot {
+
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(final long[] buckets, final long sum, final long max) {
+
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            this.buckets = buckets;
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @return
+         *  the number of recorded values
+         */
+        long getCount() {
+
+            return this.count;
+        }
+
+        /**
+         * @return
+         *  the largest recorded value
+         */
+        long getMax() {
+
+            return this.max;
+        }
+
+        /**
+         * @return
+         *  the mean of the recorded values or 0 if no value has been recorded
+         */
+        double getMean() {
+
+            return this.count == 0 ? 0 : (double) this.sum / this.count;
+        }
+
+        /**
+         * Determines the value below or at which the given percentage of the recorded values are.
+         * @param percentile
+         *  the percentile between 0 and 100
+         * @return
+         *  the highest value of the bucket containing the percentile, but not more than the largest recorded value.
+         *  If no value has been recorded, 0 is returned.
+         */
+        long getValueAtPercentile(final double percentile) {
+
+            if (this.count == 0) {
+                return 0;
+            }
+            final long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * this.count));
+            long cumulative = 0;
+            for (int i = 0; i < this.buckets.length; i++) {
+                cumulative += this.buckets[i];
+                if (cumulative >= target) {
+                    return Math.min(highestValue(i), this.max);
+                }
+            }
+            return this.max;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registration of the MBeans of the deployments on the platform MBean server. The MBeans are optional, failures are
+ * logged but do not prevent the server from starting.
+ */
+final class MBeans {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MBeans.class);
+
+    private MBeans() {
+
+    }
+
+    /**
+     * Creates the name of the MBean of a deployment.
+     * @param prefix
+     *  the prefix of the name, ending with the key of the context path
+     * @param contextPath
+     *  the context path of the deployment
+     * @return
+     *  the object name
+     * @throws JMException
+     *  if the name is malformed
+     */
+    static ObjectName getObjectName(final String prefix, final String contextPath) throws JMException {
+
+        return new ObjectName(prefix + ObjectName.quote(contextPath));
+    }
+
+    /**
+     * Registers an MBean of a deployment. An MBean already registered for the deployment, i.e. by a previous server
+     * instance, is replaced.
+     * @param prefix
+     *  the prefix of the name, ending with the key of the context path
+     * @param contextPath
+     *  the context path of the deployment
+     * @param mbean
+     *  the MBean to register
+     */
+    static void register(final String prefix, final String contextPath, final Object mbean) {
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName name = getObjectName(prefix, contextPath);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+        } catch (JMException e) {
+            LOG.warn("Could not register {}{}", prefix, contextPath, e);
+        }
+    }
+
+    /**
+     * Unregisters the MBean of a deployment, if it is registered.
+     * @param prefix
+     *  the prefix of the name, ending with the key of the context path
+     * @param contextPath
+     *  the context path of the deployment
+     */
+    static void unregister(final String prefix, final String contextPath) {
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName name = getObjectName(prefix, contextPath);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            LOG.warn("Could not unregister {}{}", prefix, contextPath, e);
+        }
+    }
+}
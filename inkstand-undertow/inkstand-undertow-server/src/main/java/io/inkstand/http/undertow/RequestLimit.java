@@ -0,0 +1,409 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.xnio.XnioExecutor;
+
+import io.undertow.server.ExchangeCompletionListener;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.SameThreadExecutor;
+import io.undertow.util.StatusCodes;
+
+/**
+ * Limit of the concurrent requests of a single deployment. Requests exceeding the limit are suspended and queued. When
+ * an active request completes, its permit is passed to the next queued request. Requests that can not be queued
+ * because the queue is full or that are not resumed within the queue timeout are rejected with 503 and a Retry-After
+ * header. Similar to the {@link io.undertow.server.handlers.RequestLimit} of Undertow, but without locking and with
+ * a deadline for queued requests.
+ * <br>
+ * The limit is either static or adjusted by an {@link AdaptiveLimit} to the round trip times of the requests.
+ */
+final class RequestLimit implements RequestLimitMXBean {
+
+    private final String contextPath;
+    private final int maxQueueSize;
+    private final long queueTimeout;
+    private final String retryAfter;
+
+    private volatile int maxConcurrentRequests;
+
+    /**
+     * The algorithm adapting the limit, <code>null</code> for a static limit
+     */
+    private final AdaptiveLimit adaptiveLimit;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<QueuedRequest> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong shedQueueFull = new AtomicLong();
+    private final AtomicLong shedQueueTimeout = new AtomicLong();
+
+    /**
+     * Passes the permit of a completed request on.
+     */
+    private final ExchangeCompletionListener completionListener = new ExchangeCompletionListener() {
+
+        @Override
+        public void exchangeEvent(final HttpServerExchange exchange, final NextListener nextListener) {
+
+            try {
+                handOff();
+            } finally {
+                nextListener.proceed();
+            }
+        }
+    };
+
+    /**
+     * Rejects a request with 503 and a Retry-After header.
+     */
+    private final HttpHandler rejectHandler = new HttpHandler() {
+
+        @Override
+        public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+            exchange.setResponseCode(StatusCodes.SERVICE_UNAVAILABLE);
+            exchange.getResponseHeaders().put(Headers.RETRY_AFTER, retryAfter);
+            exchange.endExchange();
+        }
+    };
+
+    /**
+     * Creates the limit of a deployment.
+     * @param contextPath
+     *  the context path of the deployment
+     * @param maxConcurrentRequests
+     *  the maximum number of requests processed concurrently
+     * @param maxQueueSize
+     *  the maximum number of requests waiting to be processed
+     * @param queueTimeout
+     *  the maximum time in milliseconds a request waits to be processed
+     * @param retryAfter
+     *  the time in seconds after which clients should retry rejected requests
+     */
+    RequestLimit(final String contextPath,
+                 final int maxConcurrentRequests,
+                 final int maxQueueSize,
+                 final long queueTimeout,
+                 final int retryAfter) {
+
+        this(contextPath, maxConcurrentRequests, maxQueueSize, queueTimeout, retryAfter, null);
+    }
+
+    /**
+     * Creates the limit of a deployment that is adjusted by an adaptive limit.
+     * @param contextPath
+     *  the context path of the deployment
+     * @param maxQueueSize
+     *  the maximum number of requests waiting to be processed
+     * @param queueTimeout
+     *  the maximum time in milliseconds a request waits to be processed
+     * @param retryAfter
+     *  the time in seconds after which clients should retry rejected requests
+     * @param adaptiveLimit
+     *  the algorithm adapting the limit, starting with its current limit
+     */
+    RequestLimit(final String contextPath,
+                 final int maxQueueSize,
+                 final long queueTimeout,
+                 final int retryAfter,
+                 final AdaptiveLimit adaptiveLimit) {
+
+        this(contextPath, adaptiveLimit.getLimit(), maxQueueSize, queueTimeout, retryAfter, adaptiveLimit);
+    }
+
+    private RequestLimit(final String contextPath,
+                         final int maxConcurrentRequests,
+                         final int maxQueueSize,
+                         final long queueTimeout,
+                         final int retryAfter,
+                         final AdaptiveLimit adaptiveLimit) {
+
+        this.contextPath = contextPath;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.adaptiveLimit = adaptiveLimit;
+        this.maxQueueSize = maxQueueSize;
+        this.queueTimeout = queueTimeout;
+        this.retryAfter = String.valueOf(retryAfter);
+    }
+
+    /**
+     * Wraps the root handler of the deployment into a handler that applies this limit.
+     * @param next
+     *  the root handler of the deployment
+     * @return
+     *  the limiting handler
+     */
+    HttpHandler wrap(final HttpHandler next) {
+
+        return new HttpHandler() {
+
+            @Override
+            public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+                if (tryAcquire()) {
+                    exchange.addExchangeCompleteListener(createCompletionListener());
+                    next.handleRequest(exchange);
+                } else {
+                    //the request is queued once the current call has returned, so it may be resumed by any thread
+                    exchange.dispatch(SameThreadExecutor.INSTANCE, new Runnable() {
+
+                        @Override
+                        public void run() {
+
+                            enqueue(exchange, next);
+                        }
+                    });
+                }
+            }
+        };
+    }
+
+    @Override
+    public String getContextPath() {
+
+        return this.contextPath;
+    }
+
+    @Override
+    public int getMaxConcurrentRequests() {
+
+        return this.maxConcurrentRequests;
+    }
+
+    @Override
+    public void setMaxConcurrentRequests(final int maxConcurrentRequests) {
+
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("The limit must be at least 1 but was " + maxConcurrentRequests);
+        }
+        if (this.adaptiveLimit != null) {
+            this.adaptiveLimit.setLimit(maxConcurrentRequests);
+        }
+        applyLimit(maxConcurrentRequests);
+    }
+
+    @Override
+    public int getMaxQueueSize() {
+
+        return this.maxQueueSize;
+    }
+
+    @Override
+    public long getQueueTimeout() {
+
+        return this.queueTimeout;
+    }
+
+    @Override
+    public int getActiveRequests() {
+
+        return this.active.get();
+    }
+
+    @Override
+    public int getQueuedRequests() {
+
+        return this.queued.get();
+    }
+
+    @Override
+    public long getShedQueueFull() {
+
+        return this.shedQueueFull.get();
+    }
+
+    @Override
+    public long getShedQueueTimeout() {
+
+        return this.shedQueueTimeout.get();
+    }
+
+    @Override
+    public boolean isAdaptive() {
+
+        return this.adaptiveLimit != null;
+    }
+
+    @Override
+    public long getNoLoadRtt() {
+
+        return this.adaptiveLimit == null ? 0 : TimeUnit.NANOSECONDS.toMicros(this.adaptiveLimit.getNoLoadRtt());
+    }
+
+    @Override
+    public void reset() {
+
+        this.shedQueueFull.set(0);
+        this.shedQueueTimeout.set(0);
+    }
+
+    /**
+     * Sets the limit and resumes queued requests if the limit has been raised.
+     */
+    private void applyLimit(final int limit) {
+
+        this.maxConcurrentRequests = limit;
+        while (!this.queue.isEmpty() && tryAcquire()) {
+            handOff();
+        }
+    }
+
+    /**
+     * Creates the listener passing the permit of a request on when it completes. For an adaptive limit the listener
+     * samples the round trip time of the request.
+     */
+    private ExchangeCompletionListener createCompletionListener() {
+
+        final AdaptiveLimit adaptive = this.adaptiveLimit;
+        if (adaptive == null) {
+            return this.completionListener;
+        }
+        final long start = System.nanoTime();
+        final int inflight = this.active.get();
+        return new ExchangeCompletionListener() {
+
+            @Override
+            public void exchangeEvent(final HttpServerExchange exchange, final NextListener nextListener) {
+
+                try {
+                    final int newLimit = adaptive.onSample(System.nanoTime() - start, inflight);
+                    if (newLimit > 0) {
+                        maxConcurrentRequests = newLimit;
+                    }
+                    if (active.get() > maxConcurrentRequests) {
+                        //the limit has been lowered, the permit is returned instead of being passed on
+                        active.decrementAndGet();
+                    } else {
+                        handOff();
+                    }
+                    if (newLimit > 0) {
+                        applyLimit(newLimit);
+                    }
+                } finally {
+                    nextListener.proceed();
+                }
+            }
+        };
+    }
+
+    private boolean tryAcquire() {
+
+        int current;
+        do {
+            current = this.active.get();
+            if (current >= this.maxConcurrentRequests) {
+                return false;
+            }
+        } while (!this.active.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void enqueue(final HttpServerExchange exchange, final HttpHandler next) {
+
+        if (this.queued.incrementAndGet() > this.maxQueueSize) {
+            this.queued.decrementAndGet();
+            this.shedQueueFull.incrementAndGet();
+            exchange.dispatch(SameThreadExecutor.INSTANCE, this.rejectHandler);
+            return;
+        }
+        final QueuedRequest request = new QueuedRequest(exchange, next);
+        this.queue.offer(request);
+        request.timeoutKey = exchange.getIoThread().executeAfter(new Runnable() {
+
+            @Override
+            public void run() {
+
+                if (request.claim()) {
+                    queued.decrementAndGet();
+                    queue.remove(request);
+                    shedQueueTimeout.incrementAndGet();
+                    exchange.dispatch(SameThreadExecutor.INSTANCE, rejectHandler);
+                }
+            }
+        }, this.queueTimeout, TimeUnit.MILLISECONDS);
+        //an active request may have completed while this request was queued
+        if (tryAcquire()) {
+            handOff();
+        }
+    }
+
+    /**
+     * Passes a permit held by the caller to the next queued request or releases it if no request is queued.
+     */
+    private void handOff() {
+
+        for (;;) {
+            final QueuedRequest request = this.queue.poll();
+            if (request == null) {
+                this.active.decrementAndGet();
+                //a request may have been queued after the queue was found empty
+                if (this.queue.isEmpty() || !tryAcquire()) {
+                    return;
+                }
+            } else if (request.claim()) {
+                this.queued.decrementAndGet();
+                request.resume();
+                return;
+            }
+        }
+    }
+
+    /**
+     * A suspended request waiting for a permit. A queued request is either resumed or rejected, whichever claims it
+     * first.
+     */
+    private final class QueuedRequest {
+
+        private final HttpServerExchange exchange;
+        private final HttpHandler next;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile XnioExecutor.Key timeoutKey;
+
+        QueuedRequest(final HttpServerExchange exchange, final HttpHandler next) {
+
+            this.exchange = exchange;
+            this.next = next;
+        }
+
+        boolean claim() {
+
+            return this.claimed.compareAndSet(false, true);
+        }
+
+        void resume() {
+
+            final XnioExecutor.Key key = this.timeoutKey;
+            if (key != null) {
+                key.remove();
+            }
+            this.exchange.addExchangeCompleteListener(createCompletionListener());
+            //the request continues on its IO thread, from where it is dispatched as if it had not been queued
+            this.exchange.dispatch(this.exchange.getIoThread(), this.next);
+        }
+    }
+}
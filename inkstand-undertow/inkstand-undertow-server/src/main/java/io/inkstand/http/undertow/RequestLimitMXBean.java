@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+/**
+ * Management interface of the limit of concurrent requests of a single deployment.
+ */
+public interface RequestLimitMXBean {
+
+    /**
+     * @return
+     *  the context path of the deployment
+     */
+    String getContextPath();
+
+    /**
+     * @return
+     *  the maximum number of requests processed concurrently
+     */
+    int getMaxConcurrentRequests();
+
+    /**
+     * Changes the maximum number of requests processed concurrently. If the limit is raised, queued requests are
+     * processed immediately. If it is lowered, the requests already being processed are completed. An adaptive limit
+     * continues to adapt from the new limit.
+     * @param maxConcurrentRequests
+     *  the new limit, at least 1
+     */
+    void setMaxConcurrentRequests(int maxConcurrentRequests);
+
+    /**
+     * @return
+     *  the maximum number of requests waiting to be processed
+     */
+    int getMaxQueueSize();
+
+    /**
+     * @return
+     *  the maximum time in milliseconds a request waits to be processed
+     */
+    long getQueueTimeout();
+
+    /**
+     * @return
+     *  the number of requests currently processed
+     */
+    int getActiveRequests();
+
+    /**
+     * @return
+     *  the number of requests currently waiting to be processed
+     */
+    int getQueuedRequests();
+
+    /**
+     * @return
+     *  the number of requests rejected because the queue was full
+     */
+    long getShedQueueFull();
+
+    /**
+     * @return
+     *  the number of requests rejected because they waited too long in the queue
+     */
+    long getShedQueueTimeout();
+
+    /**
+     * @return
+     *  <code>true</code> if the limit adapts to the round trip times of the requests
+     */
+    boolean isAdaptive();
+
+    /**
+     * @return
+     *  the round trip time in microseconds of requests without load as assumed by the adaptive limit, 0 if the limit
+     *  is not adaptive or no request has been completed yet
+     */
+    long getNoLoadRtt();
+
+    /**
+     * Resets the counters of the rejected requests.
+     */
+    void reset();
+}
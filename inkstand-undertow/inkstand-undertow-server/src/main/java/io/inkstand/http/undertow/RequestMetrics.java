@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+/**
+ * The request metrics of a single deployment. Recording a request is lock-free, the metrics are read through the
+ * {@link RequestMetricsMXBean} interface.
+ */
+final class RequestMetrics implements RequestMetricsMXBean {
+
+    private static final int BYTES_IN = 5;
+    private static final int BYTES_OUT = 6;
+
+    private final String contextPath;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * The counters of the status classes 1xx to 5xx followed by the bytes in and out.
+     */
+    private final StripedCounters counters = new StripedCounters(BYTES_OUT + 1);
+
+    RequestMetrics(final String contextPath) {
+
+        this.contextPath = contextPath;
+    }
+
+    /**
+     * Records a completed request.
+     * @param latencyMicros
+     *  the latency of the request in microseconds
+     * @param statusCode
+     *  the status code of the response. Codes outside of the range 100 to 599 are counted as 5xx.
+     * @param bytesIn
+     *  the number of bytes received in the request body
+     * @param bytesOut
+     *  the number of bytes sent in the response body
+     */
+    void record(final long latencyMicros, final int statusCode, final long bytesIn, final long bytesOut) {
+
+        this.latency.record(latencyMicros);
+        final int statusClass = statusCode / 100;
+        this.counters.increment(statusClass >= 1 && statusClass <= 5 ? statusClass - 1 : 4);
+        if (bytesIn > 0) {
+            this.counters.add(BYTES_IN, bytesIn);
+        }
+        if (bytesOut > 0) {
+            this.counters.add(BYTES_OUT, bytesOut);
+        }
+    }
+
+    @Override
+    public String getContextPath() {
+
+        return this.contextPath;
+    }
+
+    @Override
+    public long getRequestCount() {
+
+        return this.latency.snapshot().getCount();
+    }
+
+    @Override
+    public long getStatus1xx() {
+
+        return this.counters.get(0);
+    }
+
+    @Override
+    public long getStatus2xx() {
+
+        return this.counters.get(1);
+    }
+
+    @Override
+    public long getStatus3xx() {
+
+        return this.counters.get(2);
+    }
+
+    @Override
+    public long getStatus4xx() {
+
+        return this.counters.get(3);
+    }
+
+    @Override
+    public long getStatus5xx() {
+
+        return this.counters.get(4);
+    }
+
+    @Override
+    public long getBytesIn() {
+
+        return this.counters.get(BYTES_IN);
+    }
+
+    @Override
+    public long getBytesOut() {
+
+        return this.counters.get(BYTES_OUT);
+    }
+
+    @Override
+    public double getLatencyMean() {
+
+        return this.latency.snapshot().getMean();
+    }
+
+    @Override
+    public long getLatency50th() {
+
+        return this.latency.snapshot().getValueAtPercentile(50.0);
+    }
+
+    @Override
+    public long getLatency90th() {
+
+        return this.latency.snapshot().getValueAtPercentile(90.0);
+    }
+
+    @Override
+    public long getLatency99th() {
+
+        return this.latency.snapshot().getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public long getLatency999th() {
+
+        return this.latency.snapshot().getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getLatencyMax() {
+
+        return this.latency.snapshot().getMax();
+    }
+
+    @Override
+    public void reset() {
+
+        this.latency.reset();
+        this.counters.reset();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+/**
+ * Management interface of the request metrics of a single deployment. The latencies are measured in microseconds from
+ * the start of the handling of the request until the exchange is completed.
+ */
+public interface RequestMetricsMXBean {
+
+    /**
+     * @return
+     *  the context path of the deployment
+     */
+    String getContextPath();
+
+    /**
+     * @return
+     *  the number of completed requests
+     */
+    long getRequestCount();
+
+    /**
+     * @return
+     *  the number of responses with a 1xx status code
+     */
+    long getStatus1xx();
+
+    /**
+     * @return
+     *  the number of responses with a 2xx status code
+     */
+    long getStatus2xx();
+
+    /**
+     * @return
+     *  the number of responses with a 3xx status code
+     */
+    long getStatus3xx();
+
+    /**
+     * @return
+     *  the number of responses with a 4xx status code
+     */
+    long getStatus4xx();
+
+    /**
+     * @return
+     *  the number of responses with a 5xx status code
+     */
+    long getStatus5xx();
+
+    /**
+     * @return
+     *  the number of bytes received in request bodies
+     */
+    long getBytesIn();
+
+    /**
+     * @return
+     *  the number of bytes sent in response bodies
+     */
+    long getBytesOut();
+
+    /**
+     * @return
+     *  the mean latency
+     */
+    double getLatencyMean();
+
+    /**
+     * @return
+     *  the median latency
+     */
+    long getLatency50th();
+
+    /**
+     * @return
+     *  the 90th percentile of the latency
+     */
+    long getLatency90th();
+
+    /**
+     * @return
+     *  the 99th percentile of the latency
+     */
+    long getLatency99th();
+
+    /**
+     * @return
+     *  the 99.9th percentile of the latency
+     */
+    long getLatency999th();
+
+    /**
+     * @return
+     *  the maximum latency
+     */
+    long getLatencyMax();
+
+    /**
+     * Resets all metrics.
+     */
+    void reset();
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed number of long counters that are incremented without locks. Each counter is striped over several cells,
+ * the cell a thread updates is selected by the id of the thread, so that threads running concurrently rarely update
+ * the same cell. The cells of each stripe are stored contiguously and the stripes are separated by padding, so that
+ * updates of different stripes do not share a cache line. The value of a counter is the sum of its cells.
+ */
+final class StripedCounters {
+
+    /**
+     * Number of longs between two stripes, two cache lines of 64 bytes.
+     */
+    private static final int PADDING = 16;
+
+    /**
+     * The maximum number of stripes.
+     */
+    private static final int MAX_STRIPES = 16;
+
+    private final int counters;
+    private final int stripeMask;
+    private final int stripeSize;
+    private final AtomicLongArray cells;
+
+    /**
+     * Creates the counters with a number of stripes depending on the number of available processors.
+     * @param counters
+     *  the number of counters
+     */
+    StripedCounters(final int counters) {
+
+        this(counters, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates the counters.
+     * @param counters
+     *  the number of counters
+     * @param concurrency
+     *  the expected number of concurrently updating threads. The number of stripes is the next power of two, up to
+     *  a maximum of 16.
+     */
+    StripedCounters(final int counters, final int concurrency) {
+
+        int stripes = 1;
+        while (stripes < concurrency && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        this.counters = counters;
+        this.stripeMask = stripes - 1;
+        this.stripeSize = counters + PADDING;
+        this.cells = new AtomicLongArray(stripes * this.stripeSize);
+    }
+
+    /**
+     * @return
+     *  the number of counters
+     */
+    int size() {
+
+        return this.counters;
+    }
+
+    /**
+     * @return
+     *  the number of stripes over which the counters are distributed
+     */
+    int getStripes() {
+
+        return this.stripeMask + 1;
+    }
+
+    /**
+     * Adds a value to a counter.
+     * @param counter
+     *  the index of the counter
+     * @param delta
+     *  the value to add
+     */
+    void add(final int counter, final long delta) {
+
+        final int stripe = (int) Thread.currentThread().getId() & this.stripeMask;
+        this.cells.getAndAdd(stripe * this.stripeSize + counter, delta);
+    }
+
+    /**
+     * Increments a counter by one.
+     * @param counter
+     *  the index of the counter
+     */
+    void increment(final int counter) {
+
+        add(counter, 1);
+    }
+
+    /**
+     * Determines the current value of a counter. The value is not a snapshot if the counter is updated concurrently.
+     * @param counter
+     *  the index of the counter
+     * @return
+     *  the sum of all cells of the counter
+     */
+    long get(final int counter) {
+
+        long sum = 0;
+        for (int stripe = 0; stripe <= this.stripeMask; stripe++) {
+            sum += this.cells.get(stripe * this.stripeSize + counter);
+        }
+        return sum;
+    }
+
+    /**
+     * Determines the current values of all counters.
+     * @return
+     *  an array containing the sums of the cells of each counter
+     */
+    long[] getAll() {
+
+        final long[] result = new long[this.counters];
+        for (int stripe = 0; stripe <= this.stripeMask; stripe++) {
+            final int offset = stripe * this.stripeSize;
+            for (int counter = 0; counter < this.counters; counter++) {
+                result[counter] += this.cells.get(offset + counter);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resets all counters to zero. Updates made concurrently to the reset may be lost.
+     */
+    void reset() {
+
+        for (int i = 0; i < this.cells.length(); i++) {
+            this.cells.set(i, 0);
+        }
+    }
+}
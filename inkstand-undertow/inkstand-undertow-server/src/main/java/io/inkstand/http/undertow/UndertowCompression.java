@@ -0,0 +1,327 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.conduits.StreamSinkConduit;
+
+import io.inkstand.config.CompressionConfiguration;
+import io.undertow.conduits.DeflatingStreamSinkConduit;
+import io.undertow.predicate.Predicate;
+import io.undertow.server.ConduitWrapper;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.encoding.ContentEncodingProvider;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.encoding.EncodingHandler;
+import io.undertow.util.ConduitFactory;
+import io.undertow.util.Headers;
+import io.undertow.util.StatusCodes;
+
+/**
+ * Wraps a handler into an {@link EncodingHandler} that compresses responses using gzip or deflate, depending on the
+ * encodings accepted by the client. The decision whether to compress a response is made when the response is
+ * started, based on its headers. Only responses with one of the configured content types and of the minimum size are
+ * compressed, responses of unknown size are always compressed. Responses that have already a content encoding, such
+ * as precompressed static content, and partial responses are sent as they are.
+ * <br>
+ * The entity tag of a compressed response is made weak, as the compressed bytes differ from the identity
+ * representation the tag was computed for and depend on the compression level.
+ */
+final class UndertowCompression {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UndertowCompression.class);
+
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+
+    private UndertowCompression() {
+
+    }
+
+    /**
+     * Wraps the handler into a handler compressing the responses, if compression is enabled.
+     * @param next
+     *  the handler whose responses should be compressed
+     * @param config
+     *  the compression configuration, may be <code>null</code>
+     * @return
+     *  the compressing handler or the handler itself if compression is not enabled
+     */
+    static HttpHandler wrap(final HttpHandler next, final CompressionConfiguration config) {
+
+        if (config == null || !config.isEnabled()) {
+            return next;
+        }
+        LOG.info("Compressing responses of types {} larger than {} bytes with level {}",
+                 config.getContentTypes(),
+                 config.getMinSize(),
+                 config.getLevel());
+        final Predicate compressible = new CompressiblePredicate(config.getMinSize(), config.getContentTypes());
+        final ContentEncodingRepository encodings = new ContentEncodingRepository();
+        encodings.addEncodingHandler(GZIP, new GzipProvider(config.getLevel()), 100, compressible);
+        encodings.addEncodingHandler(DEFLATE, new DeflateProvider(config.getLevel()), 50, compressible);
+        //the response wrapper added last is applied first, so the vary handler sees the headers before encoding
+        return new EncodingHandler(new VaryHandler(next, compressible), encodings);
+    }
+
+    /**
+     * Predicate that is fulfilled for responses that should be compressed.
+     */
+    static final class CompressiblePredicate implements Predicate {
+
+        private final int minSize;
+        private final Set<String> contentTypes;
+
+        CompressiblePredicate(final int minSize, final Set<String> contentTypes) {
+
+            this.minSize = minSize;
+            this.contentTypes = contentTypes;
+        }
+
+        @Override
+        public boolean resolve(final HttpServerExchange exchange) {
+
+            if (exchange.getResponseHeaders().contains(Headers.CONTENT_ENCODING)
+                    || exchange.getResponseHeaders().contains(Headers.CONTENT_RANGE)
+                    || exchange.getResponseCode() == StatusCodes.PARTIAL_CONTENT) {
+                return false;
+            }
+            final long length = exchange.getResponseContentLength();
+            if (length != -1 && length < minSize) {
+                return false;
+            }
+            return isCompressibleType(exchange.getResponseHeaders().getFirst(Headers.CONTENT_TYPE));
+        }
+
+        private boolean isCompressibleType(final String contentType) {
+
+            if (contentType == null) {
+                return false;
+            }
+            final int paramStart = contentType.indexOf(';');
+            final String type = (paramStart == -1 ? contentType : contentType.substring(0, paramStart))
+                    .trim()
+                    .toLowerCase(Locale.ENGLISH);
+            if (contentTypes.contains(type)) {
+                return true;
+            }
+            final int subtypeStart = type.indexOf('/');
+            return subtypeStart != -1 && contentTypes.contains(type.substring(0, subtypeStart) + "/*");
+        }
+    }
+
+    /**
+     * Handler that adds the Vary header to all responses that may be compressed, regardless whether the client
+     * accepts compressed content, so that caches do not serve a compressed response to a client not accepting it or
+     * vice versa.
+     */
+    private static final class VaryHandler implements HttpHandler {
+
+        private final HttpHandler next;
+        private final Predicate compressible;
+
+        VaryHandler(final HttpHandler next, final Predicate compressible) {
+
+            this.next = next;
+            this.compressible = compressible;
+        }
+
+        @Override
+        public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+            exchange.addResponseWrapper(new ConduitWrapper<StreamSinkConduit>() {
+
+                @Override
+                public StreamSinkConduit wrap(final ConduitFactory<StreamSinkConduit> factory,
+                                              final HttpServerExchange exchange) {
+
+                    if (compressible.resolve(exchange)) {
+                        exchange.getResponseHeaders().add(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+                    }
+                    return factory.create();
+                }
+            });
+            next.handleRequest(exchange);
+        }
+    }
+
+    /**
+     * Turns a strong entity tag of the response into a weak one, as the compressed response is only semantically
+     * equivalent to the representation the tag was computed for.
+     */
+    static void weakenETag(final HttpServerExchange exchange) {
+
+        final String etag = exchange.getResponseHeaders().getFirst(Headers.ETAG);
+        if (etag != null && !etag.startsWith("W/")) {
+            exchange.getResponseHeaders().put(Headers.ETAG, "W/" + etag);
+        }
+    }
+
+    /**
+     * Provider of the gzip encoding with a specific compression level.
+     */
+    private static final class GzipProvider implements ContentEncodingProvider {
+
+        private final int level;
+
+        GzipProvider(final int level) {
+
+            this.level = level;
+        }
+
+        @Override
+        public ConduitWrapper<StreamSinkConduit> getResponseWrapper() {
+
+            return new ConduitWrapper<StreamSinkConduit>() {
+
+                @Override
+                public StreamSinkConduit wrap(final ConduitFactory<StreamSinkConduit> factory,
+                                              final HttpServerExchange exchange) {
+
+                    weakenETag(exchange);
+                    return new LevelGzipStreamSinkConduit(factory, exchange, level);
+                }
+            };
+        }
+    }
+
+    /**
+     * Provider of the deflate encoding with a specific compression level.
+     */
+    private static final class DeflateProvider implements ContentEncodingProvider {
+
+        private final int level;
+
+        DeflateProvider(final int level) {
+
+            this.level = level;
+        }
+
+        @Override
+        public ConduitWrapper<StreamSinkConduit> getResponseWrapper() {
+
+            return new ConduitWrapper<StreamSinkConduit>() {
+
+                @Override
+                public StreamSinkConduit wrap(final ConduitFactory<StreamSinkConduit> factory,
+                                              final HttpServerExchange exchange) {
+
+                    weakenETag(exchange);
+                    return new ZlibStreamSinkConduit(factory, exchange, level);
+                }
+            };
+        }
+    }
+
+    /**
+     * Conduit writing the gzip format with a specific compression level. The gzip conduit of Undertow always uses the
+     * default level, and changing the level of its deflater afterwards only applies after the first input has been
+     * compressed. The gzip header and trailer are therefore written on top of the deflating conduit.
+     */
+    private static final class LevelGzipStreamSinkConduit extends DeflatingStreamSinkConduit {
+
+        private static final byte[] GZIP_HEADER = {31, -117, 8, 0, 0, 0, 0, 0, 0, 0};
+
+        private final CRC32 crc = new CRC32();
+
+        LevelGzipStreamSinkConduit(final ConduitFactory<StreamSinkConduit> factory,
+                                   final HttpServerExchange exchange,
+                                   final int level) {
+
+            super(factory, exchange, level);
+            this.currentBuffer.getResource().put(GZIP_HEADER);
+        }
+
+        @Override
+        protected void preDeflate(final byte[] data) {
+
+            this.crc.update(data);
+        }
+
+        @Override
+        protected byte[] getTrailer() {
+
+            final int checksum = (int) this.crc.getValue();
+            final int size = this.deflater.getTotalIn();
+            return new byte[] {
+                    (byte) checksum, (byte) (checksum >> 8), (byte) (checksum >> 16), (byte) (checksum >> 24),
+                    (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)
+            };
+        }
+    }
+
+    /**
+     * Conduit writing the zlib format required for the deflate content coding. The deflating conduit of Undertow
+     * writes raw deflate data without the zlib header and the Adler-32 trailer, which most clients fail to decode.
+     */
+    private static final class ZlibStreamSinkConduit extends DeflatingStreamSinkConduit {
+
+        private final Adler32 adler = new Adler32();
+
+        ZlibStreamSinkConduit(final ConduitFactory<StreamSinkConduit> factory,
+                              final HttpServerExchange exchange,
+                              final int level) {
+
+            super(factory, exchange, level);
+            this.currentBuffer.getResource().put(zlibHeader(level));
+        }
+
+        /**
+         * Creates the zlib header for the deflate method with a 32K window. The level is recorded as compression
+         * hint, the check bits make the header a multiple of 31.
+         */
+        private static byte[] zlibHeader(final int level) {
+
+            final int hint;
+            if (level == Deflater.DEFAULT_COMPRESSION || level == 6) {
+                hint = 2;
+            } else if (level < 2) {
+                hint = 0;
+            } else if (level < 6) {
+                hint = 1;
+            } else {
+                hint = 3;
+            }
+            final int cmf = 0x78;
+            final int flags = hint << 6;
+            return new byte[] {(byte) cmf, (byte) (flags + (31 - (cmf * 256 + flags) % 31) % 31)};
+        }
+
+        @Override
+        protected void preDeflate(final byte[] data) {
+
+            this.adler.update(data);
+        }
+
+        @Override
+        protected byte[] getTrailer() {
+
+            final int checksum = (int) this.adler.getValue();
+            return new byte[] {
+                    (byte) (checksum >> 24), (byte) (checksum >> 16), (byte) (checksum >> 8), (byte) checksum
+            };
+        }
+    }
+}
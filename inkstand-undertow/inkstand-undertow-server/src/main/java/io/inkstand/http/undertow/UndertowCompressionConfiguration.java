@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+
+import io.inkstand.config.CompressionConfiguration;
+
+/**
+ * Default {@link CompressionConfiguration} whose values are specified as (Delta Spike {@link ConfigProperty})
+ * configuration properties. Compression is disabled unless explicitly enabled. The property names are
+ * <ul>
+ * <li><code>inkstand.http.compression</code> (default: false)</li>
+ * <li><code>inkstand.http.compression.min.size</code> (default: 1024)</li>
+ * <li><code>inkstand.http.compression.types</code>, a comma separated list of content types (default: text and the
+ * common json, javascript and xml types)</li>
+ * <li><code>inkstand.http.compression.level</code> (default: 6)</li>
+ * </ul>
+ * A deployment may disable the compression of its responses by setting the context parameter
+ * <code>inkstand.http.compression</code> to <code>false</code>.
+ */
+public class UndertowCompressionConfiguration implements CompressionConfiguration {
+
+    public static final String HTTP_COMPRESSION_PROPERTY = "inkstand.http.compression";
+    public static final String HTTP_COMPRESSION_MIN_SIZE_PROPERTY = "inkstand.http.compression.min.size";
+    public static final String HTTP_COMPRESSION_TYPES_PROPERTY = "inkstand.http.compression.types";
+    public static final String HTTP_COMPRESSION_LEVEL_PROPERTY = "inkstand.http.compression.level";
+
+    @Inject
+    @ConfigProperty(name = HTTP_COMPRESSION_PROPERTY, defaultValue = "false")
+    private Boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = HTTP_COMPRESSION_MIN_SIZE_PROPERTY, defaultValue = "1024")
+    private Integer minSize;
+
+    @Inject
+    @ConfigProperty(name = HTTP_COMPRESSION_TYPES_PROPERTY,
+                    defaultValue = "text/*,application/json,application/javascript,application/xml,image/svg+xml")
+    private String contentTypes;
+
+    @Inject
+    @ConfigProperty(name = HTTP_COMPRESSION_LEVEL_PROPERTY, defaultValue = "6")
+    private Integer level;
+
+    @Override
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(enabled);
+    }
+
+    @Override
+    public int getMinSize() {
+        return minSize;
+    }
+
+    @Override
+    public Set<String> getContentTypes() {
+
+        final Set<String> types = new LinkedHashSet<>();
+        for (String type : contentTypes.split(",")) {
+            if (!type.trim().isEmpty()) {
+                types.add(type.trim().toLowerCase(Locale.ENGLISH));
+            }
+        }
+        return Collections.unmodifiableSet(types);
+    }
+
+    @Override
+    public int getLevel() {
+        return level;
+    }
+}
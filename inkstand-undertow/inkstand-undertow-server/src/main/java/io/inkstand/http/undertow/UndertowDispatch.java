@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.inkstand.config.WebServerTuningConfiguration;
+import io.undertow.servlet.api.DeploymentInfo;
+
+/**
+ * Selects the threads on which the blocking requests of a servlet deployment are executed. By default these are the
+ * worker threads of the Undertow server, so the number of concurrent blocking requests is limited by the number of
+ * worker threads. If virtual threads are enabled and the JVM supports them, each blocking request runs on its own
+ * virtual thread instead, which is released to its carrier thread while the request is blocked.
+ * <br>
+ * The virtual thread executor is looked up by reflection as the server is compiled for Java versions without virtual
+ * threads.
+ */
+final class UndertowDispatch {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UndertowDispatch.class);
+
+    private UndertowDispatch() {
+
+    }
+
+    /**
+     * Sets the executor for blocking requests of the deployment to the virtual thread executor, if virtual threads are
+     * enabled and supported. An executor already set on the deployment is not replaced.
+     * @param deployment
+     *  the deployment whose executor should be set
+     * @param tuning
+     *  the tuning configuration defining whether virtual threads are enabled, may be <code>null</code>
+     */
+    static void apply(final DeploymentInfo deployment, final WebServerTuningConfiguration tuning) {
+
+        if (tuning == null || !Boolean.TRUE.equals(tuning.getVirtualThreads()) || deployment.getExecutor() != null) {
+            return;
+        }
+        final Executor executor = getVirtualThreadExecutor();
+        if (executor == null) {
+            LOG.warn("Virtual threads are not supported by the JVM, requests of {} are dispatched to the worker threads",
+                     deployment.getContextPath());
+            return;
+        }
+        LOG.info("Dispatching blocking requests of {} to virtual threads", deployment.getContextPath());
+        deployment.setExecutor(executor);
+    }
+
+    /**
+     * @return
+     *  the executor running each task on a new virtual thread or <code>null</code> if the JVM does not support virtual
+     *  threads
+     */
+    static Executor getVirtualThreadExecutor() {
+
+        return VirtualThreads.EXECUTOR;
+    }
+
+    /**
+     * Holder of the virtual thread executor, which is shared by all deployments and created on first use.
+     */
+    private static final class VirtualThreads {
+
+        static final Executor EXECUTOR = createExecutor();
+
+        private static Executor createExecutor() {
+
+            try {
+                final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (Executor) factory.invoke(null);
+            } catch (NoSuchMethodException e) {
+                LOG.debug("No virtual thread support by {}", System.getProperty("java.version"));
+                return null;
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                //virtual threads may exist as preview feature which has not been enabled
+                LOG.warn("Could not create virtual thread executor", e);
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.handlers.GracefulShutdownHandler;
+
+/**
+ * Graceful shutdown of the service endpoints of the Undertow server. The root handlers of the services are wrapped
+ * into a {@link GracefulShutdownHandler} so that, when draining, new requests are rejected with 503 while the active
+ * requests may complete. The management endpoint is not wrapped and stays available while draining.
+ * <br>
+ * The maximum time to wait for the active requests is configured by the property
+ * <code>inkstand.http.shutdown.timeout</code> in milliseconds (default: 30000).
+ */
+@Singleton
+public class UndertowGracefulShutdown {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UndertowGracefulShutdown.class);
+
+    public static final String HTTP_SHUTDOWN_TIMEOUT_PROPERTY = "inkstand.http.shutdown.timeout";
+
+    @Inject
+    @ConfigProperty(name = HTTP_SHUTDOWN_TIMEOUT_PROPERTY, defaultValue = "30000")
+    private Integer timeout;
+
+    private final List<GracefulShutdownHandler> handlers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Wraps the handler into a handler that can be drained.
+     * @param next
+     *  the root handler of a service endpoint
+     * @return
+     *  the wrapping handler
+     */
+    public HttpHandler wrap(final HttpHandler next) {
+
+        final GracefulShutdownHandler handler = new GracefulShutdownHandler(next);
+        this.handlers.add(handler);
+        return handler;
+    }
+
+    /**
+     * Rejects new requests on all wrapped handlers and waits until the active requests are completed or the timeout
+     * has elapsed. Draining again returns immediately once all requests are completed.
+     * @return
+     *  <code>true</code> if all active requests completed, <code>false</code> if the timeout elapsed or the waiting
+     *  thread was interrupted
+     */
+    public boolean drain() {
+
+        for (GracefulShutdownHandler handler : this.handlers) {
+            handler.shutdown();
+        }
+        LOG.info("Draining active requests, waiting up to {} ms", this.timeout);
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeout);
+        try {
+            for (GracefulShutdownHandler handler : this.handlers) {
+                final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (!handler.awaitShutdown(Math.max(remaining, 0))) {
+                    LOG.warn("Active requests did not complete within {} ms", this.timeout);
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted while draining active requests", e);
+            return false;
+        }
+        LOG.info("All active requests completed");
+        return true;
+    }
+
+    /**
+     * Accepts new requests again on all wrapped handlers after they have been drained.
+     */
+    public void resume() {
+
+        for (GracefulShutdownHandler handler : this.handlers) {
+            handler.start();
+        }
+    }
+}
@@ -20,6 +20,10 @@ import static io.inkstand.http.undertow.UndertowDefaultConfigurationProducer.HTT
 import static io.inkstand.http.undertow.UndertowDefaultConfigurationProducer.HTTP_PORT_PROPERTY;
 import static io.inkstand.util.CollectionHelper.asUnmodifiableSet;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import io.inkstand.LauncherArgs;
@@ -29,7 +33,70 @@ import io.inkstand.LauncherArgs;
  */
 public class UndertowLauncherArgs implements LauncherArgs {
 
-    private static final Set<String> ARG_NAMES = asUnmodifiableSet("port", "hostname");
+    private static final Set<String> ARG_NAMES;
+
+    /**
+     * Tuning arguments that accept a boolean value, all other tuning arguments accept a positive number
+     */
+    private static final Set<String> BOOLEAN_ARGS = asUnmodifiableSet("directBuffers",
+                                                                      "tcpNoDelay",
+                                                                      "keepAlive",
+                                                                      "http2",
+                                                                      "virtualThreads",
+                                                                      "adaptiveLimit",
+                                                                      "compression");
+
+    /**
+     * Command line arguments to tune the http server, mapped to the configuration property they set
+     */
+    private static final Map<String, String> TUNING_ARGS;
+
+    /**
+     * Command line arguments to tune the http server, mapped to their description
+     */
+    private static final Map<String, String> TUNING_ARG_DESCRIPTIONS;
+
+    static {
+        final Map<String, String> args = new LinkedHashMap<>();
+        final Map<String, String> descriptions = new LinkedHashMap<>();
+        args.put("ioThreads", UndertowTuningConfiguration.HTTP_IO_THREADS_PROPERTY);
+        descriptions.put("ioThreads", "The number of threads handling non-blocking IO.");
+        args.put("workerThreads", UndertowTuningConfiguration.HTTP_WORKER_MAX_THREADS_PROPERTY);
+        descriptions.put("workerThreads", "The maximum number of worker threads processing blocking requests.");
+        args.put("bufferSize", UndertowTuningConfiguration.HTTP_BUFFER_SIZE_PROPERTY);
+        descriptions.put("bufferSize", "The size in bytes of the IO buffers.");
+        args.put("directBuffers", UndertowTuningConfiguration.HTTP_DIRECT_BUFFERS_PROPERTY);
+        descriptions.put("directBuffers", "Whether the IO buffers are allocated off-heap (true or false).");
+        args.put("backlog", UndertowTuningConfiguration.HTTP_BACKLOG_PROPERTY);
+        descriptions.put("backlog", "The maximum number of pending connections.");
+        args.put("tcpNoDelay", UndertowTuningConfiguration.HTTP_TCP_NODELAY_PROPERTY);
+        descriptions.put("tcpNoDelay", "Whether Nagle's algorithm is disabled (true or false).");
+        args.put("keepAlive", UndertowTuningConfiguration.HTTP_KEEPALIVE_PROPERTY);
+        descriptions.put("keepAlive", "Whether TCP keep-alive probes are sent (true or false).");
+        args.put("idleTimeout", UndertowTuningConfiguration.HTTP_IDLE_TIMEOUT_PROPERTY);
+        descriptions.put("idleTimeout", "The time in milliseconds after which idle connections are closed.");
+        args.put("http2", UndertowTuningConfiguration.HTTP_HTTP2_PROPERTY);
+        descriptions.put("http2", "Whether HTTP/2 is offered to clients (true or false).");
+        args.put("virtualThreads", UndertowTuningConfiguration.HTTP_VIRTUAL_THREADS_PROPERTY);
+        descriptions.put("virtualThreads",
+                         "Whether blocking requests run on virtual threads if supported (true or false).");
+        args.put("maxConcurrentRequests", UndertowRequestLimitConfiguration.HTTP_LIMIT_CONCURRENT_PROPERTY);
+        descriptions.put("maxConcurrentRequests", "The maximum number of concurrent requests per deployment.");
+        args.put("adaptiveLimit", UndertowRequestLimitConfiguration.HTTP_LIMIT_ADAPTIVE_PROPERTY);
+        descriptions.put("adaptiveLimit", "Whether the request limit adapts to the latency (true or false).");
+        args.put("shutdownTimeout", UndertowGracefulShutdown.HTTP_SHUTDOWN_TIMEOUT_PROPERTY);
+        descriptions.put("shutdownTimeout", "The time in milliseconds to wait for active requests on shutdown.");
+        args.put("compression", UndertowCompressionConfiguration.HTTP_COMPRESSION_PROPERTY);
+        descriptions.put("compression", "Whether responses are compressed (true or false).");
+        args.put("httpsPort", UndertowTlsConfiguration.HTTPS_PORT_PROPERTY);
+        descriptions.put("httpsPort", "The TCP port of the TLS listener, requires a keystore to be configured.");
+        TUNING_ARGS = Collections.unmodifiableMap(args);
+        TUNING_ARG_DESCRIPTIONS = Collections.unmodifiableMap(descriptions);
+
+        final Set<String> names = new HashSet<>(asUnmodifiableSet("port", "hostname"));
+        names.addAll(args.keySet());
+        ARG_NAMES = Collections.unmodifiableSet(names);
+    }
     /**
      * Command line argument to set the port of the http server
      */
@@ -51,6 +118,9 @@ public class UndertowLauncherArgs implements LauncherArgs {
         } else
         if(HOSTNAME.equals(argName)){
             applyHostname(value);
+        } else
+        if(TUNING_ARGS.containsKey(argName)){
+            applyTuning(argName, value);
         } else {
             throw new IllegalArgumentException(argName + " is no valid argument");
         }
@@ -71,6 +141,26 @@ public class UndertowLauncherArgs implements LauncherArgs {
         System.setProperty(HTTP_HOSTNAME_PROPERTY, value);
     }
 
+    private void applyTuning(final String argName, final String value) {
+        if(value == null) {
+            throw new IllegalArgumentException(argName + " must not be null");
+        }
+        if (BOOLEAN_ARGS.contains(argName)) {
+            if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+                throw new IllegalArgumentException(argName + " must be true or false");
+            }
+        } else {
+            try {
+                if (Integer.parseInt(value) <= 0) {
+                    throw new IllegalArgumentException(argName + " must be a positive number");
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(argName + " must be a positive number", e);
+            }
+        }
+        System.setProperty(TUNING_ARGS.get(argName), value);
+    }
+
     @Override
     public String getDescription(final String argName) {
         if(PORT.equals(argName)){
@@ -78,6 +168,9 @@ public class UndertowLauncherArgs implements LauncherArgs {
         } else
         if(HOSTNAME.equals(argName)){
             return "The hostname of the http server";
+        } else
+        if(TUNING_ARG_DESCRIPTIONS.containsKey(argName)){
+            return TUNING_ARG_DESCRIPTIONS.get(argName);
         }
         throw new IllegalArgumentException(argName + " is no valid argument");
     }
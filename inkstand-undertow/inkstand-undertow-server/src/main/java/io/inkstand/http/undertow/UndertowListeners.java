@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.inkstand.InkstandRuntimeException;
+import io.inkstand.config.TlsConfiguration;
+import io.inkstand.config.WebServerConfiguration;
+import io.inkstand.config.WebServerTuningConfiguration;
+import io.undertow.Undertow;
+import io.undertow.UndertowOptions;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.protocol.http2.Http2UpgradeHandler;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+
+/**
+ * Adds the service listeners to an {@link Undertow.Builder}. Besides the cleartext http listener an optional TLS
+ * listener is created. If HTTP/2 is enabled, clients may upgrade cleartext connections to HTTP/2 (h2c) while on the
+ * TLS listener the protocol is negotiated using ALPN. Undertow relies on the ALPN implementation of the Jetty
+ * alpn-boot library for this, which has to be on the boot classpath of the JVM. Without it the TLS listener serves
+ * HTTP/1.1 only. In either case, clients not supporting HTTP/2 continue to use HTTP/1.1.
+ */
+final class UndertowListeners {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UndertowListeners.class);
+
+    /**
+     * The ALPN API used by Undertow to negotiate HTTP/2 on TLS connections.
+     */
+    static final String ALPN_CLASS = "org.eclipse.jetty.alpn.ALPN";
+
+    /**
+     * The protocol token for HTTP/2 over cleartext connections.
+     */
+    static final String H2C = "h2c";
+
+    /**
+     * The request header carrying the settings of the client when upgrading to HTTP/2.
+     */
+    static final HttpString HTTP2_SETTINGS = new HttpString("HTTP2-Settings");
+
+    private UndertowListeners() {
+
+    }
+
+    /**
+     * Adds the http and - if a port is configured - the TLS listener to the builder.
+     * @param builder
+     *  the builder to create the undertow instance
+     * @param config
+     *  the configuration of the http listener
+     * @param tuning
+     *  the tuning configuration defining whether HTTP/2 is enabled, may be <code>null</code>
+     * @param tls
+     *  the configuration of the TLS listener, may be <code>null</code>
+     * @param handler
+     *  the root handler of the listeners
+     * @return
+     *  the builder
+     */
+    static Undertow.Builder addListeners(final Undertow.Builder builder,
+                                         final WebServerConfiguration config,
+                                         final WebServerTuningConfiguration tuning,
+                                         final TlsConfiguration tls,
+                                         final HttpHandler handler) {
+
+        final boolean http2 = tuning != null && Boolean.TRUE.equals(tuning.getHttp2());
+        if (http2) {
+            LOG.info("Enabling HTTP/2 upgrade on {}:{}", config.getBindAddress(), config.getPort());
+            builder.addHttpListener(config.getPort(), config.getBindAddress(), new CleartextUpgradeHandler(handler));
+        } else {
+            builder.addHttpListener(config.getPort(), config.getBindAddress(), handler);
+        }
+        if (tls != null && tls.getPort() != null) {
+            if (http2) {
+                if (isAlpnAvailable()) {
+                    builder.setServerOption(UndertowOptions.ENABLE_HTTP2, true);
+                } else {
+                    LOG.warn("ALPN is not available, TLS endpoint serves HTTP/1.1 only");
+                }
+            }
+            LOG.info("Creating TLS endpoint {}:{}", config.getBindAddress(), tls.getPort());
+            builder.addHttpsListener(tls.getPort(), config.getBindAddress(), createSslContext(tls), handler);
+        }
+        return builder;
+    }
+
+    /**
+     * Creates the {@link SSLContext} for the TLS listener using the private key and certificate of the configured
+     * keystore.
+     * @param tls
+     *  the tls configuration
+     * @return
+     *  the initialized context
+     */
+    static SSLContext createSslContext(final TlsConfiguration tls) {
+
+        final char[] password = tls.getKeyStorePassword() == null ? null : tls.getKeyStorePassword().toCharArray();
+        try (InputStream in = new FileInputStream(tls.getKeyStore())) {
+            final KeyStore keyStore = KeyStore.getInstance(tls.getKeyStoreType());
+            keyStore.load(in, password);
+            final KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            kmf.init(keyStore, password);
+            final SSLContext context = SSLContext.getInstance("TLS");
+            context.init(kmf.getKeyManagers(), null, null);
+            return context;
+        } catch (IOException | GeneralSecurityException e) {
+            throw new InkstandRuntimeException("Could not create TLS context from keystore " + tls.getKeyStore(), e);
+        }
+    }
+
+    /**
+     * Checks whether the ALPN API is available. The API is loaded from the boot classpath.
+     * @return
+     *  <code>true</code> if HTTP/2 can be negotiated on TLS connections
+     */
+    static boolean isAlpnAvailable() {
+
+        try {
+            Class.forName(ALPN_CLASS, false, null);
+            return true;
+        } catch (ClassNotFoundException e) {
+            LOG.debug("ALPN not found", e);
+            return false;
+        }
+    }
+
+    /**
+     * Handler upgrading cleartext connections to HTTP/2 on request of the client. It compensates two flaws of the
+     * {@link Http2UpgradeHandler} of Undertow:
+     * <ul>
+     * <li>the protocol is switched without confirming it in the Upgrade header of the 101 response, which is required
+     * by RFC 7230 and checked by clients</li>
+     * <li>the upgrade fails for any non-empty settings payload as the settings are parsed without a frame length.
+     * The payload is therefore removed from the request. The client sends its settings again in the connection
+     * preface following the upgrade (RFC 7540, 3.2) so until the preface is read, the defaults of the protocol
+     * apply.</li>
+     * </ul>
+     */
+    private static final class CleartextUpgradeHandler implements HttpHandler {
+
+        private final HttpHandler upgradeHandler;
+
+        CleartextUpgradeHandler(final HttpHandler next) {
+
+            this.upgradeHandler = new Http2UpgradeHandler(next);
+        }
+
+        @Override
+        public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+            if (H2C.equals(exchange.getRequestHeaders().getFirst(Headers.UPGRADE))
+                    && exchange.getRequestHeaders().contains(HTTP2_SETTINGS)) {
+                exchange.getRequestHeaders().put(HTTP2_SETTINGS, "");
+                exchange.getResponseHeaders().put(Headers.UPGRADE, H2C);
+            }
+            this.upgradeHandler.handleRequest(exchange);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.Options;
+
+import io.inkstand.config.WebServerConfiguration;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+
+/**
+ * Separate Undertow server for the management endpoint. The management listener runs on its own small IO and worker
+ * threads, so that the status and diagnostics remain responsive while the worker of the service endpoints is
+ * saturated. The server is created by the provider of the service endpoints and is started and stopped together
+ * with them by the {@link UndertowWebServer}.
+ * <br>
+ * The threads are configured by the properties
+ * <ul>
+ * <li><code>inkstand.http.management.io.threads</code> (default: 1)</li>
+ * <li><code>inkstand.http.management.worker.threads</code> (default: 2)</li>
+ * </ul>
+ */
+@Singleton
+public class UndertowManagementServer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UndertowManagementServer.class);
+
+    public static final String HTTP_MANAGEMENT_IO_THREADS_PROPERTY = "inkstand.http.management.io.threads";
+    public static final String HTTP_MANAGEMENT_WORKER_THREADS_PROPERTY = "inkstand.http.management.worker.threads";
+
+    @Inject
+    @ConfigProperty(name = HTTP_MANAGEMENT_IO_THREADS_PROPERTY, defaultValue = "1")
+    private Integer ioThreads;
+
+    @Inject
+    @ConfigProperty(name = HTTP_MANAGEMENT_WORKER_THREADS_PROPERTY, defaultValue = "2")
+    private Integer workerThreads;
+
+    /**
+     * The server of the management endpoint, <code>null</code> if there is no management endpoint
+     */
+    private volatile Undertow undertow;
+
+    /**
+     * Whether the server has been started, Undertow fails when a server is stopped that is not running
+     */
+    private boolean running;
+
+    /**
+     * Creates the server for the management endpoint. The server is only configured, but not started.
+     * @param config
+     *  the configuration of the management endpoint
+     * @param root
+     *  the root handler of the management deployments
+     * @return
+     *  the server of the management endpoint
+     */
+    public Undertow create(final WebServerConfiguration config, final HttpHandler root) {
+
+        LOG.info("Creating management endpoint {}:{} with {} IO threads and {} worker threads",
+                 config.getBindAddress(),
+                 config.getPort(),
+                 this.ioThreads,
+                 this.workerThreads);
+        final Undertow.Builder builder = Undertow.builder()
+                                                 .setIoThreads(this.ioThreads)
+                                                 .setWorkerThreads(this.workerThreads)
+                                                 .addHttpListener(config.getPort(), config.getBindAddress(), root);
+        if (this.ioThreads < 2) {
+            //connection balancing between IO threads requires at least two of them
+            builder.setSocketOption(Options.BALANCING_TOKENS, -1);
+        }
+        this.undertow = builder.build();
+        return this.undertow;
+    }
+
+    /**
+     * Starts the server of the management endpoint, if one has been created and it is not running yet.
+     */
+    public synchronized void start() {
+
+        if (this.undertow != null && !this.running) {
+            this.undertow.start();
+            this.running = true;
+        }
+    }
+
+    /**
+     * Stops the server of the management endpoint, if it is running.
+     */
+    public synchronized void stop() {
+
+        if (this.running) {
+            this.running = false;
+            this.undertow.stop();
+        }
+    }
+
+    /**
+     * @return
+     *  the server of the management endpoint or <code>null</code> if there is no management endpoint
+     */
+    public Undertow getUndertow() {
+
+        return this.undertow;
+    }
+}
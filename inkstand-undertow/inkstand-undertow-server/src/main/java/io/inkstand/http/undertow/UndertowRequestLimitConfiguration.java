@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import javax.inject.Inject;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+
+import io.inkstand.config.RequestLimitConfiguration;
+
+/**
+ * Default {@link RequestLimitConfiguration} whose values are specified as (Delta Spike {@link ConfigProperty})
+ * configuration properties. The requests are not limited unless a maximum number of concurrent requests is set or
+ * the limit is adaptive. The property names are
+ * <ul>
+ * <li><code>inkstand.http.limit.concurrent</code> (default: 0, unlimited)</li>
+ * <li><code>inkstand.http.limit.queue</code> (default: 100)</li>
+ * <li><code>inkstand.http.limit.queue.timeout</code> in milliseconds (default: 1000)</li>
+ * <li><code>inkstand.http.limit.retry.after</code> in seconds (default: 1)</li>
+ * <li><code>inkstand.http.limit.adaptive</code> (default: false)</li>
+ * <li><code>inkstand.http.limit.adaptive.min</code> (default: 1)</li>
+ * <li><code>inkstand.http.limit.adaptive.max</code> (default: 1000)</li>
+ * </ul>
+ */
+public class UndertowRequestLimitConfiguration implements RequestLimitConfiguration {
+
+    public static final String HTTP_LIMIT_CONCURRENT_PROPERTY = "inkstand.http.limit.concurrent";
+    public static final String HTTP_LIMIT_QUEUE_PROPERTY = "inkstand.http.limit.queue";
+    public static final String HTTP_LIMIT_QUEUE_TIMEOUT_PROPERTY = "inkstand.http.limit.queue.timeout";
+    public static final String HTTP_LIMIT_RETRY_AFTER_PROPERTY = "inkstand.http.limit.retry.after";
+    public static final String HTTP_LIMIT_ADAPTIVE_PROPERTY = "inkstand.http.limit.adaptive";
+    public static final String HTTP_LIMIT_ADAPTIVE_MIN_PROPERTY = "inkstand.http.limit.adaptive.min";
+    public static final String HTTP_LIMIT_ADAPTIVE_MAX_PROPERTY = "inkstand.http.limit.adaptive.max";
+
+    @Inject
+    @ConfigProperty(name = HTTP_LIMIT_CONCURRENT_PROPERTY, defaultValue = "0")
+    private Integer maxConcurrentRequests;
+
+    @Inject
+    @ConfigProperty(name = HTTP_LIMIT_QUEUE_PROPERTY, defaultValue = "100")
+    private Integer maxQueueSize;
+
+    @Inject
+    @ConfigProperty(name = HTTP_LIMIT_QUEUE_TIMEOUT_PROPERTY, defaultValue = "1000")
+    private Integer queueTimeout;
+
+    @Inject
+    @ConfigProperty(name = HTTP_LIMIT_RETRY_AFTER_PROPERTY, defaultValue = "1")
+    private Integer retryAfter;
+
+    @Inject
+    @ConfigProperty(name = HTTP_LIMIT_ADAPTIVE_PROPERTY, defaultValue = "false")
+    private Boolean adaptive;
+
+    @Inject
+    @ConfigProperty(name = HTTP_LIMIT_ADAPTIVE_MIN_PROPERTY, defaultValue = "1")
+    private Integer adaptiveMinLimit;
+
+    @Inject
+    @ConfigProperty(name = HTTP_LIMIT_ADAPTIVE_MAX_PROPERTY, defaultValue = "1000")
+    private Integer adaptiveMaxLimit;
+
+    @Override
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    @Override
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    @Override
+    public int getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    @Override
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public boolean isAdaptive() {
+        return Boolean.TRUE.equals(adaptive);
+    }
+
+    @Override
+    public int getAdaptiveMinLimit() {
+        return adaptiveMinLimit;
+    }
+
+    @Override
+    public int getAdaptiveMaxLimit() {
+        return adaptiveMaxLimit;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.inkstand.config.RequestLimitConfiguration;
+import io.undertow.server.HttpHandler;
+
+/**
+ * Limits the number of concurrent requests of each deployment as configured by the
+ * {@link RequestLimitConfiguration}, so that under overload requests fail fast instead of piling up in the worker
+ * queue. The limit is either static or adapts to the latency of the requests using an {@link AdaptiveLimit}, so it
+ * follows slowing backends without tuning the worker threads per environment. The limit of a deployment is registered
+ * as MXBean under the name <code>io.inkstand:type=RequestLimit,context="path"</code> on the platform MBean server,
+ * from where the numbers of rejected requests are published by the management endpoint. The management deployment
+ * is not limited.
+ */
+@Singleton
+public class UndertowRequestLimits {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UndertowRequestLimits.class);
+
+    /**
+     * Prefix of the names of the request limit MBeans, the quoted context path is appended to it.
+     */
+    public static final String OBJECT_NAME_PREFIX = "io.inkstand:type=RequestLimit,context=";
+
+    /**
+     * The limit an adaptive limit starts with if no maximum number of concurrent requests is configured. Starting at
+     * the lower bound would reject most requests of a burst after startup until the limit has grown.
+     */
+    static final int DEFAULT_ADAPTIVE_INITIAL_LIMIT = 20;
+
+    @Inject
+    private RequestLimitConfiguration config;
+
+    private final Map<String, RequestLimit> limits = new ConcurrentHashMap<>();
+
+    /**
+     * Wraps the root handler of a deployment into a handler limiting the concurrent requests, if a static limit is
+     * configured or the limit is adaptive.
+     * @param contextPath
+     *  the context path of the deployment
+     * @param next
+     *  the root handler of the deployment
+     * @return
+     *  the limiting handler or the handler itself if the requests are not limited
+     */
+    public HttpHandler wrap(final String contextPath, final HttpHandler next) {
+
+        final int maxConcurrentRequests = this.config.getMaxConcurrentRequests();
+        final RequestLimit limit;
+        if (this.config.isAdaptive()) {
+            final int minLimit = this.config.getAdaptiveMinLimit();
+            final int initialLimit = maxConcurrentRequests > 0
+                    ? maxConcurrentRequests
+                    : Math.max(minLimit, DEFAULT_ADAPTIVE_INITIAL_LIMIT);
+            final AdaptiveLimit adaptiveLimit = new AdaptiveLimit(initialLimit,
+                                                                  minLimit,
+                                                                  this.config.getAdaptiveMaxLimit());
+            LOG.info("Limiting {} adaptively between {} and {} concurrent requests, starting with {}",
+                     contextPath,
+                     minLimit,
+                     this.config.getAdaptiveMaxLimit(),
+                     adaptiveLimit.getLimit());
+            limit = new RequestLimit(contextPath,
+                                     this.config.getMaxQueueSize(),
+                                     this.config.getQueueTimeout(),
+                                     this.config.getRetryAfter(),
+                                     adaptiveLimit);
+        } else if (maxConcurrentRequests > 0) {
+            LOG.info("Limiting {} to {} concurrent requests", contextPath, maxConcurrentRequests);
+            limit = new RequestLimit(contextPath,
+                                     maxConcurrentRequests,
+                                     this.config.getMaxQueueSize(),
+                                     this.config.getQueueTimeout(),
+                                     this.config.getRetryAfter());
+        } else {
+            return next;
+        }
+        LOG.info("Queueing up to {} requests of {} for {} ms",
+                 this.config.getMaxQueueSize(),
+                 contextPath,
+                 this.config.getQueueTimeout());
+        this.limits.put(contextPath, limit);
+        MBeans.register(OBJECT_NAME_PREFIX, contextPath, limit);
+        return limit.wrap(next);
+    }
+
+    /**
+     * @param contextPath
+     *  the context path of the deployment
+     * @return
+     *  the limit of the deployment or <code>null</code> if the requests of the deployment are not limited
+     */
+    public RequestLimitMXBean getLimit(final String contextPath) {
+
+        return this.limits.get(contextPath);
+    }
+
+    /**
+     * Unregisters the MBeans of all deployments.
+     */
+    @PreDestroy
+    public void unregisterAll() {
+
+        for (String contextPath : this.limits.keySet()) {
+            MBeans.unregister(OBJECT_NAME_PREFIX, contextPath);
+        }
+        this.limits.clear();
+    }
+}
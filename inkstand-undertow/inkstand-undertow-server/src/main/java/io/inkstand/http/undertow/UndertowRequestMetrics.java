@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+import org.xnio.channels.StreamSinkChannel;
+import org.xnio.conduits.AbstractStreamSourceConduit;
+import org.xnio.conduits.StreamSourceConduit;
+
+import io.undertow.server.ConduitWrapper;
+import io.undertow.server.ExchangeCompletionListener;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.ConduitFactory;
+import io.undertow.util.Headers;
+
+/**
+ * Records the latency, the status classes and the transferred bytes of the requests of each deployment. The metrics
+ * of a deployment are registered as MXBean under the name <code>io.inkstand:type=RequestMetrics,context="path"</code>
+ * on the platform MBean server, from where they are published by the management endpoint.
+ * <br>
+ * The metrics are enabled by default and can be disabled by setting the property <code>inkstand.http.metrics</code>
+ * to <code>false</code>.
+ */
+@Singleton
+public class UndertowRequestMetrics {
+
+    public static final String HTTP_METRICS_PROPERTY = "inkstand.http.metrics";
+
+    /**
+     * Prefix of the names of the request metric MBeans, the quoted context path is appended to it.
+     */
+    public static final String OBJECT_NAME_PREFIX = "io.inkstand:type=RequestMetrics,context=";
+
+    @Inject
+    @ConfigProperty(name = HTTP_METRICS_PROPERTY, defaultValue = "true")
+    private Boolean enabled;
+
+    private final Map<String, RequestMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Wraps the root handler of a deployment into a handler recording the metrics of its requests, if the metrics are
+     * enabled.
+     * @param contextPath
+     *  the context path of the deployment
+     * @param next
+     *  the root handler of the deployment
+     * @return
+     *  the recording handler or the handler itself if the metrics are disabled
+     */
+    public HttpHandler wrap(final String contextPath, final HttpHandler next) {
+
+        if (!this.enabled) {
+            return next;
+        }
+        final RequestMetrics requestMetrics = new RequestMetrics(contextPath);
+        this.metrics.put(contextPath, requestMetrics);
+        MBeans.register(OBJECT_NAME_PREFIX, contextPath, requestMetrics);
+        return new MetricsHandler(next, requestMetrics);
+    }
+
+    /**
+     * @param contextPath
+     *  the context path of the deployment
+     * @return
+     *  the metrics of the deployment or <code>null</code> if no deployment at the context path has been wrapped
+     */
+    public RequestMetricsMXBean getMetrics(final String contextPath) {
+
+        return this.metrics.get(contextPath);
+    }
+
+    /**
+     * Unregisters the MBeans of all deployments.
+     */
+    @PreDestroy
+    public void unregisterAll() {
+
+        for (String contextPath : this.metrics.keySet()) {
+            MBeans.unregister(OBJECT_NAME_PREFIX, contextPath);
+        }
+        this.metrics.clear();
+    }
+
+    /**
+     * Handler that records the metrics of each exchange upon its completion.
+     */
+    private static final class MetricsHandler implements HttpHandler {
+
+        private final HttpHandler next;
+        private final RequestMetrics metrics;
+
+        MetricsHandler(final HttpHandler next, final RequestMetrics metrics) {
+
+            this.next = next;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+            final Recorder recorder = new Recorder(this.metrics, exchange.getRequestContentLength());
+            //the size of chunked requests is not known in advance so they are counted while being read
+            if (recorder.requestContentLength == -1
+                    && exchange.getRequestHeaders().contains(Headers.TRANSFER_ENCODING)) {
+                exchange.addRequestWrapper(recorder);
+            }
+            exchange.addExchangeCompleteListener(recorder);
+            this.next.handleRequest(exchange);
+        }
+    }
+
+    /**
+     * Records the metrics of a single exchange.
+     */
+    private static final class Recorder implements ExchangeCompletionListener, ConduitWrapper<StreamSourceConduit> {
+
+        private final RequestMetrics metrics;
+        private final long start = System.nanoTime();
+        private final long requestContentLength;
+        private volatile CountingStreamSourceConduit requestConduit;
+
+        Recorder(final RequestMetrics metrics, final long requestContentLength) {
+
+            this.metrics = metrics;
+            this.requestContentLength = requestContentLength;
+        }
+
+        @Override
+        public StreamSourceConduit wrap(final ConduitFactory<StreamSourceConduit> factory,
+                                        final HttpServerExchange exchange) {
+
+            this.requestConduit = new CountingStreamSourceConduit(factory.create());
+            return this.requestConduit;
+        }
+
+        @Override
+        public void exchangeEvent(final HttpServerExchange exchange, final NextListener nextListener) {
+
+            try {
+                final CountingStreamSourceConduit conduit = this.requestConduit;
+                final long bytesIn = conduit == null ? this.requestContentLength : conduit.count;
+                this.metrics.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - this.start),
+                                    exchange.getResponseCode(),
+                                    bytesIn,
+                                    exchange.getResponseBytesSent());
+            } finally {
+                nextListener.proceed();
+            }
+        }
+    }
+
+    /**
+     * Conduit counting the bytes read from the request.
+     */
+    private static final class CountingStreamSourceConduit extends AbstractStreamSourceConduit<StreamSourceConduit> {
+
+        private volatile long count;
+
+        CountingStreamSourceConduit(final StreamSourceConduit next) {
+
+            super(next);
+        }
+
+        @Override
+        public long transferTo(final long position, final long count, final FileChannel target) throws IOException {
+
+            return counted(super.transferTo(position, count, target));
+        }
+
+        @Override
+        public long transferTo(final long count, final ByteBuffer throughBuffer, final StreamSinkChannel target)
+                throws IOException {
+
+            final long transferred = super.transferTo(count, throughBuffer, target);
+            //the bytes remaining in the buffer have been read from the request as well
+            counted(transferred + throughBuffer.remaining());
+            return transferred;
+        }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+
+            return (int) counted(super.read(dst));
+        }
+
+        @Override
+        public long read(final ByteBuffer[] dsts, final int offs, final int len) throws IOException {
+
+            return counted(super.read(dsts, offs, len));
+        }
+
+        private long counted(final long read) {
+
+            if (read > 0) {
+                this.count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import javax.inject.Inject;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+
+import io.inkstand.config.TlsConfiguration;
+
+/**
+ * Default {@link TlsConfiguration} whose values are specified as (Delta Spike {@link ConfigProperty}) configuration
+ * properties. Without a port no TLS listener is created. The property names are
+ * <ul>
+ * <li><code>inkstand.https.port</code></li>
+ * <li><code>inkstand.https.keystore</code></li>
+ * <li><code>inkstand.https.keystore.password</code></li>
+ * <li><code>inkstand.https.keystore.type</code> (default: JKS)</li>
+ * </ul>
+ */
+public class UndertowTlsConfiguration implements TlsConfiguration {
+
+    public static final String HTTPS_PORT_PROPERTY = "inkstand.https.port";
+    public static final String HTTPS_KEYSTORE_PROPERTY = "inkstand.https.keystore";
+    public static final String HTTPS_KEYSTORE_PASSWORD_PROPERTY = "inkstand.https.keystore.password";
+    public static final String HTTPS_KEYSTORE_TYPE_PROPERTY = "inkstand.https.keystore.type";
+
+    @Inject
+    @ConfigProperty(name = HTTPS_PORT_PROPERTY)
+    private Integer port;
+
+    @Inject
+    @ConfigProperty(name = HTTPS_KEYSTORE_PROPERTY)
+    private String keyStore;
+
+    @Inject
+    @ConfigProperty(name = HTTPS_KEYSTORE_PASSWORD_PROPERTY)
+    private String keyStorePassword;
+
+    @Inject
+    @ConfigProperty(name = HTTPS_KEYSTORE_TYPE_PROPERTY, defaultValue = "JKS")
+    private String keyStoreType;
+
+    @Override
+    public Integer getPort() {
+        return port;
+    }
+
+    @Override
+    public String getKeyStore() {
+        return keyStore;
+    }
+
+    @Override
+    public String getKeyStorePassword() {
+        return keyStorePassword;
+    }
+
+    @Override
+    public String getKeyStoreType() {
+        return keyStoreType;
+    }
+}
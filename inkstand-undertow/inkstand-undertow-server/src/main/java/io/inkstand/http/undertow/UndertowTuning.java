@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.Options;
+
+import io.inkstand.config.WebServerTuningConfiguration;
+import io.undertow.Undertow;
+import io.undertow.UndertowOptions;
+
+/**
+ * Applies a {@link WebServerTuningConfiguration} to an {@link Undertow.Builder}. The options are set on the builder
+ * and therefore apply to all listeners of the server. The management endpoint runs on a separate server and is not
+ * affected.
+ */
+final class UndertowTuning {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UndertowTuning.class);
+
+    private UndertowTuning() {
+
+    }
+
+    /**
+     * Sets the configured options on the builder. Options that are not configured are left at the defaults of the
+     * builder.
+     * @param builder
+     *  the builder to create the undertow instance
+     * @param tuning
+     *  the tuning configuration, may be <code>null</code>
+     * @return
+     *  the builder
+     */
+    static Undertow.Builder apply(final Undertow.Builder builder, final WebServerTuningConfiguration tuning) {
+
+        if (tuning == null) {
+            return builder;
+        }
+        if (tuning.getIoThreads() != null) {
+            builder.setIoThreads(tuning.getIoThreads());
+        }
+        if (tuning.getWorkerMaxThreads() != null) {
+            //the task pool of the worker queues tasks unbounded, so it never grows beyond its core threads and the
+            //builder uses the same number for core and max threads
+            builder.setWorkerThreads(tuning.getWorkerMaxThreads());
+        }
+        if (tuning.getBufferSize() != null) {
+            builder.setBufferSize(tuning.getBufferSize());
+        }
+        if (tuning.getDirectBuffers() != null) {
+            builder.setDirectBuffers(tuning.getDirectBuffers());
+        }
+        if (tuning.getBacklog() != null) {
+            builder.setSocketOption(Options.BACKLOG, tuning.getBacklog());
+        }
+        if (tuning.getTcpNoDelay() != null) {
+            builder.setSocketOption(Options.TCP_NODELAY, tuning.getTcpNoDelay());
+        }
+        if (tuning.getKeepAlive() != null) {
+            builder.setSocketOption(Options.KEEP_ALIVE, tuning.getKeepAlive());
+        }
+        if (tuning.getIdleTimeout() != null) {
+            builder.setServerOption(UndertowOptions.IDLE_TIMEOUT, tuning.getIdleTimeout());
+        }
+        LOG.info("Server tuning: ioThreads={}, workerThreads={}, bufferSize={}, directBuffers={}, backlog={}",
+                 tuning.getIoThreads(),
+                 tuning.getWorkerMaxThreads(),
+                 tuning.getBufferSize(),
+                 tuning.getDirectBuffers(),
+                 tuning.getBacklog());
+        return builder;
+    }
+}
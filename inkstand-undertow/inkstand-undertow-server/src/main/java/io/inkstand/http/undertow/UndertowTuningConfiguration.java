@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import javax.inject.Inject;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+
+import io.inkstand.config.WebServerTuningConfiguration;
+
+/**
+ * Default {@link WebServerTuningConfiguration} whose values are specified as (Delta Spike {@link ConfigProperty})
+ * configuration properties. Properties that are not specified leave the defaults of Undertow in place, which are
+ * derived from the number of processors and the available memory. The property names are
+ * <ul>
+ * <li><code>inkstand.http.io.threads</code></li>
+ * <li><code>inkstand.http.worker.threads.max</code></li>
+ * <li><code>inkstand.http.buffer.size</code></li>
+ * <li><code>inkstand.http.buffer.direct</code></li>
+ * <li><code>inkstand.http.backlog</code></li>
+ * <li><code>inkstand.http.tcp.nodelay</code></li>
+ * <li><code>inkstand.http.keepalive</code></li>
+ * <li><code>inkstand.http.idle.timeout</code></li>
+ * <li><code>inkstand.http.http2</code></li>
+ * <li><code>inkstand.http.virtual.threads</code></li>
+ * </ul>
+ */
+public class UndertowTuningConfiguration implements WebServerTuningConfiguration {
+
+    public static final String HTTP_IO_THREADS_PROPERTY = "inkstand.http.io.threads";
+    public static final String HTTP_WORKER_MAX_THREADS_PROPERTY = "inkstand.http.worker.threads.max";
+    public static final String HTTP_BUFFER_SIZE_PROPERTY = "inkstand.http.buffer.size";
+    public static final String HTTP_DIRECT_BUFFERS_PROPERTY = "inkstand.http.buffer.direct";
+    public static final String HTTP_BACKLOG_PROPERTY = "inkstand.http.backlog";
+    public static final String HTTP_TCP_NODELAY_PROPERTY = "inkstand.http.tcp.nodelay";
+    public static final String HTTP_KEEPALIVE_PROPERTY = "inkstand.http.keepalive";
+    public static final String HTTP_IDLE_TIMEOUT_PROPERTY = "inkstand.http.idle.timeout";
+    public static final String HTTP_HTTP2_PROPERTY = "inkstand.http.http2";
+    public static final String HTTP_VIRTUAL_THREADS_PROPERTY = "inkstand.http.virtual.threads";
+
+    @Inject
+    @ConfigProperty(name = HTTP_IO_THREADS_PROPERTY)
+    private Integer ioThreads;
+
+    @Inject
+    @ConfigProperty(name = HTTP_WORKER_MAX_THREADS_PROPERTY)
+    private Integer workerMaxThreads;
+
+    @Inject
+    @ConfigProperty(name = HTTP_BUFFER_SIZE_PROPERTY)
+    private Integer bufferSize;
+
+    @Inject
+    @ConfigProperty(name = HTTP_DIRECT_BUFFERS_PROPERTY)
+    private Boolean directBuffers;
+
+    @Inject
+    @ConfigProperty(name = HTTP_BACKLOG_PROPERTY)
+    private Integer backlog;
+
+    @Inject
+    @ConfigProperty(name = HTTP_TCP_NODELAY_PROPERTY)
+    private Boolean tcpNoDelay;
+
+    @Inject
+    @ConfigProperty(name = HTTP_KEEPALIVE_PROPERTY)
+    private Boolean keepAlive;
+
+    @Inject
+    @ConfigProperty(name = HTTP_IDLE_TIMEOUT_PROPERTY)
+    private Integer idleTimeout;
+
+    @Inject
+    @ConfigProperty(name = HTTP_HTTP2_PROPERTY)
+    private Boolean http2;
+
+    @Inject
+    @ConfigProperty(name = HTTP_VIRTUAL_THREADS_PROPERTY)
+    private Boolean virtualThreads;
+
+    @Override
+    public Integer getIoThreads() {
+        return ioThreads;
+    }
+
+    @Override
+    public Integer getWorkerMaxThreads() {
+        return workerMaxThreads;
+    }
+
+    @Override
+    public Integer getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    public Boolean getDirectBuffers() {
+        return directBuffers;
+    }
+
+    @Override
+    public Integer getBacklog() {
+        return backlog;
+    }
+
+    @Override
+    public Boolean getTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    @Override
+    public Boolean getKeepAlive() {
+        return keepAlive;
+    }
+
+    @Override
+    public Integer getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    @Override
+    public Boolean getHttp2() {
+        return http2;
+    }
+
+    @Override
+    public Boolean getVirtualThreads() {
+        return virtualThreads;
+    }
+}
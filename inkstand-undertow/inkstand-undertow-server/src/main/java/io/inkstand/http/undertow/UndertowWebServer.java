@@ -23,15 +23,23 @@ import io.inkstand.MicroService;
 import io.undertow.Undertow;
 
 /**
- * Undertow based WebServer implementation
+ * Undertow based WebServer implementation. When stopped, the server is drained first, so that the active requests
+ * may complete while new requests are rejected. The management endpoint runs on a separate server, which is started
+ * before and stopped after the service endpoints.
  *
  * @author <a href="mailto:gerald@inkstand.io">Gerald M&uuml;cke</a>
  */
-public class UndertowWebServer implements MicroService, MicroService.StateSupport{
+public class UndertowWebServer implements MicroService, MicroService.StateSupport, MicroService.DrainSupport {
 
     @Inject
     private Undertow undertow;
 
+    @Inject
+    private UndertowGracefulShutdown gracefulShutdown;
+
+    @Inject
+    private UndertowManagementServer managementServer;
+
     /**
      * The current state
      */
@@ -39,16 +47,27 @@ public class UndertowWebServer implements MicroService, MicroService.StateSuppor
 
     @Override
     public void start() {
+        gracefulShutdown.resume();
+        managementServer.start();
         undertow.start();
         state.set(State.RUNNING);
     }
 
     @Override
     public void stop() {
+        drain();
         undertow.stop();
+        managementServer.stop();
         state.set(State.STOPPED);
     }
 
+    @Override
+    public void drain() {
+        if (state.compareAndSet(State.RUNNING, State.DRAINING)) {
+            gracefulShutdown.drain();
+        }
+    }
+
     @Override
     public State getState() {
         return this.state.get();
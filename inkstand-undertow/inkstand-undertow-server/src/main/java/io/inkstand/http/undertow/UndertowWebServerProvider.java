@@ -30,7 +30,10 @@ import org.slf4j.LoggerFactory;
 import io.inkstand.InkstandRuntimeException;
 import io.inkstand.Management;
 import io.inkstand.PublicService;
+import io.inkstand.config.CompressionConfiguration;
+import io.inkstand.config.TlsConfiguration;
 import io.inkstand.config.WebServerConfiguration;
+import io.inkstand.config.WebServerTuningConfiguration;
 import io.undertow.Undertow;
 import io.undertow.Undertow.Builder;
 import io.undertow.server.HttpHandler;
@@ -68,12 +71,35 @@ public class UndertowWebServerProvider {
     @Management
     private Instance<DeploymentInfo> mgmtDeployment;
 
+    @Inject
+    private Instance<WebServerTuningConfiguration> tuning;
+
+    @Inject
+    private Instance<TlsConfiguration> tls;
+
+    @Inject
+    private Instance<CompressionConfiguration> compression;
+
+    @Inject
+    private UndertowGracefulShutdown gracefulShutdown;
+
+    @Inject
+    private UndertowRequestMetrics requestMetrics;
+
+    @Inject
+    private UndertowRequestLimits requestLimits;
+
+    @Inject
+    private UndertowManagementServer managementServer;
+
     @Produces
     public Undertow getUndertow() {
         try {
             final Builder builder = Undertow.builder();
-            addServices(builder);
-            addManagementExtensions(builder);
+            final WebServerTuningConfiguration tuningConfig = tuning.isUnsatisfied() ? null : tuning.get();
+            UndertowTuning.apply(builder, tuningConfig);
+            addServices(builder, tuningConfig);
+            addManagementExtensions(tuningConfig);
             return builder.build();
         } catch (final ServletException e) {
             throw new InkstandRuntimeException(e);
@@ -81,37 +107,49 @@ public class UndertowWebServerProvider {
     }
 
     /**
-     * Adds the business service deployments that are injected into the provider.
+     * Adds the business service deployments that are injected into the provider. The deployments are served by the
+     * http listener and - if configured - by a TLS listener. If compression is enabled, the responses of all
+     * deployments are compressed, except for deployments disabling it with the context parameter
+     * {@link UndertowCompressionConfiguration#HTTP_COMPRESSION_PROPERTY} set to <code>false</code>. The services can
+     * be drained on shutdown using the {@link UndertowGracefulShutdown}. The concurrent requests of each deployment
+     * are limited by the {@link UndertowRequestLimits} and their metrics are recorded by the
+     * {@link UndertowRequestMetrics}.
      * @param builder
      *  the builder to create the undertow instance
+     * @param tuningConfig
+     *  the tuning configuration defining whether HTTP/2 is enabled, may be <code>null</code>
      * @throws ServletException
      */
-    private void addServices(final Builder builder) throws ServletException {
+    private void addServices(final Builder builder, final WebServerTuningConfiguration tuningConfig)
+            throws ServletException {
 
         final ServletContainer container = Servlets.defaultContainer();
         final Iterable<DeploymentInfo> deployments = this.deploymentInfo;
-        final PathHandler path = addDeployments(container, deployments);
+        final CompressionConfiguration compressionConfig = compression.isUnsatisfied() ? null : compression.get();
+        final PathHandler path = addDeployments(container, deployments, tuningConfig, compressionConfig, true);
         final WebServerConfiguration httpConfig = this.config;
         LOG.info("Creating service endpoint {}:{}", httpConfig.getBindAddress(), httpConfig.getPort());
-        builder.addHttpListener(httpConfig.getPort(), httpConfig.getBindAddress(), path);
+        final TlsConfiguration tlsConfig = tls.isUnsatisfied() ? null : tls.get();
+        final HttpHandler root = gracefulShutdown.wrap(path);
+        UndertowListeners.addListeners(builder, httpConfig, tuningConfig, tlsConfig, root);
     }
 
     /**
-     * Adds the optional management extensions into the undertow builder configuration. The management extensions
-     * have to be injected using the {@link io.inkstand.Management} qualifier.
-     * @param builder
-     *  the builder to create the undertow instance.
+     * Creates the server for the optional management extensions. The management extensions have to be injected using
+     * the {@link io.inkstand.Management} qualifier. They are served by a separate {@link UndertowManagementServer}
+     * with its own threads, so they remain responsive when the services are under full load.
+     * @param tuningConfig
+     *  the tuning configuration defining whether virtual threads are used, may be <code>null</code>
      * @throws ServletException
      */
-    private void addManagementExtensions(final Builder builder) throws ServletException {
+    private void addManagementExtensions(final WebServerTuningConfiguration tuningConfig) throws ServletException {
 
         //mgmt Deployment is completely optional and will only be activated, if there is a mgmt config
         if (!mgmtConfig.isUnsatisfied() && !mgmtDeployment.isUnsatisfied()) {
             final WebServerConfiguration mCfg = mgmtConfig.get();
-            LOG.info("Creating management endpoint {}:{}", mCfg.getBindAddress(), mCfg.getPort());
             final ServletContainer mContainer = Servlets.newContainer();
-            final HttpHandler root = addDeployments(mContainer, this.mgmtDeployment);
-            builder.addHttpListener(mCfg.getPort(), mCfg.getBindAddress(), root);
+            final HttpHandler root = addDeployments(mContainer, this.mgmtDeployment, tuningConfig, null, false);
+            managementServer.create(mCfg, root);
         }
     }
 
@@ -122,23 +160,59 @@ public class UndertowWebServerProvider {
      *  the container to which the the deployments should be added
      * @param deployments
      *  the deployments to be added
+     * @param tuningConfig
+     *  the tuning configuration defining whether the blocking requests of the deployments are dispatched to virtual
+     *  threads, may be <code>null</code>
+     * @param compressionConfig
+     *  the configuration for compressing the responses of the deployments, may be <code>null</code>
+     * @param services
+     *  <code>true</code> if the deployments are services whose requests are limited and measured, <code>false</code>
+     *  for the management deployments
      * @return
      *  a path handler to the deployments. Multiple deployments have to be distinguished by their context paths.
      * @throws ServletException
      */
-    private PathHandler addDeployments(final ServletContainer container, final Iterable<DeploymentInfo> deployments)
-            throws ServletException {
+    private PathHandler addDeployments(final ServletContainer container,
+                                       final Iterable<DeploymentInfo> deployments,
+                                       final WebServerTuningConfiguration tuningConfig,
+                                       final CompressionConfiguration compressionConfig,
+                                       final boolean services) throws ServletException {
 
         final PathHandler path = new PathHandler();
         for (DeploymentInfo di : deployments) {
+            UndertowDispatch.apply(di, tuningConfig);
             final DeploymentManager dm = container.addDeployment(di);
             LOG.info("Deploying service {}", di.getContextPath());
             dm.deploy();
-            path.addPrefixPath(di.getContextPath(), dm.start());
+            final HttpHandler handler = dm.start();
+            if (services) {
+                //rejected requests are recorded by the metrics as well
+                final HttpHandler limited = requestLimits.wrap(di.getContextPath(), handler);
+                final HttpHandler measured = requestMetrics.wrap(di.getContextPath(), limited);
+                path.addPrefixPath(di.getContextPath(),
+                                   UndertowCompression.wrap(measured, isCompressed(di) ? compressionConfig : null));
+            } else {
+                path.addPrefixPath(di.getContextPath(), handler);
+            }
         }
         return path;
     }
 
+    /**
+     * Determines whether the responses of the deployment may be compressed. A deployment serving content that is
+     * precompressed or must not be compressed at request time, such as static content, disables the compression
+     * with the context parameter {@link UndertowCompressionConfiguration#HTTP_COMPRESSION_PROPERTY}.
+     * @param di
+     *  the deployment
+     * @return
+     *  <code>false</code> if the deployment disabled the compression
+     */
+    private static boolean isCompressed(final DeploymentInfo di) {
+
+        final String compressed = di.getInitParameters().get(UndertowCompressionConfiguration.HTTP_COMPRESSION_PROPERTY);
+        return !"false".equalsIgnoreCase(compressed);
+    }
+
     /**
      * Stereotyped version of the default UndertowWebServerProvider that can be activated using the {@link
      * PublicService} stereotype in beans.xml.
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AdaptiveLimitTest {
+
+    /**
+     * Creates a limit that is updated with every sample
+     */
+    private AdaptiveLimit createLimit(final int initial, final int min, final int max) {
+
+        return new AdaptiveLimit(initial, min, max, 0, 1);
+    }
+
+    @Test
+    public void testOnSample_stableRtt_increased() throws Exception {
+
+        //prepare
+        final AdaptiveLimit subject = createLimit(10, 1, 100);
+
+        //act
+        subject.onSample(1000, 10);
+        final int limit = subject.onSample(1000, 10);
+
+        //assert
+        assertTrue(limit > 10);
+        assertEquals(limit, subject.getLimit());
+        assertEquals(1000, subject.getNoLoadRtt());
+    }
+
+    @Test
+    public void testOnSample_increasedRtt_decreased() throws Exception {
+
+        //prepare
+        final AdaptiveLimit subject = createLimit(50, 1, 100);
+        subject.onSample(1000, 50);
+        final int before = subject.getLimit();
+
+        //act
+        final int limit = subject.onSample(4000, before);
+
+        //assert
+        assertTrue(limit > 0);
+        assertTrue(limit < before);
+        assertEquals(1000, subject.getNoLoadRtt());
+    }
+
+    @Test
+    public void testOnSample_appLimited_unchanged() throws Exception {
+
+        //prepare
+        final AdaptiveLimit subject = createLimit(50, 1, 100);
+
+        //act
+        final int first = subject.onSample(1000, 2);
+        final int second = subject.onSample(4000, 2);
+
+        //assert
+        assertEquals(0, first);
+        assertEquals(0, second);
+        assertEquals(50, subject.getLimit());
+    }
+
+    @Test
+    public void testOnSample_moderateQueue_unchanged() throws Exception {
+
+        //prepare
+        final AdaptiveLimit subject = createLimit(100, 1, 1000);
+        subject.onSample(1000, 1);
+
+        //act
+        //estimated queue of 100 * (1 - 1000 / 1100) = 10 requests, between 3 and 6 times log10(100)
+        final int limit = subject.onSample(1100, 100);
+
+        //assert
+        assertEquals(0, limit);
+        assertEquals(100, subject.getLimit());
+    }
+
+    @Test
+    public void testOnSample_maxLimit() throws Exception {
+
+        //prepare
+        final AdaptiveLimit subject = createLimit(10, 1, 12);
+
+        //act
+        for (int i = 0; i < 10; i++) {
+            subject.onSample(1000, 12);
+        }
+
+        //assert
+        assertEquals(12, subject.getLimit());
+    }
+
+    @Test
+    public void testOnSample_minLimit() throws Exception {
+
+        //prepare
+        final AdaptiveLimit subject = createLimit(20, 15, 100);
+        subject.onSample(1000, 1);
+
+        //act
+        for (int i = 0; i < 10; i++) {
+            subject.onSample(100000, 20);
+        }
+
+        //assert
+        assertEquals(15, subject.getLimit());
+    }
+
+    @Test
+    public void testOnSample_windowNotComplete() throws Exception {
+
+        //prepare
+        final AdaptiveLimit subject = new AdaptiveLimit(10, 1, 100, 0, 3);
+
+        //act
+        final int first = subject.onSample(1000, 10);
+        final int second = subject.onSample(1000, 10);
+
+        //assert
+        assertEquals(0, first);
+        assertEquals(0, second);
+        assertEquals(0, subject.getNoLoadRtt());
+        assertTrue(subject.onSample(1000, 10) > 10);
+    }
+
+    @Test
+    public void testSetLimit() throws Exception {
+
+        //prepare
+        final AdaptiveLimit subject = createLimit(10, 5, 20);
+
+        //act
+        subject.setLimit(15);
+
+        //assert
+        assertEquals(15, subject.getLimit());
+        subject.setLimit(100);
+        assertEquals(20, subject.getLimit());
+        subject.setLimit(1);
+        assertEquals(5, subject.getLimit());
+    }
+
+    @Test
+    public void testConstructor_initialLimitOutOfBounds() throws Exception {
+
+        //act
+        final AdaptiveLimit subject = createLimit(0, 4, 8);
+
+        //assert
+        assertEquals(4, subject.getLimit());
+    }
+}
@@ -22,10 +22,16 @@ import static org.hamcrest.core.IsNot.not;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.AdditionalAnswers.returnsLastArg;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import javax.enterprise.inject.Instance;
 import java.net.URL;
 import java.util.Collections;
 import org.junit.Before;
@@ -37,7 +43,9 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import io.inkstand.config.ResourceSecurityConfiguration;
+import io.inkstand.config.TlsConfiguration;
 import io.inkstand.config.WebServerConfiguration;
+import io.inkstand.config.WebServerTuningConfiguration;
 import io.inkstand.scribble.net.NetworkUtils;
 import io.undertow.Undertow;
 import io.undertow.security.idm.Account;
@@ -66,6 +74,21 @@ public class AuthenticatingUndertowWebServerProviderTest {
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private DeploymentInfo deploymentInfo;
 
+    @Mock
+    private Instance<WebServerTuningConfiguration> tuning;
+
+    @Mock
+    private Instance<TlsConfiguration> tls;
+
+    @Mock
+    private UndertowGracefulShutdown gracefulShutdown;
+
+    @Mock
+    private UndertowRequestMetrics requestMetrics;
+
+    @Mock
+    private UndertowRequestLimits requestLimits;
+
     /**
      * The class under test
      */
@@ -88,6 +111,11 @@ public class AuthenticatingUndertowWebServerProviderTest {
         when(deploymentInfo.getDeploymentName()).thenReturn("test.war");
         when(deploymentInfo.getContextPath()).thenReturn("test");
         when(deploymentInfo.getThreadSetupActions()).thenReturn(Collections.EMPTY_LIST);
+        when(tuning.isUnsatisfied()).thenReturn(true);
+        when(tls.isUnsatisfied()).thenReturn(true);
+        when(gracefulShutdown.wrap(any(HttpHandler.class))).thenAnswer(returnsFirstArg());
+        when(requestMetrics.wrap(anyString(), any(HttpHandler.class))).thenAnswer(returnsLastArg());
+        when(requestLimits.wrap(anyString(), any(HttpHandler.class))).thenAnswer(returnsLastArg());
     }
 
     @Test
@@ -102,6 +130,8 @@ public class AuthenticatingUndertowWebServerProviderTest {
         //assert
         assertNotNull(undertow);
         verify(deploymentInfo).setIdentityManager(identityManager);
+        verify(requestMetrics).wrap(eq("test"), any(HttpHandler.class));
+        verify(requestLimits).wrap(eq("test"), any(HttpHandler.class));
         try {
             //the test will fail as the server protects the resource
             undertow.start();
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram subject = new LatencyHistogram();
+
+    @Test
+    public void testBucketIndex_linearRange() throws Exception {
+
+        for (int i = 0; i < 16; i++) {
+            assertEquals(i, LatencyHistogram.bucketIndex(i));
+            assertEquals(i, LatencyHistogram.highestValue(i));
+        }
+    }
+
+    @Test
+    public void testBucketIndex_logLinearRange() throws Exception {
+
+        assertEquals(16, LatencyHistogram.bucketIndex(16));
+        assertEquals(31, LatencyHistogram.bucketIndex(31));
+        assertEquals(32, LatencyHistogram.bucketIndex(32));
+        assertEquals(32, LatencyHistogram.bucketIndex(33));
+        assertEquals(33, LatencyHistogram.bucketIndex(34));
+        assertEquals(33, LatencyHistogram.highestValue(LatencyHistogram.bucketIndex(32)));
+    }
+
+    @Test
+    public void testBucketIndex_continuousAndPrecise() throws Exception {
+
+        int previous = 0;
+        for (long value = 1; value < 1 << 20; value += 1 + value / 100) {
+            final int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index == previous || index == previous + 1);
+            final long highest = LatencyHistogram.highestValue(index);
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 16);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void testBucketIndex_maxValue() throws Exception {
+
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(LatencyHistogram.MAX_VALUE));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+        assertEquals(LatencyHistogram.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.BUCKETS - 1));
+    }
+
+    @Test
+    public void testSnapshot_empty() throws Exception {
+
+        //act
+        final LatencyHistogram.Snapshot snapshot = subject.snapshot();
+
+        //assert
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0.0, snapshot.getMean(), 0.0);
+        assertEquals(0, snapshot.getValueAtPercentile(99.0));
+    }
+
+    @Test
+    public void testSnapshot_percentiles() throws Exception {
+
+        //prepare
+        for (int i = 1; i <= 1000; i++) {
+            subject.record(i);
+        }
+
+        //act
+        final LatencyHistogram.Snapshot snapshot = subject.snapshot();
+
+        //assert
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(500.5, snapshot.getMean(), 0.0);
+        assertWithinPrecision(500, snapshot.getValueAtPercentile(50.0));
+        assertWithinPrecision(900, snapshot.getValueAtPercentile(90.0));
+        assertWithinPrecision(990, snapshot.getValueAtPercentile(99.0));
+        assertEquals(1000, snapshot.getValueAtPercentile(100.0));
+        assertEquals(1, snapshot.getValueAtPercentile(0.0));
+    }
+
+    @Test
+    public void testRecord_negative() throws Exception {
+
+        //act
+        subject.record(-5);
+
+        //assert
+        final LatencyHistogram.Snapshot snapshot = subject.snapshot();
+        assertEquals(1, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+
+        //prepare
+        subject.record(100);
+
+        //act
+        subject.reset();
+
+        //assert
+        final LatencyHistogram.Snapshot snapshot = subject.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+    }
+
+    private void assertWithinPrecision(final long expected, final long actual) {
+
+        assertTrue("expected " + expected + " but was " + actual, actual >= expected && actual <= expected * 17 / 16);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import org.junit.After;
+import org.junit.Test;
+
+public class MBeansTest {
+
+    private static final String PREFIX = "io.inkstand.test:type=Test,context=";
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @After
+    public void tearDown() throws Exception {
+
+        MBeans.unregister(PREFIX, "/test");
+    }
+
+    @Test
+    public void testGetObjectName() throws Exception {
+
+        //act
+        final ObjectName name = MBeans.getObjectName(PREFIX, "/test,1");
+
+        //assert
+        assertEquals("/test,1", ObjectName.unquote(name.getKeyProperty("context")));
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+
+        //act
+        MBeans.register(PREFIX, "/test", new RequestMetrics("/test"));
+
+        //assert
+        final ObjectName name = MBeans.getObjectName(PREFIX, "/test");
+        assertTrue(server.isRegistered(name));
+        assertEquals("/test", server.getAttribute(name, "ContextPath"));
+    }
+
+    @Test
+    public void testRegister_replace() throws Exception {
+
+        //prepare
+        final RequestMetrics metrics = new RequestMetrics("/test");
+        metrics.record(1, 200, 0, 0);
+        MBeans.register(PREFIX, "/test", metrics);
+
+        //act
+        MBeans.register(PREFIX, "/test", new RequestMetrics("/test"));
+
+        //assert
+        assertEquals(0L, server.getAttribute(MBeans.getObjectName(PREFIX, "/test"), "RequestCount"));
+    }
+
+    @Test
+    public void testUnregister() throws Exception {
+
+        //prepare
+        MBeans.register(PREFIX, "/test", new RequestMetrics("/test"));
+
+        //act
+        MBeans.unregister(PREFIX, "/test");
+
+        //assert
+        assertFalse(server.isRegistered(MBeans.getObjectName(PREFIX, "/test")));
+    }
+
+    @Test
+    public void testUnregister_notRegistered() throws Exception {
+
+        //act
+        MBeans.unregister(PREFIX, "/other");
+
+        //assert
+        assertFalse(server.isRegistered(MBeans.getObjectName(PREFIX, "/other")));
+    }
+}
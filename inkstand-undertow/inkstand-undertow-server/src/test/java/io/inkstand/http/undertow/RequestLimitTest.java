@@ -0,0 +1,343 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+import io.inkstand.scribble.net.NetworkUtils;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+
+public class RequestLimitTest {
+
+    private RequestLimit subject;
+
+    private Undertow undertow;
+
+    private int port;
+
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+
+    /**
+     * Signals that the blocking request has entered the handler
+     */
+    private final CountDownLatch blocked = new CountDownLatch(1);
+
+    /**
+     * Releases the blocking request
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /**
+     * Handler blocking requests to /block until released, all other requests are answered immediately.
+     */
+    private final HttpHandler handler = new HttpHandler() {
+
+        @Override
+        public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+            if (exchange.isInIoThread()) {
+                exchange.dispatch(this);
+                return;
+            }
+            if ("/block".equals(exchange.getRelativePath())) {
+                blocked.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            exchange.getResponseSender().send("ok");
+        }
+    };
+
+    @After
+    public void tearDown() throws Exception {
+
+        release.countDown();
+        clients.shutdownNow();
+        if (undertow != null) {
+            undertow.stop();
+        }
+    }
+
+    @Test
+    public void testRequest_belowLimit() throws Exception {
+
+        //prepare
+        start(2, 0, 1000);
+
+        //act
+        final Response response = request("/fast");
+
+        //assert
+        assertEquals(200, response.status);
+        awaitIdle();
+        assertEquals(0, subject.getActiveRequests());
+    }
+
+    @Test
+    public void testRequest_queuedUntilActiveRequestCompletes() throws Exception {
+
+        //prepare
+        start(1, 1, 5000);
+        final Future<Response> first = submit("/block");
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        //act
+        final Future<Response> second = submit("/fast");
+        awaitQueued(1);
+
+        //assert
+        assertFalse(second.isDone());
+        release.countDown();
+        assertEquals(200, first.get(5, TimeUnit.SECONDS).status);
+        assertEquals(200, second.get(5, TimeUnit.SECONDS).status);
+        assertEquals(0, subject.getQueuedRequests());
+        assertEquals(0, subject.getShedQueueFull() + subject.getShedQueueTimeout());
+        awaitIdle();
+    }
+
+    @Test
+    public void testRequest_queueFull_rejected() throws Exception {
+
+        //prepare
+        start(1, 0, 5000);
+        submit("/block");
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        //act
+        final Response response = request("/fast");
+
+        //assert
+        assertEquals(503, response.status);
+        assertEquals("3", response.retryAfter);
+        assertEquals(1, subject.getShedQueueFull());
+        assertEquals(0, subject.getShedQueueTimeout());
+        assertEquals(1, subject.getActiveRequests());
+    }
+
+    @Test
+    public void testRequest_queueTimeout_rejected() throws Exception {
+
+        //prepare
+        start(1, 1, 100);
+        submit("/block");
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        //act
+        final long start = System.nanoTime();
+        final Response response = request("/fast");
+
+        //assert
+        assertEquals(503, response.status);
+        assertEquals("3", response.retryAfter);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        assertEquals(0, subject.getShedQueueFull());
+        assertEquals(1, subject.getShedQueueTimeout());
+        assertEquals(0, subject.getQueuedRequests());
+    }
+
+    @Test
+    public void testSetMaxConcurrentRequests_raised_queuedRequestProceeds() throws Exception {
+
+        //prepare
+        start(1, 1, 5000);
+        submit("/block");
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        final Future<Response> queued = submit("/fast");
+        awaitQueued(1);
+
+        //act
+        subject.setMaxConcurrentRequests(2);
+
+        //assert
+        assertEquals(200, queued.get(5, TimeUnit.SECONDS).status);
+        assertEquals(2, subject.getMaxConcurrentRequests());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxConcurrentRequests_invalid() throws Exception {
+
+        //prepare
+        subject = new RequestLimit("/test", 1, 1, 1000, 1);
+
+        //act
+        subject.setMaxConcurrentRequests(0);
+    }
+
+    @Test
+    public void testRequest_adaptive_sampled() throws Exception {
+
+        //prepare
+        startAdaptive(new AdaptiveLimit(4, 1, 10, 0, 1));
+
+        //act
+        final Response response = request("/fast");
+
+        //assert
+        assertEquals(200, response.status);
+        awaitIdle();
+        assertTrue(subject.isAdaptive());
+        assertTrue(subject.getNoLoadRtt() > 0);
+    }
+
+    @Test
+    public void testRequest_adaptive_limitLowered_permitReturned() throws Exception {
+
+        //prepare
+        final AdaptiveLimit adaptiveLimit = new AdaptiveLimit(1, 1, 10, 0, 1);
+        startAdaptive(adaptiveLimit);
+        final Future<Response> first = submit("/block");
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        final Future<Response> second = submit("/fast");
+        awaitQueued(1);
+
+        //act
+        release.countDown();
+
+        //assert
+        assertEquals(200, first.get(5, TimeUnit.SECONDS).status);
+        assertEquals(200, second.get(5, TimeUnit.SECONDS).status);
+        awaitIdle();
+        assertEquals(0, subject.getQueuedRequests());
+        assertEquals(adaptiveLimit.getLimit(), subject.getMaxConcurrentRequests());
+    }
+
+    @Test
+    public void testSetMaxConcurrentRequests_adaptive() throws Exception {
+
+        //prepare
+        final AdaptiveLimit adaptiveLimit = new AdaptiveLimit(4, 1, 10);
+        subject = new RequestLimit("/test", 1, 1000, 1, adaptiveLimit);
+
+        //act
+        subject.setMaxConcurrentRequests(8);
+
+        //assert
+        assertEquals(8, subject.getMaxConcurrentRequests());
+        assertEquals(8, adaptiveLimit.getLimit());
+    }
+
+    @Test
+    public void testIsAdaptive_staticLimit() throws Exception {
+
+        //prepare
+        subject = new RequestLimit("/test", 1, 1, 1000, 1);
+
+        //act & assert
+        assertFalse(subject.isAdaptive());
+        assertEquals(0, subject.getNoLoadRtt());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+
+        //prepare
+        start(1, 0, 5000);
+        submit("/block");
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        request("/fast");
+
+        //act
+        subject.reset();
+
+        //assert
+        assertEquals(0, subject.getShedQueueFull());
+    }
+
+    private void start(final int maxConcurrentRequests, final int maxQueueSize, final long queueTimeout) {
+
+        this.subject = new RequestLimit("/test", maxConcurrentRequests, maxQueueSize, queueTimeout, 3);
+        this.port = NetworkUtils.findAvailablePort();
+        this.undertow = Undertow.builder().addHttpListener(port, "localhost", subject.wrap(handler)).build();
+        this.undertow.start();
+    }
+
+    private void startAdaptive(final AdaptiveLimit adaptiveLimit) {
+
+        this.subject = new RequestLimit("/test", 1, 5000, 3, adaptiveLimit);
+        this.port = NetworkUtils.findAvailablePort();
+        this.undertow = Undertow.builder().addHttpListener(port, "localhost", subject.wrap(handler)).build();
+        this.undertow.start();
+    }
+
+    private void awaitQueued(final int expected) throws InterruptedException {
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (subject.getQueuedRequests() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, subject.getQueuedRequests());
+    }
+
+    private void awaitIdle() throws InterruptedException {
+
+        //the permit is released when the exchange completes, which may be after the client received the response
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (subject.getActiveRequests() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, subject.getActiveRequests());
+    }
+
+    private Future<Response> submit(final String path) {
+
+        return clients.submit(new Callable<Response>() {
+
+            @Override
+            public Response call() throws Exception {
+
+                return request(path);
+            }
+        });
+    }
+
+    private Response request(final String path) throws Exception {
+
+        final HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        try {
+            return new Response(con.getResponseCode(), con.getHeaderField("Retry-After"));
+        } finally {
+            con.disconnect();
+        }
+    }
+
+    private static final class Response {
+
+        final int status;
+        final String retryAfter;
+
+        Response(final int status, final String retryAfter) {
+
+            this.status = status;
+            this.retryAfter = retryAfter;
+        }
+    }
+}
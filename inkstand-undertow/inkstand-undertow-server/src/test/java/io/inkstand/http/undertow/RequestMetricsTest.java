@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class RequestMetricsTest {
+
+    private final RequestMetrics subject = new RequestMetrics("/test");
+
+    @Test
+    public void testGetContextPath() throws Exception {
+
+        assertEquals("/test", subject.getContextPath());
+    }
+
+    @Test
+    public void testRecord() throws Exception {
+
+        //act
+        subject.record(100, 101, 0, 0);
+        subject.record(200, 200, 10, 100);
+        subject.record(300, 204, 0, 0);
+        subject.record(400, 304, 0, 0);
+        subject.record(500, 404, 0, 20);
+        subject.record(600, 500, 5, 0);
+        subject.record(700, 0, 0, 0);
+
+        //assert
+        assertEquals(7, subject.getRequestCount());
+        assertEquals(1, subject.getStatus1xx());
+        assertEquals(2, subject.getStatus2xx());
+        assertEquals(1, subject.getStatus3xx());
+        assertEquals(1, subject.getStatus4xx());
+        assertEquals(2, subject.getStatus5xx());
+        assertEquals(15, subject.getBytesIn());
+        assertEquals(120, subject.getBytesOut());
+        assertEquals(400.0, subject.getLatencyMean(), 0.0);
+        assertEquals(700, subject.getLatencyMax());
+        assertEquals(415, subject.getLatency50th());
+        assertEquals(700, subject.getLatency90th());
+        assertEquals(700, subject.getLatency99th());
+        assertEquals(700, subject.getLatency999th());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+
+        //prepare
+        subject.record(100, 200, 10, 100);
+
+        //act
+        subject.reset();
+
+        //assert
+        assertEquals(0, subject.getRequestCount());
+        assertEquals(0, subject.getStatus2xx());
+        assertEquals(0, subject.getBytesIn());
+        assertEquals(0, subject.getBytesOut());
+        assertEquals(0, subject.getLatencyMax());
+    }
+}
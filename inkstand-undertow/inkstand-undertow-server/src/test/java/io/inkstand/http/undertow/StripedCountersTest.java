@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class StripedCountersTest {
+
+    @Test
+    public void testStripes() throws Exception {
+
+        assertEquals(1, new StripedCounters(1, 1).getStripes());
+        assertEquals(4, new StripedCounters(1, 3).getStripes());
+        assertEquals(8, new StripedCounters(1, 8).getStripes());
+        assertEquals(16, new StripedCounters(1, 64).getStripes());
+    }
+
+    @Test
+    public void testAddAndGet() throws Exception {
+
+        //prepare
+        final StripedCounters subject = new StripedCounters(3, 4);
+
+        //act
+        subject.increment(0);
+        subject.add(1, 5);
+        subject.add(1, 7);
+
+        //assert
+        assertEquals(3, subject.size());
+        assertEquals(1, subject.get(0));
+        assertEquals(12, subject.get(1));
+        assertEquals(0, subject.get(2));
+        assertArrayEquals(new long[] {1, 12, 0}, subject.getAll());
+    }
+
+    @Test
+    public void testAdd_concurrently() throws Exception {
+
+        //prepare
+        final StripedCounters subject = new StripedCounters(2, 4);
+        final int threads = 8;
+        final int increments = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < increments; i++) {
+                        subject.increment(0);
+                        subject.add(1, 2);
+                    }
+                }
+            });
+        }
+
+        //act
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        //assert
+        assertEquals(threads * increments, subject.get(0));
+        assertEquals(2L * threads * increments, subject.get(1));
+    }
+
+    @Test
+    public void testReset() throws Exception {
+
+        //prepare
+        final StripedCounters subject = new StripedCounters(2);
+        subject.add(0, 3);
+        subject.add(1, 4);
+
+        //act
+        subject.reset();
+
+        //assert
+        assertArrayEquals(new long[] {0, 0}, subject.getAll());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static io.inkstand.scribble.Scribble.inject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UndertowCompressionConfigurationTest {
+
+    private UndertowCompressionConfiguration subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new UndertowCompressionConfiguration();
+    }
+
+    @Test
+    public void testGetters() throws Exception {
+
+        //prepare
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.compression").into(subject);
+        inject(256).asConfigProperty("inkstand.http.compression.min.size").into(subject);
+        inject(" application/json, Text/CSV ,").asConfigProperty("inkstand.http.compression.types").into(subject);
+        inject(9).asConfigProperty("inkstand.http.compression.level").into(subject);
+
+        //act & assert
+        assertTrue(subject.isEnabled());
+        assertEquals(256, subject.getMinSize());
+        final Set<String> types = subject.getContentTypes();
+        assertEquals(2, types.size());
+        assertTrue(types.contains("application/json"));
+        assertTrue(types.contains("text/csv"));
+        assertEquals(9, subject.getLevel());
+    }
+
+    @Test
+    public void testGetters_defaults() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.compression").into(subject);
+        inject(null).asConfigProperty("inkstand.http.compression.min.size").into(subject);
+        inject(null).asConfigProperty("inkstand.http.compression.types").into(subject);
+        inject(null).asConfigProperty("inkstand.http.compression.level").into(subject);
+
+        //act & assert
+        assertFalse(subject.isEnabled());
+        assertEquals(1024, subject.getMinSize());
+        final Set<String> types = subject.getContentTypes();
+        assertTrue(types.contains("text/*"));
+        assertTrue(types.contains("application/json"));
+        assertEquals(6, subject.getLevel());
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static io.inkstand.util.CollectionHelper.asUnmodifiableSet;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.inkstand.config.CompressionConfiguration;
+import io.inkstand.scribble.net.NetworkUtils;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UndertowCompressionTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Mock
+    private CompressionConfiguration config;
+
+    private Undertow undertow;
+
+    private int port;
+
+    /**
+     * The content, the content type and the content encoding of the response of the test handler
+     */
+    private byte[] content;
+    private String contentType;
+    private String contentEncoding;
+    private boolean chunked;
+    private String etag;
+    private boolean partial;
+
+    private final HttpHandler handler = new HttpHandler() {
+
+        @Override
+        public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, contentType);
+            if (contentEncoding != null) {
+                exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, contentEncoding);
+            }
+            if (etag != null) {
+                exchange.getResponseHeaders().put(Headers.ETAG, etag);
+            }
+            if (partial) {
+                exchange.setResponseCode(206);
+                exchange.getResponseHeaders().put(Headers.CONTENT_RANGE,
+                                                  "bytes 0-" + (content.length - 1) + "/" + (content.length * 2));
+            }
+            if (chunked) {
+                exchange.startBlocking();
+                exchange.getOutputStream().write(content);
+            } else {
+                exchange.getResponseSender().send(ByteBuffer.wrap(content));
+            }
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+
+        this.port = NetworkUtils.findAvailablePort();
+        when(config.isEnabled()).thenReturn(true);
+        when(config.getMinSize()).thenReturn(1024);
+        when(config.getContentTypes()).thenReturn(asUnmodifiableSet("application/json", "text/*"));
+        when(config.getLevel()).thenReturn(6);
+        this.content = createJson(100);
+        this.contentType = "application/json; charset=UTF-8";
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        if (undertow != null) {
+            undertow.stop();
+        }
+    }
+
+    @Test
+    public void testWrap_disabled() throws Exception {
+
+        //prepare
+        when(config.isEnabled()).thenReturn(false);
+
+        //act
+        final HttpHandler result = UndertowCompression.wrap(handler, config);
+
+        //assert
+        assertSame(handler, result);
+    }
+
+    @Test
+    public void testWrap_noConfig() throws Exception {
+
+        //act
+        final HttpHandler result = UndertowCompression.wrap(handler, null);
+
+        //assert
+        assertSame(handler, result);
+    }
+
+    @Test
+    public void testWrap_gzip() throws Exception {
+
+        //prepare
+        start(UndertowCompression.wrap(handler, config));
+
+        //act
+        final HttpURLConnection con = request("gzip, deflate");
+
+        //assert
+        assertEquals("gzip", con.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", con.getHeaderField("Vary"));
+        assertArrayEquals(content, read(new GZIPInputStream(con.getInputStream())));
+    }
+
+    @Test
+    public void testWrap_deflate() throws Exception {
+
+        //prepare
+        start(UndertowCompression.wrap(handler, config));
+
+        //act
+        final HttpURLConnection con = request("deflate");
+
+        //assert
+        assertEquals("deflate", con.getHeaderField("Content-Encoding"));
+        //the deflate coding is the zlib format, including header and checksum
+        assertArrayEquals(content, read(new InflaterInputStream(con.getInputStream(), new Inflater())));
+    }
+
+    @Test
+    public void testWrap_deflate_levels() throws Exception {
+
+        for (int level : new int[] {1, 4, 9}) {
+            //prepare
+            when(config.getLevel()).thenReturn(level);
+            start(UndertowCompression.wrap(handler, config));
+
+            //act
+            final HttpURLConnection con = request("deflate");
+
+            //assert
+            assertArrayEquals(content, read(new InflaterInputStream(con.getInputStream(), new Inflater())));
+            undertow.stop();
+        }
+        undertow = null;
+    }
+
+    @Test
+    public void testWrap_strongETag_weakened() throws Exception {
+
+        //prepare
+        this.etag = "\"abc\"";
+        start(UndertowCompression.wrap(handler, config));
+
+        //act
+        final HttpURLConnection con = request("gzip");
+
+        //assert
+        assertEquals("gzip", con.getHeaderField("Content-Encoding"));
+        assertEquals("W/\"abc\"", con.getHeaderField("ETag"));
+    }
+
+    @Test
+    public void testWrap_notCompressed_strongETagKept() throws Exception {
+
+        //prepare
+        this.etag = "\"abc\"";
+        start(UndertowCompression.wrap(handler, config));
+
+        //act
+        final HttpURLConnection con = request(null);
+
+        //assert
+        assertNull(con.getHeaderField("Content-Encoding"));
+        assertEquals("\"abc\"", con.getHeaderField("ETag"));
+    }
+
+    @Test
+    public void testWrap_partialContent_notCompressed() throws Exception {
+
+        //prepare
+        this.partial = true;
+        start(UndertowCompression.wrap(handler, config));
+
+        //act
+        final HttpURLConnection con = request("gzip", 206);
+
+        //assert
+        assertNull(con.getHeaderField("Content-Encoding"));
+        assertNull(con.getHeaderField("Vary"));
+        assertArrayEquals(content, read(con.getInputStream()));
+    }
+
+    @Test
+    public void testWrap_compressionLevel() throws Exception {
+
+        //prepare
+        this.content = createRandomJson(5000);
+        when(config.getLevel()).thenReturn(1);
+        start(UndertowCompression.wrap(handler, config));
+        final byte[] fast = read(request("gzip").getInputStream());
+        undertow.stop();
+        when(config.getLevel()).thenReturn(9);
+        start(UndertowCompression.wrap(handler, config));
+
+        //act
+        final byte[] best = read(request("gzip").getInputStream());
+
+        //assert
+        assertTrue(best.length + " < " + fast.length, best.length < fast.length);
+    }
+
+    @Test
+    public void testWrap_unknownLength_compressed() throws Exception {
+
+        //prepare
+        this.chunked = true;
+        start(UndertowCompression.wrap(handler, config));
+
+        //act
+        final HttpURLConnection con = request("gzip");
+
+        //assert
+        assertEquals("gzip", con.getHeaderField("Content-Encoding"));
+        assertArrayEquals(content, read(new GZIPInputStream(con.getInputStream())));
+    }
+
+    @Test
+    public void testWrap_wildcardType_compressed() throws Exception {
+
+        //prepare
+        this.contentType = "text/html";
+        start(UndertowCompression.wrap(handler, config));
+
+        //act
+        final HttpURLConnection con = request("gzip");
+
+        //assert
+        assertEquals("gzip", con.getHeaderField("Content-Encoding"));
+    }
+
+    @Test
+    public void testWrap_belowMinSize_notCompressed() throws Exception {
+
+        //prepare
+        this.content = createJson(1);
+        start(UndertowCompression.wrap(handler, config));
+
+        //act
+        final HttpURLConnection con = request("gzip");
+
+        //assert
+        assertNull(con.getHeaderField("Content-Encoding"));
+        assertNull(con.getHeaderField("Vary"));
+        assertArrayEquals(content, read(con.getInputStream()));
+    }
+
+    @Test
+    public void testWrap_otherType_notCompressed() throws Exception {
+
+        //prepare
+        this.contentType = "image/png";
+        start(UndertowCompression.wrap(handler, config));
+
+        //act
+        final HttpURLConnection con = request("gzip");
+
+        //assert
+        assertNull(con.getHeaderField("Content-Encoding"));
+        assertArrayEquals(content, read(con.getInputStream()));
+    }
+
+    @Test
+    public void testWrap_alreadyEncoded_notCompressed() throws Exception {
+
+        //prepare
+        this.contentEncoding = "br";
+        start(UndertowCompression.wrap(handler, config));
+
+        //act
+        final HttpURLConnection con = request("gzip, br");
+
+        //assert
+        assertEquals("br", con.getHeaderField("Content-Encoding"));
+        assertArrayEquals(content, read(con.getInputStream()));
+    }
+
+    @Test
+    public void testWrap_notAccepted_notCompressed() throws Exception {
+
+        //prepare
+        start(UndertowCompression.wrap(handler, config));
+
+        //act
+        final HttpURLConnection con = request(null);
+
+        //assert
+        assertNull(con.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", con.getHeaderField("Vary"));
+        assertArrayEquals(content, read(con.getInputStream()));
+    }
+
+    private void start(final HttpHandler root) {
+
+        this.undertow = Undertow.builder().addHttpListener(port, "localhost", root).build();
+        this.undertow.start();
+    }
+
+    private HttpURLConnection request(final String acceptEncoding) throws IOException {
+
+        return request(acceptEncoding, 200);
+    }
+
+    private HttpURLConnection request(final String acceptEncoding, final int expectedStatus) throws IOException {
+
+        final HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:" + port + "/").openConnection();
+        if (acceptEncoding != null) {
+            con.setRequestProperty("Accept-Encoding", acceptEncoding);
+        }
+        assertEquals(expectedStatus, con.getResponseCode());
+        return con;
+    }
+
+    private byte[] createJson(final int items) {
+
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i).append("\",\"active\":true}");
+        }
+        return json.append(']').toString().getBytes(UTF_8);
+    }
+
+    private byte[] createRandomJson(final int items) {
+
+        final Random random = new Random(42);
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(random.nextInt(1000))
+                .append(",\"value\":").append(random.nextInt(100000)).append('}');
+        }
+        return json.append(']').toString().getBytes(UTF_8);
+    }
+
+    private byte[] read(final InputStream in) throws IOException {
+
+        try (InputStream input = in) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int len;
+            while ((len = input.read(buffer)) != -1) {
+                out.write(buffer, 0, len);
+            }
+            return out.toByteArray();
+        }
+    }
+}
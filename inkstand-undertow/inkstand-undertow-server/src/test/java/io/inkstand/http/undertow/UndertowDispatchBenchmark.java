@@ -0,0 +1,259 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static io.inkstand.scribble.Scribble.inject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNotNull;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.inkstand.scribble.net.NetworkUtils;
+import io.undertow.Undertow;
+import io.undertow.server.handlers.PathHandler;
+import io.undertow.servlet.Servlets;
+import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.servlet.api.DeploymentManager;
+
+/**
+ * Benchmark of the dispatch of slow blocking requests to the worker threads and to virtual threads. A servlet that
+ * blocks for a fixed time per request is deployed and a single non-blocking client sends all requests at once. With
+ * the worker threads the requests are processed in waves of the size of the worker pool, with virtual threads all
+ * requests are blocked concurrently.
+ * <br>
+ * The benchmark is not run as part of the build, run it explicitly with
+ * <code>mvn test -Dtest=UndertowDispatchBenchmark</code> on a JVM supporting virtual threads. The following system
+ * properties control the benchmark:
+ * <ul>
+ * <li><code>benchmark.concurrency</code> number of concurrent requests (default: 10000), each request requires two
+ * file descriptors</li>
+ * <li><code>benchmark.delay</code> time in milliseconds each request blocks (default: 100)</li>
+ * <li><code>benchmark.workers</code> number of worker threads (default: 64)</li>
+ * </ul>
+ */
+public class UndertowDispatchBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UndertowDispatchBenchmark.class);
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 10000);
+    private static final int DELAY = Integer.getInteger("benchmark.delay", 100);
+    private static final int WORKERS = Integer.getInteger("benchmark.workers", 64);
+
+    private static final long TIMEOUT = TimeUnit.MINUTES.toNanos(5);
+
+    private static final byte[] REQUEST = ("GET /bench/slow HTTP/1.1\r\n"
+            + "Host: localhost\r\n"
+            + "Connection: close\r\n"
+            + "\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    public void benchmark_workerThreads() throws Exception {
+
+        final Result result = run(Boolean.FALSE);
+        assertEquals(CONCURRENCY, result.succeeded);
+    }
+
+    @Test
+    public void benchmark_virtualThreads() throws Exception {
+
+        assumeNotNull(UndertowDispatch.getVirtualThreadExecutor());
+        final Result result = run(Boolean.TRUE);
+        assertEquals(CONCURRENCY, result.succeeded);
+    }
+
+    private Result run(final Boolean virtualThreads) throws Exception {
+
+        final UndertowTuningConfiguration tuning = new UndertowTuningConfiguration();
+        inject(WORKERS).asConfigProperty(UndertowTuningConfiguration.HTTP_WORKER_MAX_THREADS_PROPERTY).into(tuning);
+        inject(CONCURRENCY).asConfigProperty(UndertowTuningConfiguration.HTTP_BACKLOG_PROPERTY).into(tuning);
+        inject(virtualThreads).asConfigProperty(UndertowTuningConfiguration.HTTP_VIRTUAL_THREADS_PROPERTY).into(tuning);
+
+        final DeploymentInfo deployment = Servlets.deployment()
+                                                  .setClassLoader(getClass().getClassLoader())
+                                                  .setContextPath("/bench")
+                                                  .setDeploymentName("bench.war")
+                                                  .addServlet(Servlets.servlet("slow", SlowServlet.class)
+                                                                      .addMapping("/slow"));
+        UndertowDispatch.apply(deployment, tuning);
+        final DeploymentManager manager = Servlets.newContainer().addDeployment(deployment);
+        manager.deploy();
+
+        final int port = NetworkUtils.findAvailablePort();
+        final Undertow.Builder builder = Undertow.builder();
+        UndertowTuning.apply(builder, tuning);
+        final PathHandler path = new PathHandler().addPrefixPath(deployment.getContextPath(), manager.start());
+        final Undertow undertow = builder.addHttpListener(port, "localhost", path).build();
+        undertow.start();
+        try {
+            final Result result = sendConcurrently(new InetSocketAddress("localhost", port));
+            final LatencyHistogram.Snapshot latency = result.latency.snapshot();
+            LOG.info("{} dispatch of {} requests blocking {} ms with {} workers: {} succeeded, {} failed in {} ms, "
+                             + "latency 50th {} ms, 99th {} ms, max {} ms",
+                     virtualThreads ? "Virtual thread" : "Worker thread",
+                     CONCURRENCY,
+                     DELAY,
+                     WORKERS,
+                     result.succeeded,
+                     result.failed,
+                     TimeUnit.NANOSECONDS.toMillis(result.elapsed),
+                     latency.getValueAtPercentile(50.0),
+                     latency.getValueAtPercentile(99.0),
+                     latency.getMax());
+            return result;
+        } finally {
+            undertow.stop();
+            manager.stop();
+            manager.undeploy();
+        }
+    }
+
+    /**
+     * Sends all requests at once using non-blocking connections and waits for the status line of each response.
+     */
+    private Result sendConcurrently(final InetSocketAddress address) throws IOException {
+
+        final Result result = new Result();
+        final long start = System.nanoTime();
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < CONCURRENCY; i++) {
+                final SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.connect(address);
+                channel.register(selector, SelectionKey.OP_CONNECT, new Exchange(System.nanoTime()));
+            }
+            int pending = CONCURRENCY;
+            while (pending > 0 && System.nanoTime() - start < TIMEOUT) {
+                selector.select(1000);
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!handle(key, result)) {
+                        key.channel().close();
+                        pending--;
+                    }
+                }
+            }
+            result.failed += pending;
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+        }
+        result.elapsed = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Processes the ready operation of a connection.
+     * @return
+     *  <code>true</code> if the exchange on the connection is still in progress
+     */
+    private boolean handle(final SelectionKey key, final Result result) {
+
+        final SocketChannel channel = (SocketChannel) key.channel();
+        final Exchange exchange = (Exchange) key.attachment();
+        try {
+            if (key.isConnectable()) {
+                channel.finishConnect();
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (key.isWritable()) {
+                channel.write(exchange.request);
+                if (!exchange.request.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } else if (key.isReadable()) {
+                //only the status line is kept, the rest of the response is discarded
+                final ByteBuffer buffer = exchange.response.hasRemaining() ? exchange.response : ByteBuffer.allocate(1024);
+                if (channel.read(buffer) == -1) {
+                    final String status = new String(exchange.response.array(),
+                                                     0,
+                                                     exchange.response.position(),
+                                                     StandardCharsets.US_ASCII);
+                    if (status.startsWith("HTTP/1.1 200")) {
+                        result.succeeded++;
+                        result.latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - exchange.start));
+                    } else {
+                        result.failed++;
+                    }
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            result.failed++;
+            return false;
+        }
+    }
+
+    /**
+     * State of a single request.
+     */
+    private static final class Exchange {
+
+        final long start;
+        final ByteBuffer request = ByteBuffer.wrap(REQUEST);
+        final ByteBuffer response = ByteBuffer.allocate(12);
+
+        Exchange(final long start) {
+
+            this.start = start;
+        }
+    }
+
+    private static final class Result {
+
+        final LatencyHistogram latency = new LatencyHistogram();
+        int succeeded;
+        int failed;
+        long elapsed;
+    }
+
+    /**
+     * Servlet blocking for the configured time as a slow backend call does.
+     */
+    public static class SlowServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(final HttpServletRequest req, final HttpServletResponse resp)
+                throws ServletException, IOException {
+
+            try {
+                Thread.sleep(DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            }
+            resp.getWriter().write("ok");
+        }
+    }
+}
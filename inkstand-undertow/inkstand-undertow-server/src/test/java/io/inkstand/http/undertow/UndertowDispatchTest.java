@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static io.inkstand.scribble.Scribble.inject;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.undertow.servlet.api.DeploymentInfo;
+
+public class UndertowDispatchTest {
+
+    private DeploymentInfo deployment;
+
+    private UndertowTuningConfiguration tuning;
+
+    @Before
+    public void setUp() throws Exception {
+
+        this.deployment = new DeploymentInfo();
+        this.deployment.setContextPath("/test");
+        this.tuning = new UndertowTuningConfiguration();
+    }
+
+    @Test
+    public void testApply_noTuning() throws Exception {
+
+        //act
+        UndertowDispatch.apply(deployment, null);
+
+        //assert
+        assertNull(deployment.getExecutor());
+    }
+
+    @Test
+    public void testApply_virtualThreadsNotConfigured() throws Exception {
+
+        //act
+        UndertowDispatch.apply(deployment, tuning);
+
+        //assert
+        assertNull(deployment.getExecutor());
+    }
+
+    @Test
+    public void testApply_virtualThreadsDisabled() throws Exception {
+
+        //prepare
+        inject(Boolean.FALSE).asConfigProperty("inkstand.http.virtual.threads").into(tuning);
+
+        //act
+        UndertowDispatch.apply(deployment, tuning);
+
+        //assert
+        assertNull(deployment.getExecutor());
+    }
+
+    @Test
+    public void testApply_virtualThreadsEnabled() throws Exception {
+
+        //prepare
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.virtual.threads").into(tuning);
+
+        //act
+        UndertowDispatch.apply(deployment, tuning);
+
+        //assert
+        //falls back to the worker threads if the JVM does not support virtual threads
+        assertSame(UndertowDispatch.getVirtualThreadExecutor(), deployment.getExecutor());
+    }
+
+    @Test
+    public void testApply_executorAlreadySet() throws Exception {
+
+        //prepare
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.virtual.threads").into(tuning);
+        final Executor executor = Executors.newSingleThreadExecutor();
+        deployment.setExecutor(executor);
+
+        //act
+        UndertowDispatch.apply(deployment, tuning);
+
+        //assert
+        assertSame(executor, deployment.getExecutor());
+    }
+
+    @Test
+    public void testGetVirtualThreadExecutor_supported() throws Exception {
+
+        //prepare
+        final Executor executor = UndertowDispatch.getVirtualThreadExecutor();
+        assumeNotNull(executor);
+        final FutureTask<Boolean> task = new FutureTask<>(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() throws Exception {
+
+                return (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+            }
+        });
+
+        //act
+        executor.execute(task);
+
+        //assert
+        assertTrue(task.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testGetVirtualThreadExecutor_notSupported() throws Exception {
+
+        //prepare
+        try {
+            Thread.class.getMethod("ofVirtual");
+            assumeTrue("virtual threads are supported", false);
+        } catch (NoSuchMethodException e) {
+            //expected on JVMs without virtual threads
+        }
+
+        //act
+        final Executor executor = UndertowDispatch.getVirtualThreadExecutor();
+
+        //assert
+        assertNull(executor);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static io.inkstand.scribble.Scribble.inject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.inkstand.scribble.net.NetworkUtils;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+
+public class UndertowGracefulShutdownTest {
+
+    private UndertowGracefulShutdown subject;
+
+    private Undertow undertow;
+
+    private ExecutorService clients;
+
+    private int port;
+
+    /**
+     * Only the first request is blocked
+     */
+    private final AtomicBoolean firstRequest = new AtomicBoolean(true);
+
+    /**
+     * Signals that a request has entered the handler
+     */
+    private final CountDownLatch requestActive = new CountDownLatch(1);
+
+    /**
+     * Releases the active request
+     */
+    private final CountDownLatch releaseRequest = new CountDownLatch(1);
+
+    private final HttpHandler blockingHandler = new HttpHandler() {
+
+        @Override
+        public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+            if (exchange.isInIoThread()) {
+                exchange.dispatch(this);
+                return;
+            }
+            if (firstRequest.compareAndSet(true, false)) {
+                requestActive.countDown();
+                releaseRequest.await(5, TimeUnit.SECONDS);
+            }
+            exchange.getResponseSender().send("done");
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+
+        this.subject = new UndertowGracefulShutdown();
+        this.port = NetworkUtils.findAvailablePort();
+        this.clients = Executors.newSingleThreadExecutor();
+        inject(2000).asConfigProperty("inkstand.http.shutdown.timeout").into(subject);
+        this.undertow = Undertow.builder().addHttpListener(port, "localhost", subject.wrap(blockingHandler)).build();
+        this.undertow.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        releaseRequest.countDown();
+        clients.shutdownNow();
+        undertow.stop();
+    }
+
+    @Test
+    public void testDrain_noActiveRequests() throws Exception {
+
+        //act
+        final boolean drained = subject.drain();
+
+        //assert
+        assertTrue(drained);
+        assertEquals(503, getResponseCode());
+    }
+
+    @Test
+    public void testDrain_activeRequestCompletes() throws Exception {
+
+        //prepare
+        final Future<Integer> activeRequest = clients.submit(new Callable<Integer>() {
+
+            @Override
+            public Integer call() throws Exception {
+
+                return getResponseCode();
+            }
+        });
+        assertTrue(requestActive.await(5, TimeUnit.SECONDS));
+
+        //act
+        final ExecutorService drainer = Executors.newSingleThreadExecutor();
+        final Future<Boolean> drained = drainer.submit(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() throws Exception {
+
+                return subject.drain();
+            }
+        });
+        drainer.shutdown();
+
+        //assert
+        //new requests are rejected while the active request is still in progress
+        assertTrue(awaitResponseCode(503));
+        assertFalse(drained.isDone());
+        releaseRequest.countDown();
+        assertEquals(Integer.valueOf(200), activeRequest.get(5, TimeUnit.SECONDS));
+        assertTrue(drained.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDrain_timeout() throws Exception {
+
+        //prepare
+        inject(100).asConfigProperty("inkstand.http.shutdown.timeout").into(subject);
+        clients.submit(new Callable<Integer>() {
+
+            @Override
+            public Integer call() throws Exception {
+
+                return getResponseCode();
+            }
+        });
+        assertTrue(requestActive.await(5, TimeUnit.SECONDS));
+
+        //act
+        final boolean drained = subject.drain();
+
+        //assert
+        assertFalse(drained);
+    }
+
+    @Test
+    public void testResume() throws Exception {
+
+        //prepare
+        subject.drain();
+        releaseRequest.countDown();
+
+        //act
+        subject.resume();
+
+        //assert
+        assertEquals(200, getResponseCode());
+    }
+
+    private boolean awaitResponseCode(final int expected) throws Exception {
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (getResponseCode() != expected) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private int getResponseCode() throws Exception {
+
+        final HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:" + port + "/").openConnection();
+        try {
+            return con.getResponseCode();
+        } finally {
+            con.disconnect();
+        }
+    }
+}
@@ -69,9 +69,24 @@ public class UndertowLauncherArgsTest {
 
         //assert
         assertNotNull(argNames);
-        assertEquals(2, argNames.size());
+        assertEquals(17, argNames.size());
         assertTrue(argNames.contains("port"));
         assertTrue(argNames.contains("hostname"));
+        assertTrue(argNames.contains("ioThreads"));
+        assertTrue(argNames.contains("workerThreads"));
+        assertTrue(argNames.contains("bufferSize"));
+        assertTrue(argNames.contains("directBuffers"));
+        assertTrue(argNames.contains("backlog"));
+        assertTrue(argNames.contains("tcpNoDelay"));
+        assertTrue(argNames.contains("keepAlive"));
+        assertTrue(argNames.contains("idleTimeout"));
+        assertTrue(argNames.contains("http2"));
+        assertTrue(argNames.contains("virtualThreads"));
+        assertTrue(argNames.contains("maxConcurrentRequests"));
+        assertTrue(argNames.contains("adaptiveLimit"));
+        assertTrue(argNames.contains("httpsPort"));
+        assertTrue(argNames.contains("compression"));
+        assertTrue(argNames.contains("shutdownTimeout"));
 
     }
 
@@ -121,6 +136,121 @@ public class UndertowLauncherArgsTest {
 
     }
 
+    @Test
+    public void testApply_workerThreads() throws Exception {
+
+        //act
+        subject.apply("workerThreads", "256");
+
+        //assert
+        assertEquals("256", System.getProperty("inkstand.http.worker.threads.max"));
+    }
+
+    @Test
+    public void testApply_directBuffers() throws Exception {
+
+        //act
+        subject.apply("directBuffers", "true");
+
+        //assert
+        assertEquals("true", System.getProperty("inkstand.http.buffer.direct"));
+    }
+
+    @Test
+    public void testApply_http2() throws Exception {
+
+        //act
+        subject.apply("http2", "true");
+
+        //assert
+        assertEquals("true", System.getProperty("inkstand.http.http2"));
+    }
+
+    @Test
+    public void testApply_virtualThreads() throws Exception {
+
+        //act
+        subject.apply("virtualThreads", "true");
+
+        //assert
+        assertEquals("true", System.getProperty("inkstand.http.virtual.threads"));
+    }
+
+    @Test
+    public void testApply_maxConcurrentRequests() throws Exception {
+
+        //act
+        subject.apply("maxConcurrentRequests", "200");
+
+        //assert
+        assertEquals("200", System.getProperty("inkstand.http.limit.concurrent"));
+    }
+
+    @Test
+    public void testApply_adaptiveLimit() throws Exception {
+
+        //act
+        subject.apply("adaptiveLimit", "true");
+
+        //assert
+        assertEquals("true", System.getProperty("inkstand.http.limit.adaptive"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testApply_adaptiveLimit_notABoolean() throws Exception {
+
+        //act
+        subject.apply("adaptiveLimit", "sometimes");
+    }
+
+    @Test
+    public void testApply_compression() throws Exception {
+
+        //act
+        subject.apply("compression", "true");
+
+        //assert
+        assertEquals("true", System.getProperty("inkstand.http.compression"));
+    }
+
+    @Test
+    public void testApply_httpsPort() throws Exception {
+
+        //act
+        subject.apply("httpsPort", "8443");
+
+        //assert
+        assertEquals("8443", System.getProperty("inkstand.https.port"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testApply_ioThreads_notANumber() throws Exception {
+
+        //act
+        subject.apply("ioThreads", "many");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testApply_backlog_negative() throws Exception {
+
+        //act
+        subject.apply("backlog", "-1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testApply_tcpNoDelay_notABoolean() throws Exception {
+
+        //act
+        subject.apply("tcpNoDelay", "yes");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testApply_bufferSize_noValue() throws Exception {
+
+        //act
+        subject.apply("bufferSize", null);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testApply_unknownArg() throws Exception {
 
@@ -155,6 +285,16 @@ public class UndertowLauncherArgsTest {
         assertEquals("The TCP port the http server accepts incoming requests.", desc);
     }
 
+    @Test
+    public void testGetDescription_ioThreads() throws Exception {
+
+        //act
+        String desc = subject.getDescription("ioThreads");
+
+        //assert
+        assertEquals("The number of threads handling non-blocking IO.", desc);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testGetDescription_unknownArg() throws Exception {
 
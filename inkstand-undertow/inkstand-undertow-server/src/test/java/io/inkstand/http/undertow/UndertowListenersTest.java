@@ -0,0 +1,289 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.when;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.inkstand.InkstandRuntimeException;
+import io.inkstand.config.TlsConfiguration;
+import io.inkstand.config.WebServerConfiguration;
+import io.inkstand.config.WebServerTuningConfiguration;
+import io.inkstand.scribble.net.NetworkUtils;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UndertowListenersTest {
+
+    private static final String KEYSTORE_PASSWORD = "changeit";
+
+    @Mock
+    private WebServerConfiguration config;
+
+    @Mock
+    private WebServerTuningConfiguration tuning;
+
+    @Mock
+    private TlsConfiguration tls;
+
+    private String keyStore;
+
+    private int port;
+
+    private int tlsPort;
+
+    private final HttpHandler handler = new HttpHandler() {
+
+        @Override
+        public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+            exchange.getResponseSender().send("ok");
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+
+        this.keyStore = new File(getClass().getResource("UndertowListenersTest_keystore.jks").toURI()).getPath();
+        this.port = NetworkUtils.findAvailablePort();
+        this.tlsPort = NetworkUtils.findAvailablePort();
+        when(config.getBindAddress()).thenReturn("localhost");
+        when(config.getPort()).thenReturn(port);
+        when(tls.getKeyStore()).thenReturn(keyStore);
+        when(tls.getKeyStorePassword()).thenReturn(KEYSTORE_PASSWORD);
+        when(tls.getKeyStoreType()).thenReturn("JKS");
+    }
+
+    @Test
+    public void testAddListeners_httpOnly() throws Exception {
+
+        //act
+        final Undertow undertow = UndertowListeners.addListeners(Undertow.builder(), config, null, null, handler)
+                                                   .build();
+
+        //assert
+        try {
+            undertow.start();
+            assertEquals(200, getResponseCode(new URL("http://localhost:" + port + "/")));
+        } finally {
+            undertow.stop();
+        }
+    }
+
+    @Test
+    public void testAddListeners_tls() throws Exception {
+
+        //prepare
+        when(tls.getPort()).thenReturn(tlsPort);
+
+        //act
+        final Undertow undertow = UndertowListeners.addListeners(Undertow.builder(), config, null, tls, handler)
+                                                   .build();
+
+        //assert
+        try {
+            undertow.start();
+            assertEquals(200, getResponseCode(new URL("http://localhost:" + port + "/")));
+            assertEquals(200, getResponseCode(new URL("https://localhost:" + tlsPort + "/")));
+        } finally {
+            undertow.stop();
+        }
+    }
+
+    @Test
+    public void testAddListeners_http2_tls_http11Clients() throws Exception {
+
+        //prepare
+        when(tls.getPort()).thenReturn(tlsPort);
+        when(tuning.getHttp2()).thenReturn(true);
+
+        //act
+        final Undertow undertow = UndertowListeners.addListeners(Undertow.builder(), config, tuning, tls, handler)
+                                                   .build();
+
+        //assert
+        //clients not supporting HTTP/2 are still served, with or without ALPN
+        try {
+            undertow.start();
+            assertEquals(200, getResponseCode(new URL("http://localhost:" + port + "/")));
+            assertEquals(200, getResponseCode(new URL("https://localhost:" + tlsPort + "/")));
+        } finally {
+            undertow.stop();
+        }
+    }
+
+    @Test
+    public void testAddListeners_http2_tls_alpnNegotiated() throws Exception {
+
+        //HTTP/2 is only negotiated if the ALPN API of alpn-boot is on the boot classpath
+        assumeTrue(UndertowListeners.isAlpnAvailable());
+
+        //prepare
+        when(tls.getPort()).thenReturn(tlsPort);
+        when(tuning.getHttp2()).thenReturn(true);
+        final Undertow undertow = UndertowListeners.addListeners(Undertow.builder(), config, tuning, tls, handler)
+                                                   .build();
+
+        try {
+            undertow.start();
+            try (SSLSocket socket = (SSLSocket) createClientContext().getSocketFactory()
+                                                                     .createSocket("localhost", tlsPort)) {
+                final List<String> selected = new ArrayList<>();
+                putAlpnClientProvider(socket, Arrays.asList("h2", "http/1.1"), selected);
+
+                //act
+                socket.startHandshake();
+
+                //assert
+                assertEquals(Arrays.asList("h2"), selected);
+            }
+        } finally {
+            undertow.stop();
+        }
+    }
+
+    @Test
+    public void testCreateSslContext() throws Exception {
+
+        //act
+        final SSLContext context = UndertowListeners.createSslContext(tls);
+
+        //assert
+        assertNotNull(context);
+        assertEquals("TLS", context.getProtocol());
+    }
+
+    @Test(expected = InkstandRuntimeException.class)
+    public void testCreateSslContext_wrongPassword() throws Exception {
+
+        //prepare
+        when(tls.getKeyStorePassword()).thenReturn("wrong");
+
+        //act
+        UndertowListeners.createSslContext(tls);
+    }
+
+    @Test(expected = InkstandRuntimeException.class)
+    public void testCreateSslContext_missingKeyStore() throws Exception {
+
+        //prepare
+        when(tls.getKeyStore()).thenReturn("missing.jks");
+
+        //act
+        UndertowListeners.createSslContext(tls);
+    }
+
+    private int getResponseCode(final URL url) throws Exception {
+
+        final HttpURLConnection con = (HttpURLConnection) url.openConnection();
+        if (con instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) con).setSSLSocketFactory(createClientContext().getSocketFactory());
+        }
+        try {
+            return con.getResponseCode();
+        } finally {
+            con.disconnect();
+        }
+    }
+
+    /**
+     * Registers a client provider for the socket at the ALPN API. The API is only available on the boot classpath,
+     * so it is accessed reflectively.
+     * @param protocols
+     *  the protocols offered by the client
+     * @param selected
+     *  the list to which the protocol selected by the server is added
+     */
+    private void putAlpnClientProvider(final SSLSocket socket,
+                                       final List<String> protocols,
+                                       final List<String> selected) throws Exception {
+
+        final Class<?> alpn = Class.forName(UndertowListeners.ALPN_CLASS);
+        final Class<?> provider = Class.forName(UndertowListeners.ALPN_CLASS + "$Provider");
+        final Class<?> clientProvider = Class.forName(UndertowListeners.ALPN_CLASS + "$ClientProvider");
+        final Object client = Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                     new Class<?>[] { clientProvider },
+                                                     new InvocationHandler() {
+
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+                switch (method.getName()) {
+                    case "supports":
+                        return Boolean.TRUE;
+                    case "protocols":
+                        return protocols;
+                    case "selected":
+                        selected.add((String) args[0]);
+                        return null;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "ALPN client provider";
+                    default:
+                        return null;
+                }
+            }
+        });
+        alpn.getMethod("put", SSLSocket.class, provider).invoke(null, socket, client);
+    }
+
+    /**
+     * Creates a client context trusting the certificate of the test keystore.
+     */
+    private SSLContext createClientContext() throws Exception {
+
+        final KeyStore trustStore = KeyStore.getInstance("JKS");
+        try (InputStream in = new FileInputStream(keyStore)) {
+            trustStore.load(in, KEYSTORE_PASSWORD.toCharArray());
+        }
+        final TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+        final SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, tmf.getTrustManagers(), null);
+        return context;
+    }
+}
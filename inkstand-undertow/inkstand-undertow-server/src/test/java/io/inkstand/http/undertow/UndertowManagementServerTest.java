@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static io.inkstand.scribble.Scribble.inject;
+import static io.inkstand.scribble.net.NetworkMatchers.isAvailable;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.inkstand.config.WebServerConfiguration;
+import io.inkstand.scribble.net.NetworkUtils;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.ResponseCodeHandler;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UndertowManagementServerTest {
+
+    @Mock
+    private WebServerConfiguration config;
+
+    private UndertowManagementServer subject;
+
+    private int port;
+
+    private URL url;
+
+    /**
+     * Releases the requests blocking the worker thread of the service endpoint
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+
+    @Before
+    public void setUp() throws Exception {
+
+        this.port = NetworkUtils.findAvailablePort();
+        this.url = new URL("http://localhost:" + port + "/status");
+        when(config.getBindAddress()).thenReturn("localhost");
+        when(config.getPort()).thenReturn(port);
+        this.subject = new UndertowManagementServer();
+        inject(null).asConfigProperty("inkstand.http.management.io.threads").into(subject);
+        inject(null).asConfigProperty("inkstand.http.management.worker.threads").into(subject);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        release.countDown();
+        clients.shutdownNow();
+        subject.stop();
+    }
+
+    @Test
+    public void testCreate_startStop() throws Exception {
+
+        //prepare
+        final Undertow undertow = subject.create(config, ResponseCodeHandler.HANDLE_200);
+
+        //act
+        subject.start();
+
+        //assert
+        assertNotNull(undertow);
+        assertSame(undertow, subject.getUndertow());
+        assertThat(url, isAvailable());
+        subject.stop();
+        Thread.sleep(1000);
+        assertThat(url, not(isAvailable()));
+    }
+
+    @Test
+    public void testStartStop_notCreated() throws Exception {
+
+        //act
+        subject.start();
+        subject.stop();
+
+        //assert
+        assertNull(subject.getUndertow());
+    }
+
+    @Test
+    public void testRequest_servicesSaturated_managementResponsive() throws Exception {
+
+        //prepare
+        final int servicePort = NetworkUtils.findAvailablePort();
+        final CountDownLatch blocked = new CountDownLatch(2);
+        final Undertow services = Undertow.builder()
+                                          .setIoThreads(2)
+                                          .setWorkerThreads(1)
+                                          .addHttpListener(servicePort, "localhost", new HttpHandler() {
+
+                                              @Override
+                                              public void handleRequest(final HttpServerExchange exchange)
+                                                      throws Exception {
+
+                                                  if (exchange.isInIoThread()) {
+                                                      exchange.dispatch(this);
+                                                      return;
+                                                  }
+                                                  blocked.countDown();
+                                                  release.await(10, TimeUnit.SECONDS);
+                                              }
+                                          })
+                                          .build();
+        subject.create(config, ResponseCodeHandler.HANDLE_200);
+        subject.start();
+        services.start();
+        try {
+            //the only worker thread of the services is blocked and further requests wait in its queue
+            for (int i = 0; i < 2; i++) {
+                clients.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        try {
+                            new URL("http://localhost:" + servicePort + "/").openConnection().getInputStream();
+                        } catch (Exception e) { //NOSONAR
+                            //the services are stopped at the end of the test
+                        }
+                    }
+                });
+            }
+            assertTrue(!blocked.await(1, TimeUnit.SECONDS));
+            assertEquals(1, blocked.getCount());
+
+            //act
+            final HttpURLConnection con = (HttpURLConnection) url.openConnection();
+            con.setReadTimeout(2000);
+
+            //assert
+            assertEquals(200, con.getResponseCode());
+        } finally {
+            release.countDown();
+            services.stop();
+        }
+    }
+}
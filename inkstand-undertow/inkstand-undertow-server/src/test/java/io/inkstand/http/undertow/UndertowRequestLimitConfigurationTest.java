@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static io.inkstand.scribble.Scribble.inject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class UndertowRequestLimitConfigurationTest {
+
+    private UndertowRequestLimitConfiguration subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new UndertowRequestLimitConfiguration();
+    }
+
+    @Test
+    public void testGetters() throws Exception {
+
+        //prepare
+        inject(200).asConfigProperty("inkstand.http.limit.concurrent").into(subject);
+        inject(50).asConfigProperty("inkstand.http.limit.queue").into(subject);
+        inject(250).asConfigProperty("inkstand.http.limit.queue.timeout").into(subject);
+        inject(5).asConfigProperty("inkstand.http.limit.retry.after").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.limit.adaptive").into(subject);
+        inject(4).asConfigProperty("inkstand.http.limit.adaptive.min").into(subject);
+        inject(400).asConfigProperty("inkstand.http.limit.adaptive.max").into(subject);
+
+        //act & assert
+        assertEquals(200, subject.getMaxConcurrentRequests());
+        assertEquals(50, subject.getMaxQueueSize());
+        assertEquals(250, subject.getQueueTimeout());
+        assertEquals(5, subject.getRetryAfter());
+        assertTrue(subject.isAdaptive());
+        assertEquals(4, subject.getAdaptiveMinLimit());
+        assertEquals(400, subject.getAdaptiveMaxLimit());
+    }
+
+    @Test
+    public void testGetters_defaults() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.limit.concurrent").into(subject);
+        inject(null).asConfigProperty("inkstand.http.limit.queue").into(subject);
+        inject(null).asConfigProperty("inkstand.http.limit.queue.timeout").into(subject);
+        inject(null).asConfigProperty("inkstand.http.limit.retry.after").into(subject);
+        inject(null).asConfigProperty("inkstand.http.limit.adaptive").into(subject);
+        inject(null).asConfigProperty("inkstand.http.limit.adaptive.min").into(subject);
+        inject(null).asConfigProperty("inkstand.http.limit.adaptive.max").into(subject);
+
+        //act & assert
+        assertEquals(0, subject.getMaxConcurrentRequests());
+        assertEquals(100, subject.getMaxQueueSize());
+        assertEquals(1000, subject.getQueueTimeout());
+        assertEquals(1, subject.getRetryAfter());
+        assertFalse(subject.isAdaptive());
+        assertEquals(1, subject.getAdaptiveMinLimit());
+        assertEquals(1000, subject.getAdaptiveMaxLimit());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static io.inkstand.scribble.Scribble.inject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.handlers.ResponseCodeHandler;
+
+public class UndertowRequestLimitsTest {
+
+    private UndertowRequestLimits subject;
+
+    private UndertowRequestLimitConfiguration config;
+
+    private final HttpHandler handler = ResponseCodeHandler.HANDLE_200;
+
+    @Before
+    public void setUp() throws Exception {
+
+        this.config = new UndertowRequestLimitConfiguration();
+        inject(null).asConfigProperty("inkstand.http.limit.concurrent").into(config);
+        inject(10).asConfigProperty("inkstand.http.limit.queue").into(config);
+        inject(500).asConfigProperty("inkstand.http.limit.queue.timeout").into(config);
+        inject(2).asConfigProperty("inkstand.http.limit.retry.after").into(config);
+        inject(null).asConfigProperty("inkstand.http.limit.adaptive").into(config);
+        inject(5).asConfigProperty("inkstand.http.limit.adaptive.min").into(config);
+        inject(50).asConfigProperty("inkstand.http.limit.adaptive.max").into(config);
+        this.subject = new UndertowRequestLimits();
+        inject(config).into(subject);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        subject.unregisterAll();
+    }
+
+    @Test
+    public void testWrap_notLimited() throws Exception {
+
+        //act
+        final HttpHandler wrapped = subject.wrap("/test", handler);
+
+        //assert
+        assertSame(handler, wrapped);
+        assertNull(subject.getLimit("/test"));
+    }
+
+    @Test
+    public void testWrap_limited() throws Exception {
+
+        //prepare
+        inject(20).asConfigProperty("inkstand.http.limit.concurrent").into(config);
+
+        //act
+        final HttpHandler wrapped = subject.wrap("/test", handler);
+
+        //assert
+        assertNotSame(handler, wrapped);
+        final RequestLimitMXBean limit = subject.getLimit("/test");
+        assertEquals("/test", limit.getContextPath());
+        assertEquals(20, limit.getMaxConcurrentRequests());
+        assertEquals(10, limit.getMaxQueueSize());
+        assertEquals(500, limit.getQueueTimeout());
+        assertFalse(limit.isAdaptive());
+    }
+
+    @Test
+    public void testWrap_adaptive() throws Exception {
+
+        //prepare
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.limit.adaptive").into(config);
+
+        //act
+        final HttpHandler wrapped = subject.wrap("/test", handler);
+
+        //assert
+        assertNotSame(handler, wrapped);
+        final RequestLimitMXBean limit = subject.getLimit("/test");
+        assertTrue(limit.isAdaptive());
+        //without a static limit, the adaptive limit starts at a default well above its lower bound
+        assertEquals(20, limit.getMaxConcurrentRequests());
+        assertEquals(10, limit.getMaxQueueSize());
+    }
+
+    @Test
+    public void testWrap_adaptive_defaultInitialLimitBounded() throws Exception {
+
+        //prepare
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.limit.adaptive").into(config);
+        inject(30).asConfigProperty("inkstand.http.limit.adaptive.min").into(config);
+        subject.wrap("/min", handler);
+        inject(1).asConfigProperty("inkstand.http.limit.adaptive.min").into(config);
+        inject(10).asConfigProperty("inkstand.http.limit.adaptive.max").into(config);
+
+        //act
+        subject.wrap("/max", handler);
+
+        //assert
+        assertEquals(30, subject.getLimit("/min").getMaxConcurrentRequests());
+        assertEquals(10, subject.getLimit("/max").getMaxConcurrentRequests());
+    }
+
+    @Test
+    public void testWrap_adaptive_initialLimit() throws Exception {
+
+        //prepare
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.limit.adaptive").into(config);
+        inject(20).asConfigProperty("inkstand.http.limit.concurrent").into(config);
+
+        //act
+        subject.wrap("/test", handler);
+
+        //assert
+        final RequestLimitMXBean limit = subject.getLimit("/test");
+        assertTrue(limit.isAdaptive());
+        assertEquals(20, limit.getMaxConcurrentRequests());
+    }
+
+    @Test
+    public void testWrap_registersMBean() throws Exception {
+
+        //prepare
+        inject(20).asConfigProperty("inkstand.http.limit.concurrent").into(config);
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("io.inkstand:type=RequestLimit,context=\"/test\"");
+
+        //act
+        subject.wrap("/test", handler);
+
+        //assert
+        assertTrue(server.isRegistered(name));
+        assertEquals(20, server.getAttribute(name, "MaxConcurrentRequests"));
+        subject.unregisterAll();
+        assertFalse(server.isRegistered(name));
+        assertNull(subject.getLimit("/test"));
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static io.inkstand.scribble.Scribble.inject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.inkstand.scribble.net.NetworkUtils;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.StatusCodes;
+
+public class UndertowRequestMetricsTest {
+
+    private UndertowRequestMetrics subject;
+
+    private Undertow undertow;
+
+    private int port;
+
+    /**
+     * Handler reading the entire request body and responding with "ok" or with 404 for the path /missing.
+     */
+    private final HttpHandler handler = new HttpHandler() {
+
+        @Override
+        public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+            if (exchange.isInIoThread()) {
+                exchange.dispatch(this);
+                return;
+            }
+            exchange.startBlocking();
+            final InputStream in = exchange.getInputStream();
+            final byte[] buffer = new byte[1024];
+            while (in.read(buffer) != -1) {
+                //consume the request
+            }
+            if (exchange.getRelativePath().endsWith("/missing")) {
+                exchange.setResponseCode(StatusCodes.NOT_FOUND);
+            }
+            exchange.getResponseSender().send("ok");
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+
+        this.subject = new UndertowRequestMetrics();
+        this.port = NetworkUtils.findAvailablePort();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        if (undertow != null) {
+            undertow.stop();
+        }
+        subject.unregisterAll();
+    }
+
+    @Test
+    public void testWrap_disabled() throws Exception {
+
+        //prepare
+        inject(Boolean.FALSE).asConfigProperty("inkstand.http.metrics").into(subject);
+
+        //act
+        final HttpHandler wrapped = subject.wrap("/test", handler);
+
+        //assert
+        assertSame(handler, wrapped);
+        assertNull(subject.getMetrics("/test"));
+    }
+
+    @Test
+    public void testWrap_registersMBean() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.metrics").into(subject);
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("io.inkstand:type=RequestMetrics,context=\"/test\"");
+
+        //act
+        final HttpHandler wrapped = subject.wrap("/test", handler);
+
+        //assert
+        assertNotSame(handler, wrapped);
+        assertTrue(server.isRegistered(name));
+        assertEquals("/test", server.getAttribute(name, "ContextPath"));
+        subject.unregisterAll();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testWrap_replacesMBean() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.metrics").into(subject);
+        subject.wrap("/test", handler);
+
+        //act
+        subject.wrap("/test", handler);
+
+        //assert
+        final ObjectName name = new ObjectName("io.inkstand:type=RequestMetrics,context=\"/test\"");
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test
+    public void testWrap_recordsRequests() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.metrics").into(subject);
+        startServer(subject.wrap("/test", handler));
+
+        //act
+        assertEquals(200, request("/test", null, false));
+        assertEquals(200, request("/test", "0123456789", false));
+        assertEquals(200, request("/test", "01234", true));
+        assertEquals(404, request("/test/missing", null, false));
+
+        //assert
+        final RequestMetricsMXBean metrics = subject.getMetrics("/test");
+        //the exchange is completed after the response has been sent to the client
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (metrics.getRequestCount() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(4, metrics.getRequestCount());
+        assertEquals(3, metrics.getStatus2xx());
+        assertEquals(1, metrics.getStatus4xx());
+        assertEquals(15, metrics.getBytesIn());
+        assertEquals(8, metrics.getBytesOut());
+        assertTrue(metrics.getLatencyMax() > 0);
+        assertTrue(metrics.getLatency50th() <= metrics.getLatencyMax());
+    }
+
+    private void startServer(final HttpHandler root) {
+
+        this.undertow = Undertow.builder().addHttpListener(port, "localhost", root).build();
+        this.undertow.start();
+    }
+
+    private int request(final String path, final String body, final boolean chunked) throws Exception {
+
+        final HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        try {
+            if (body != null) {
+                con.setDoOutput(true);
+                con.setRequestMethod("POST");
+                if (chunked) {
+                    con.setChunkedStreamingMode(2);
+                }
+                try (OutputStream out = con.getOutputStream()) {
+                    out.write(body.getBytes("US-ASCII"));
+                }
+            }
+            final int status = con.getResponseCode();
+            try (InputStream in = status < 400 ? con.getInputStream() : con.getErrorStream()) {
+                while (in != null && in.read() != -1) {
+                    //consume the response
+                }
+            }
+            return status;
+        } finally {
+            con.disconnect();
+        }
+    }
+}
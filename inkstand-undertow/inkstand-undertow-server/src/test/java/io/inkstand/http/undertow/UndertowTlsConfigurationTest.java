@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static io.inkstand.scribble.Scribble.inject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class UndertowTlsConfigurationTest {
+
+    private UndertowTlsConfiguration subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new UndertowTlsConfiguration();
+    }
+
+    @Test
+    public void testGetters() throws Exception {
+
+        //prepare
+        inject(8443).asConfigProperty("inkstand.https.port").into(subject);
+        inject("server.p12").asConfigProperty("inkstand.https.keystore").into(subject);
+        inject("secret").asConfigProperty("inkstand.https.keystore.password").into(subject);
+        inject("PKCS12").asConfigProperty("inkstand.https.keystore.type").into(subject);
+
+        //act & assert
+        assertEquals(Integer.valueOf(8443), subject.getPort());
+        assertEquals("server.p12", subject.getKeyStore());
+        assertEquals("secret", subject.getKeyStorePassword());
+        assertEquals("PKCS12", subject.getKeyStoreType());
+    }
+
+    @Test
+    public void testGetters_notConfigured() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.https.port").into(subject);
+        inject(null).asConfigProperty("inkstand.https.keystore.type").into(subject);
+
+        //act & assert
+        assertNull(subject.getPort());
+        assertEquals("JKS", subject.getKeyStoreType());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.http.undertow;
+
+import static io.inkstand.scribble.Scribble.inject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class UndertowTuningConfigurationTest {
+
+    private UndertowTuningConfiguration subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new UndertowTuningConfiguration();
+    }
+
+    @Test
+    public void testGetters() throws Exception {
+
+        //prepare
+        inject(4).asConfigProperty("inkstand.http.io.threads").into(subject);
+        inject(128).asConfigProperty("inkstand.http.worker.threads.max").into(subject);
+        inject(16384).asConfigProperty("inkstand.http.buffer.size").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.buffer.direct").into(subject);
+        inject(1024).asConfigProperty("inkstand.http.backlog").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.tcp.nodelay").into(subject);
+        inject(Boolean.FALSE).asConfigProperty("inkstand.http.keepalive").into(subject);
+        inject(60000).asConfigProperty("inkstand.http.idle.timeout").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.http2").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.virtual.threads").into(subject);
+
+        //act & assert
+        assertEquals(Integer.valueOf(4), subject.getIoThreads());
+        assertEquals(Integer.valueOf(128), subject.getWorkerMaxThreads());
+        assertEquals(Integer.valueOf(16384), subject.getBufferSize());
+        assertEquals(Boolean.TRUE, subject.getDirectBuffers());
+        assertEquals(Integer.valueOf(1024), subject.getBacklog());
+        assertEquals(Boolean.TRUE, subject.getTcpNoDelay());
+        assertEquals(Boolean.FALSE, subject.getKeepAlive());
+        assertEquals(Integer.valueOf(60000), subject.getIdleTimeout());
+        assertEquals(Boolean.TRUE, subject.getHttp2());
+        assertEquals(Boolean.TRUE, subject.getVirtualThreads());
+    }
+
+    @Test
+    public void testGetters_notConfigured_null() throws Exception {
+
+        assertNull(subject.getIoThreads());
+        assertNull(subject.getWorkerMaxThreads());
+        assertNull(subject.getDirectBuffers());
+        assertNull(subject.getIdleTimeout());
+        assertNull(subject.getHttp2());
+        assertNull(subject.getVirtualThreads());
+    }
+}
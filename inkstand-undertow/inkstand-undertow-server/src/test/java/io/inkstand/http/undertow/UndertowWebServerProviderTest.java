@@ -17,24 +17,51 @@
 package io.inkstand.http.undertow;
 
 import static io.inkstand.scribble.Scribble.inject;
+import static io.inkstand.scribble.net.NetworkMatchers.isAvailable;
 import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.AdditionalAnswers.returnsLastArg;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.withSettings;
 
 import javax.enterprise.inject.Default;
 import javax.enterprise.inject.Instance;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
 import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import io.inkstand.Management;
+import io.inkstand.config.CompressionConfiguration;
+import io.inkstand.config.TlsConfiguration;
 import io.inkstand.config.WebServerConfiguration;
+import io.inkstand.config.WebServerTuningConfiguration;
 import io.inkstand.scribble.net.NetworkUtils;
 import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
 import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.util.Headers;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -54,6 +81,20 @@ public class UndertowWebServerProviderTest {
     private Instance<WebServerConfiguration> mgmtConfig;
     @Mock
     private Instance<DeploymentInfo> mgmtDeployments;
+    @Mock
+    private Instance<WebServerTuningConfiguration> tuning;
+    @Mock
+    private Instance<TlsConfiguration> tls;
+    @Mock
+    private Instance<CompressionConfiguration> compression;
+    @Mock
+    private UndertowGracefulShutdown gracefulShutdown;
+    @Mock
+    private UndertowRequestMetrics requestMetrics;
+    @Mock
+    private UndertowRequestLimits requestLimits;
+    @Mock
+    private UndertowManagementServer managementServer;
 
     @InjectMocks
     private UndertowWebServerProvider subject;
@@ -73,6 +114,13 @@ public class UndertowWebServerProviderTest {
         //default: there are no management extensions
         when(mgmtConfig.isUnsatisfied()).thenReturn(true);
         when(mgmtDeployments.isUnsatisfied()).thenReturn(true);
+        //default: the undertow defaults are used
+        when(tuning.isUnsatisfied()).thenReturn(true);
+        when(tls.isUnsatisfied()).thenReturn(true);
+        when(gracefulShutdown.wrap(any(HttpHandler.class))).thenAnswer(returnsFirstArg());
+        when(requestMetrics.wrap(anyString(), any(HttpHandler.class))).thenAnswer(returnsLastArg());
+        when(requestLimits.wrap(anyString(), any(HttpHandler.class))).thenAnswer(returnsLastArg());
+        when(compression.isUnsatisfied()).thenReturn(true);
 
         inject(mgmtConfig).asQualifyingInstance(Management.class).into(subject);
         inject(mgmtDeployments).asQualifyingInstance(Management.class).into(subject);
@@ -87,6 +135,7 @@ public class UndertowWebServerProviderTest {
         when(deploymentInfo.getDeploymentName()).thenReturn("test.war");
         when(deploymentInfo.getContextPath()).thenReturn(contextRoot);
         when(deploymentInfo.getThreadSetupActions()).thenReturn(Collections.EMPTY_LIST);
+        when(deploymentInfo.getInitParameters()).thenReturn(Collections.<String, String>emptyMap());
         return deploymentInfo;
     }
 
@@ -114,10 +163,238 @@ public class UndertowWebServerProviderTest {
         //assert
         assertNotNull(undertow);
 
+        verify(requestMetrics).wrap(eq("test1"), any(HttpHandler.class));
+        verify(requestMetrics).wrap(eq("test2"), any(HttpHandler.class));
+        verify(requestLimits).wrap(eq("test1"), any(HttpHandler.class));
+        verify(requestLimits).wrap(eq("test2"), any(HttpHandler.class));
+
         //act
         verifyDeployments(undertow, "http://localhost:"+this.port+"/test1", "http://localhost:"+this.port+"/test2");
     }
 
+    @Test
+    public void testGetUndertow_compression_deploymentOptedOut() throws Exception {
+
+        //prepare
+        final DeploymentInfo di1 = createDeploymentInfo("test1");
+        final DeploymentInfo di2 = createDeploymentInfo("test2");
+        when(di2.getInitParameters()).thenReturn(Collections.singletonMap("inkstand.http.compression", "false"));
+        when(deploymentInfo.iterator()).thenReturn(asList(di1, di2).iterator());
+        final CompressionConfiguration compressionConfig = mock(CompressionConfiguration.class);
+        when(compressionConfig.isEnabled()).thenReturn(true);
+        when(compressionConfig.getMinSize()).thenReturn(0);
+        when(compressionConfig.getContentTypes()).thenReturn(Collections.singleton("text/plain"));
+        when(compressionConfig.getLevel()).thenReturn(6);
+        when(compression.isUnsatisfied()).thenReturn(false);
+        when(compression.get()).thenReturn(compressionConfig);
+        //the mocked deployments do not respond, so their handlers are replaced
+        when(requestLimits.wrap(anyString(), any(HttpHandler.class))).thenReturn(new HttpHandler() {
+
+            @Override
+            public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+                exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
+                exchange.getResponseSender().send("compressible compressible compressible");
+            }
+        });
+        final Undertow undertow = subject.getUndertow();
+
+        try {
+            undertow.start();
+
+            //act
+            final URLConnection compressed = new URL("http://localhost:" + port + "/test1").openConnection();
+            compressed.setRequestProperty("Accept-Encoding", "gzip");
+            final URLConnection uncompressed = new URL("http://localhost:" + port + "/test2").openConnection();
+            uncompressed.setRequestProperty("Accept-Encoding", "gzip");
+
+            //assert
+            assertEquals("gzip", compressed.getHeaderField("Content-Encoding"));
+            assertNull(uncompressed.getHeaderField("Content-Encoding"));
+        } finally {
+            undertow.stop();
+        }
+    }
+
+    @Test
+    public void testGetUndertow_managementExtensions() throws Exception {
+
+        //prepare
+        final int mgmtPort = NetworkUtils.findAvailablePort();
+        final WebServerConfiguration mCfg = mock(WebServerConfiguration.class);
+        when(mCfg.getBindAddress()).thenReturn("localhost");
+        when(mCfg.getPort()).thenReturn(mgmtPort);
+        final DeploymentInfo mgmtDi = createDeploymentInfo("mgmt");
+        inject(mCfg).asQualifyingInstance(Management.class).into(subject);
+        inject(mgmtDi).asQualifyingInstance(Management.class).into(subject);
+
+        //act
+        Undertow undertow = subject.getUndertow();
+
+        //assert
+        assertNotNull(undertow);
+        //the management deployment is served by the separate management server, not limited or measured
+        verify(managementServer).create(eq(mCfg), any(HttpHandler.class));
+        verify(requestLimits, never()).wrap(eq("mgmt"), any(HttpHandler.class));
+        verify(requestMetrics, never()).wrap(eq("mgmt"), any(HttpHandler.class));
+        try {
+            undertow.start();
+            assertThat(new URL("http://localhost:" + mgmtPort + "/mgmt"), not(isAvailable()));
+        } finally {
+            undertow.stop();
+        }
+    }
+
+    @Test
+    public void testGetUndertow_tuningConfiguration() throws Exception {
+
+        //prepare
+        final WebServerTuningConfiguration tuningConfig = mock(WebServerTuningConfiguration.class);
+        when(tuningConfig.getIoThreads()).thenReturn(2);
+        when(tuningConfig.getWorkerMaxThreads()).thenReturn(8);
+        when(tuningConfig.getBufferSize()).thenReturn(4096);
+        when(tuningConfig.getDirectBuffers()).thenReturn(false);
+        when(tuningConfig.getBacklog()).thenReturn(128);
+        when(tuningConfig.getTcpNoDelay()).thenReturn(true);
+        when(tuningConfig.getKeepAlive()).thenReturn(true);
+        when(tuningConfig.getIdleTimeout()).thenReturn(30000);
+        when(tuning.isUnsatisfied()).thenReturn(false);
+        when(tuning.get()).thenReturn(tuningConfig);
+
+        //act
+        Undertow undertow = subject.getUndertow();
+
+        //assert
+        assertNotNull(undertow);
+        verifyDeployments(undertow, "http://localhost:"+this.port+"/test");
+    }
+
+    @Test
+    public void testGetUndertow_http2_cleartextUpgrade() throws Exception {
+
+        //prepare
+        final UndertowTuningConfiguration tuningConfig = new UndertowTuningConfiguration();
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.http2").into(tuningConfig);
+        when(tuning.isUnsatisfied()).thenReturn(false);
+        when(tuning.get()).thenReturn(tuningConfig);
+        //the mocked deployment does not respond, so its handler is replaced
+        when(requestLimits.wrap(anyString(), any(HttpHandler.class))).thenReturn(new HttpHandler() {
+
+            @Override
+            public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+                exchange.getResponseSender().send("ok");
+            }
+        });
+        final Undertow undertow = subject.getUndertow();
+
+        try {
+            undertow.start();
+            try (Socket socket = new Socket("localhost", this.port)) {
+                socket.setSoTimeout(5000);
+
+                //act
+                final OutputStream out = socket.getOutputStream();
+                out.write(("GET /test HTTP/1.1\r\n"
+                        + "Host: localhost\r\n"
+                        + "Connection: Upgrade, HTTP2-Settings\r\n"
+                        + "Upgrade: h2c\r\n"
+                        + "HTTP2-Settings: AAMAAABkAARAAAAAAAIAAAAA\r\n"
+                        + "\r\n").getBytes("US-ASCII"));
+                out.flush();
+
+                //assert
+                final DataInputStream in = new DataInputStream(socket.getInputStream());
+                final List<String> response = readResponseHead(in);
+                assertEquals("HTTP/1.1 101 Switching Protocols", response.get(0));
+                assertTrue(response.toString(), response.contains("upgrade: h2c"));
+                //the server continues with the SETTINGS frame of the HTTP/2 connection preface
+                final byte[] frameHeader = new byte[9];
+                in.readFully(frameHeader);
+                assertEquals(0x4, frameHeader[3]);
+                in.readFully(new byte[frameLength(frameHeader)]);
+                //the client completes the connection preface, the response to the upgraded request is sent on
+                //stream 1
+                out.write("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes("US-ASCII"));
+                out.write(new byte[] { 0, 0, 0, 0x4, 0, 0, 0, 0, 0 });
+                out.write(new byte[] { 0, 0, 0, 0x4, 0x1, 0, 0, 0, 0 });
+                out.flush();
+                final ByteArrayOutputStream data = new ByteArrayOutputStream();
+                final List<Integer> streamFrames = readStreamFrames(in, 1, data);
+                //a HEADERS frame followed by DATA frames
+                assertEquals(streamFrames.toString(), Integer.valueOf(0x1), streamFrames.get(0));
+                assertTrue(streamFrames.toString(), streamFrames.size() > 1);
+                for (Integer type : streamFrames.subList(1, streamFrames.size())) {
+                    assertEquals(streamFrames.toString(), Integer.valueOf(0x0), type);
+                }
+                assertEquals("ok", data.toString("US-ASCII"));
+            }
+        } finally {
+            undertow.stop();
+        }
+    }
+
+    /**
+     * Reads HTTP/2 frames until the end of a stream, frames of other streams are skipped.
+     * @param data
+     *  the stream to which the payload of the DATA frames of the stream is written
+     * @return
+     *  the types of the frames of the stream in the order they were received
+     */
+    private List<Integer> readStreamFrames(final DataInputStream in, final int streamId, final OutputStream data)
+            throws IOException {
+
+        final List<Integer> types = new ArrayList<>();
+        final byte[] frameHeader = new byte[9];
+        boolean endStream = false;
+        while (!endStream) {
+            in.readFully(frameHeader);
+            final byte[] payload = new byte[frameLength(frameHeader)];
+            in.readFully(payload);
+            final int type = frameHeader[3];
+            final int stream = ((frameHeader[5] & 0x7f) << 24)
+                    | ((frameHeader[6] & 0xff) << 16)
+                    | ((frameHeader[7] & 0xff) << 8)
+                    | (frameHeader[8] & 0xff);
+            if (stream == streamId) {
+                types.add(type);
+                if (type == 0x0) {
+                    data.write(payload);
+                }
+                //END_STREAM flag of a HEADERS or DATA frame
+                endStream = (type == 0x0 || type == 0x1) && (frameHeader[4] & 0x1) != 0;
+            }
+        }
+        return types;
+    }
+
+    private static int frameLength(final byte[] frameHeader) {
+
+        return ((frameHeader[0] & 0xff) << 16) | ((frameHeader[1] & 0xff) << 8) | (frameHeader[2] & 0xff);
+    }
+
+    /**
+     * Reads the status line and the header lines of a http response. The header lines are converted to lower case.
+     */
+    private List<String> readResponseHead(final InputStream in) throws IOException {
+
+        final List<String> lines = new ArrayList<>();
+        final StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                if (line.length() == 0) {
+                    break;
+                }
+                lines.add(lines.isEmpty() ? line.toString() : line.toString().toLowerCase());
+                line.setLength(0);
+            } else if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return lines;
+    }
+
     private void verifyDeployments(final Undertow undertow, final String... urls) throws IOException {
 
         try {
@@ -16,6 +16,7 @@
 
 package io.inkstand.http.undertow;
 
+import static io.inkstand.MicroService.StateSupport.State.DRAINING;
 import static io.inkstand.MicroService.StateSupport.State.NEW;
 import static io.inkstand.MicroService.StateSupport.State.RUNNING;
 import static io.inkstand.MicroService.StateSupport.State.STOPPED;
@@ -24,14 +25,19 @@ import static io.inkstand.scribble.net.NetworkMatchers.isAvailable;
 import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.net.HttpURLConnection;
 import java.net.URL;
 
+import io.inkstand.config.WebServerConfiguration;
 import io.inkstand.scribble.net.NetworkUtils;
 import io.undertow.Undertow;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.ResponseCodeHandler;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -47,6 +53,10 @@ public class UndertowWebServerTest {
 
     private UndertowWebServer subject;
 
+    private UndertowGracefulShutdown gracefulShutdown;
+
+    private UndertowManagementServer managementServer;
+
     private int port;
     private URL serviceUrl;
 
@@ -56,15 +66,22 @@ public class UndertowWebServerTest {
         serviceUrl = new URL("http://localhost:"+port);
 
         subject = new UndertowWebServer();
-        undertow = Undertow.builder().addHttpListener(port, "localhost", new HttpHandler() {
+        gracefulShutdown = new UndertowGracefulShutdown();
+        inject(1000).asConfigProperty("inkstand.http.shutdown.timeout").into(gracefulShutdown);
+        undertow = Undertow.builder().addHttpListener(port, "localhost", gracefulShutdown.wrap(new HttpHandler() {
 
             @Override
             public void handleRequest(final HttpServerExchange httpServerExchange) throws Exception {
 
                 LOG.info("{} {}", httpServerExchange.getRequestMethod(), httpServerExchange.getRequestPath());
             }
-        }).build();
+        })).build();
+        managementServer = new UndertowManagementServer();
+        inject(null).asConfigProperty("inkstand.http.management.io.threads").into(managementServer);
+        inject(null).asConfigProperty("inkstand.http.management.worker.threads").into(managementServer);
         inject(undertow).into(subject);
+        inject(gracefulShutdown).into(subject);
+        inject(managementServer).into(subject);
     }
 
     @Test
@@ -81,6 +98,79 @@ public class UndertowWebServerTest {
     }
 
 
+    @Test
+    public void testDrain() throws Exception {
+        //prepare
+        subject.start();
+
+        //act
+        subject.drain();
+
+        //assert
+        assertEquals(DRAINING, subject.getState());
+        final HttpURLConnection con = (HttpURLConnection) serviceUrl.openConnection();
+        assertEquals(503, con.getResponseCode());
+
+        subject.stop();
+        assertEquals(STOPPED, subject.getState());
+    }
+
+    @Test
+    public void testDrain_notRunning() throws Exception {
+
+        //act
+        subject.drain();
+
+        //assert
+        assertEquals(NEW, subject.getState());
+    }
+
+    @Test
+    public void testStartStop_restart() throws Exception {
+        //prepare
+        subject.start();
+        subject.stop();
+
+        //act
+        subject.start();
+
+        //assert
+        try {
+            assertEquals(RUNNING, subject.getState());
+            final HttpURLConnection con = (HttpURLConnection) serviceUrl.openConnection();
+            assertEquals(200, con.getResponseCode());
+        } finally {
+            subject.stop();
+        }
+    }
+
+    @Test
+    public void testStartStop_managementServer() throws Exception {
+        //prepare
+        final int mgmtPort = NetworkUtils.findAvailablePort();
+        final URL mgmtUrl = new URL("http://localhost:" + mgmtPort);
+        final WebServerConfiguration mgmtConfig = mock(WebServerConfiguration.class);
+        when(mgmtConfig.getBindAddress()).thenReturn("localhost");
+        when(mgmtConfig.getPort()).thenReturn(mgmtPort);
+        managementServer.create(mgmtConfig, ResponseCodeHandler.HANDLE_200);
+
+        //act
+        subject.start();
+
+        //assert
+        try {
+            assertThat(mgmtUrl, isAvailable());
+            //the management endpoint stays available while the services are drained
+            subject.drain();
+            final HttpURLConnection con = (HttpURLConnection) mgmtUrl.openConnection();
+            assertEquals(200, con.getResponseCode());
+        } finally {
+            subject.stop();
+        }
+        Thread.sleep(1000);
+        assertThat(mgmtUrl, not(isAvailable()));
+    }
+
     @Test
     public void testGetUndertow() throws Exception {
         assertEquals(undertow, subject.getUndertow());
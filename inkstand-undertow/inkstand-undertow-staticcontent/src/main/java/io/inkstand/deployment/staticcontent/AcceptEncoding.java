@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import java.util.List;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import io.undertow.util.QValueParser;
+
+/**
+ * Negotiation of the content coding for serving compressed content. The compressed data of a deflated zip entry
+ * may be sent to the client as is, only framed by the header and trailer of the content coding, if the client
+ * accepts either the <code>gzip</code> or the <code>deflate</code> content coding. Precompressed variants of a
+ * resource are selected among the codings for which a variant exists.
+ */
+final class AcceptEncoding {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    static final String BROTLI = "br";
+
+    private static final String ANY = "*";
+
+    private AcceptEncoding() {
+
+    }
+
+    /**
+     * Selects the content coding for a compressed response based on the Accept-Encoding header of the request. The
+     * coding with the highest quality is selected, if both codings are equally acceptable, <code>gzip</code> is
+     * preferred.
+     * @param exchange
+     *  the exchange of the request
+     * @return
+     *  {@link #GZIP}, {@link #DEFLATE} or <code>null</code> if the client accepts neither of the two codings
+     */
+    static String select(final HttpServerExchange exchange) {
+
+        return select(exchange, GZIP, DEFLATE);
+    }
+
+    /**
+     * Selects the content coding among the available codings based on the Accept-Encoding header of the request.
+     * The coding with the highest quality is selected, if several codings are equally acceptable, the coding that
+     * is listed first in the available codings is preferred. The wildcard <code>*</code> matches all available
+     * codings that are not explicitly refused.
+     * @param exchange
+     *  the exchange of the request
+     * @param available
+     *  the available codings in order of preference
+     * @return
+     *  one of the available codings or <code>null</code> if the client accepts none of them
+     */
+    static String select(final HttpServerExchange exchange, final String... available) {
+
+        final HeaderValues acceptEncoding = exchange.getRequestHeaders().get(Headers.ACCEPT_ENCODING);
+        if (acceptEncoding == null || acceptEncoding.isEmpty() || available.length == 0) {
+            return null;
+        }
+        final List<List<QValueParser.QValueResult>> groups = QValueParser.parse(acceptEncoding);
+        for (List<QValueParser.QValueResult> group : groups) {
+            for (String candidate : available) {
+                if (isAccepted(group, candidate) && !isRefused(groups, candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the coding is accepted by name or by wildcard in a group of equally acceptable codings.
+     */
+    private static boolean isAccepted(final List<QValueParser.QValueResult> group, final String name) {
+
+        for (QValueParser.QValueResult coding : group) {
+            if (!coding.isQValueZero() && (name.equalsIgnoreCase(coding.getValue()) || ANY.equals(coding.getValue()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the coding is explicitly refused by a quality value of 0.
+     */
+    private static boolean isRefused(final List<List<QValueParser.QValueResult>> groups, final String name) {
+
+        for (List<QValueParser.QValueResult> group : groups) {
+            for (QValueParser.QValueResult coding : group) {
+                if (coding.isQValueZero() && name.equalsIgnoreCase(coding.getValue())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
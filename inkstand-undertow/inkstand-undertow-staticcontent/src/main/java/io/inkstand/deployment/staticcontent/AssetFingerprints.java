@@ -0,0 +1,267 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Content hash fingerprints of the assets of a content root. The fingerprint of an asset is the hex representation
+ * of the CRC-32 checksum of its content. It is inserted into the name of the asset before the extension, so that
+ * {@code js/app.js} gets the fingerprinted alias {@code js/app.3f9a1c07.js}. As the alias changes whenever the content
+ * changes, responses for an alias may be cached without ever being revalidated.
+ * <br>
+ * All paths are relative to the content root and have no leading slash.
+ */
+public final class AssetFingerprints {
+
+    /**
+     * Plain path of an asset to its fingerprinted alias, sorted by plain path
+     */
+    private final Map<String, String> aliasByPath;
+
+    /**
+     * Fingerprinted alias of an asset to its plain path
+     */
+    private final Map<String, String> pathByAlias;
+
+    private AssetFingerprints(final Map<String, Long> checksums) {
+
+        final Map<String, String> aliases = new TreeMap<>();
+        final Map<String, String> paths = new HashMap<>();
+        for (Map.Entry<String, Long> checksum : checksums.entrySet()) {
+            final String alias = toAlias(checksum.getKey(), checksum.getValue());
+            //an alias must not hide an actual asset
+            if (!checksums.containsKey(alias)) {
+                aliases.put(checksum.getKey(), alias);
+                paths.put(alias, checksum.getKey());
+            }
+        }
+        this.aliasByPath = Collections.unmodifiableMap(aliases);
+        this.pathByAlias = Collections.unmodifiableMap(paths);
+    }
+
+    /**
+     * @return
+     *  fingerprints without any asset
+     */
+    static AssetFingerprints empty() {
+
+        return new AssetFingerprints(Collections.<String, Long>emptyMap());
+    }
+
+    /**
+     * Creates the fingerprints for the entries of a zip archive. The fingerprints are derived from the CRC-32
+     * checksums recorded in the archive, the content is only read for entries without a recorded checksum.
+     * @param archive
+     *  the archive containing the assets
+     * @return
+     *  the fingerprints of the files of the archive
+     * @throws IOException
+     *  if the content of an entry could not be read
+     */
+    public static AssetFingerprints fromArchive(final ZipArchive archive) throws IOException {
+
+        final Map<String, Long> checksums = new HashMap<>();
+        addChecksums(archive, checksums);
+        return new AssetFingerprints(checksums);
+    }
+
+    /**
+     * Creates the fingerprints for the files of a directory and its sub-directories. The checksum is calculated by
+     * reading every file once.
+     * @param root
+     *  the directory containing the assets
+     * @return
+     *  the fingerprints of the files in the directory
+     * @throws IOException
+     *  if the directory could not be read
+     */
+    public static AssetFingerprints fromDirectory(final File root) throws IOException {
+
+        final Map<String, Long> checksums = new HashMap<>();
+        addChecksums(root, checksums);
+        return new AssetFingerprints(checksums);
+    }
+
+    /**
+     * Creates the fingerprints for the assets of layered content roots. If an asset exists in several roots, the
+     * asset of the first root is fingerprinted.
+     * @param roots
+     *  the zip files and directories containing the assets, in order of precedence
+     * @return
+     *  the fingerprints of the assets of all roots
+     * @throws IOException
+     *  if a root could not be read
+     */
+    public static AssetFingerprints fromRoots(final List<File> roots) throws IOException {
+
+        final Map<String, Long> checksums = new HashMap<>();
+        //the roots are processed in reverse order so that the checksums of preceding roots replace those of later ones
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            final File root = roots.get(i);
+            if (root.isDirectory()) {
+                addChecksums(root, checksums);
+            } else {
+                try (ZipArchive archive = new ZipFileArchive(root)) {
+                    addChecksums(archive, checksums);
+                }
+            }
+        }
+        return new AssetFingerprints(checksums);
+    }
+
+    private static void addChecksums(final ZipArchive archive, final Map<String, Long> checksums) throws IOException {
+
+        for (ZipEntry entry : archive.getEntries()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            long crc = entry.getCrc();
+            if (crc == -1) {
+                try (InputStream inStream = archive.getInputStream(entry)) {
+                    crc = checksum(inStream);
+                }
+            }
+            checksums.put(ZipFileIndex.normalize(entry.getName()), crc);
+        }
+    }
+
+    private static void addChecksums(final File root, final Map<String, Long> checksums) throws IOException {
+
+        final Path rootPath = root.toPath();
+        Files.walkFileTree(rootPath, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+
+                try (InputStream inStream = Files.newInputStream(file)) {
+                    final String path = rootPath.relativize(file).toString().replace(File.separatorChar, '/');
+                    checksums.put(path, checksum(inStream));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static long checksum(final InputStream inStream) throws IOException {
+
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = IOUtils.read(inStream, buffer)) > 0) {
+            crc.update(buffer, 0, read);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Inserts the fingerprint before the extension of the file name of the path.
+     */
+    static String toAlias(final String path, final long crc) {
+
+        final String fingerprint = String.format("%08x", crc);
+        final int nameStart = path.lastIndexOf('/') + 1;
+        final int extensionStart = path.lastIndexOf('.');
+        if (extensionStart <= nameStart) {
+            return path + '.' + fingerprint;
+        }
+        return path.substring(0, extensionStart) + '.' + fingerprint + path.substring(extensionStart);
+    }
+
+    /**
+     * Resolves the plain path of an asset for a fingerprinted alias.
+     * @param alias
+     *  the fingerprinted alias without leading slash
+     * @return
+     *  the plain path of the asset or <code>null</code> if the path is no alias of an asset
+     */
+    public String getPath(final String alias) {
+
+        return pathByAlias.get(alias);
+    }
+
+    /**
+     * Provides the fingerprinted alias of an asset.
+     * @param path
+     *  the plain path of the asset without leading slash
+     * @return
+     *  the fingerprinted alias or <code>null</code> if there is no asset with that path
+     */
+    public String getAlias(final String path) {
+
+        return aliasByPath.get(path);
+    }
+
+    /**
+     * @return the plain paths of all assets mapped to their fingerprinted alias, sorted by plain path
+     */
+    public Map<String, String> getManifest() {
+
+        return aliasByPath;
+    }
+
+    /**
+     * Renders the manifest as a JSON object with the plain paths as keys and the aliases as values.
+     * @return
+     *  the JSON representation of the manifest
+     */
+    public String toJson() {
+
+        final StringBuilder json = new StringBuilder(aliasByPath.size() * 64).append('{');
+        for (Map.Entry<String, String> entry : aliasByPath.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("\n  ");
+            appendJsonString(json, entry.getKey()).append(": ");
+            appendJsonString(json, entry.getValue());
+        }
+        return json.append("\n}").toString();
+    }
+
+    private static StringBuilder appendJsonString(final StringBuilder json, final String value) {
+
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import java.util.Date;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.DateUtils;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+
+/**
+ * The caching headers to be sent for a group of resources. A policy only sets headers that have not been set
+ * already, so that specific policies of the resource, such as for fingerprinted aliases, are retained.
+ */
+public final class CachePolicy {
+
+    private final String cacheControl;
+
+    /**
+     * The number of seconds until the content expires or -1 if no Expires header is sent
+     */
+    private final long expiresSeconds;
+
+    private final String vary;
+
+    CachePolicy(final String cacheControl, final long expiresSeconds, final String vary) {
+
+        this.cacheControl = cacheControl;
+        this.expiresSeconds = expiresSeconds;
+        this.vary = vary;
+    }
+
+    /**
+     * Parses the policy of a rule
+     * @param definition
+     *  a <code>;</code> separated list of <code>Header:value</code> pairs
+     * @return
+     *  the policy
+     */
+    static CachePolicy parse(final String definition) {
+
+        String cacheControl = null;
+        long expiresSeconds = -1;
+        String vary = null;
+        for (String headerDefinition : definition.split(";")) {
+            final int separator = headerDefinition.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cache policy '" + headerDefinition.trim() + "'");
+            }
+            final String header = headerDefinition.substring(0, separator).trim();
+            final String value = headerDefinition.substring(separator + 1).trim();
+            if (Headers.CACHE_CONTROL_STRING.equalsIgnoreCase(header)) {
+                cacheControl = value;
+            } else if (Headers.EXPIRES_STRING.equalsIgnoreCase(header)) {
+                try {
+                    expiresSeconds = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Expires must be specified in seconds, was " + value, e);
+                }
+            } else if (Headers.VARY_STRING.equalsIgnoreCase(header)) {
+                vary = value;
+            } else {
+                throw new IllegalArgumentException("Unsupported cache header " + header);
+            }
+        }
+        return new CachePolicy(cacheControl, expiresSeconds, vary);
+    }
+
+    /**
+     * Applies the policy to the response headers of the exchange
+     * @param exchange
+     *  the exchange whose response should be cached according to the policy
+     */
+    public void apply(final HttpServerExchange exchange) {
+
+        final HeaderMap headers = exchange.getResponseHeaders();
+        if (cacheControl != null && !headers.contains(Headers.CACHE_CONTROL)) {
+            headers.put(Headers.CACHE_CONTROL, cacheControl);
+        }
+        if (expiresSeconds >= 0 && !headers.contains(Headers.EXPIRES)) {
+            headers.put(Headers.EXPIRES,
+                        DateUtils.toDateString(new Date(System.currentTimeMillis() + expiresSeconds * 1000)));
+        }
+        if (vary != null && !containsValue(headers.get(Headers.VARY), vary)) {
+            headers.add(Headers.VARY, vary);
+        }
+    }
+
+    private static boolean containsValue(final Iterable<String> values, final String value) {
+
+        if (values != null) {
+            for (String existing : values) {
+                if (existing.equalsIgnoreCase(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public String getCacheControl() {
+
+        return cacheControl;
+    }
+
+    public long getExpiresSeconds() {
+
+        return expiresSeconds;
+    }
+
+    public String getVary() {
+
+        return vary;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ResponseCommitListener;
+import io.undertow.util.StatusCodes;
+
+/**
+ * Handler applying the caching policy of the {@link CacheRules} matching the requested path. The policy is applied
+ * when the response is committed and only to successful and not modified responses, so that error responses are not
+ * cached by clients or intermediaries.
+ */
+public class CachePolicyHandler implements HttpHandler {
+
+    private final CacheRules rules;
+
+    private final HttpHandler next;
+
+    /**
+     * Creates the handler
+     * @param rules
+     *  the compiled rules
+     * @param next
+     *  the handler serving the content
+     */
+    public CachePolicyHandler(final CacheRules rules, final HttpHandler next) {
+
+        this.rules = rules;
+        this.next = next;
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+        final CachePolicy policy = rules.getPolicy(exchange.getRelativePath());
+        if (policy != null) {
+            exchange.addResponseCommitListener(new PolicyCommitListener(policy));
+        }
+        next.handleRequest(exchange);
+    }
+
+    /**
+     * Listener applying the policy once the status of the response is known.
+     */
+    static final class PolicyCommitListener implements ResponseCommitListener {
+
+        private final CachePolicy policy;
+
+        PolicyCommitListener(final CachePolicy policy) {
+
+            this.policy = policy;
+        }
+
+        @Override
+        public void beforeCommit(final HttpServerExchange exchange) {
+
+            final int status = exchange.getResponseCode();
+            if (status >= StatusCodes.OK && status < StatusCodes.MULTIPLE_CHOICES
+                    || status == StatusCodes.NOT_MODIFIED) {
+                policy.apply(exchange);
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A table of caching policies for static content, selected by the path of the requested resource. The table is
+ * defined by a list of rules separated by <code>|</code> or line breaks. Each rule consists of one or more comma
+ * separated path patterns, followed by whitespace and the policy, that is a <code>;</code> separated list of
+ * <code>Header:value</code> pairs. Supported headers are
+ * <ul>
+ *     <li><code>Cache-Control</code> - the value is sent as is</li>
+ *     <li><code>Expires</code> - the number of seconds after the response the content expires</li>
+ *     <li><code>Vary</code> - the value is added to the Vary header of the response</li>
+ * </ul>
+ * A pattern containing a <code>/</code> is matched against the entire path of the resource relative to the content
+ * root, a pattern without <code>/</code> is matched against the file name only. In a pattern, <code>**</code> matches
+ * any sequence of characters including <code>/</code>, <code>*</code> matches any sequence of characters except
+ * <code>/</code> and <code>?</code> matches a single character other than <code>/</code>. The first rule whose pattern
+ * matches the path determines the policy, for example
+ * <pre>
+ *  *.html Cache-Control:no-cache | assets/** Cache-Control:public, max-age=31536000 | *.css,*.js Expires:3600
+ * </pre>
+ * The rules are compiled once. Patterns of the form <code>*.ext</code> are resolved by a lookup of the file extension,
+ * all other patterns are compiled to regular expressions.
+ */
+public final class CacheRules {
+
+    private static final Pattern RULE_SEPARATOR = Pattern.compile("[|\\r\\n]+");
+
+    private static final Pattern EXTENSION_PATTERN = Pattern.compile("\\*\\.[^*?/]+");
+
+    private static final CacheRules NONE = new CacheRules(Collections.<Rule>emptyList(),
+                                                          Collections.<String, Integer>emptyMap(),
+                                                          Collections.<CachePolicy>emptyList());
+
+    /**
+     * The rules matched by regular expression, in the order of the rule table
+     */
+    private final List<Rule> patternRules;
+
+    /**
+     * The file extension to the index of the first rule of the table matching that extension
+     */
+    private final Map<String, Integer> extensionRules;
+
+    /**
+     * The policies of the rule table by index of the rule
+     */
+    private final List<CachePolicy> policies;
+
+    private CacheRules(final List<Rule> patternRules,
+                       final Map<String, Integer> extensionRules,
+                       final List<CachePolicy> policies) {
+
+        this.patternRules = patternRules;
+        this.extensionRules = extensionRules;
+        this.policies = policies;
+    }
+
+    /**
+     * Compiles the rule table.
+     * @param definition
+     *  the definition of the rule table. May be <code>null</code> or empty if no rules are defined.
+     * @return
+     *  the compiled rules
+     * @throws IllegalArgumentException
+     *  if the definition contains an invalid rule
+     */
+    public static CacheRules compile(final String definition) {
+
+        if (definition == null || definition.trim().isEmpty()) {
+            return NONE;
+        }
+        final List<Rule> patternRules = new ArrayList<>();
+        final Map<String, Integer> extensionRules = new HashMap<>();
+        final List<CachePolicy> policies = new ArrayList<>();
+        for (String ruleDefinition : RULE_SEPARATOR.split(definition.trim())) {
+            final String rule = ruleDefinition.trim();
+            if (rule.isEmpty()) {
+                continue;
+            }
+            final int separator = indexOfWhitespace(rule);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Rule '" + rule + "' has no policy");
+            }
+            final int index = policies.size();
+            policies.add(CachePolicy.parse(rule.substring(separator + 1).trim()));
+            for (String glob : rule.substring(0, separator).split(",")) {
+                final String pattern = ZipFileIndex.normalize(glob.trim());
+                if (EXTENSION_PATTERN.matcher(pattern).matches()) {
+                    final String extension = pattern.substring(2);
+                    if (!extensionRules.containsKey(extension)) {
+                        extensionRules.put(extension, index);
+                    }
+                } else if (!pattern.isEmpty()) {
+                    patternRules.add(new Rule(index, pattern.indexOf('/') >= 0, toRegex(pattern)));
+                }
+            }
+        }
+        return new CacheRules(patternRules, extensionRules, policies);
+    }
+
+    private static int indexOfWhitespace(final String value) {
+
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isWhitespace(value.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Translates a path pattern into a regular expression
+     */
+    static Pattern toRegex(final String glob) {
+
+        final StringBuilder regex = new StringBuilder(glob.length() * 2);
+        int i = 0;
+        while (i < glob.length()) {
+            final char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                if (i + 2 < glob.length() && glob.charAt(i + 2) == '/') {
+                    //any number of directories, including none
+                    regex.append("(?:.*/)?");
+                    i += 3;
+                } else {
+                    regex.append(".*");
+                    i += 2;
+                }
+                continue;
+            }
+            if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else if ("\\.[]{}()+-^$|".indexOf(c) >= 0) {
+                regex.append('\\').append(c);
+            } else {
+                regex.append(c);
+            }
+            i++;
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * @return <code>true</code> if the table contains no rule
+     */
+    public boolean isEmpty() {
+
+        return policies.isEmpty();
+    }
+
+    /**
+     * Determines the policy for the resource of the given path.
+     * @param path
+     *  the path of the resource relative to the content root
+     * @return
+     *  the policy of the first matching rule or <code>null</code> if no rule matches
+     */
+    public CachePolicy getPolicy(final String path) {
+
+        if (policies.isEmpty()) {
+            return null;
+        }
+        final String normalized = ZipFileIndex.normalize(path);
+        final String name = normalized.substring(normalized.lastIndexOf('/') + 1);
+        final int extensionStart = name.lastIndexOf('.');
+        int match = Integer.MAX_VALUE;
+        if (extensionStart >= 0) {
+            final Integer index = extensionRules.get(name.substring(extensionStart + 1));
+            if (index != null) {
+                match = index;
+            }
+        }
+        //only rules preceding the extension rule may take precedence
+        for (Rule rule : patternRules) {
+            if (rule.index >= match) {
+                break;
+            }
+            if (rule.pattern.matcher(rule.fullPath ? normalized : name).matches()) {
+                match = rule.index;
+                break;
+            }
+        }
+        return match == Integer.MAX_VALUE ? null : policies.get(match);
+    }
+
+    /**
+     * A path pattern of the rule table compiled into a regular expression
+     */
+    private static final class Rule {
+
+        /**
+         * The index of the rule in the rule table
+         */
+        final int index;
+
+        /**
+         * Flag to indicate the pattern is matched against the entire path instead of the file name
+         */
+        final boolean fullPath;
+
+        final Pattern pattern;
+
+        Rule(final int index, final boolean fullPath, final Pattern pattern) {
+
+            this.index = index;
+            this.fullPath = fullPath;
+            this.pattern = pattern;
+        }
+    }
+}
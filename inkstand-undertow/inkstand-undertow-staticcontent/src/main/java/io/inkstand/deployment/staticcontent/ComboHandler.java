@@ -0,0 +1,583 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static io.inkstand.util.CollectionHelper.asUnmodifiableSet;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceManager;
+import io.undertow.util.DateUtils;
+import io.undertow.util.ETag;
+import io.undertow.util.ETagUtils;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import io.undertow.util.MimeMappings;
+import io.undertow.util.StatusCodes;
+
+/**
+ * Handler serving the concatenated content of several resources in one response. The resources are specified as
+ * query of a request to the combo path, i.e. {@code /combo?js/a.js&js/b.js}, and are concatenated in the order of the
+ * query, separated by a line break. All resources have to be of the same textual content type and their total size
+ * must not exceed the configured maximum.
+ * <br>
+ * The concatenated content is cached together with the entity tags of its resources and identified by a strong
+ * entity tag computed from the content. A cached combination is rebuilt when one of its resources has changed. The
+ * cache is bounded by the total size of the cached combinations, the least recently used ones are evicted first.
+ * Requests for any other path are passed to the next handler unchanged.
+ */
+public class ComboHandler implements HttpHandler {
+
+    private static final Logger LOG = getLogger(ComboHandler.class);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The maximum number of resources of one combination
+     */
+    public static final int MAX_RESOURCES = 100;
+
+    /**
+     * The default for the maximum size in bytes of one combination
+     */
+    public static final long DEFAULT_MAX_SIZE = 1024L * 1024L;
+
+    /**
+     * The default for the maximum total size in bytes of the cached combinations
+     */
+    public static final long DEFAULT_MAX_CACHE_SIZE = 16L * 1024L * 1024L;
+
+    /**
+     * The content types besides {@code text/*} that may be combined
+     */
+    private static final Set<String> TEXT_TYPES = asUnmodifiableSet("application/javascript",
+                                                                    "application/x-javascript",
+                                                                    "application/ecmascript",
+                                                                    "application/json",
+                                                                    "application/xml",
+                                                                    "image/svg+xml");
+
+    private static final byte SEPARATOR = '\n';
+
+    private final ResourceManager resourceManager;
+
+    /**
+     * Path of the combo endpoint, without leading slash
+     */
+    private final String comboPath;
+
+    private final HttpHandler next;
+
+    /**
+     * The maximum size in bytes of one combination
+     */
+    private final long maxSize;
+
+    /**
+     * The maximum total size in bytes of the cached combinations
+     */
+    private final long maxCacheSize;
+
+    /**
+     * The normalized paths of the resources to the combinations built of them, in access order. All access to the map
+     * and the cached size has to be synchronized on the map.
+     */
+    private final Map<List<String>, Combo> combos = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The total size in bytes of the cached combinations
+     */
+    private long cachedSize;
+
+    /**
+     * Creates a handler for serving combinations of resources using the default limits.
+     * @param resourceManager
+     *  the resource manager providing the resources
+     * @param comboPath
+     *  the path of the combo endpoint, relative to the context path of the deployment
+     * @param next
+     *  the handler for all other requests
+     */
+    public ComboHandler(final ResourceManager resourceManager, final String comboPath, final HttpHandler next) {
+
+        this(resourceManager, comboPath, DEFAULT_MAX_SIZE, DEFAULT_MAX_CACHE_SIZE, next);
+    }
+
+    /**
+     * Creates a handler for serving combinations of resources
+     * @param resourceManager
+     *  the resource manager providing the resources
+     * @param comboPath
+     *  the path of the combo endpoint, relative to the context path of the deployment
+     * @param maxSize
+     *  the maximum size in bytes of one combination, larger combinations are rejected
+     * @param maxCacheSize
+     *  the maximum total size in bytes of the cached combinations
+     * @param next
+     *  the handler for all other requests
+     */
+    public ComboHandler(final ResourceManager resourceManager,
+                        final String comboPath,
+                        final long maxSize,
+                        final long maxCacheSize,
+                        final HttpHandler next) {
+
+        this.resourceManager = resourceManager;
+        this.comboPath = ZipFileIndex.normalize(comboPath);
+        this.maxSize = maxSize;
+        this.maxCacheSize = maxCacheSize;
+        this.next = next;
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+        if (!comboPath.equals(ZipFileIndex.normalize(exchange.getRelativePath())) || !isReadRequest(exchange)) {
+            next.handleRequest(exchange);
+            return;
+        }
+        if (exchange.isInIoThread()) {
+            //resources are read blocking
+            exchange.dispatch(this);
+            return;
+        }
+        final List<String> paths = parsePaths(exchange.getQueryString());
+        if (paths == null) {
+            exchange.setResponseCode(StatusCodes.BAD_REQUEST);
+            exchange.endExchange();
+            return;
+        }
+        final List<Resource> resources = getResources(paths);
+        if (resources == null) {
+            exchange.setResponseCode(StatusCodes.NOT_FOUND);
+            exchange.endExchange();
+            return;
+        }
+        final String contentType = getContentType(resources);
+        if (contentType == null || !isText(contentType)) {
+            exchange.setResponseCode(StatusCodes.BAD_REQUEST);
+            exchange.endExchange();
+            return;
+        }
+        final Combo combo = getContentLength(resources) > maxSize ? null : getCombo(paths, resources, contentType);
+        if (combo == null) {
+            LOG.debug("Combination of {} exceeds {} bytes", paths, maxSize);
+            //the request has no body, the resources requested are too large to be combined
+            exchange.setResponseCode(StatusCodes.FORBIDDEN);
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
+            exchange.getResponseSender().send("Combined resources exceed " + maxSize + " bytes");
+            return;
+        }
+        exchange.getResponseHeaders().put(Headers.ETAG, combo.etag.toString());
+        if (combo.lastModified != null) {
+            exchange.getResponseHeaders().put(Headers.LAST_MODIFIED, DateUtils.toDateString(combo.lastModified));
+        }
+        if (!ETagUtils.handleIfNoneMatch(exchange, combo.etag, false)) {
+            exchange.setResponseCode(StatusCodes.NOT_MODIFIED);
+            exchange.endExchange();
+            return;
+        }
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, combo.contentType);
+        exchange.setResponseContentLength(combo.content.remaining());
+        if (Methods.HEAD.equals(exchange.getRequestMethod())) {
+            exchange.endExchange();
+        } else {
+            exchange.getResponseSender().send(combo.content.duplicate());
+        }
+    }
+
+    private static boolean isReadRequest(final HttpServerExchange exchange) {
+
+        return Methods.GET.equals(exchange.getRequestMethod()) || Methods.HEAD.equals(exchange.getRequestMethod());
+    }
+
+    /**
+     * Parses the paths of the resources from the query of the request.
+     * @param query
+     *  the query string, the paths are separated by {@code &}
+     * @return
+     *  the normalized paths of the resources or <code>null</code> if the query is empty, contains too many paths or
+     *  paths that leave the content root
+     */
+    static List<String> parsePaths(final String query) {
+
+        if (query == null || query.isEmpty()) {
+            return null;
+        }
+        final List<String> paths = new ArrayList<>();
+        for (String param : query.split("&")) {
+            //a path may be specified as parameter without value, i.e. a.js=
+            final String value = param.endsWith("=") ? param.substring(0, param.length() - 1) : param;
+            if (value.isEmpty()) {
+                continue;
+            }
+            final String path;
+            try {
+                path = ZipFileIndex.normalize(decode(value));
+            } catch (CharacterCodingException | IllegalArgumentException e) {
+                LOG.debug("Invalid path {}", value, e);
+                return null;
+            }
+            if (path.isEmpty() || ("/" + path + "/").contains("/../")) {
+                return null;
+            }
+            paths.add(path);
+        }
+        if (paths.isEmpty() || paths.size() > MAX_RESOURCES) {
+            return null;
+        }
+        return paths;
+    }
+
+    /**
+     * Decodes the percent-encoded octets of a path. Other than form decoding, a {@code +} denotes itself and not a
+     * space, as it is a valid character of a file name.
+     * @param value
+     *  the encoded path
+     * @return
+     *  the decoded path
+     * @throws CharacterCodingException
+     *  if the decoded octets are no valid UTF-8 sequence
+     * @throws IllegalArgumentException
+     *  if the path contains an incomplete or invalid escape sequence
+     */
+    static String decode(final String value) throws CharacterCodingException {
+
+        if (value.indexOf('%') == -1) {
+            return value;
+        }
+        final ByteBuffer octets = ByteBuffer.allocate(value.length() * 3);
+        int i = 0;
+        while (i < value.length()) {
+            if (value.charAt(i) == '%') {
+                if (i + 2 >= value.length()) {
+                    throw new IllegalArgumentException("Incomplete escape sequence at " + i);
+                }
+                final int high = Character.digit(value.charAt(i + 1), 16);
+                final int low = Character.digit(value.charAt(i + 2), 16);
+                if (high == -1 || low == -1) {
+                    throw new IllegalArgumentException("Invalid escape sequence at " + i);
+                }
+                octets.put((byte) (high << 4 | low));
+                i += 3;
+            } else {
+                final int escape = value.indexOf('%', i);
+                final int end = escape == -1 ? value.length() : escape;
+                octets.put(value.substring(i, end).getBytes(UTF_8));
+                i = end;
+            }
+        }
+        octets.flip();
+        return UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(octets)
+                    .toString();
+    }
+
+    /**
+     * Resolves the resources of the paths
+     * @return
+     *  the resources in order of the paths or <code>null</code> if any of the paths does not denote a file
+     */
+    List<Resource> getResources(final List<String> paths) throws IOException {
+
+        final List<Resource> resources = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            final Resource resource = resourceManager.getResource(path);
+            if (resource == null || resource.isDirectory()) {
+                return null;
+            }
+            resources.add(resource);
+        }
+        return resources;
+    }
+
+    /**
+     * Determines the content type of the combination
+     * @return
+     *  the content type shared by all resources or <code>null</code> if the resources differ in their content type
+     */
+    static String getContentType(final List<Resource> resources) {
+
+        final String contentType = resources.get(0).getContentType(MimeMappings.DEFAULT);
+        if (contentType == null) {
+            return null;
+        }
+        for (Resource resource : resources) {
+            if (!contentType.equals(resource.getContentType(MimeMappings.DEFAULT))) {
+                return null;
+            }
+        }
+        return contentType;
+    }
+
+    /**
+     * Determines whether content of the content type can be combined, which is the case for textual content only.
+     */
+    static boolean isText(final String contentType) {
+
+        final int paramStart = contentType.indexOf(';');
+        final String mimeType = (paramStart == -1 ? contentType : contentType.substring(0, paramStart)).trim();
+        return mimeType.startsWith("text/") || TEXT_TYPES.contains(mimeType);
+    }
+
+    /**
+     * Determines the size of the combination from the known content lengths of the resources.
+     * @return
+     *  the size in bytes of the combination, resources of unknown length are not accounted
+     */
+    static long getContentLength(final List<Resource> resources) {
+
+        long length = resources.size() - 1L;
+        for (Resource resource : resources) {
+            final Long contentLength = resource.getContentLength();
+            if (contentLength != null) {
+                length += contentLength;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Provides the combination of the resources. A cached combination is used if none of its resources has changed,
+     * otherwise the combination is built and cached.
+     * @param paths
+     *  the normalized paths of the resources, identifying the combination in the cache
+     * @return
+     *  the combination or <code>null</code> if its size exceeds the maximum size
+     */
+    Combo getCombo(final List<String> paths, final List<Resource> resources, final String contentType)
+            throws IOException {
+
+        final List<String> versions = getVersions(resources);
+        Combo combo;
+        synchronized (combos) {
+            combo = combos.get(paths);
+        }
+        if (combo != null && versions != null && versions.equals(combo.versions)) {
+            return combo;
+        }
+        combo = buildCombo(resources, contentType, versions, maxSize);
+        if (combo != null && versions != null) {
+            cache(paths, combo);
+        }
+        return combo;
+    }
+
+    /**
+     * Caches the combination and evicts the least recently used combinations until the cached size does not exceed
+     * the maximum cache size. A combination larger than the cache is not cached at all.
+     */
+    private void cache(final List<String> paths, final Combo combo) {
+
+        final int size = combo.content.remaining();
+        synchronized (combos) {
+            final Combo replaced = combos.remove(paths);
+            if (replaced != null) {
+                cachedSize -= replaced.content.remaining();
+            }
+            if (size > maxCacheSize) {
+                return;
+            }
+            final Iterator<Combo> eldest = combos.values().iterator();
+            while (cachedSize + size > maxCacheSize && eldest.hasNext()) {
+                cachedSize -= eldest.next().content.remaining();
+                eldest.remove();
+            }
+            combos.put(paths, combo);
+            cachedSize += size;
+        }
+    }
+
+    /**
+     * Determines the version of each resource by its entity tag or its modification date.
+     * @return
+     *  the versions of the resources or <code>null</code> if the version of a resource can not be determined, in which
+     *  case the combination can not be cached
+     */
+    private static List<String> getVersions(final List<Resource> resources) {
+
+        final List<String> versions = new ArrayList<>(resources.size());
+        for (Resource resource : resources) {
+            final ETag etag = resource.getETag();
+            final Date lastModified = resource.getLastModified();
+            if (etag != null) {
+                versions.add(etag.toString());
+            } else if (lastModified != null) {
+                versions.add(lastModified.getTime() + ":" + resource.getContentLength());
+            } else {
+                return null;
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Reads the content of the resources into one buffer.
+     * @return
+     *  the combination or <code>null</code> if the content read exceeds the maximum size, which happens if the length
+     *  of a resource is not known in advance
+     */
+    private static Combo buildCombo(final List<Resource> resources,
+                                    final String contentType,
+                                    final List<String> versions,
+                                    final long maxSize) throws IOException {
+
+        final ComboBuffer content = new ComboBuffer((int) Math.min(Math.min(getContentLength(resources), maxSize),
+                                                                  Integer.MAX_VALUE));
+        final byte[] buffer = new byte[8192];
+        Date lastModified = null;
+        for (Resource resource : resources) {
+            if (content.size() > 0) {
+                content.write(SEPARATOR);
+            }
+            try (InputStream inStream = ResourceStreams.open(resource)) {
+                int read;
+                while ((read = inStream.read(buffer)) != -1) {
+                    if (content.size() + read > maxSize) {
+                        return null;
+                    }
+                    content.write(buffer, 0, read);
+                }
+            }
+            final Date modified = resource.getLastModified();
+            if (modified != null && (lastModified == null || modified.after(lastModified))) {
+                lastModified = modified;
+            }
+        }
+        if (content.size() > maxSize) {
+            return null;
+        }
+        final ETag etag = new ETag(false, Long.toHexString(content.getChecksum()) + '-'
+                                          + Integer.toHexString(content.size()));
+        return new Combo(content.toDirectBuffer(), contentType, etag, lastModified, versions);
+    }
+
+    /**
+     * @return the number of cached combinations
+     */
+    public int size() {
+
+        synchronized (combos) {
+            return combos.size();
+        }
+    }
+
+    /**
+     * @return the total size in bytes of the cached combinations
+     */
+    public long getCachedSize() {
+
+        synchronized (combos) {
+            return cachedSize;
+        }
+    }
+
+    /**
+     * Buffer for the content of a combination that provides the checksum and a direct copy of its content without
+     * copying it to an intermediate array.
+     */
+    private static final class ComboBuffer extends ByteArrayOutputStream {
+
+        ComboBuffer(final int size) {
+
+            super(Math.max(size, 32));
+        }
+
+        long getChecksum() {
+
+            final CRC32 crc = new CRC32();
+            crc.update(buf, 0, count);
+            return crc.getValue();
+        }
+
+        ByteBuffer toDirectBuffer() {
+
+            final ByteBuffer body = ByteBuffer.allocateDirect(count);
+            body.put(buf, 0, count).flip();
+            return body.asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * The concatenated content of several resources.
+     */
+    static final class Combo {
+
+        private final ByteBuffer content;
+
+        private final String contentType;
+
+        private final ETag etag;
+
+        private final Date lastModified;
+
+        /**
+         * The versions of the resources the content was built of
+         */
+        private final List<String> versions;
+
+        Combo(final ByteBuffer content,
+              final String contentType,
+              final ETag etag,
+              final Date lastModified,
+              final List<String> versions) {
+
+            this.content = content;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.versions = versions;
+        }
+
+        ByteBuffer getContent() {
+
+            return content.duplicate();
+        }
+
+        ETag getETag() {
+
+            return etag;
+        }
+
+        Date getLastModified() {
+
+            return lastModified;
+        }
+    }
+}
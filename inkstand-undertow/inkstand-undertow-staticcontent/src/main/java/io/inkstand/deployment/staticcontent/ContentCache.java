@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache for the content of static resources. The content is kept off-heap in direct byte buffers so
+ * that hot resources can be served from memory without being read and inflated again and without adding to the
+ * heap. When the cache is full, the least recently used entries are evicted.
+ * <br>
+ * A single entry may occupy at most a quarter of the cache, larger content is not cached at all.
+ */
+public class ContentCache implements ContentCacheMXBean {
+
+    /**
+     * The maximum size of all cached content in bytes
+     */
+    private final long maxSize;
+
+    /**
+     * The cached content in order of access, the least recently accessed first.
+     */
+    private final Map<String, ByteBuffer> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * The size of all cached content in bytes. Guarded by the entries map.
+     */
+    private long size;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache with the given maximum size.
+     * @param maxSize
+     *  the maximum number of bytes of all cached content
+     */
+    public ContentCache(final long maxSize) {
+
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Checks whether content of the given length is small enough to be put into the cache.
+     * @param length
+     *  the length of the content in bytes
+     * @return
+     *  <code>true</code> if content of that length may be cached
+     */
+    public boolean isCacheable(final long length) {
+
+        return length >= 0 && length <= this.maxSize / 4;
+    }
+
+    /**
+     * Retrieves the cached content.
+     * @param key
+     *  the key of the content
+     * @return
+     *  a new read-only buffer on the cached content or <code>null</code> if the content is not cached
+     */
+    public ByteBuffer get(final String key) {
+
+        final ByteBuffer content;
+        synchronized (this.entries) {
+            content = this.entries.get(key);
+        }
+        if (content == null) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+        this.hits.incrementAndGet();
+        return content.duplicate();
+    }
+
+    /**
+     * Puts content into the cache. The content is copied into a direct buffer. If the cache exceeds its maximum
+     * size, the least recently used entries are evicted. Content that is not {@link #isCacheable(long) cacheable}
+     * is not put into the cache.
+     * @param key
+     *  the key of the content
+     * @param content
+     *  the buffer holding the content between its position and limit. The position of the buffer is not changed.
+     * @return
+     *  a new read-only buffer on the content
+     */
+    public ByteBuffer put(final String key, final ByteBuffer content) {
+
+        if (!isCacheable(content.remaining())) {
+            return content.asReadOnlyBuffer();
+        }
+        final ByteBuffer direct = ByteBuffer.allocateDirect(content.remaining());
+        direct.put(content.duplicate()).flip();
+        final ByteBuffer cached = direct.asReadOnlyBuffer();
+
+        synchronized (this.entries) {
+            final ByteBuffer replaced = this.entries.put(key, cached);
+            if (replaced != null) {
+                this.size -= replaced.capacity();
+            }
+            this.size += cached.capacity();
+            final Iterator<ByteBuffer> eldest = this.entries.values().iterator();
+            while (this.size > this.maxSize && eldest.hasNext()) {
+                this.size -= eldest.next().capacity();
+                eldest.remove();
+                this.evictions.incrementAndGet();
+            }
+        }
+        return cached.duplicate();
+    }
+
+    @Override
+    public long getHitCount() {
+
+        return this.hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+
+        return this.misses.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+
+        return this.evictions.get();
+    }
+
+    @Override
+    public int getEntryCount() {
+
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    @Override
+    public long getSize() {
+
+        synchronized (this.entries) {
+            return this.size;
+        }
+    }
+
+    @Override
+    public long getMaxSize() {
+
+        return this.maxSize;
+    }
+
+    @Override
+    public void clear() {
+
+        synchronized (this.entries) {
+            this.entries.clear();
+            this.size = 0;
+        }
+    }
+}
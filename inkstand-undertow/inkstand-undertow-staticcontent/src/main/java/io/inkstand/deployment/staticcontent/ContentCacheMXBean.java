@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+/**
+ * Management interface of the {@link ContentCache} providing the statistics of the cache.
+ */
+public interface ContentCacheMXBean {
+
+    /**
+     * @return the number of requests that were served from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of requests for cacheable content that was not in the cache
+     */
+    long getMissCount();
+
+    /**
+     * @return the number of entries that were removed from the cache to make room for new entries
+     */
+    long getEvictionCount();
+
+    /**
+     * @return the number of entries in the cache
+     */
+    int getEntryCount();
+
+    /**
+     * @return the total size of the cached content in bytes
+     */
+    long getSize();
+
+    /**
+     * @return the maximum size of the cached content in bytes
+     */
+    long getMaxSize();
+
+    /**
+     * Removes all entries from the cache.
+     */
+    void clear();
+}
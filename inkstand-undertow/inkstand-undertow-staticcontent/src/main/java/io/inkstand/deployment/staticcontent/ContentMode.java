@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import java.util.Locale;
+
+/**
+ * The mode in which the content of a zip file is read for serving it.
+ */
+public enum ContentMode {
+
+    /**
+     * The content is read using a {@link java.util.zip.ZipFile}. This is the default mode.
+     */
+    ZIPFILE,
+
+    /**
+     * The archive is mapped into memory and the content is read from the mapped region without any locking. The
+     * mode is suited for serving many concurrent requests but is limited to archives of less than 2GB.
+     */
+    MAPPED,
+
+    /**
+     * The entire content of the archive is loaded into memory at startup together with compressed variants of the
+     * content. The mode is suited for small bundles of static content that should be served without any file access.
+     */
+    MEMORY;
+
+    /**
+     * Determines the content mode for the given name, ignoring the case of the name.
+     * @param name
+     *  the name of the content mode. If the name is <code>null</code> the default mode is returned.
+     * @return
+     *  the content mode of the given name
+     * @throws IllegalArgumentException
+     *  if there is no mode of the given name
+     */
+    public static ContentMode fromName(final String name) {
+
+        if (name == null) {
+            return ZIPFILE;
+        }
+        return valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.servlet.handlers.ServletRequestContext;
+import io.undertow.util.Headers;
+import io.undertow.util.StatusCodes;
+
+/**
+ * Helper for resources that decide on the representation to be sent while being served, i.e. after the default
+ * servlet or the resource handler have already prepared the response headers for the resource, and for resources
+ * serving ranges of their content.
+ */
+final class ContentResponses {
+
+    private ContentResponses() {
+
+    }
+
+    /**
+     * Completes the exchange with a 304 response without content. The request was conditional on an entity tag of
+     * a representation which can only be checked once the content coding has been negotiated.
+     */
+    static void serveNotModified(final HttpServerExchange exchange,
+                                 final Sender sender,
+                                 final IoCallback completionCallback) {
+
+        exchange.setResponseCode(StatusCodes.NOT_MODIFIED);
+        exchange.getResponseHeaders().remove(Headers.CONTENT_TYPE);
+        setContentLength(exchange, 0);
+        completionCallback.onComplete(exchange, sender);
+    }
+
+    /**
+     * Sets the length of the response content. When served by a servlet, the length has to be set on the servlet
+     * response as the servlet output stream completes the response once the announced length has been written.
+     */
+    static void setContentLength(final HttpServerExchange exchange, final long length) {
+
+        final ServletRequestContext servletContext = exchange.getAttachment(ServletRequestContext.ATTACHMENT_KEY);
+        if (servletContext != null) {
+            servletContext.getOriginalResponse().setContentLengthLong(length);
+        } else {
+            exchange.setResponseContentLength(length);
+        }
+    }
+
+    /**
+     * Resolves a range as passed to {@link io.undertow.server.handlers.resource.RangeAwareResource#serveRange} to
+     * the section of the content to be sent.
+     * @param start
+     *  the first byte of the range or a negative value for a suffix range
+     * @param end
+     *  the last byte of the range, a negative value for an open-ended range, or the length of a suffix range
+     * @param size
+     *  the size of the content
+     * @return
+     *  the offset of the first byte and the length of the section, the length is 0 if the range is not satisfiable
+     */
+    static long[] resolveRange(final long start, final long end, final long size) {
+
+        //the first byte of a suffix range is not specified, the end denotes the length of the suffix
+        final long first = start < 0 ? Math.max(0, size - end) : start;
+        final long last = start < 0 || end < 0 || end >= size ? size - 1 : end;
+        return new long[] { first, Math.max(0, last - first + 1) };
+    }
+}
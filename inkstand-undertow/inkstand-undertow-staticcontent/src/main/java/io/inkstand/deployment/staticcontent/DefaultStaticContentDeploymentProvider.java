@@ -18,14 +18,32 @@ package io.inkstand.deployment.staticcontent;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
+import javax.enterprise.inject.Instance;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.slf4j.Logger;
 
+import io.inkstand.InkstandRuntimeException;
+import io.inkstand.http.undertow.UndertowCompressionConfiguration;
 import io.inkstand.http.undertow.UndertowDeploymentProvider;
+import io.undertow.server.HandlerWrapper;
+import io.undertow.server.HttpHandler;
 import io.undertow.server.handlers.resource.FileResourceManager;
+import io.undertow.server.handlers.resource.ResourceChangeEvent;
+import io.undertow.server.handlers.resource.ResourceChangeListener;
+import io.undertow.server.handlers.resource.ResourceHandler;
 import io.undertow.server.handlers.resource.ResourceManager;
 import io.undertow.servlet.api.DeploymentInfo;
 
@@ -36,10 +54,92 @@ public class DefaultStaticContentDeploymentProvider implements UndertowDeploymen
 
     private static final Logger LOG = getLogger(DefaultStaticContentDeploymentProvider.class);
     /**
-     * The configuration property for the location of the static content. Could point to a zip file or a directory.
+     * The configuration property for the location of the static content. Could point to a zip file or a directory,
+     * or a comma separated list of zip files and directories. If a path exists in several roots, the resource of the
+     * first root is served. Alternatively, the content may be served from a subtree of the content repository by
+     * specifying the path of its root node prefixed with {@code jcr:}, i.e. {@code jcr:/content/web}. A repository
+     * subtree can not be combined with other content roots.
      */
     public static final String HTTP_CONTENT_ROOT_PROPERTY = "inkstand.http.content.root";
     public static final String HTTP_CONTEXT_PATH = "inkstand.http.context.path";
+    /**
+     * The configuration property to serve the static content non-blocking. If enabled, the content is served by a
+     * resource handler on the IO threads instead of the blocking default servlet.
+     */
+    public static final String HTTP_CONTENT_ASYNC_PROPERTY = "inkstand.http.content.async";
+    /**
+     * The configuration property for the maximum size in bytes of the off-heap cache for the content of zip entries and
+     * small repository files. The cache is disabled if the size is 0.
+     */
+    public static final String HTTP_CONTENT_CACHE_SIZE_PROPERTY = "inkstand.http.content.cache.size";
+    /**
+     * The configuration property for the mode in which zip files are read. Supported values are {@code zipfile}
+     * (default), {@code mapped} and {@code memory}, see {@link ContentMode}.
+     */
+    public static final String HTTP_CONTENT_MODE_PROPERTY = "inkstand.http.content.mode";
+    /**
+     * The configuration property to serve precompressed variants of the content. If enabled, a sibling of a resource
+     * with the extension {@code .br} or {@code .gz} is served instead of the resource to clients accepting the
+     * according content coding. As the siblings are looked up for every request, it is disabled by default.
+     */
+    public static final String HTTP_CONTENT_PRECOMPRESSED_PROPERTY = "inkstand.http.content.precompressed";
+    /**
+     * The configuration property to serve the content at fingerprinted aliases. If enabled, the content hash of each
+     * asset is computed at startup and the asset is additionally served at an alias containing the hash, i.e.
+     * {@code app.3f9a1c07.js} for {@code app.js}, with a cache control that prevents revalidation. Only the assets
+     * of zip files preceding any directory or repository root are fingerprinted, as the content of directories and
+     * of the repository may change while it is served. If watching is enabled, the fingerprints are computed again
+     * whenever a watched zip file has been swapped.
+     */
+    public static final String HTTP_CONTENT_FINGERPRINT_PROPERTY = "inkstand.http.content.fingerprint";
+    /**
+     * The configuration property for the path at which the manifest of the fingerprinted aliases is served.
+     */
+    public static final String HTTP_CONTENT_MANIFEST_PATH_PROPERTY = "inkstand.http.content.manifest.path";
+    /**
+     * The configuration property for the rule table of caching policies. The rules map path patterns or file
+     * extensions to Cache-Control, Expires and Vary headers, see {@link CacheRules} for the syntax.
+     */
+    public static final String HTTP_CONTENT_CACHING_RULES_PROPERTY = "inkstand.http.content.caching.rules";
+    /**
+     * The configuration property to watch zip files for replacements. If enabled, a zip file that is replaced at its
+     * location is loaded in the background and swapped in without interrupting the requests being served, see
+     * {@link WatchedArchiveResourceManager}.
+     */
+    public static final String HTTP_CONTENT_WATCH_PROPERTY = "inkstand.http.content.watch";
+    /**
+     * The configuration property for the workspace containing the content if the content is served from the
+     * repository. If not set, the default workspace is used.
+     */
+    public static final String HTTP_CONTENT_JCR_WORKSPACE_PROPERTY = "inkstand.http.content.jcr.workspace";
+    /**
+     * The configuration property for the maximum size in bytes of a repository file whose content is cached in
+     * the content cache. Files up to that size are served with an entity tag derived from their content, larger
+     * files are streamed from the repository.
+     */
+    public static final String HTTP_CONTENT_JCR_CACHED_SIZE_PROPERTY = "inkstand.http.content.jcr.cached.size";
+    /**
+     * The configuration property for the path of the combo endpoint that serves the concatenated content of several
+     * resources, i.e. {@code /combo?js/a.js&js/b.js}. The endpoint is disabled if no path is set.
+     */
+    public static final String HTTP_CONTENT_COMBO_PATH_PROPERTY = "inkstand.http.content.combo.path";
+    /**
+     * The configuration property for the maximum size in bytes of one combination served at the combo endpoint.
+     * Requests for larger combinations are rejected.
+     */
+    public static final String HTTP_CONTENT_COMBO_MAX_SIZE_PROPERTY = "inkstand.http.content.combo.max.size";
+    /**
+     * The configuration property for the maximum total size in bytes of the combinations cached by the combo endpoint.
+     */
+    public static final String HTTP_CONTENT_COMBO_CACHE_SIZE_PROPERTY = "inkstand.http.content.combo.cache.size";
+    /**
+     * The prefix of a content root denoting the path of a node in the content repository
+     */
+    public static final String JCR_CONTENT_ROOT_PREFIX = "jcr:";
+    /**
+     * The name under which the statistics of the content cache are registered at the platform MBean server.
+     */
+    public static final String CONTENT_CACHE_MBEAN_NAME = "io.inkstand:type=ContentCache,name=StaticContent";
 
     @Inject
     @ConfigProperty(name = HTTP_CONTENT_ROOT_PROPERTY)
@@ -49,30 +149,372 @@ public class DefaultStaticContentDeploymentProvider implements UndertowDeploymen
     @ConfigProperty(name = HTTP_CONTEXT_PATH, defaultValue = "/")
     private String contextPath; //NOSONAR
 
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_ASYNC_PROPERTY, defaultValue = "false")
+    private Boolean asyncServing; //NOSONAR
+
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_CACHE_SIZE_PROPERTY, defaultValue = "0")
+    private Long cacheSize; //NOSONAR
+
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_MODE_PROPERTY, defaultValue = "zipfile")
+    private String contentMode; //NOSONAR
+
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_PRECOMPRESSED_PROPERTY, defaultValue = "false")
+    private Boolean precompressed; //NOSONAR
+
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_FINGERPRINT_PROPERTY, defaultValue = "false")
+    private Boolean fingerprint; //NOSONAR
+
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_MANIFEST_PATH_PROPERTY, defaultValue = "/asset-manifest.json")
+    private String manifestPath; //NOSONAR
+
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_CACHING_RULES_PROPERTY)
+    private String cachingRules; //NOSONAR
+
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_WATCH_PROPERTY, defaultValue = "false")
+    private Boolean watch; //NOSONAR
+
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_JCR_WORKSPACE_PROPERTY)
+    private String jcrWorkspace; //NOSONAR
+
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_JCR_CACHED_SIZE_PROPERTY, defaultValue = "65536")
+    private Long jcrCachedSize; //NOSONAR
+
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_COMBO_PATH_PROPERTY)
+    private String comboPath; //NOSONAR
+
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_COMBO_MAX_SIZE_PROPERTY, defaultValue = "1048576")
+    private Long comboMaxSize; //NOSONAR
+
+    @Inject
+    @ConfigProperty(name = HTTP_CONTENT_COMBO_CACHE_SIZE_PROPERTY, defaultValue = "16777216")
+    private Long comboCacheSize; //NOSONAR
+
+    @Inject
+    private Instance<Repository> repository; //NOSONAR
+
+    /**
+     * The resource managers of the watched zip files, whose replacements require new fingerprints
+     */
+    private final List<WatchedArchiveResourceManager> watchedArchives = new ArrayList<>();
+
     @Override
     @Produces
     public DeploymentInfo getDeployment() {
 
         final ResourceManager resMgr = createResourceManager();
 
-        return new DeploymentInfo()
+        final DeploymentInfo deploymentInfo = new DeploymentInfo()
         .setContextPath(contextPath)
         .setResourceManager(resMgr)
         .setDeploymentName("StaticContent")
-        .setClassLoader(ClassLoader.getSystemClassLoader());
+        .setClassLoader(ClassLoader.getSystemClassLoader())
+        //static content is served as it is or precompressed, it is never compressed at request time
+        .addInitParameter(UndertowCompressionConfiguration.HTTP_COMPRESSION_PROPERTY, "false");
+
+        if (Boolean.TRUE.equals(asyncServing)) {
+            LOG.info("Serving content non-blocking");
+            deploymentInfo.addInitialHandlerChainWrapper(new HandlerWrapper() {
+
+                @Override
+                public HttpHandler wrap(final HttpHandler handler) {
+
+                    //resources not found are passed on to the servlet chain
+                    return new ResourceHandler(resMgr, handler);
+                }
+            });
+        }
+        if (comboPath != null && !comboPath.trim().isEmpty()) {
+            LOG.info("Serving combined content at {}", comboPath);
+            final long maxSize = comboMaxSize == null ? ComboHandler.DEFAULT_MAX_SIZE : comboMaxSize;
+            final long maxCacheSize = comboCacheSize == null ? ComboHandler.DEFAULT_MAX_CACHE_SIZE : comboCacheSize;
+            deploymentInfo.addInitialHandlerChainWrapper(new HandlerWrapper() {
+
+                @Override
+                public HttpHandler wrap(final HttpHandler handler) {
+
+                    return new ComboHandler(resMgr, comboPath.trim(), maxSize, maxCacheSize, handler);
+                }
+            });
+        }
+        final CacheRules rules = CacheRules.compile(cachingRules);
+        if (!rules.isEmpty()) {
+            LOG.info("Applying caching rules {}", cachingRules);
+            deploymentInfo.addInitialHandlerChainWrapper(new HandlerWrapper() {
+
+                @Override
+                public HttpHandler wrap(final HttpHandler handler) {
 
+                    return new CachePolicyHandler(rules, handler);
+                }
+            });
+        }
+        if (Boolean.TRUE.equals(fingerprint)) {
+            final AssetFingerprints fingerprints = createFingerprints();
+            final String manifest = manifestPath == null ? "/asset-manifest.json" : manifestPath;
+            LOG.info("Serving {} fingerprinted assets, manifest at {}", fingerprints.getManifest().size(), manifest);
+            //added last to be the outermost handler, so aliases are resolved before any resource lookup
+            deploymentInfo.addInitialHandlerChainWrapper(new HandlerWrapper() {
+
+                @Override
+                public HttpHandler wrap(final HttpHandler handler) {
+
+                    final FingerprintHandler fingerprinted = new FingerprintHandler(fingerprints, manifest, handler);
+                    updateOnChange(fingerprinted);
+                    return fingerprinted;
+                }
+            });
+        }
+        return deploymentInfo;
     }
 
     private ResourceManager createResourceManager() {
         LOG.info("Serving content from {}", contentFileLocation);
-        final File contentFile = new File(contentFileLocation); //NOSONAR
+        final List<File> contentRoots = getContentRoots();
 
-        if(contentFile.getName().endsWith(".zip")){
-            return new ZipFileResourceManager(contentFile);
+        final ContentCache cache = containsCachedRoot(contentRoots) ? createContentCache() : null;
+        final ResourceManager resMgr;
+        if (contentRoots.size() == 1) {
+            resMgr = createResourceManager(contentRoots.get(0), cache);
         } else {
-            //data chunk for responding is set to 64K bytes
-            return new FileResourceManager(contentFile, 65_536L);
+            final List<ResourceManager> layers = new ArrayList<>(contentRoots.size());
+            for (File contentRoot : contentRoots) {
+                layers.add(createResourceManager(contentRoot, cache));
+            }
+            try {
+                resMgr = new LayeredResourceManager(layers);
+            } catch (IOException e) {
+                throw new InkstandRuntimeException("Could not index content roots " + contentRoots, e);
+            }
+        }
+        if (!Boolean.TRUE.equals(precompressed)) {
+            return resMgr;
+        }
+        return new PrecompressedResourceManager(resMgr);
+    }
+
+    /**
+     * Splits the configured content location into the content roots
+     * @return
+     *  the content roots in order of precedence
+     */
+    private List<File> getContentRoots() {
+
+        final List<File> contentRoots = new ArrayList<>();
+        for (String location : contentFileLocation.split(",")) {
+            if (!location.trim().isEmpty()) {
+                contentRoots.add(new File(location.trim())); //NOSONAR
+            }
+        }
+        if (contentRoots.isEmpty()) {
+            throw new InkstandRuntimeException("No content root specified in " + HTTP_CONTENT_ROOT_PROPERTY);
+        }
+        return contentRoots;
+    }
+
+    private static boolean isZipFile(final File contentFile) {
+
+        return contentFile.getName().endsWith(".zip");
+    }
+
+    private static boolean isJcrRoot(final File contentFile) {
+
+        return contentFile.getPath().startsWith(JCR_CONTENT_ROOT_PREFIX);
+    }
+
+    private static boolean containsCachedRoot(final List<File> contentRoots) {
+
+        for (File contentRoot : contentRoots) {
+            if (isZipFile(contentRoot) || isJcrRoot(contentRoot)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ResourceManager createResourceManager(final File contentFile, final ContentCache cache) {
+
+        if (isJcrRoot(contentFile)) {
+            return createJcrResourceManager(contentFile.getPath().substring(JCR_CONTENT_ROOT_PREFIX.length()), cache);
+        }
+        if(isZipFile(contentFile)){
+            return createZipResourceManager(contentFile, cache);
+        }
+        //data chunk for responding is set to 64K bytes
+        return new FileResourceManager(contentFile, 65_536L);
+    }
+
+    /**
+     * Creates the resource manager for the zip file in the configured content mode. If watching is enabled, the zip
+     * file is reloaded whenever it is replaced.
+     * @param contentFile
+     *  the zip file containing the content
+     * @param cache
+     *  the cache for the content of the zip entries, may be <code>null</code>
+     * @return
+     *  the resource manager serving the content of the zip file
+     */
+    private ResourceManager createZipResourceManager(final File contentFile, final ContentCache cache) {
+
+        try {
+            if (Boolean.TRUE.equals(watch)) {
+                final WatchedArchiveResourceManager watched = new WatchedArchiveResourceManager(contentFile,
+                        new WatchedArchiveResourceManager.Loader() {
+
+                            @Override
+                            public IndexedResourceManager load(final File archive) throws IOException {
+
+                                return loadZipResourceManager(archive, cache);
+                            }
+                        });
+                watchedArchives.add(watched);
+                return watched;
+            }
+            return loadZipResourceManager(contentFile, cache);
+        } catch (IOException e) {
+            throw new InkstandRuntimeException("Could not read content from zip file " + contentFile, e);
+        }
+    }
+
+    /**
+     * Reads the zip file in the configured content mode.
+     * @param contentFile
+     *  the zip file containing the content
+     * @param cache
+     *  the cache for the content of the zip entries, may be <code>null</code>
+     * @return
+     *  the resource manager serving the content of the zip file
+     * @throws IOException
+     *  if the zip file could not be read
+     */
+    private IndexedResourceManager loadZipResourceManager(final File contentFile, final ContentCache cache)
+            throws IOException {
+
+        final ContentMode mode = ContentMode.fromName(contentMode);
+        LOG.info("Reading content of {} in mode {}", contentFile, mode);
+        switch (mode) {
+            case MEMORY:
+                try (ZipArchive archive = new ZipFileArchive(contentFile)) {
+                    return new MemoryResourceManager(archive);
+                }
+            case MAPPED:
+                return new ZipFileResourceManager(new MappedZipArchive(contentFile), cache);
+            default:
+                return new ZipFileResourceManager(new ZipFileArchive(contentFile), cache);
+        }
+    }
+
+    /**
+     * Creates the resource manager serving the subtree of the content repository. The sessions to read the content
+     * are opened without credentials.
+     * @param rootPath
+     *  the absolute path of the root node of the content
+     * @param cache
+     *  the cache for the content of small files, may be <code>null</code>
+     * @return
+     *  the resource manager serving the content of the subtree
+     */
+    private ResourceManager createJcrResourceManager(final String rootPath, final ContentCache cache) {
+
+        final long cachedSize = jcrCachedSize == null ? JcrResourceManager.DEFAULT_MAX_CACHED_SIZE : jcrCachedSize;
+        try {
+            return new JcrResourceManager(repository.get(), jcrWorkspace, rootPath, cachedSize, cache);
+        } catch (RepositoryException e) {
+            throw new InkstandRuntimeException("Could not read content from repository path " + rootPath, e);
+        }
+    }
+
+    /**
+     * Computes the fingerprints of the assets of the zip files preceding the first directory or repository root,
+     * using the checksums recorded in the archives. Files of a directory and nodes of the repository are served as
+     * they change, so a fingerprint computed at startup could denote content other than the one served at its alias.
+     * Such a root may also shadow the assets of any following root at any time, so following roots are not
+     * fingerprinted either.
+     * @return
+     *  the fingerprints of the assets
+     */
+    private AssetFingerprints createFingerprints() {
+
+        final List<File> contentRoots = new ArrayList<>();
+        for (File contentRoot : getContentRoots()) {
+            if (!isZipFile(contentRoot)) {
+                LOG.info("Content of {} may change while served, no fingerprints for it and following roots",
+                         contentRoot);
+                break;
+            }
+            contentRoots.add(contentRoot);
+        }
+        try {
+            return AssetFingerprints.fromRoots(contentRoots);
+        } catch (IOException e) {
+            throw new InkstandRuntimeException("Could not compute fingerprints of content " + contentRoots, e);
         }
+    }
+
+    /**
+     * Computes the fingerprints again whenever a watched zip file has been swapped, so that the aliases of replaced
+     * assets are no longer served as immutable content. If the fingerprints could not be computed, no alias is
+     * resolved until the next replacement.
+     * @param handler
+     *  the handler serving the fingerprinted aliases
+     */
+    private void updateOnChange(final FingerprintHandler handler) {
+
+        final ResourceChangeListener listener = new ResourceChangeListener() {
+
+            @Override
+            public void handleChanges(final Collection<ResourceChangeEvent> changes) {
 
+                AssetFingerprints fingerprints;
+                try {
+                    fingerprints = createFingerprints();
+                } catch (InkstandRuntimeException e) {
+                    LOG.error("Could not update fingerprints, serving no fingerprinted aliases", e);
+                    fingerprints = AssetFingerprints.empty();
+                }
+                handler.setFingerprints(fingerprints);
+                LOG.info("Updated fingerprints of {} assets", fingerprints.getManifest().size());
+            }
+        };
+        for (WatchedArchiveResourceManager watched : watchedArchives) {
+            watched.registerResourceChangeListener(listener);
+        }
+    }
+
+    /**
+     * Creates the cache for the content if a cache size is configured. The statistics of the cache are registered
+     * as MBean.
+     * @return
+     *  the content cache or <code>null</code> if no content should be cached
+     */
+    private ContentCache createContentCache() {
+
+        if (cacheSize == null || cacheSize <= 0) {
+            return null;
+        }
+        LOG.info("Caching up to {} bytes of content", cacheSize);
+        final ContentCache cache = new ContentCache(cacheSize);
+        try {
+            final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(CONTENT_CACHE_MBEAN_NAME);
+            if (mbeanServer.isRegistered(name)) {
+                mbeanServer.unregisterMBean(name);
+            }
+            mbeanServer.registerMBean(cache, name);
+        } catch (JMException e) {
+            LOG.warn("Could not register content cache MBean", e);
+        }
+        return cache;
     }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+
+/**
+ * Handler serving assets by their fingerprinted alias. A request for an alias is forwarded to the next handler
+ * with the plain path of the asset and the response is marked as immutable so that browsers never revalidate it.
+ * Further, the handler serves the manifest of all aliases as JSON document at the configured manifest path.
+ * Requests for any other path are passed to the next handler unchanged.
+ * <br>
+ * The fingerprints may be replaced while requests are served, i.e. when a watched archive has been swapped, so that
+ * aliases of replaced content are no longer resolved.
+ */
+public class FingerprintHandler implements HttpHandler {
+
+    /**
+     * Cache control for responses of fingerprinted aliases. The content of an alias never changes, so it can be
+     * cached for a year, the longest freshness lifetime RFC 2616 suggests, without revalidation.
+     */
+    public static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The current fingerprints together with their manifest, replaced as a whole
+     */
+    private final AtomicReference<Fingerprints> current = new AtomicReference<>();
+
+    /**
+     * Path of the manifest, without leading slash
+     */
+    private final String manifestPath;
+
+    private final HttpHandler next;
+
+    /**
+     * Creates a handler for serving fingerprinted aliases
+     * @param fingerprints
+     *  the fingerprints of the assets
+     * @param manifestPath
+     *  the path at which the manifest is served, relative to the context path of the deployment
+     * @param next
+     *  the handler serving the assets by their plain path
+     */
+    public FingerprintHandler(final AssetFingerprints fingerprints, final String manifestPath, final HttpHandler next) {
+
+        this.current.set(new Fingerprints(fingerprints));
+        this.manifestPath = ZipFileIndex.normalize(manifestPath);
+        this.next = next;
+    }
+
+    /**
+     * @return
+     *  the fingerprints of the assets currently served
+     */
+    public AssetFingerprints getFingerprints() {
+
+        return this.current.get().fingerprints;
+    }
+
+    /**
+     * Replaces the fingerprints and the manifest. Requests being served complete with the previous fingerprints.
+     * @param fingerprints
+     *  the fingerprints of the current assets
+     */
+    public void setFingerprints(final AssetFingerprints fingerprints) {
+
+        this.current.set(new Fingerprints(fingerprints));
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+        final Fingerprints state = this.current.get();
+        final ByteBuffer manifest = state.manifest;
+        final String path = ZipFileIndex.normalize(exchange.getRelativePath());
+        if (manifestPath.equals(path) && isReadRequest(exchange)) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json; charset=UTF-8");
+            exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, "no-cache");
+            exchange.setResponseContentLength(manifest.remaining());
+            if (Methods.HEAD.equals(exchange.getRequestMethod())) {
+                exchange.endExchange();
+            } else {
+                exchange.getResponseSender().send(manifest.duplicate());
+            }
+            return;
+        }
+        final String assetPath = state.fingerprints.getPath(path);
+        if (assetPath != null) {
+            exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+            rewrite(exchange, '/' + assetPath);
+        }
+        next.handleRequest(exchange);
+    }
+
+    private static boolean isReadRequest(final HttpServerExchange exchange) {
+
+        return Methods.GET.equals(exchange.getRequestMethod()) || Methods.HEAD.equals(exchange.getRequestMethod());
+    }
+
+    /**
+     * Replaces the relative path of the request, keeping the path the deployment is mapped to.
+     */
+    private static void rewrite(final HttpServerExchange exchange, final String relativePath) {
+
+        String resolvedPath = exchange.getResolvedPath();
+        if (resolvedPath.endsWith("/")) {
+            resolvedPath = resolvedPath.substring(0, resolvedPath.length() - 1);
+        }
+        exchange.setRelativePath(relativePath);
+        exchange.setRequestPath(resolvedPath + relativePath);
+        exchange.setRequestURI(resolvedPath + relativePath);
+    }
+
+    /**
+     * Fingerprints of the assets with the rendered manifest
+     */
+    private static final class Fingerprints {
+
+        final AssetFingerprints fingerprints;
+        final ByteBuffer manifest;
+
+        Fingerprints(final AssetFingerprints fingerprints) {
+
+            this.fingerprints = fingerprints;
+            this.manifest = ByteBuffer.wrap(fingerprints.toJson().getBytes(UTF_8)).asReadOnlyBuffer();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import java.util.Set;
+
+import io.undertow.server.handlers.resource.ResourceManager;
+
+/**
+ * A {@link ResourceManager} that knows all paths of its resources up front because it indexes its content when it
+ * is created.
+ */
+public interface IndexedResourceManager extends ResourceManager {
+
+    /**
+     * @return the paths of all resources of the manager, without leading or trailing slashes
+     */
+    Set<String> getPaths();
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.RangeAwareResource;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.util.DateUtils;
+import io.undertow.util.ETag;
+import io.undertow.util.MimeMappings;
+
+/**
+ * A resource of a file or folder node resolved by a {@link JcrResourceManager}. The metadata of the node is read
+ * when the resource is created, the content of small files is served from the content cache of the manager.
+ * <br>
+ * The entity tag of a small file is a strong tag derived from the CRC-32 checksum and the size of the content. The
+ * content of a streamed file is not known in advance, so its entity tag is a weak tag derived from the modification
+ * date and the size. Files without a modification date have no entity tag at all.
+ */
+class JcrResource implements RangeAwareResource, ReadableResource {
+
+    private static final Logger LOG = getLogger(JcrResource.class);
+
+    /**
+     * The metadata of a file node.
+     */
+    static final class Metadata {
+
+        private final Date lastModified;
+
+        private final String mimeType;
+
+        private final long size;
+
+        /**
+         * The CRC-32 checksum of the content, <code>null</code> if the content is streamed
+         */
+        private final Long checksum;
+
+        Metadata(final Date lastModified, final String mimeType, final long size, final Long checksum) {
+
+            this.lastModified = lastModified;
+            this.mimeType = mimeType;
+            this.size = size;
+            this.checksum = checksum;
+        }
+
+        long getSize() {
+
+            return size;
+        }
+    }
+
+    private final JcrResourceManager resourceManager;
+
+    private final String path;
+
+    private final String name;
+
+    /**
+     * The metadata of the file, <code>null</code> for a folder
+     */
+    private final Metadata metadata;
+
+    private final ETag etag;
+
+    /**
+     * Creates a resource for a node
+     * @param resourceManager
+     *  the manager that resolved the resource
+     * @param path
+     *  the request path of the resource
+     * @param name
+     *  the name of the node
+     * @param metadata
+     *  the metadata of a file node or <code>null</code> for a folder node
+     */
+    JcrResource(final JcrResourceManager resourceManager,
+                final String path,
+                final String name,
+                final Metadata metadata) {
+
+        this.resourceManager = resourceManager;
+        this.path = path;
+        this.name = name;
+        this.metadata = metadata;
+        if (metadata == null || metadata.lastModified == null) {
+            this.etag = null;
+        } else if (metadata.checksum != null) {
+            this.etag = new ETag(false, Long.toHexString(metadata.checksum) + '-' + Long.toHexString(metadata.size));
+        } else {
+            this.etag = new ETag(true,
+                                 Long.toHexString(metadata.lastModified.getTime())
+                                         + '-'
+                                         + Long.toHexString(metadata.size));
+        }
+    }
+
+    @Override
+    public String getPath() {
+
+        return path;
+    }
+
+    @Override
+    public Date getLastModified() {
+
+        return metadata == null ? null : metadata.lastModified;
+    }
+
+    @Override
+    public String getLastModifiedString() {
+
+        final Date lastModified = getLastModified();
+        return lastModified == null ? null : DateUtils.toDateString(lastModified);
+    }
+
+    @Override
+    public ETag getETag() {
+
+        return etag;
+    }
+
+    @Override
+    public String getName() {
+
+        return name;
+    }
+
+    @Override
+    public boolean isDirectory() {
+
+        return metadata == null;
+    }
+
+    @Override
+    public List<Resource> list() {
+
+        if (!isDirectory()) {
+            return Collections.emptyList();
+        }
+        return resourceManager.list(path);
+    }
+
+    @Override
+    public String getContentType(final MimeMappings mimeMappings) {
+
+        if (metadata != null && metadata.mimeType != null) {
+            return metadata.mimeType;
+        }
+        final int separator = name.lastIndexOf('.');
+        return separator < 0 ? null : mimeMappings.getMimeType(name.substring(separator + 1));
+    }
+
+    @Override
+    public void serve(final Sender sender, final HttpServerExchange exchange, final IoCallback completionCallback) {
+
+        serveRange(sender, exchange, 0, Long.MAX_VALUE, completionCallback);
+    }
+
+    @Override
+    public boolean isRangeSupported() {
+
+        return metadata != null;
+    }
+
+    @Override
+    public void serveRange(final Sender sender,
+                           final HttpServerExchange exchange,
+                           final long start,
+                           final long end,
+                           final IoCallback completionCallback) {
+
+        final long[] range = ContentResponses.resolveRange(start, end, metadata.size);
+        final long first = range[0];
+        final long length = range[1];
+
+        final ByteBuffer cached = resourceManager.getCachedContent(this);
+        if (cached != null) {
+            send(sender, completionCallback, cached, first, length);
+            return;
+        }
+        if (exchange.isInIoThread()) {
+            //reading from the repository blocks, so the content is read from a worker thread
+            exchange.dispatch(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    load(sender, exchange, completionCallback, first, length);
+                }
+            });
+            return;
+        }
+        load(sender, exchange, completionCallback, first, length);
+    }
+
+    /**
+     * Reads the content from the repository, small files are put into the content cache, larger files are streamed.
+     */
+    private void load(final Sender sender,
+                      final HttpServerExchange exchange,
+                      final IoCallback completionCallback,
+                      final long first,
+                      final long length) {
+
+        if (!resourceManager.isCacheable(this)) {
+            stream(sender, exchange, completionCallback, first, length);
+            return;
+        }
+        final ByteBuffer content;
+        try {
+            content = resourceManager.loadContent(this);
+        } catch (IOException e) {
+            LOG.error("Could not serve content node", e);
+            completionCallback.onException(exchange, sender, e);
+            return;
+        }
+        send(sender, completionCallback, content, first, length);
+    }
+
+    private static void send(final Sender sender,
+                             final IoCallback completionCallback,
+                             final ByteBuffer content,
+                             final long first,
+                             final long length) {
+
+        content.position((int) first).limit((int) (first + length));
+        sender.send(content, completionCallback);
+    }
+
+    private void stream(final Sender sender,
+                        final HttpServerExchange exchange,
+                        final IoCallback completionCallback,
+                        final long first,
+                        final long length) {
+
+        if (!exchange.isBlocking()) {
+            exchange.startBlocking();
+        }
+        final OutputStream outStream = exchange.getOutputStream();
+        try (InputStream inStream = resourceManager.openStream(path)) {
+
+            IOUtils.copyLarge(inStream, outStream, first, length);
+            completionCallback.onComplete(exchange, sender);
+
+        } catch (IOException e) {
+            LOG.error("Could not serve content node", e);
+            completionCallback.onException(exchange, sender, e);
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+
+        final ByteBuffer cached = resourceManager.getCachedContent(this);
+        if (cached != null) {
+            return new ByteBufferInputStream(cached);
+        }
+        return resourceManager.openStream(path);
+    }
+
+    @Override
+    public Long getContentLength() {
+
+        return metadata == null ? null : metadata.size;
+    }
+
+    @Override
+    public String getCacheKey() {
+
+        return etag == null ? null : "jcr:" + path + ':' + etag.getTag();
+    }
+
+    @Override
+    public File getFile() {
+
+        return null;
+    }
+
+    @Override
+    public File getResourceManagerRoot() {
+
+        return null;
+    }
+
+    @Override
+    public URL getUrl() {
+
+        return null;
+    }
+}
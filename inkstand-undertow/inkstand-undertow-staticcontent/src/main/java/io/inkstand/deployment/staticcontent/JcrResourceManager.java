@@ -0,0 +1,606 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+import javax.jcr.observation.ObservationManager;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceChangeListener;
+import io.undertow.server.handlers.resource.ResourceManager;
+
+/**
+ * A {@link ResourceManager} that serves the {@code nt:file} nodes of a subtree of a JCR workspace. Request paths are
+ * resolved relative to the root node of the subtree, {@code nt:folder} nodes are served as directories.
+ * <br>
+ * The metadata of each resolved resource is cached so that subsequent requests for the same path do not access the
+ * repository, paths without a file or folder node are remembered as well. The content of files not larger than the
+ * configured size is kept in a size-bounded {@link ContentCache}, larger files are streamed from the repository.
+ * Cached resources are invalidated by observing the subtree, so changes in the repository are served with the next
+ * request.
+ * <br>
+ * The content is read using a pool of sessions, so concurrent requests do not wait for each other. The sessions are
+ * logged in without credentials and are logged out when the manager is closed.
+ */
+public class JcrResourceManager implements ResourceManager {
+
+    private static final Logger LOG = getLogger(JcrResourceManager.class);
+
+    /**
+     * The default maximum size in bytes of a file whose content is cached
+     */
+    public static final long DEFAULT_MAX_CACHED_SIZE = 65_536L;
+
+    /**
+     * The maximum number of paths remembered as missing, the least recently requested path is forgotten first
+     */
+    static final int MAX_MISSING_PATHS = 10_000;
+
+    /**
+     * The maximum number of idle sessions kept for reading, further sessions are logged out when released
+     */
+    static final int MAX_IDLE_SESSIONS = 32;
+
+    private static final int EVENT_TYPES = Event.NODE_ADDED
+            | Event.NODE_REMOVED
+            | Event.NODE_MOVED
+            | Event.PROPERTY_ADDED
+            | Event.PROPERTY_CHANGED
+            | Event.PROPERTY_REMOVED;
+
+    private final Repository repository;
+
+    private final String workspace;
+
+    /**
+     * The session observing the subtree, it is not used for reading
+     */
+    private final Session observationSession;
+
+    /**
+     * The sessions not currently reading from the repository
+     */
+    private final BlockingQueue<Session> idleSessions = new ArrayBlockingQueue<>(MAX_IDLE_SESSIONS);
+
+    private volatile boolean closed;
+
+    /**
+     * The absolute path of the root node of the served subtree, without trailing slash
+     */
+    private final String rootPath;
+
+    private final long maxCachedSize;
+
+    /**
+     * The cache for the content of small files, may be <code>null</code>
+     */
+    private final ContentCache contentCache;
+
+    /**
+     * The normalized request path to the resolved resource
+     */
+    private final ConcurrentMap<String, JcrResource> cache = new ConcurrentHashMap<>();
+
+    /**
+     * The normalized request paths without file or folder node, in order of access
+     */
+    private final Map<String, Boolean> missing = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(64,
+                                                                                                              0.75f,
+                                                                                                              true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+
+            return size() > MAX_MISSING_PATHS;
+        }
+    });
+
+    /**
+     * Counter of processed invalidations. A resource loaded while an invalidation is processed is not cached as it
+     * may reflect the state before the change.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final EventListener invalidator = new EventListener() {
+
+        @Override
+        public void onEvent(final EventIterator events) {
+
+            invalidate(events);
+        }
+    };
+
+    /**
+     * Creates the manager for serving the subtree without caching the content of files.
+     * @param repository
+     *  the repository containing the content
+     * @param workspace
+     *  the name of the workspace containing the content or <code>null</code> for the default workspace
+     * @param rootPath
+     *  the absolute path of the root node of the content
+     * @throws RepositoryException
+     *  if no session could be opened or the subtree could not be observed
+     */
+    public JcrResourceManager(final Repository repository, final String workspace, final String rootPath)
+            throws RepositoryException {
+
+        this(repository, workspace, rootPath, DEFAULT_MAX_CACHED_SIZE, null);
+    }
+
+    /**
+     * Creates the manager for serving the subtree.
+     * @param repository
+     *  the repository containing the content
+     * @param workspace
+     *  the name of the workspace containing the content or <code>null</code> for the default workspace
+     * @param rootPath
+     *  the absolute path of the root node of the content
+     * @param maxCachedSize
+     *  the maximum size in bytes of a file whose content is cached, 0 to cache no content. Files up to that size
+     *  are served with a strong entity tag derived from their content.
+     * @param contentCache
+     *  the cache for the content of the files, <code>null</code> to cache no content
+     * @throws RepositoryException
+     *  if no session could be opened or the subtree could not be observed
+     */
+    public JcrResourceManager(final Repository repository,
+                              final String workspace,
+                              final String rootPath,
+                              final long maxCachedSize,
+                              final ContentCache contentCache) throws RepositoryException {
+
+        this.repository = repository;
+        this.workspace = workspace;
+        this.rootPath = "/".equals(rootPath) ? "" : rootPath.replaceAll("/+$", "");
+        this.maxCachedSize = maxCachedSize;
+        this.contentCache = contentCache;
+        this.observationSession = repository.login(workspace);
+        getObservationManager().addEventListener(invalidator,
+                                                 EVENT_TYPES,
+                                                 this.rootPath.isEmpty() ? "/" : this.rootPath,
+                                                 true,
+                                                 null,
+                                                 null,
+                                                 false);
+        LOG.info("Serving content of {} in workspace {}", rootPath, observationSession.getWorkspace().getName());
+    }
+
+    private ObservationManager getObservationManager() throws RepositoryException {
+
+        return observationSession.getWorkspace().getObservationManager();
+    }
+
+    /**
+     * Provides a session for reading from the repository, it has to be released after use.
+     */
+    private Session borrowSession() throws RepositoryException {
+
+        final Session session = idleSessions.poll();
+        return session == null ? repository.login(workspace) : session;
+    }
+
+    /**
+     * Releases a session obtained from {@link #borrowSession()}
+     */
+    private void releaseSession(final Session session) {
+
+        if (closed || !idleSessions.offer(session)) {
+            session.logout();
+        }
+    }
+
+    @Override
+    public Resource getResource(final String path) throws IOException {
+
+        final String normalized = ZipFileIndex.normalize(path);
+        final JcrResource cached = cache.get(normalized);
+        if (cached != null || missing.containsKey(normalized)) {
+            return cached;
+        }
+        final long invalidationCount = invalidations.get();
+        final JcrResource resource;
+        try {
+            resource = load(normalized);
+        } catch (RepositoryException e) {
+            throw new IOException("Could not read " + path + " from repository", e);
+        }
+        if (invalidationCount == invalidations.get()) {
+            if (resource == null) {
+                missing.put(normalized, Boolean.TRUE);
+            } else {
+                cache.putIfAbsent(normalized, resource);
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Reads the resource of the node at the path from the repository. The content of small files is read to compute
+     * its checksum and put into the content cache.
+     * @param path
+     *  the normalized path relative to the root of the content
+     * @return
+     *  the resource or <code>null</code> if there is no file or folder node at the path
+     * @throws RepositoryException
+     *  if the node could not be read
+     * @throws IOException
+     *  if the content of the file could not be read
+     */
+    private JcrResource load(final String path) throws RepositoryException, IOException {
+
+        final String absPath = toAbsolutePath(path);
+        final Session session = borrowSession();
+        try {
+            if (!session.nodeExists(absPath)) {
+                return null;
+            }
+            final Node node = session.getNode(absPath);
+            if (path.isEmpty() || node.isNodeType("nt:folder")) {
+                return new JcrResource(this, '/' + path, node.getName(), null);
+            }
+            if (!node.isNodeType("nt:file")) {
+                return null;
+            }
+            final Node content = node.getNode("jcr:content");
+            final Binary data = content.getProperty("jcr:data").getBinary();
+            try {
+                final long size = data.getSize();
+                final byte[] body = size <= maxCachedSize ? readBody(data) : null;
+                final JcrResource.Metadata metadata = new JcrResource.Metadata(getLastModified(content),
+                                                                               getString(content, "jcr:mimeType"),
+                                                                               size,
+                                                                               body == null ? null : checksum(body));
+                final JcrResource resource = new JcrResource(this, '/' + path, node.getName(), metadata);
+                if (body != null && isCacheable(resource)) {
+                    contentCache.put(resource.getCacheKey(), ByteBuffer.wrap(body));
+                }
+                return resource;
+            } finally {
+                data.dispose();
+            }
+        } finally {
+            releaseSession(session);
+        }
+    }
+
+    private static Date getLastModified(final Node content) throws RepositoryException {
+
+        if (content.hasProperty("jcr:lastModified")) {
+            return content.getProperty("jcr:lastModified").getDate().getTime();
+        }
+        return null;
+    }
+
+    private static String getString(final Node node, final String name) throws RepositoryException {
+
+        if (node.hasProperty(name)) {
+            return node.getProperty(name).getString();
+        }
+        return null;
+    }
+
+    /**
+     * Reads the content of the binary
+     */
+    private static byte[] readBody(final Binary data) throws RepositoryException, IOException {
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream((int) data.getSize());
+        try (InputStream inStream = data.getStream()) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inStream.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return body.toByteArray();
+    }
+
+    private static long checksum(final byte[] content) {
+
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    /**
+     * Determines whether the content of the resource is kept in the content cache
+     */
+    boolean isCacheable(final JcrResource resource) {
+
+        return contentCache != null
+                && resource.getCacheKey() != null
+                && resource.getContentLength() <= maxCachedSize
+                && contentCache.isCacheable(resource.getContentLength());
+    }
+
+    /**
+     * Provides the cached content of a resource without accessing the repository
+     * @param resource
+     *  the resource whose content is requested
+     * @return
+     *  a new read-only buffer on the content or <code>null</code> if the content is not cached
+     */
+    ByteBuffer getCachedContent(final JcrResource resource) {
+
+        return isCacheable(resource) ? contentCache.get(resource.getCacheKey()) : null;
+    }
+
+    /**
+     * Reads the content of a resource from the repository and puts it into the content cache
+     * @param resource
+     *  a resource whose content is {@link #isCacheable(JcrResource) cacheable}
+     * @return
+     *  a new read-only buffer on the content
+     * @throws IOException
+     *  if the file does not exist anymore or could not be read
+     */
+    ByteBuffer loadContent(final JcrResource resource) throws IOException {
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream(resource.getContentLength().intValue());
+        try (InputStream inStream = openStream(resource.getPath())) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inStream.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return contentCache.put(resource.getCacheKey(), ByteBuffer.wrap(body.toByteArray()));
+    }
+
+    /**
+     * Opens a stream on the content of a file. The session and the binary the stream is read from are released
+     * when the stream is closed.
+     * @param path
+     *  the request path of the file
+     * @return
+     *  the stream of the content
+     * @throws IOException
+     *  if the file does not exist anymore or could not be read
+     */
+    InputStream openStream(final String path) throws IOException {
+
+        final String absPath = toAbsolutePath(ZipFileIndex.normalize(path)) + "/jcr:content/jcr:data";
+        try {
+            final Session session = borrowSession();
+            Binary data = null;
+            try {
+                data = session.getProperty(absPath).getBinary();
+                return new BinaryInputStream(data, session);
+            } catch (RepositoryException | RuntimeException e) {
+                if (data != null) {
+                    data.dispose();
+                }
+                releaseSession(session);
+                throw e;
+            }
+        } catch (RepositoryException e) {
+            throw new IOException("Could not read " + path + " from repository", e);
+        }
+    }
+
+    /**
+     * Lists the file and folder nodes of a folder
+     * @param path
+     *  the request path of the folder
+     * @return
+     *  the resources of the child nodes
+     */
+    List<Resource> list(final String path) {
+
+        final String normalized = ZipFileIndex.normalize(path);
+        final List<String> names = new ArrayList<>();
+        try {
+            final Session session = borrowSession();
+            try {
+                final NodeIterator children = session.getNode(toAbsolutePath(normalized)).getNodes();
+                while (children.hasNext()) {
+                    names.add(children.nextNode().getName());
+                }
+            } finally {
+                releaseSession(session);
+            }
+        } catch (RepositoryException e) {
+            LOG.error("Could not list children of {}", path, e);
+        }
+        final List<Resource> result = new ArrayList<>(names.size());
+        for (String name : names) {
+            try {
+                final Resource child = getResource(normalized.isEmpty() ? name : normalized + '/' + name);
+                if (child != null) {
+                    result.add(child);
+                }
+            } catch (IOException e) {
+                LOG.error("Could not read child {} of {}", name, path, e);
+            }
+        }
+        return result;
+    }
+
+    private String toAbsolutePath(final String path) {
+
+        if (path.isEmpty()) {
+            return rootPath.isEmpty() ? "/" : rootPath;
+        }
+        return rootPath + '/' + path;
+    }
+
+    /**
+     * Removes the cached resources affected by the events. An event affects the resource at its path, all resources
+     * below that path and all ancestors up to the root of the content as the file node of a changed
+     * {@code jcr:content} property and the listings of the parent folders are invalidated as well. Paths remembered
+     * as missing are forgotten likewise, so that added nodes are served.
+     */
+    void invalidate(final EventIterator events) {
+
+        invalidations.incrementAndGet();
+        while (events.hasNext()) {
+            final Event event = events.nextEvent();
+            try {
+                invalidate(event.getPath());
+            } catch (RepositoryException e) {
+                LOG.warn("Could not determine path of event, invalidating all resources", e);
+                cache.clear();
+                missing.clear();
+            }
+        }
+        invalidations.incrementAndGet();
+    }
+
+    private void invalidate(final String absPath) {
+
+        if (!absPath.equals(rootPath) && !absPath.startsWith(rootPath + '/')) {
+            return;
+        }
+        String path = ZipFileIndex.normalize(absPath.substring(rootPath.length()));
+        final String prefix = path + '/';
+        for (String key : cache.keySet()) {
+            if (key.startsWith(prefix)) {
+                cache.remove(key);
+            }
+        }
+        synchronized (missing) {
+            final Iterator<String> missingPaths = missing.keySet().iterator();
+            while (missingPaths.hasNext()) {
+                if (missingPaths.next().startsWith(prefix)) {
+                    missingPaths.remove();
+                }
+            }
+        }
+        while (path != null) {
+            cache.remove(path);
+            missing.remove(path);
+            path = path.isEmpty() ? null : ZipFileIndex.getParent(path);
+        }
+        LOG.debug("Invalidated {}", absPath);
+    }
+
+    /**
+     * @return the number of cached resources
+     */
+    public int size() {
+
+        return cache.size();
+    }
+
+    @Override
+    public boolean isResourceChangeListenerSupported() {
+
+        return false;
+    }
+
+    @Override
+    public void registerResourceChangeListener(final ResourceChangeListener listener) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeResourceChangeListener(final ResourceChangeListener listener) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops observing the repository and logs out all sessions.
+     * @throws IOException
+     *  if the observation could not be stopped
+     */
+    @Override
+    public void close() throws IOException {
+
+        closed = true;
+        cache.clear();
+        missing.clear();
+        try {
+            getObservationManager().removeEventListener(invalidator);
+        } catch (RepositoryException e) {
+            throw new IOException("Could not remove observation listener", e);
+        } finally {
+            observationSession.logout();
+            Session session;
+            while ((session = idleSessions.poll()) != null) {
+                session.logout();
+            }
+        }
+    }
+
+    /**
+     * Stream on the content of a binary that disposes the binary and releases the session it was read with when
+     * closed.
+     */
+    private final class BinaryInputStream extends FilterInputStream {
+
+        private final Binary data;
+
+        private final Session session;
+
+        private boolean released;
+
+        BinaryInputStream(final Binary data, final Session session) throws RepositoryException {
+
+            super(data.getStream());
+            this.data = data;
+            this.session = session;
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            try {
+                super.close();
+            } finally {
+                if (!released) {
+                    released = true;
+                    data.dispose();
+                    releaseSession(session);
+                }
+            }
+        }
+    }
+}
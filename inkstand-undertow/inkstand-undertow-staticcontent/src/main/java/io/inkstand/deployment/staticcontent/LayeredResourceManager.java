@@ -0,0 +1,228 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+
+import io.undertow.server.handlers.resource.FileResourceManager;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceChangeEvent;
+import io.undertow.server.handlers.resource.ResourceChangeListener;
+import io.undertow.server.handlers.resource.ResourceManager;
+
+/**
+ * A {@link ResourceManager} that serves the content of several content roots as if it was a single root. The roots
+ * are layered in the order they are specified, if a path exists in several layers, the resource of the first layer
+ * is served. The paths of all layers are merged into one lookup table when the manager is created, so a resource is
+ * resolved by a single lookup regardless of the number of layers.
+ * <br>
+ * A directory that exists in several layers is provided by the first layer only, so its listing does not contain the
+ * resources of the other layers. The lookup table is rebuilt when a layer that supports change listeners reports
+ * changed resources, i.e. a {@link WatchedArchiveResourceManager}. As directory layers are not watched, files added
+ * to a directory layer after startup are not served.
+ */
+public class LayeredResourceManager implements ResourceManager {
+
+    private static final Logger LOG = getLogger(LayeredResourceManager.class);
+
+    private final List<ResourceManager> layers;
+
+    /**
+     * The normalized path of a resource to the layer providing the resource
+     */
+    private volatile Map<String, ResourceManager> lookup;
+
+    /**
+     * Creates the manager for the given layers and builds the lookup table of all paths
+     * @param layers
+     *  the resource managers of the layers, in order of precedence. Each layer has to be either an
+     *  {@link IndexedResourceManager} or a {@link FileResourceManager} whose directory is scanned for its files.
+     * @throws IOException
+     *  if the directory of a layer could not be scanned
+     */
+    public LayeredResourceManager(final List<ResourceManager> layers) throws IOException {
+
+        this.layers = Collections.unmodifiableList(new ArrayList<>(layers));
+        this.lookup = buildLookup(this.layers);
+        final ResourceChangeListener rebuild = new ResourceChangeListener() {
+
+            @Override
+            public void handleChanges(final Collection<ResourceChangeEvent> changes) {
+
+                rebuildLookup();
+            }
+        };
+        for (ResourceManager layer : this.layers) {
+            if (layer.isResourceChangeListenerSupported()) {
+                layer.registerResourceChangeListener(rebuild);
+            }
+        }
+    }
+
+    private static Map<String, ResourceManager> buildLookup(final List<ResourceManager> layers) throws IOException {
+
+        final Map<String, ResourceManager> paths = new HashMap<>();
+        for (ResourceManager layer : layers) {
+            int count = 0;
+            for (String path : getPaths(layer)) {
+                if (!paths.containsKey(path)) {
+                    paths.put(path, layer);
+                    count++;
+                }
+            }
+            LOG.debug("{} paths resolved by layer {}", count, layer);
+        }
+        LOG.info("Merged {} paths of {} layers", paths.size(), layers.size());
+        return paths;
+    }
+
+    /**
+     * Rebuilds the lookup table after the content of a layer has changed. If the table could not be rebuilt, the
+     * previous table remains in use.
+     */
+    synchronized void rebuildLookup() {
+
+        try {
+            this.lookup = buildLookup(this.layers);
+        } catch (IOException e) {
+            LOG.error("Could not rebuild the lookup of the content layers", e);
+        }
+    }
+
+    private static Set<String> getPaths(final ResourceManager layer) throws IOException {
+
+        if (layer instanceof IndexedResourceManager) {
+            return ((IndexedResourceManager) layer).getPaths();
+        }
+        if (layer instanceof FileResourceManager) {
+            return scanDirectory(((FileResourceManager) layer).getBase());
+        }
+        throw new IllegalArgumentException("Resource manager " + layer + " can not be indexed");
+    }
+
+    /**
+     * Collects the paths of all files and directories of the directory, including the directory itself.
+     */
+    private static Set<String> scanDirectory(final File directory) throws IOException {
+
+        final Path root = directory.toPath();
+        final Set<String> paths = new HashSet<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
+                    throws IOException {
+
+                paths.add(toPath(root, dir));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+
+                paths.add(toPath(root, file));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return paths;
+    }
+
+    private static String toPath(final Path root, final Path file) {
+
+        return root.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * @return the number of paths of all layers
+     */
+    public int size() {
+
+        return lookup.size();
+    }
+
+    @Override
+    public Resource getResource(final String path) throws IOException {
+
+        final ResourceManager layer = lookup.get(ZipFileIndex.normalize(path));
+        if (layer == null) {
+            return null;
+        }
+        return layer.getResource(path);
+    }
+
+    @Override
+    public boolean isResourceChangeListenerSupported() {
+
+        return false;
+    }
+
+    @Override
+    public void registerResourceChangeListener(final ResourceChangeListener listener) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeResourceChangeListener(final ResourceChangeListener listener) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Closes all layers. If a layer could not be closed, the remaining layers are closed nevertheless and the first
+     * exception is thrown.
+     * @throws IOException
+     *  if a layer could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+
+        IOException failure = null;
+        for (ResourceManager layer : layers) {
+            try {
+                layer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * A {@link ZipArchive} that maps the entire archive file into memory. The central directory is parsed once when the
+ * archive is opened and the content of each entry is read from its own view of the mapped buffer, so concurrent
+ * requests do not contend on a lock as they do with {@link java.util.zip.ZipFile}.
+ * <br>
+ * The archive must not be larger than 2 GB. The mapping is released by the garbage collector once the archive and
+ * all streams of its entries are no longer referenced.
+ */
+public class MappedZipArchive implements ZipArchive {
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    /**
+     * The read-only mapping of the entire archive. The position and limit of this buffer are never modified, each
+     * access uses a duplicate of it.
+     */
+    private final ByteBuffer data;
+
+    private final List<ZipEntry> entries;
+
+    /**
+     * Name of the entry to the offset of the entry's data within the archive.
+     */
+    private final Map<String, Long> dataOffsets;
+
+    /**
+     * Opens and maps the archive file.
+     * @param file
+     *  the zip file
+     * @throws IOException
+     *  if the file could not be mapped or is no valid zip file
+     */
+    public MappedZipArchive(final File file) throws IOException {
+
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            final long size = this.channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archive " + file + " is too large to be mapped");
+            }
+            this.data = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final Map<String, Long> offsets = new HashMap<>();
+            this.entries = Collections.unmodifiableList(ZipCentralDirectory.readEntries(this.channel, offsets));
+            this.dataOffsets = offsets;
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String getName() {
+
+        return file.getPath();
+    }
+
+    @Override
+    public List<ZipEntry> getEntries() {
+
+        return entries;
+    }
+
+    @Override
+    public InputStream getInputStream(final ZipEntry entry) throws IOException {
+
+        final Long offset = this.dataOffsets.get(entry.getName());
+        if (offset == null) {
+            throw new ZipException("No data for entry " + entry.getName());
+        }
+        final ByteBuffer entryData = this.data.duplicate();
+        entryData.position(offset.intValue()).limit(offset.intValue() + (int) entry.getCompressedSize());
+
+        switch (entry.getMethod()) {
+            case ZipEntry.STORED:
+                return new ByteBufferInputStream(entryData.slice());
+            case ZipEntry.DEFLATED:
+                return new EntryInflaterInputStream(new ByteBufferInputStream(entryData.slice()));
+            default:
+                throw new ZipException("Unsupported compression method " + entry.getMethod());
+        }
+    }
+
+    @Override
+    public FileChannel getRawDataChannel(final ZipEntry entry, final long start, final long length) {
+
+        final Long offset = this.dataOffsets.get(entry.getName());
+        if (offset == null) {
+            return null;
+        }
+        return new ZipEntryChannel(this.channel, offset + start, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        this.channel.close();
+    }
+
+    /**
+     * Stream inflating the raw deflate data of an entry. Like the streams of {@link java.util.zip.ZipFile}, it
+     * provides an additional dummy byte at the end of the input as required by the inflater in nowrap mode and
+     * releases the inflater when closed.
+     */
+    private static final class EntryInflaterInputStream extends InflaterInputStream {
+
+        private boolean endOfInput;
+
+        EntryInflaterInputStream(final InputStream in) {
+
+            super(in, new Inflater(true), 8192);
+        }
+
+        @Override
+        protected void fill() throws IOException {
+
+            if (endOfInput) {
+                throw new EOFException("Unexpected end of zip entry");
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len == -1) {
+                buf[0] = 0;
+                len = 1;
+                endOfInput = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            try {
+                super.close();
+            } finally {
+                inf.end();
+            }
+        }
+    }
+}
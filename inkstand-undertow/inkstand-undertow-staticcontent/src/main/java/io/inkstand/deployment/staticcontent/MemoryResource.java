@@ -0,0 +1,276 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.RangeAwareResource;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.util.ETag;
+import io.undertow.util.ETagUtils;
+import io.undertow.util.Headers;
+import io.undertow.util.MimeMappings;
+
+/**
+ * A resource of the {@link MemoryResourceManager} whose content is a section of the shared memory arena. All
+ * properties of the resource are computed when the resource is created, so serving the resource only requires to
+ * send a view of the arena.
+ */
+class MemoryResource implements RangeAwareResource, ReadableResource {
+
+    private final String name;
+
+    private final String path;
+
+    private final boolean directory;
+
+    private final long lastModified;
+
+    private final String lastModifiedString;
+
+    /**
+     * The extension of the resource name used to look up the content type
+     */
+    private final String extension;
+
+    /**
+     * The content type of the resource according to the default mime mappings
+     */
+    private final String contentType;
+
+    /**
+     * The arena containing the content of all resources. The position and limit of the arena are never modified,
+     * each access uses a duplicate of it.
+     */
+    private final ByteBuffer arena;
+
+    private final int offset;
+
+    private final int length;
+
+    private final Long contentLength;
+
+    private final ETag etag;
+
+    /**
+     * The offset of the gzip compressed content or -1 if the resource has no compressed variant
+     */
+    private final int gzipOffset;
+
+    private final int gzipLength;
+
+    private final ETag gzipETag;
+
+    private List<Resource> children = Collections.emptyList();
+
+    /**
+     * Creates a directory resource
+     * @param entry
+     *  the zip entry of the directory
+     * @param arena
+     *  the arena of the resource manager
+     */
+    MemoryResource(final ZipEntry entry, final ByteBuffer arena) {
+
+        this(entry, arena, new long[] { 0, 0, -1, -1, -1 });
+    }
+
+    /**
+     * Creates a resource whose content is located in the arena
+     * @param entry
+     *  the zip entry of the resource
+     * @param arena
+     *  the arena of the resource manager
+     * @param section
+     *  offset and length of the content, checksum of the content and offset and length of the compressed content
+     */
+    MemoryResource(final ZipEntry entry, final ByteBuffer arena, final long[] section) {
+
+        this.name = entry.getName();
+        this.path = ZipFileIndex.normalize(entry.getName());
+        this.directory = entry.isDirectory();
+        this.lastModified = entry.getTime();
+        this.lastModifiedString = ZipFileResource.DATE_FORMAT.format(new Date(lastModified));
+        this.extension = name.substring(name.lastIndexOf('.') + 1);
+        this.contentType = MimeMappings.DEFAULT.getMimeType(extension);
+        this.arena = arena;
+        this.offset = (int) section[0];
+        this.length = (int) section[1];
+        this.contentLength = (long) length;
+        this.gzipOffset = (int) section[3];
+        this.gzipLength = (int) section[4];
+        if (directory) {
+            this.etag = null;
+            this.gzipETag = null;
+        } else {
+            final String tag = Long.toHexString(section[2]) + '-' + Long.toHexString(length);
+            this.etag = new ETag(false, tag);
+            this.gzipETag = new ETag(false, tag + '-' + AcceptEncoding.GZIP);
+        }
+    }
+
+    void setChildren(final List<Resource> children) {
+
+        this.children = children;
+    }
+
+    @Override
+    public void serve(final Sender sender, final HttpServerExchange exchange, final IoCallback completionCallback) {
+
+        if (gzipOffset >= 0 && !exchange.getResponseHeaders().contains(Headers.CONTENT_ENCODING)) {
+            //the response depends on the accepted encodings of the client
+            exchange.getResponseHeaders().add(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+            if (AcceptEncoding.select(exchange, AcceptEncoding.GZIP) != null) {
+                if (!ETagUtils.handleIfNoneMatch(exchange, gzipETag, false)) {
+                    ContentResponses.serveNotModified(exchange, sender, completionCallback);
+                    return;
+                }
+                exchange.getResponseHeaders().put(Headers.ETAG, gzipETag.toString());
+                exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, AcceptEncoding.GZIP);
+                ContentResponses.setContentLength(exchange, gzipLength);
+                sender.send(section(gzipOffset, gzipLength), completionCallback);
+                return;
+            }
+        }
+        sender.send(section(offset, length), completionCallback);
+    }
+
+    @Override
+    public boolean isRangeSupported() {
+
+        return !directory;
+    }
+
+    @Override
+    public void serveRange(final Sender sender,
+                           final HttpServerExchange exchange,
+                           final long start,
+                           final long end,
+                           final IoCallback completionCallback) {
+
+        final long[] range = ContentResponses.resolveRange(start, end, length);
+        sender.send(section(offset + (int) range[0], (int) range[1]), completionCallback);
+    }
+
+    /**
+     * Provides a view of a section of the arena.
+     */
+    private ByteBuffer section(final int sectionOffset, final int sectionLength) {
+
+        final ByteBuffer section = arena.duplicate();
+        section.position(sectionOffset).limit(sectionOffset + sectionLength);
+        return section;
+    }
+
+    @Override
+    public String getPath() {
+
+        return path;
+    }
+
+    @Override
+    public Date getLastModified() {
+
+        return new Date(lastModified);
+    }
+
+    @Override
+    public String getLastModifiedString() {
+
+        return lastModifiedString;
+    }
+
+    @Override
+    public ETag getETag() {
+
+        return etag;
+    }
+
+    @Override
+    public String getName() {
+
+        return name;
+    }
+
+    @Override
+    public boolean isDirectory() {
+
+        return directory;
+    }
+
+    @Override
+    public List<Resource> list() {
+
+        return children;
+    }
+
+    @Override
+    public String getContentType(final MimeMappings mimeMappings) {
+
+        if (mimeMappings == MimeMappings.DEFAULT) {
+            return contentType;
+        }
+        return mimeMappings.getMimeType(extension);
+    }
+
+    @Override
+    public Long getContentLength() {
+
+        return contentLength;
+    }
+
+    @Override
+    public String getCacheKey() {
+
+        return etag == null ? name : name + '#' + etag.getTag();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+
+        return new ByteBufferInputStream(section(offset, length));
+    }
+
+    @Override
+    public File getFile() {
+
+        return null;
+    }
+
+    @Override
+    public File getResourceManagerRoot() {
+
+        return null;
+    }
+
+    @Override
+    public URL getUrl() {
+
+        return null;
+    }
+}
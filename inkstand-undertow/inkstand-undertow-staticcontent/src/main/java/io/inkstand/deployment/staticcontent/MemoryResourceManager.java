@@ -0,0 +1,216 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceChangeListener;
+import io.undertow.server.handlers.resource.ResourceManager;
+
+/**
+ * An Undertow {@link ResourceManager} that serves the content of a zip archive entirely from memory. The content of
+ * all entries is loaded once when the manager is created into a single off-heap byte arena, together with a gzip
+ * compressed variant of each entry that benefits from compression. The resources with their content type, entity
+ * tags and the offsets of their content in the arena are computed up front as well, so that requests are served
+ * without any file access and without preparing the response content.
+ * <br>
+ * The mode is intended for small bundles of static content such as single page applications. The total size of the
+ * content and its compressed variants must not exceed 2 GB.
+ */
+public class MemoryResourceManager implements IndexedResourceManager {
+
+    private static final Logger LOG = getLogger(MemoryResourceManager.class);
+
+    /**
+     * Normalized path of an entry to the resource of that entry
+     */
+    private final Map<String, MemoryResource> resources;
+
+    /**
+     * The number of bytes of the arena
+     */
+    private final int arenaSize;
+
+    /**
+     * Loads the content of the archive into memory. The archive is not used after the manager has been created and
+     * may be closed by the caller.
+     * @param archive
+     *  the archive containing the content
+     * @throws IOException
+     *  if the content of the archive could not be read or is too large to be loaded into memory
+     */
+    public MemoryResourceManager(final ZipArchive archive) throws IOException {
+
+        final ZipFileIndex index = new ZipFileIndex(archive);
+        final ByteArrayOutputStream arenaContent = new ByteArrayOutputStream();
+        final Map<String, ZipEntry> entries = new HashMap<>();
+        final Map<String, long[]> sections = new HashMap<>();
+
+        for (ZipEntry entry : archive.getEntries()) {
+            final String path = ZipFileIndex.normalize(entry.getName());
+            //entries shadowed by an entry of the same normalized path are not loaded
+            if (!entry.getName().equals(index.getEntry(path).getName())) {
+                continue;
+            }
+            entries.put(path, entry);
+            if (!entry.isDirectory()) {
+                sections.put(path, load(archive, entry, arenaContent));
+            }
+        }
+
+        final ByteBuffer arena = ByteBuffer.allocateDirect(arenaContent.size());
+        arena.put(arenaContent.toByteArray()).flip();
+        this.arenaSize = arena.capacity();
+        final ByteBuffer readOnlyArena = arena.asReadOnlyBuffer();
+
+        final Map<String, MemoryResource> resourceMap = new HashMap<>();
+        for (Map.Entry<String, ZipEntry> entry : entries.entrySet()) {
+            final long[] section = sections.get(entry.getKey());
+            if (section == null) {
+                resourceMap.put(entry.getKey(), new MemoryResource(entry.getValue(), readOnlyArena));
+            } else {
+                resourceMap.put(entry.getKey(), new MemoryResource(entry.getValue(), readOnlyArena, section));
+            }
+        }
+        for (Map.Entry<String, ZipEntry> entry : entries.entrySet()) {
+            if (entry.getValue().isDirectory()) {
+                final List<Resource> children = new ArrayList<>();
+                for (ZipEntry child : index.getChildren(entry.getValue())) {
+                    children.add(resourceMap.get(ZipFileIndex.normalize(child.getName())));
+                }
+                resourceMap.get(entry.getKey()).setChildren(Collections.unmodifiableList(children));
+            }
+        }
+        this.resources = Collections.unmodifiableMap(resourceMap);
+        LOG.info("Loaded {} entries of {} into {} bytes of memory", resourceMap.size(), archive.getName(), arenaSize);
+    }
+
+    /**
+     * Reads the content of an entry and appends it and its gzip compressed variant to the arena content.
+     * @return
+     *  the offset and length of the content, the checksum of the content and the offset and length of the compressed
+     *  variant. Offset and length of the compressed variant are -1 if compression does not reduce the size.
+     */
+    private static long[] load(final ZipArchive archive, final ZipEntry entry, final ByteArrayOutputStream arena)
+            throws IOException {
+
+        final byte[] content;
+        try (InputStream inStream = archive.getInputStream(entry)) {
+            content = IOUtils.toByteArray(inStream);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(content);
+        }
+        final boolean compressible = compressed.size() < content.length;
+
+        final long requiredSize = (long) arena.size() + content.length + (compressible ? compressed.size() : 0);
+        if (requiredSize > Integer.MAX_VALUE) {
+            throw new IOException("Content of " + archive.getName() + " is too large to be loaded into memory");
+        }
+        final long offset = arena.size();
+        arena.write(content);
+        if (!compressible) {
+            return new long[] { offset, content.length, crc.getValue(), -1, -1 };
+        }
+        final long compressedOffset = arena.size();
+        compressed.writeTo(arena);
+        return new long[] { offset, content.length, crc.getValue(), compressedOffset, compressed.size() };
+    }
+
+    /**
+     * @return the number of resources managed by this manager
+     */
+    public int size() {
+
+        return resources.size();
+    }
+
+    /**
+     * @return the number of bytes of memory used for the content and its compressed variants
+     */
+    public int getArenaSize() {
+
+        return arenaSize;
+    }
+
+    /**
+     * Provides the resource of the specified path. The same resource instance is returned for every request of a
+     * path, regardless of leading or trailing slashes of the path.
+     * @param path
+     *  the path of the resource
+     * @return
+     *  the resource or <code>null</code> if there is no resource for the path
+     * @throws IOException
+     *  never, the content is held in memory
+     */
+    @Override
+    public Resource getResource(final String path) throws IOException {
+
+        return resources.get(ZipFileIndex.normalize(path));
+    }
+
+    @Override
+    public Set<String> getPaths() {
+
+        return resources.keySet();
+    }
+
+    @Override
+    public boolean isResourceChangeListenerSupported() {
+
+        return false;
+    }
+
+    @Override
+    public void registerResourceChangeListener(final ResourceChangeListener listener) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeResourceChangeListener(final ResourceChangeListener listener) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException {
+        //the arena is released by the garbage collector
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.RangeAwareResource;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceChangeListener;
+import io.undertow.server.handlers.resource.ResourceManager;
+import io.undertow.util.ETag;
+import io.undertow.util.ETagUtils;
+import io.undertow.util.Headers;
+import io.undertow.util.MimeMappings;
+
+/**
+ * A {@link ResourceManager} that serves precompressed variants of the resources of another resource manager. A
+ * variant is a sibling of the resource that has the same name with the extension of the content coding appended,
+ * i.e. {@code app.js.br} and {@code app.js.gz} for {@code app.js}. When a resource with variants is served, the
+ * variant is selected by the Accept-Encoding header of the request and sent with the according Content-Encoding.
+ * If the client accepts none of the variants, the resource itself is sent. Content is never compressed at request
+ * time.
+ */
+public class PrecompressedResourceManager implements ResourceManager {
+
+    /**
+     * The content codings of the variants in order of preference, mapped to the extensions of the variant files.
+     */
+    private static final Map<String, String> VARIANT_EXTENSIONS;
+
+    static {
+        VARIANT_EXTENSIONS = new LinkedHashMap<>();
+        VARIANT_EXTENSIONS.put(AcceptEncoding.BROTLI, ".br");
+        VARIANT_EXTENSIONS.put(AcceptEncoding.GZIP, ".gz");
+    }
+
+    /**
+     * The resource manager providing the resources and their variants
+     */
+    private final ResourceManager delegate;
+
+    /**
+     * Creates a resource manager serving the precompressed variants of the resources of the delegate.
+     * @param delegate
+     *  the resource manager providing the resources and their variants
+     */
+    public PrecompressedResourceManager(final ResourceManager delegate) {
+
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Resource getResource(final String path) throws IOException {
+
+        final Resource resource = delegate.getResource(path);
+        if (resource == null || resource.isDirectory()) {
+            return resource;
+        }
+        final Map<String, Resource> variants = new LinkedHashMap<>();
+        for (Map.Entry<String, String> coding : VARIANT_EXTENSIONS.entrySet()) {
+            final Resource variant = delegate.getResource(path + coding.getValue());
+            if (variant != null && !variant.isDirectory()) {
+                variants.put(coding.getKey(), variant);
+            }
+        }
+        if (variants.isEmpty()) {
+            return resource;
+        }
+        return new PrecompressedResource(resource, variants);
+    }
+
+    @Override
+    public boolean isResourceChangeListenerSupported() {
+
+        return delegate.isResourceChangeListenerSupported();
+    }
+
+    @Override
+    public void registerResourceChangeListener(final ResourceChangeListener listener) {
+
+        delegate.registerResourceChangeListener(listener);
+    }
+
+    @Override
+    public void removeResourceChangeListener(final ResourceChangeListener listener) {
+
+        delegate.removeResourceChangeListener(listener);
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        delegate.close();
+    }
+
+    /**
+     * A resource that has at least one precompressed variant. All properties of the resource are those of the
+     * uncompressed resource, only the content that is served depends on the accepted encodings of the client.
+     */
+    static class PrecompressedResource implements RangeAwareResource, ReadableResource {
+
+        private final Resource resource;
+
+        /**
+         * Content coding to the variant of that coding, in order of preference
+         */
+        private final Map<String, Resource> variants;
+
+        PrecompressedResource(final Resource resource, final Map<String, Resource> variants) {
+
+            this.resource = resource;
+            this.variants = variants;
+        }
+
+        @Override
+        public void serve(final Sender sender, final HttpServerExchange exchange, final IoCallback completionCallback) {
+
+            //the response depends on the accepted encodings of the client
+            exchange.getResponseHeaders().add(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+            final String coding = AcceptEncoding.select(exchange,
+                                                        variants.keySet().toArray(new String[variants.size()]));
+            if (coding == null) {
+                resource.serve(sender, exchange, completionCallback);
+                return;
+            }
+            final Resource variant = variants.get(coding);
+            final ETag etag = getETag(variant, coding);
+            if (etag != null && !ETagUtils.handleIfNoneMatch(exchange, etag, false)) {
+                ContentResponses.serveNotModified(exchange, sender, completionCallback);
+                return;
+            }
+            if (etag != null) {
+                exchange.getResponseHeaders().put(Headers.ETAG, etag.toString());
+            }
+            exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, coding);
+            final Long contentLength = variant.getContentLength();
+            if (contentLength != null) {
+                ContentResponses.setContentLength(exchange, contentLength);
+            }
+            variant.serve(sender, exchange, completionCallback);
+        }
+
+        /**
+         * Determines the entity tag of the variant. If the variant has no entity tag on its own, it is derived from the
+         * entity tag of the uncompressed resource.
+         */
+        private ETag getETag(final Resource variant, final String coding) {
+
+            final ETag variantETag = variant.getETag();
+            if (variantETag != null) {
+                return variantETag;
+            }
+            final ETag etag = resource.getETag();
+            if (etag == null) {
+                return null;
+            }
+            return new ETag(etag.isWeak(), etag.getTag() + '-' + coding);
+        }
+
+        @Override
+        public boolean isRangeSupported() {
+
+            //ranges are always served from the uncompressed resource
+            return resource instanceof RangeAwareResource && ((RangeAwareResource) resource).isRangeSupported();
+        }
+
+        @Override
+        public void serveRange(final Sender sender,
+                               final HttpServerExchange exchange,
+                               final long start,
+                               final long end,
+                               final IoCallback completionCallback) {
+
+            ((RangeAwareResource) resource).serveRange(sender, exchange, start, end, completionCallback);
+        }
+
+        @Override
+        public String getPath() {
+
+            return resource.getPath();
+        }
+
+        @Override
+        public Date getLastModified() {
+
+            return resource.getLastModified();
+        }
+
+        @Override
+        public String getLastModifiedString() {
+
+            return resource.getLastModifiedString();
+        }
+
+        @Override
+        public ETag getETag() {
+
+            return resource.getETag();
+        }
+
+        @Override
+        public String getName() {
+
+            return resource.getName();
+        }
+
+        @Override
+        public boolean isDirectory() {
+
+            return resource.isDirectory();
+        }
+
+        @Override
+        public List<Resource> list() {
+
+            return resource.list();
+        }
+
+        @Override
+        public String getContentType(final MimeMappings mimeMappings) {
+
+            return resource.getContentType(mimeMappings);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+
+            return ResourceStreams.open(resource);
+        }
+
+        @Override
+        public Long getContentLength() {
+
+            return resource.getContentLength();
+        }
+
+        @Override
+        public String getCacheKey() {
+
+            return resource.getCacheKey();
+        }
+
+        @Override
+        public File getFile() {
+
+            return resource.getFile();
+        }
+
+        @Override
+        public File getResourceManagerRoot() {
+
+            return resource.getResourceManagerRoot();
+        }
+
+        @Override
+        public URL getUrl() {
+
+            return resource.getUrl();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import io.undertow.server.handlers.resource.Resource;
+
+/**
+ * A resource whose content can be read independently of an exchange, i.e. for processing the content of several
+ * resources within one response. The content is always the identity representation of the resource.
+ */
+interface ReadableResource extends Resource {
+
+    /**
+     * Opens a stream to read the content of the resource. The caller has to close the stream.
+     * @return
+     *  the stream of the uncompressed content
+     * @throws IOException
+     *  if the content could not be read
+     */
+    InputStream getInputStream() throws IOException;
+}
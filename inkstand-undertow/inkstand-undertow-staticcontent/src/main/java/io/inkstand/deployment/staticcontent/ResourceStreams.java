@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import io.undertow.server.handlers.resource.Resource;
+
+/**
+ * Helper to read the content of resources of any resource manager. Resources of this module provide their content
+ * as {@link ReadableResource}, the content of other resources is read from their file or URL.
+ */
+final class ResourceStreams {
+
+    private ResourceStreams() {
+
+    }
+
+    /**
+     * Opens a stream to read the content of the resource.
+     * @param resource
+     *  the resource to read
+     * @return
+     *  the stream of the uncompressed content, the caller has to close it
+     * @throws IOException
+     *  if the content could not be read or the resource provides no means to read its content
+     */
+    static InputStream open(final Resource resource) throws IOException {
+
+        if (resource instanceof ReadableResource) {
+            return ((ReadableResource) resource).getInputStream();
+        }
+        final File file = resource.getFile();
+        if (file != null) {
+            return new FileInputStream(file);
+        }
+        final URL url = resource.getUrl();
+        if (url != null) {
+            return url.openStream();
+        }
+        throw new IOException("Content of resource " + resource.getPath() + " can not be read");
+    }
+}
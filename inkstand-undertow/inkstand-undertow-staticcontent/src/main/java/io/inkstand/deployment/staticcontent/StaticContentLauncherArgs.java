@@ -16,6 +16,7 @@
 
 package io.inkstand.deployment.staticcontent;
 
+import static io.inkstand.deployment.staticcontent.DefaultStaticContentDeploymentProvider.HTTP_CONTENT_MODE_PROPERTY;
 import static io.inkstand.deployment.staticcontent.DefaultStaticContentDeploymentProvider.HTTP_CONTENT_ROOT_PROPERTY;
 import static io.inkstand.util.CollectionHelper.asUnmodifiableSet;
 
@@ -30,11 +31,17 @@ public class StaticContentLauncherArgs implements LauncherArgs {
 
     /**
      * The content root containing the static content to be served. The value may be a path to a directory or
-     * to a zip file containing the content.
+     * to a zip file containing the content, or a comma separated list of such paths.
      */
     public static final String CONTENT_ROOT = "contentRoot";
 
-    private static final Set<String> ARG_NAMES = asUnmodifiableSet("contentRoot");
+    /**
+     * The mode in which a zip file containing the static content is read. The value may be {@code zipfile},
+     * {@code mapped} or {@code memory}.
+     */
+    public static final String CONTENT_MODE = "contentMode";
+
+    private static final Set<String> ARG_NAMES = asUnmodifiableSet(CONTENT_ROOT, CONTENT_MODE);
 
     @Override
     public Set<String> getArgNames() {
@@ -47,6 +54,8 @@ public class StaticContentLauncherArgs implements LauncherArgs {
 
         if(CONTENT_ROOT.equals(argName)){
             applyContentRoot(value);
+        } else if(CONTENT_MODE.equals(argName)){
+            applyContentMode(value);
         } else {
             throw new IllegalArgumentException(argName + " is no valid argument");
         }
@@ -61,11 +70,25 @@ public class StaticContentLauncherArgs implements LauncherArgs {
 
     }
 
+    private void applyContentMode(final String contentMode) {
+        if(contentMode == null) {
+            throw new IllegalArgumentException("Value for contentMode is missing");
+        }
+        //fail early on unknown modes
+        ContentMode.fromName(contentMode);
+        System.setProperty(HTTP_CONTENT_MODE_PROPERTY, contentMode);
+    }
+
     @Override
     public String getDescription(final String argName) {
 
         if(CONTENT_ROOT.equals(argName)){
-            return "The path to the directory or zip file containing the static content.";
+            return "The path to the directory or zip file containing the static content. Several directories or zip files "
+                   + "may be specified as comma separated list, the first containing a resource takes precedence.";
+        }
+        if(CONTENT_MODE.equals(argName)){
+            return "The mode for reading the zip file, either 'zipfile' (default), 'mapped' for memory-mapped access or "
+                   + "'memory' for loading the entire content into memory.";
         }
         throw new IllegalArgumentException(argName + " is no valid argument");
     }
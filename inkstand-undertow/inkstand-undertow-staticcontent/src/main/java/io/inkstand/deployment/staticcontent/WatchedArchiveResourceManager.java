@@ -0,0 +1,642 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.RangeAwareResource;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceChangeEvent;
+import io.undertow.server.handlers.resource.ResourceChangeListener;
+import io.undertow.util.ETag;
+import io.undertow.util.MimeMappings;
+
+/**
+ * A resource manager serving the content of an archive that is replaced without restarting the server. The path of
+ * the archive is watched and whenever a new archive is placed at the path, it is loaded, indexed and read once to
+ * warm up the file system cache in the background. Once loaded, the new archive is swapped in atomically and
+ * registered {@link ResourceChangeListener}s are notified about the added, removed and modified resources.
+ * <br>
+ * Requests that are being served while the archive is swapped complete on the previous archive. The previous archive
+ * is closed when the last of these requests has completed, but not before a grace period has passed so that
+ * resources that have been resolved but not yet served can still be served from it.
+ * <br>
+ * A new archive should be published by moving it to the watched path instead of overwriting the file in place, so
+ * that the previous archive remains readable until it is closed.
+ */
+public class WatchedArchiveResourceManager implements IndexedResourceManager {
+
+    private static final Logger LOG = getLogger(WatchedArchiveResourceManager.class);
+
+    /**
+     * The default time in milliseconds a replaced archive is kept open for resources that are about to be served
+     */
+    public static final long DEFAULT_GRACE_PERIOD = 10_000L;
+
+    /**
+     * The time in milliseconds the archive has to remain unmodified before it is loaded, so that an archive that is
+     * still being written is not loaded.
+     */
+    private static final long QUIET_PERIOD = 1_000L;
+
+    private static final long POLL_INTERVAL = 250L;
+
+    /**
+     * Loads the content of an archive into a resource manager.
+     */
+    public interface Loader {
+
+        /**
+         * Loads the archive
+         * @param archive
+         *  the archive file
+         * @return
+         *  the resource manager serving the content of the archive
+         * @throws IOException
+         *  if the archive could not be loaded
+         */
+        IndexedResourceManager load(File archive) throws IOException;
+    }
+
+    private final File archive;
+
+    private final Loader loader;
+
+    private final long gracePeriod;
+
+    /**
+     * The generation of the archive that is currently served
+     */
+    private final AtomicReference<Generation> current;
+
+    private final List<ResourceChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService executor;
+
+    private final WatchService watchService;
+
+    /**
+     * The time the last modification of the archive has been detected, 0 if there is no modification to be loaded.
+     * Only accessed by the watcher thread.
+     */
+    private long modifiedAt;
+
+    /**
+     * Loads the archive and starts watching the path of the archive for replacements.
+     * @param archive
+     *  the path of the archive
+     * @param loader
+     *  the loader creating the resource manager for the archive and its replacements
+     * @throws IOException
+     *  if the archive could not be loaded or its path could not be watched
+     */
+    public WatchedArchiveResourceManager(final File archive, final Loader loader) throws IOException {
+
+        this(archive, loader, DEFAULT_GRACE_PERIOD);
+    }
+
+    /**
+     * Loads the archive and starts watching the path of the archive for replacements.
+     * @param archive
+     *  the path of the archive
+     * @param loader
+     *  the loader creating the resource manager for the archive and its replacements
+     * @param gracePeriod
+     *  the time in milliseconds a replaced archive is kept open at least
+     * @throws IOException
+     *  if the archive could not be loaded or its path could not be watched
+     */
+    public WatchedArchiveResourceManager(final File archive, final Loader loader, final long gracePeriod)
+            throws IOException {
+
+        this.archive = archive.getAbsoluteFile();
+        this.loader = loader;
+        this.gracePeriod = gracePeriod;
+        this.current = new AtomicReference<>(new Generation(loader.load(this.archive)));
+
+        final Path directory = this.archive.getParentFile().toPath();
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService,
+                           StandardWatchEventKinds.ENTRY_CREATE,
+                           StandardWatchEventKinds.ENTRY_MODIFY);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+
+                final Thread thread = new Thread(runnable, "content-watcher-" + archive.getName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.executor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+
+                pollChanges();
+            }
+        }, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+        LOG.info("Watching {} for new content", this.archive);
+    }
+
+    /**
+     * Checks for modifications of the archive and loads the archive once it has not been modified for the quiet
+     * period.
+     */
+    private void pollChanges() {
+
+        try {
+            WatchKey key;
+            while ((key = watchService.poll()) != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (archive.getName().equals(String.valueOf(event.context()))) {
+                        modifiedAt = System.currentTimeMillis();
+                    }
+                }
+                key.reset();
+            }
+            if (modifiedAt != 0 && System.currentTimeMillis() - modifiedAt >= QUIET_PERIOD) {
+                modifiedAt = 0;
+                reload();
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOG.debug("Stopped watching {}", archive, e);
+        } catch (RuntimeException e) {
+            //the watcher must survive any failure, otherwise no further replacements are detected
+            LOG.error("Could not process modification of {}", archive, e);
+        }
+    }
+
+    /**
+     * Loads the archive and swaps it in for the currently served archive. If the archive could not be loaded, the
+     * current archive is still served.
+     * @return
+     *  <code>true</code> if the new archive has been swapped in
+     */
+    public boolean reload() {
+
+        final IndexedResourceManager next;
+        try {
+            next = loader.load(archive);
+            warmUp(archive);
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Could not load new content from {}, keeping the current content", archive, e);
+            return false;
+        }
+        final Generation previous = current.getAndSet(new Generation(next));
+        LOG.info("Swapped in new content from {} with {} resources", archive, next.getPaths().size());
+        notifyListeners(previous.manager, next);
+        executor.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+
+                previous.retire();
+            }
+        }, gracePeriod, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Reads the archive once so that its content is in the file system cache when the first requests are served.
+     */
+    private static void warmUp(final File archive) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(65_536);
+            long position = 0;
+            int read;
+            while ((read = channel.read(buffer, position)) > 0) {
+                position += read;
+                buffer.clear();
+            }
+        }
+    }
+
+    private void notifyListeners(final IndexedResourceManager previous, final IndexedResourceManager next) {
+
+        if (listeners.isEmpty()) {
+            return;
+        }
+        final List<ResourceChangeEvent> events;
+        try {
+            events = getChanges(previous, next);
+        } catch (IOException e) {
+            LOG.error("Could not determine changed resources of {}", archive, e);
+            return;
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        for (ResourceChangeListener listener : listeners) {
+            try {
+                listener.handleChanges(events);
+            } catch (RuntimeException e) {
+                LOG.error("Resource change listener {} failed", listener, e);
+            }
+        }
+    }
+
+    /**
+     * Determines the resources that have been added, removed or modified. A resource is modified if its entity tag
+     * has changed.
+     */
+    static List<ResourceChangeEvent> getChanges(final IndexedResourceManager previous,
+                                                final IndexedResourceManager next) throws IOException {
+
+        final List<ResourceChangeEvent> events = new ArrayList<>();
+        final Set<String> previousPaths = previous.getPaths();
+        final Set<String> nextPaths = next.getPaths();
+        for (String path : nextPaths) {
+            if (!previousPaths.contains(path)) {
+                events.add(new ResourceChangeEvent(path, ResourceChangeEvent.Type.ADDED));
+            } else if (isModified(previous.getResource(path), next.getResource(path))) {
+                events.add(new ResourceChangeEvent(path, ResourceChangeEvent.Type.MODIFIED));
+            }
+        }
+        for (String path : previousPaths) {
+            if (!nextPaths.contains(path)) {
+                events.add(new ResourceChangeEvent(path, ResourceChangeEvent.Type.REMOVED));
+            }
+        }
+        return events;
+    }
+
+    private static boolean isModified(final Resource previous, final Resource next) {
+
+        final ETag previousETag = previous == null ? null : previous.getETag();
+        final ETag nextETag = next == null ? null : next.getETag();
+        return previousETag == null ? nextETag != null : !previousETag.equals(nextETag);
+    }
+
+    @Override
+    public Set<String> getPaths() {
+
+        return current.get().manager.getPaths();
+    }
+
+    @Override
+    public Resource getResource(final String path) throws IOException {
+
+        final Generation generation = current.get();
+        final Resource resource = generation.manager.getResource(path);
+        if (resource == null) {
+            return null;
+        }
+        return new GenerationResource(resource, generation);
+    }
+
+    @Override
+    public boolean isResourceChangeListenerSupported() {
+
+        return true;
+    }
+
+    @Override
+    public void registerResourceChangeListener(final ResourceChangeListener listener) {
+
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeResourceChangeListener(final ResourceChangeListener listener) {
+
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stops watching the archive and closes the archive once the requests being served have completed.
+     * @throws IOException
+     *  if the watch service could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+
+        executor.shutdownNow();
+        try {
+            watchService.close();
+        } finally {
+            current.get().retire();
+        }
+    }
+
+    /**
+     * A loaded archive with the number of requests being served from it. The count is set to -1 once the archive is
+     * closed so that no further request can be served from it.
+     */
+    static final class Generation {
+
+        final IndexedResourceManager manager;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private volatile boolean retired;
+
+        Generation(final IndexedResourceManager manager) {
+
+            this.manager = manager;
+        }
+
+        /**
+         * Registers a request being served from the archive
+         * @return
+         *  <code>false</code> if the archive has already been closed
+         */
+        boolean acquire() {
+
+            int count;
+            do {
+                count = inFlight.get();
+                if (count < 0) {
+                    return false;
+                }
+            } while (!inFlight.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        /**
+         * Unregisters a completed request and closes the archive if it is retired and this was the last request
+         */
+        void release() {
+
+            if (inFlight.decrementAndGet() == 0 && retired) {
+                tryClose();
+            }
+        }
+
+        /**
+         * Marks the archive as no longer served and closes it if no request is being served from it.
+         */
+        void retire() {
+
+            retired = true;
+            tryClose();
+        }
+
+        boolean isClosed() {
+
+            return inFlight.get() < 0;
+        }
+
+        private void tryClose() {
+
+            if (inFlight.compareAndSet(0, -1)) {
+                try {
+                    manager.close();
+                } catch (IOException e) {
+                    LOG.warn("Could not close replaced content", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Callback releasing the archive once the content has been sent.
+     */
+    private static final class ReleasingCallback implements IoCallback {
+
+        private final Generation generation;
+
+        private final IoCallback completionCallback;
+
+        ReleasingCallback(final Generation generation, final IoCallback completionCallback) {
+
+            this.generation = generation;
+            this.completionCallback = completionCallback;
+        }
+
+        @Override
+        public void onComplete(final HttpServerExchange exchange, final Sender sender) {
+
+            generation.release();
+            completionCallback.onComplete(exchange, sender);
+        }
+
+        @Override
+        public void onException(final HttpServerExchange exchange, final Sender sender, final IOException exception) {
+
+            generation.release();
+            completionCallback.onException(exchange, sender, exception);
+        }
+    }
+
+    /**
+     * A resource of a generation of the archive. The archive is kept open while the resource is being served.
+     */
+    static final class GenerationResource implements RangeAwareResource, ReadableResource {
+
+        private final Resource resource;
+
+        private final Generation generation;
+
+        GenerationResource(final Resource resource, final Generation generation) {
+
+            this.resource = resource;
+            this.generation = generation;
+        }
+
+        @Override
+        public void serve(final Sender sender, final HttpServerExchange exchange, final IoCallback completionCallback) {
+
+            if (!generation.acquire()) {
+                completionCallback.onException(exchange, sender, new IOException("Content has been replaced"));
+                return;
+            }
+            try {
+                resource.serve(sender, exchange, new ReleasingCallback(generation, completionCallback));
+            } catch (RuntimeException e) {
+                generation.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean isRangeSupported() {
+
+            return resource instanceof RangeAwareResource && ((RangeAwareResource) resource).isRangeSupported();
+        }
+
+        @Override
+        public void serveRange(final Sender sender,
+                               final HttpServerExchange exchange,
+                               final long start,
+                               final long end,
+                               final IoCallback completionCallback) {
+
+            if (!generation.acquire()) {
+                completionCallback.onException(exchange, sender, new IOException("Content has been replaced"));
+                return;
+            }
+            try {
+                ((RangeAwareResource) resource).serveRange(sender,
+                                                           exchange,
+                                                           start,
+                                                           end,
+                                                           new ReleasingCallback(generation, completionCallback));
+            } catch (RuntimeException e) {
+                generation.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+
+            if (!generation.acquire()) {
+                throw new IOException("Content has been replaced");
+            }
+            try {
+                return new FilterInputStream(ResourceStreams.open(resource)) {
+
+                    private boolean released;
+
+                    @Override
+                    public void close() throws IOException {
+
+                        try {
+                            super.close();
+                        } finally {
+                            if (!released) {
+                                released = true;
+                                generation.release();
+                            }
+                        }
+                    }
+                };
+            } catch (IOException | RuntimeException e) {
+                generation.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public String getPath() {
+
+            return resource.getPath();
+        }
+
+        @Override
+        public Date getLastModified() {
+
+            return resource.getLastModified();
+        }
+
+        @Override
+        public String getLastModifiedString() {
+
+            return resource.getLastModifiedString();
+        }
+
+        @Override
+        public ETag getETag() {
+
+            return resource.getETag();
+        }
+
+        @Override
+        public String getName() {
+
+            return resource.getName();
+        }
+
+        @Override
+        public boolean isDirectory() {
+
+            return resource.isDirectory();
+        }
+
+        @Override
+        public List<Resource> list() {
+
+            final List<Resource> children = resource.list();
+            final List<Resource> result = new ArrayList<>(children.size());
+            for (Resource child : children) {
+                result.add(new GenerationResource(child, generation));
+            }
+            return Collections.unmodifiableList(result);
+        }
+
+        @Override
+        public String getContentType(final MimeMappings mimeMappings) {
+
+            return resource.getContentType(mimeMappings);
+        }
+
+        @Override
+        public Long getContentLength() {
+
+            return resource.getContentLength();
+        }
+
+        @Override
+        public String getCacheKey() {
+
+            return resource.getCacheKey();
+        }
+
+        @Override
+        public File getFile() {
+
+            return resource.getFile();
+        }
+
+        @Override
+        public File getResourceManagerRoot() {
+
+            return resource.getResourceManagerRoot();
+        }
+
+        @Override
+        public URL getUrl() {
+
+            return resource.getUrl();
+        }
+    }
+}
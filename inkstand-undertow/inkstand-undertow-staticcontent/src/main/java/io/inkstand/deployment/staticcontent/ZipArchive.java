@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+/**
+ * Read access to the entries of a zip archive. Implementations differ in how the archive is read, i.e. using a
+ * {@link java.util.zip.ZipFile} or a memory mapping of the archive file.
+ */
+public interface ZipArchive extends Closeable {
+
+    /**
+     * @return the path name of the archive
+     */
+    String getName();
+
+    /**
+     * @return all entries of the archive
+     */
+    List<ZipEntry> getEntries();
+
+    /**
+     * Opens a stream to read the uncompressed content of an entry.
+     * @param entry
+     *  an entry of this archive
+     * @return
+     *  the stream of the content of the entry
+     * @throws IOException
+     *  if the entry could not be read
+     */
+    InputStream getInputStream(ZipEntry entry) throws IOException;
+
+    /**
+     * Provides a read-only channel to a section of the raw data of the entry as it is stored in the archive.
+     * @param entry
+     *  an entry of this archive
+     * @param start
+     *  the position of the first byte of the section within the raw data of the entry
+     * @param length
+     *  the number of bytes of the section
+     * @return
+     *  a channel to the section or <code>null</code> if the raw data of the entry can not be accessed directly
+     */
+    FileChannel getRawDataChannel(ZipEntry entry, long start, long length);
+}
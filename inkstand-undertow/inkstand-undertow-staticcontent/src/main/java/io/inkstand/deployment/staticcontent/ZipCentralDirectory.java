@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Reader for the central directory of a zip archive. {@link java.util.zip.ZipFile} does not expose where the data of
+ * an entry is located in the archive. This reader determines the offset of each entry's data by reading the central
+ * directory and the local file headers of the entries, so the raw data can be accessed directly from the archive's
+ * {@link FileChannel}. The reader also provides the entries of the archive as recorded in the central directory so
+ * that an archive can be read without a {@link java.util.zip.ZipFile}.
+ * <br>
+ * Zip64 archives are not supported. Entries located beyond 4GB are not included in the result.
+ */
+final class ZipCentralDirectory {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final int EOCD_SIGNATURE = 0x06054b50;
+    static final int CEN_SIGNATURE = 0x02014b50;
+    static final int LOC_SIGNATURE = 0x04034b50;
+
+    static final int EOCD_LENGTH = 22;
+    static final int CEN_LENGTH = 46;
+    static final int LOC_LENGTH = 30;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private ZipCentralDirectory() {
+
+    }
+
+    /**
+     * Reads the offsets of the entry data from the archive.
+     * @param channel
+     *  the channel of the zip archive
+     * @return
+     *  a map of entry names to the absolute offset of the data of the entry within the archive
+     * @throws IOException
+     *  if the archive could not be read or is no valid zip archive
+     */
+    static Map<String, Long> readDataOffsets(final FileChannel channel) throws IOException {
+
+        final Map<String, Long> offsets = new HashMap<>();
+        readEntries(channel, offsets);
+        return offsets;
+    }
+
+    /**
+     * Reads the entries from the central directory of the archive together with the offsets of the entry data.
+     * @param channel
+     *  the channel of the zip archive
+     * @param dataOffsets
+     *  the map to which the absolute offset of the data of each entry within the archive is added, using the name
+     *  of the entry as key
+     * @return
+     *  the entries of the archive in the order of the central directory
+     * @throws IOException
+     *  if the archive could not be read or is no valid zip archive
+     */
+    static List<ZipEntry> readEntries(final FileChannel channel, final Map<String, Long> dataOffsets)
+            throws IOException {
+
+        final ByteBuffer eocd = findEndOfCentralDirectory(channel);
+        final long cenSize = eocd.getInt(12) & 0xFFFFFFFFL;
+        final long cenOffset = eocd.getInt(16) & 0xFFFFFFFFL;
+        final List<ZipEntry> entries = new ArrayList<>();
+        if (cenOffset == ZIP64_MAGIC || cenSize == ZIP64_MAGIC) {
+            return entries;
+        }
+
+        final ByteBuffer cen = ByteBuffer.allocate((int) cenSize).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, cen, cenOffset);
+        final ByteBuffer loc = ByteBuffer.allocate(LOC_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+
+        int pos = 0;
+        while (pos + CEN_LENGTH <= cenSize && cen.getInt(pos) == CEN_SIGNATURE) {
+            final int nameLength = cen.getShort(pos + 28) & 0xFFFF;
+            final int extraLength = cen.getShort(pos + 30) & 0xFFFF;
+            final int commentLength = cen.getShort(pos + 32) & 0xFFFF;
+            final long locOffset = cen.getInt(pos + 42) & 0xFFFFFFFFL;
+            final String name = new String(cen.array(), pos + CEN_LENGTH, nameLength, UTF_8);
+
+            final ZipEntry entry = new ZipEntry(name);
+            entry.setMethod(cen.getShort(pos + 10) & 0xFFFF);
+            entry.setTime(dosToJavaTime(cen.getShort(pos + 14) & 0xFFFF, cen.getShort(pos + 12) & 0xFFFF));
+            entry.setCrc(cen.getInt(pos + 16) & 0xFFFFFFFFL);
+            entry.setCompressedSize(cen.getInt(pos + 20) & 0xFFFFFFFFL);
+            entry.setSize(cen.getInt(pos + 24) & 0xFFFFFFFFL);
+            if (extraLength > 0) {
+                entry.setExtra(Arrays.copyOfRange(cen.array(),
+                                                  pos + CEN_LENGTH + nameLength,
+                                                  pos + CEN_LENGTH + nameLength + extraLength));
+            }
+            if (commentLength > 0) {
+                final int commentOffset = pos + CEN_LENGTH + nameLength + extraLength;
+                entry.setComment(new String(cen.array(), commentOffset, commentLength, UTF_8));
+            }
+            entries.add(entry);
+
+            if (locOffset != ZIP64_MAGIC) {
+                loc.clear();
+                readFully(channel, loc, locOffset);
+                if (loc.getInt(0) == LOC_SIGNATURE) {
+                    final int locNameLength = loc.getShort(26) & 0xFFFF;
+                    final int locExtraLength = loc.getShort(28) & 0xFFFF;
+                    dataOffsets.put(name, locOffset + LOC_LENGTH + locNameLength + locExtraLength);
+                }
+            }
+            pos += CEN_LENGTH + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    /**
+     * Converts the MS-DOS date and time of a zip entry to the milliseconds since the epoch in the local time zone.
+     */
+    static long dosToJavaTime(final int date, final int time) {
+
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(((date >> 9) & 0x7f) + 1980,
+                     ((date >> 5) & 0x0f) - 1,
+                     date & 0x1f,
+                     (time >> 11) & 0x1f,
+                     (time >> 5) & 0x3f,
+                     (time << 1) & 0x3e);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Searches the end of central directory record which is located at the end of the archive, followed only by
+     * an optional archive comment.
+     * @param channel
+     *  the channel of the archive
+     * @return
+     *  a buffer containing the end of central directory record, starting at index 0
+     * @throws IOException
+     *  if the archive could not be read or the record could not be found
+     */
+    private static ByteBuffer findEndOfCentralDirectory(final FileChannel channel) throws IOException {
+
+        final long size = channel.size();
+        final int tailLength = (int) Math.min(size, EOCD_LENGTH + 0xFFFF);
+        final ByteBuffer tail = ByteBuffer.allocate(tailLength).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, tail, size - tailLength);
+        for (int i = tailLength - EOCD_LENGTH; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE) {
+                tail.position(i);
+                return tail.slice().order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        throw new ZipException("End of central directory not found");
+    }
+
+    /**
+     * Fills the buffer with data from the channel starting at the specified position.
+     */
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, pos);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of zip archive");
+            }
+            pos += read;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A read-only {@link FileChannel} that exposes a region of the archive's file channel, that is the raw data of a
+ * single zip entry. All positions of this channel are relative to the beginning of the region. The channel is used
+ * to pass the entry data as file region to Undertow which transfers it using the zero-copy mechanisms of the
+ * operating system (sendfile) instead of reading the data into the heap.
+ * <br>
+ * The channel only uses positional operations on the underlying channel so that any number of region channels
+ * may be used concurrently on the same archive channel. Closing a region channel does not close the underlying
+ * channel.
+ */
+class ZipEntryChannel extends FileChannel {
+
+    /**
+     * The channel of the entire zip archive
+     */
+    private final FileChannel archive;
+
+    /**
+     * The offset of the region in the archive
+     */
+    private final long offset;
+
+    /**
+     * The length of the region
+     */
+    private final long length;
+
+    /**
+     * The current position, relative to the offset
+     */
+    private long position;
+
+    /**
+     * Creates a channel for a region of the archive
+     * @param archive
+     *  the channel of the zip archive
+     * @param offset
+     *  the offset of the first byte of the region in the archive
+     * @param length
+     *  the number of bytes of the region
+     */
+    ZipEntryChannel(final FileChannel archive, final long offset, final long length) {
+
+        this.archive = archive;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+
+        final int read = read(dst, this.position);
+        if (read > 0) {
+            this.position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long read(final ByteBuffer[] dsts, final int off, final int len) throws IOException {
+
+        long total = 0;
+        for (int i = off; i < off + len; i++) {
+            final int read = read(dsts[i]);
+            if (read < 0) {
+                return total == 0 ? -1 : total;
+            }
+            total += read;
+            if (dsts[i].hasRemaining()) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public int read(final ByteBuffer dst, final long pos) throws IOException {
+
+        if (pos < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        final long remaining = this.length - pos;
+        if (remaining <= 0) {
+            return -1;
+        }
+        if (dst.remaining() <= remaining) {
+            return this.archive.read(dst, this.offset + pos);
+        }
+        final int limit = dst.limit();
+        dst.limit(dst.position() + (int) remaining);
+        try {
+            return this.archive.read(dst, this.offset + pos);
+        } finally {
+            dst.limit(limit);
+        }
+    }
+
+    @Override
+    public long transferTo(final long pos, final long count, final WritableByteChannel target) throws IOException {
+
+        if (pos < 0 || count < 0) {
+            throw new IllegalArgumentException("Negative position or count");
+        }
+        final long remaining = this.length - pos;
+        if (remaining <= 0) {
+            return 0;
+        }
+        return this.archive.transferTo(this.offset + pos, Math.min(count, remaining), target);
+    }
+
+    @Override
+    public long position() throws IOException {
+
+        return this.position;
+    }
+
+    @Override
+    public FileChannel position(final long newPosition) throws IOException {
+
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        this.position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+
+        return this.length;
+    }
+
+    @Override
+    public MappedByteBuffer map(final MapMode mode, final long pos, final long size) throws IOException {
+
+        if (mode != MapMode.READ_ONLY) {
+            throw new NonWritableChannelException();
+        }
+        if (pos + size > this.length) {
+            throw new IllegalArgumentException("Mapped region exceeds the entry");
+        }
+        return this.archive.map(mode, this.offset + pos, size);
+    }
+
+    @Override
+    public int write(final ByteBuffer src) throws IOException {
+
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long write(final ByteBuffer[] srcs, final int off, final int len) throws IOException {
+
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public int write(final ByteBuffer src, final long pos) throws IOException {
+
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public FileChannel truncate(final long size) throws IOException {
+
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public void force(final boolean metaData) throws IOException {
+        //nothing to force on a read-only channel
+    }
+
+    @Override
+    public long transferFrom(final ReadableByteChannel src, final long pos, final long count) throws IOException {
+
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public FileLock lock(final long pos, final long size, final boolean shared) throws IOException {
+
+        throw new UnsupportedOperationException("Locking a zip entry is not supported");
+    }
+
+    @Override
+    public FileLock tryLock(final long pos, final long size, final boolean shared) throws IOException {
+
+        throw new UnsupportedOperationException("Locking a zip entry is not supported");
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        //the archive channel is shared among all entries and is closed by the resource manager
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A {@link ZipArchive} that reads the content of the entries using a {@link ZipFile}. In addition, the archive
+ * may use a {@link FileChannel} of the same file to provide direct access to the raw data of the entries.
+ */
+public class ZipFileArchive implements ZipArchive {
+
+    private final ZipFile zipFile;
+
+    /**
+     * The channel to the archive file. May be <code>null</code>.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Name of the entry to the offset of the entry's data within the archive.
+     */
+    private final Map<String, Long> dataOffsets;
+
+    /**
+     * Opens the zip file and a channel to the file.
+     * @param file
+     *  the zip file
+     * @throws IOException
+     *  if the file could not be opened or is no valid zip file
+     */
+    public ZipFileArchive(final File file) throws IOException {
+
+        this.zipFile = new ZipFile(file);
+        try {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.dataOffsets = ZipCentralDirectory.readDataOffsets(this.channel);
+        } catch (IOException e) {
+            this.zipFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates an archive for a zip file and the channel to the same file.
+     * @param zipFile
+     *  the zip file
+     * @param channel
+     *  the channel to the file of the zip file
+     * @throws IOException
+     *  if the central directory could not be read from the channel
+     */
+    public ZipFileArchive(final ZipFile zipFile, final FileChannel channel) throws IOException {
+
+        this.zipFile = zipFile;
+        this.channel = channel;
+        this.dataOffsets = ZipCentralDirectory.readDataOffsets(channel);
+    }
+
+    /**
+     * Creates an archive for a zip file without direct access to the raw data of the entries.
+     * @param zipFile
+     *  the zip file
+     */
+    public ZipFileArchive(final ZipFile zipFile) {
+
+        this.zipFile = zipFile;
+        this.channel = null;
+        this.dataOffsets = Collections.emptyMap();
+    }
+
+    @Override
+    public String getName() {
+
+        return zipFile.getName();
+    }
+
+    @Override
+    public List<ZipEntry> getEntries() {
+
+        return Collections.unmodifiableList(Collections.list(zipFile.entries()));
+    }
+
+    @Override
+    public InputStream getInputStream(final ZipEntry entry) throws IOException {
+
+        return zipFile.getInputStream(entry);
+    }
+
+    @Override
+    public FileChannel getRawDataChannel(final ZipEntry entry, final long start, final long length) {
+
+        final Long offset = this.dataOffsets.get(entry.getName());
+        if (this.channel == null || offset == null) {
+            return null;
+        }
+        return new ZipEntryChannel(this.channel, offset + start, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        try {
+            if (this.channel != null) {
+                this.channel.close();
+            }
+        } finally {
+            this.zipFile.close();
+        }
+    }
+}
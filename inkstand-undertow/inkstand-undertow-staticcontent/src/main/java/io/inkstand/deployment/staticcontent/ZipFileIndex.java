@@ -0,0 +1,296 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Adler32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Lookup index over the entries of a {@link ZipArchive}. The index is built once by scanning the entries of
+ * the archive and maps the normalized path of each entry to the entry itself and the normalized path of each
+ * directory to its direct children. Lookups and directory listings are answered from the index without
+ * touching the archive again.
+ * <br>
+ * A path is normalized by removing the leading and trailing slashes, so that the entries {@code /dir/file.txt} and
+ * {@code dir/file.txt} or {@code dir/} and {@code dir} share the same key. If an archive contains both variants of
+ * an entry, the entry with the leading slash takes precedence.
+ */
+public class ZipFileIndex {
+
+    /**
+     * The archive this index was built from.
+     */
+    private final ZipArchive archive;
+
+    /**
+     * Normalized path to the entry of that path
+     */
+    private final Map<String, ZipEntry> entries;
+
+    /**
+     * Normalized path of a directory to the entries directly contained in that directory.
+     */
+    private final Map<String, List<ZipEntry>> children;
+
+    /**
+     * Name of the entry to the Adler-32 checksum of the uncompressed content of the entry. The zip format only records
+     * the CRC-32 checksum, so the Adler-32 checksum is calculated on first access and kept for subsequent requests.
+     */
+    private final ConcurrentMap<String, Long> adler32Checksums = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the index for the given zip file by scanning all entries of the file.
+     * @param zipFile
+     *  the zip file to be indexed
+     */
+    public ZipFileIndex(final ZipFile zipFile) {
+
+        this(new ZipFileArchive(zipFile));
+    }
+
+    /**
+     * Creates the index for the given zip file by scanning all entries of the file and reading the data offsets of
+     * the entries from the central directory of the archive.
+     * @param zipFile
+     *  the zip file to be indexed
+     * @param archiveChannel
+     *  the channel to the same archive file as the zip file. The channel is not closed by the index.
+     * @throws IOException
+     *  if the central directory of the archive could not be read
+     */
+    public ZipFileIndex(final ZipFile zipFile, final FileChannel archiveChannel) throws IOException {
+
+        this(new ZipFileArchive(zipFile, archiveChannel));
+    }
+
+    /**
+     * Creates the index for the given archive by scanning all entries of the archive.
+     * @param archive
+     *  the archive to be indexed
+     */
+    public ZipFileIndex(final ZipArchive archive) {
+
+        this.archive = archive;
+        final Map<String, ZipEntry> entryMap = new HashMap<>();
+        final Map<String, List<ZipEntry>> childMap = new HashMap<>();
+
+        for (ZipEntry entry : archive.getEntries()) {
+            final String path = normalize(entry.getName());
+            if (path.isEmpty()) {
+                continue;
+            }
+            final ZipEntry existing = entryMap.get(path);
+            if (existing == null) {
+                entryMap.put(path, entry);
+                addChild(childMap, getParent(path), entry);
+            } else if (entry.getName().startsWith("/") && !existing.getName().startsWith("/")) {
+                entryMap.put(path, entry);
+                replaceChild(childMap.get(getParent(path)), existing, entry);
+            }
+        }
+        for (Map.Entry<String, List<ZipEntry>> childList : childMap.entrySet()) {
+            childList.setValue(Collections.unmodifiableList(childList.getValue()));
+        }
+        this.entries = Collections.unmodifiableMap(entryMap);
+        this.children = Collections.unmodifiableMap(childMap);
+    }
+
+    private static void addChild(final Map<String, List<ZipEntry>> childMap,
+                                 final String parent,
+                                 final ZipEntry entry) {
+
+        List<ZipEntry> childList = childMap.get(parent);
+        if (childList == null) {
+            childList = new ArrayList<>();
+            childMap.put(parent, childList);
+        }
+        childList.add(entry);
+    }
+
+    private static void replaceChild(final List<ZipEntry> childList, final ZipEntry existing, final ZipEntry entry) {
+
+        childList.set(childList.indexOf(existing), entry);
+    }
+
+    /**
+     * Normalizes the path by removing leading and trailing slashes
+     * @param path
+     *  the path to normalize
+     * @return
+     *  the normalized path. The root path is represented by an empty string.
+     */
+    static String normalize(final String path) {
+
+        int begin = 0;
+        int end = path.length();
+        while (begin < end && path.charAt(begin) == '/') {
+            begin++;
+        }
+        while (end > begin && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(begin, end);
+    }
+
+    /**
+     * Determines the normalized path of the parent directory of a normalized path.
+     * @param path
+     *  the normalized path
+     * @return
+     *  the normalized path of the parent. Entries at the root level have the empty string as parent.
+     */
+    static String getParent(final String path) {
+
+        final int separator = path.lastIndexOf('/');
+        if (separator < 0) {
+            return "";
+        }
+        return path.substring(0, separator);
+    }
+
+    /**
+     * @return the archive this index was built from.
+     */
+    public ZipArchive getArchive() {
+
+        return archive;
+    }
+
+    /**
+     * Resolves the entry of the given path.
+     * @param path
+     *  the path of the entry. The path may be specified with or without leading slash.
+     * @return
+     *  the entry for that path or <code>null</code> if the zip file contains no such entry.
+     */
+    public ZipEntry getEntry(final String path) {
+
+        return this.entries.get(normalize(path));
+    }
+
+    /**
+     * Provides the entries that are direct children of the specified directory entry.
+     * @param directory
+     *  the entry of the directory
+     * @return
+     *  an unmodifiable list of entries contained directly in the directory. The list does not contain entries of
+     *  subdirectories. If the directory has no children or the entry is not a directory, the list is empty.
+     */
+    public List<ZipEntry> getChildren(final ZipEntry directory) {
+
+        final List<ZipEntry> childList = this.children.get(normalize(directory.getName()));
+        if (childList == null) {
+            return Collections.emptyList();
+        }
+        return childList;
+    }
+
+    /**
+     * Provides a read-only channel to the raw data of the entry as it is stored in the archive. For entries that are
+     * stored without compression, the raw data is the content of the entry. The channel may be used to transfer the
+     * data without copying it into the heap. Closing the channel has no effect on the archive.
+     * @param entry
+     *  the entry whose data should be accessed
+     * @return
+     *  a channel to the data of the entry or <code>null</code> if the raw data of the entry can not be accessed
+     *  directly
+     */
+    public FileChannel getRawDataChannel(final ZipEntry entry) {
+
+        return getRawDataChannel(entry, 0, entry.getCompressedSize());
+    }
+
+    /**
+     * Provides a read-only channel to a section of the raw data of the entry as it is stored in the archive.
+     * @param entry
+     *  the entry whose data should be accessed
+     * @param start
+     *  the position of the first byte of the section within the raw data of the entry
+     * @param length
+     *  the number of bytes of the section
+     * @return
+     *  a channel to the section of the entry data or <code>null</code> if the raw data of the entry can not be
+     *  accessed directly
+     */
+    public FileChannel getRawDataChannel(final ZipEntry entry, final long start, final long length) {
+
+        if (entry.getCompressedSize() < 0) {
+            return null;
+        }
+        if (start < 0 || length < 0 || start + length > entry.getCompressedSize()) {
+            throw new IllegalArgumentException("Section exceeds the data of entry " + entry.getName());
+        }
+        return this.archive.getRawDataChannel(entry, start, length);
+    }
+
+    /**
+     * Provides the Adler-32 checksum of the uncompressed content of the entry. The checksum is calculated by reading
+     * the entry on first access and is cached afterwards.
+     * @param entry
+     *  the entry whose checksum should be determined
+     * @return
+     *  the Adler-32 checksum of the content
+     * @throws IOException
+     *  if the content of the entry could not be read
+     */
+    public long getAdler32(final ZipEntry entry) throws IOException {
+
+        final Long cached = this.adler32Checksums.get(entry.getName());
+        if (cached != null) {
+            return cached;
+        }
+        final Adler32 adler32 = new Adler32();
+        final byte[] buffer = new byte[8192];
+        try (InputStream inStream = this.archive.getInputStream(entry)) {
+            int read;
+            while ((read = inStream.read(buffer)) != -1) {
+                adler32.update(buffer, 0, read);
+            }
+        }
+        this.adler32Checksums.putIfAbsent(entry.getName(), adler32.getValue());
+        return adler32.getValue();
+    }
+
+    /**
+     * @return the number of entries in the index
+     */
+    public int size() {
+
+        return this.entries.size();
+    }
+
+    /**
+     * @return the normalized paths of all entries of the index
+     */
+    public Set<String> getPaths() {
+
+        return Collections.unmodifiableSet(this.entries.keySet());
+    }
+
+}
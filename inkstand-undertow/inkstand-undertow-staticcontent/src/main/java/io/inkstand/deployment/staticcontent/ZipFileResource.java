@@ -18,41 +18,54 @@ package io.inkstand.deployment.staticcontent;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
-import java.util.Enumeration;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.time.FastDateFormat;
 import org.slf4j.Logger;
+import org.xnio.Pooled;
 
 import io.undertow.io.IoCallback;
 import io.undertow.io.Sender;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.RangeAwareResource;
 import io.undertow.server.handlers.resource.Resource;
 import io.undertow.util.ETag;
+import io.undertow.util.ETagUtils;
+import io.undertow.util.Headers;
 import io.undertow.util.MimeMappings;
 
 /**
- * A resource implementation that reflects a single entry in a zip file. The resource is bound to a {@link ZipFile} and
- * a path within that file. Created by Gerald on 26.07.2015.
+ * A resource implementation that reflects a single entry in a zip file. The resource is bound to a {@link ZipFile},
+ * represented by its {@link ZipFileIndex}, and a path within that file. Created by Gerald on 26.07.2015.
+ * <br>
+ * Byte ranges of entries stored without compression are transferred directly from the archive. Byte ranges of
+ * deflated entries are served from the content cache if available, otherwise the entry is inflated up to the end of
+ * the range.
  */
-public class ZipFileResource implements Resource {
+public class ZipFileResource implements RangeAwareResource, ReadableResource {
 
     private static final Logger LOG = getLogger(ZipFileResource.class);
 
     /**
-     * The zip file that contains the entry referenced by path. It is required to read the content of the entry.
+     * The index of the zip file that contains the entry referenced by path. It is required to read the content of
+     * the entry and to list the children of directory entries.
      */
-    private final ZipFile zipFile;
+    private final ZipFileIndex zipIndex;
 
     /**
      * The zip entry that refers to the actual resource
@@ -61,23 +74,63 @@ public class ZipFileResource implements Resource {
 
 
     public static final FastDateFormat DATE_FORMAT = FastDateFormat.getInstance("EEE, dd MMM yyyy HH:mm:ss zzz");
+
+    /**
+     * Header of a gzip member without modification time, flags and file name (RFC 1952)
+     */
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    /**
+     * Header of a zlib stream with a 32K window and default compression (RFC 1950)
+     */
+    private static final byte[] ZLIB_HEADER = { 0x78, (byte) 0x9c };
+
     private final String path;
 
+    /**
+     * The cache for the content of hot entries. May be <code>null</code> if no content is cached.
+     */
+    private final ContentCache contentCache;
+
     /**
      * Creates a ZipFileResource for a zip entry in a zip file.
-     * @param zipFile
-     *  the zip file containing the zip entry. The file is needed to read the actual data from the file.
+     * @param zipIndex
+     *  the index of the zip file containing the zip entry. The index is needed to read the actual data from the file
+     *  and to resolve the children of a directory entry.
+     * @param zipEntry
+     *  the actual zip entry that identifies the resource within the zip file.
+     * @param path
+     *  the requested path of the resource. As zip file entries may be named absolute or relative, they may
+     *  actually differ from the requested path.
+     */
+    public ZipFileResource(final ZipFileIndex zipIndex, final ZipEntry zipEntry, final String path) {
+
+        this(zipIndex, zipEntry, path, null);
+    }
+
+    /**
+     * Creates a ZipFileResource for a zip entry in a zip file whose content is served from a cache.
+     * @param zipIndex
+     *  the index of the zip file containing the zip entry. The index is needed to read the actual data from the file
+     *  and to resolve the children of a directory entry.
      * @param zipEntry
      *  the actual zip entry that identifies the resource within the zip file.
      * @param path
      *  the requested path of the resource. As zip file entries may be named absolute or relative, they may
      *  actually differ from the requested path.
+     * @param contentCache
+     *  the cache for the content of the entry. Entries stored without compression are not cached as they are
+     *  transferred directly from the archive file.
      */
-    public ZipFileResource(ZipFile zipFile, final ZipEntry zipEntry, String path) {
+    public ZipFileResource(final ZipFileIndex zipIndex,
+                           final ZipEntry zipEntry,
+                           final String path,
+                           final ContentCache contentCache) {
 
-        this.zipFile = zipFile;
+        this.zipIndex = zipIndex;
         this.zipEntry = zipEntry;
         this.path = path;
+        this.contentCache = contentCache;
     }
 
 
@@ -97,10 +150,36 @@ public class ZipFileResource implements Resource {
         return DATE_FORMAT.format(getLastModified());
     }
 
+    /**
+     * Provides a strong entity tag for the entry. The tag is derived from the CRC-32 checksum and the size of the
+     * entry which are both recorded in the zip file, so the tag changes whenever the content changes.
+     * @return
+     *  the entity tag or <code>null</code> for directories or entries without checksum.
+     */
     @Override
     public ETag getETag() {
 
-        return null;
+        if (zipEntry.isDirectory() || zipEntry.getCrc() == -1) {
+            return null;
+        }
+        return new ETag(false, Long.toHexString(zipEntry.getCrc()) + '-' + Long.toHexString(zipEntry.getSize()));
+    }
+
+    /**
+     * Provides the entity tag for the representation of the entry in the specified content coding. As a strong
+     * entity tag has to differ for every representation, the coding is appended to the tag of the entry.
+     * @param coding
+     *  the content coding of the representation or <code>null</code> for the uncompressed content
+     * @return
+     *  the entity tag of the representation or <code>null</code> if the entry has no entity tag
+     */
+    private ETag getETag(final String coding) {
+
+        final ETag etag = getETag();
+        if (etag == null || coding == null) {
+            return etag;
+        }
+        return new ETag(false, etag.getTag() + '-' + coding);
     }
 
     @Override
@@ -118,29 +197,11 @@ public class ZipFileResource implements Resource {
     @Override
     public List<Resource> list() {
 
-        //this check is just for preventing the scan of the entire zip file
-        //the method would return the same result without this check (equal_else mutant)
-        //but without this check the list method could be an performance issue on zip
-        //files with lots on entries
-        if(!zipEntry.isDirectory()){
-            return Collections.emptyList();
-        }
-
-        final List<Resource> resourceList = new ArrayList<>();
-        final Enumeration<? extends ZipEntry> entries = this.zipFile.entries();
-        final String rootEntryPath = zipEntry.getName();
-        while(entries.hasMoreElements()){
-            final ZipEntry entry = entries.nextElement();
-            final String entryPath = entry.getName();
-
-            //we make just a check for the base path. With this, all entries including those in the subdirectories
-            //will be added too. One could consider this as a characteristic of a zip-file content store. If this
-            //causes problems, this part should be improved with a more sophisticated logic
-            if(!entryPath.equals(rootEntryPath) && entryPath.startsWith(rootEntryPath)){
-                resourceList.add(new ZipFileResource(this.zipFile, entry, entryPath));
-            }
+        final List<ZipEntry> children = this.zipIndex.getChildren(zipEntry);
+        final List<Resource> resourceList = new ArrayList<>(children.size());
+        for (ZipEntry child : children) {
+            resourceList.add(new ZipFileResource(this.zipIndex, child, child.getName(), this.contentCache));
         }
-
         return resourceList;
     }
 
@@ -155,8 +216,43 @@ public class ZipFileResource implements Resource {
     @Override
     public void serve(final Sender sender, final HttpServerExchange exchange, final IoCallback completionCallback) {
 
+        if (zipEntry.getMethod() == ZipEntry.STORED) {
+            //stored entries are transferred as file region directly from the archive, bypassing the heap
+            final FileChannel rawData = zipIndex.getRawDataChannel(zipEntry);
+            if (rawData != null) {
+                sender.transferFrom(rawData, completionCallback);
+                return;
+            }
+        } else if (zipEntry.getMethod() == ZipEntry.DEFLATED
+                && !exchange.getResponseHeaders().contains(Headers.CONTENT_ENCODING)) {
+            //the response depends on the accepted encodings of the client, unless the entry is the precompressed
+            //variant of another resource for which the content coding has already been selected
+            exchange.getResponseHeaders().add(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+            final String coding = AcceptEncoding.select(exchange);
+            final FileChannel rawData = coding == null ? null : zipIndex.getRawDataChannel(zipEntry);
+            if (rawData != null) {
+                final ETag etag = getETag(coding);
+                if (etag != null && !ETagUtils.handleIfNoneMatch(exchange, etag, false)) {
+                    ContentResponses.serveNotModified(exchange, sender, completionCallback);
+                    return;
+                }
+                if (etag != null) {
+                    exchange.getResponseHeaders().put(Headers.ETAG, etag.toString());
+                }
+                serveEncoded(sender, exchange, completionCallback, coding, rawData);
+                return;
+            }
+        }
+        if (contentCache != null && contentCache.isCacheable(zipEntry.getSize())) {
+            serveCached(sender, exchange, completionCallback, null, null, null, 0, zipEntry.getSize());
+            return;
+        }
+        if (!exchange.isBlocking()) {
+            serveAsync(sender, exchange, completionCallback, 0, Long.MAX_VALUE);
+            return;
+        }
         final OutputStream outStream = exchange.getOutputStream();
-        try (InputStream inStream = zipFile.getInputStream(zipEntry)) {
+        try (InputStream inStream = zipIndex.getArchive().getInputStream(zipEntry)) {
 
             IOUtils.copy(inStream, outStream);
             completionCallback.onComplete(exchange, sender);
@@ -167,16 +263,306 @@ public class ZipFileResource implements Resource {
         }
     }
 
+    /**
+     * Serves the inflated content of the entry without blocking the calling thread on the client connection. The
+     * content is read chunk-wise into a buffer of the connection's buffer pool and each chunk is written using the
+     * sender. The next chunk is read once the sender has completed writing the previous one, so a slow client does
+     * not hold a worker thread while the data is being transferred.
+     * @param sender
+     *  the sender to send the data
+     * @param exchange
+     *  the current exchange
+     * @param completionCallback
+     *  the callback to notify when the content has been sent
+     * @param start
+     *  the position of the first byte of the content to send
+     * @param length
+     *  the maximum number of bytes to send
+     */
+    private void serveAsync(final Sender sender,
+                            final HttpServerExchange exchange,
+                            final IoCallback completionCallback,
+                            final long start,
+                            final long length) {
+
+        final InputStream inStream;
+        try {
+            inStream = zipIndex.getArchive().getInputStream(zipEntry);
+            IOUtils.skipFully(inStream, start);
+        } catch (IOException e) {
+            LOG.error("Could not serve content file", e);
+            completionCallback.onException(exchange, sender, e);
+            return;
+        }
+        final Pooled<ByteBuffer> pooled = exchange.getConnection().getBufferPool().allocate();
+        new PooledContentSender(inStream, pooled, length, completionCallback).sendNext(exchange, sender);
+    }
+
+    /**
+     * Serves the deflated data of the entry as is, without inflating it. The data is framed by the header and
+     * trailer of the selected content coding, the checksum of the trailer is taken from the zip entry for gzip and
+     * from the index for deflate (zlib).
+     * @param sender
+     *  the sender to send the data
+     * @param exchange
+     *  the current exchange
+     * @param completionCallback
+     *  the callback to notify when the content has been sent
+     * @param coding
+     *  the content coding, either gzip or deflate
+     * @param rawData
+     *  the channel providing the deflated data of the entry
+     */
+    private void serveEncoded(final Sender sender,
+                              final HttpServerExchange exchange,
+                              final IoCallback completionCallback,
+                              final String coding,
+                              final FileChannel rawData) {
+
+        final ByteBuffer header;
+        final ByteBuffer trailer;
+        if (AcceptEncoding.GZIP.equals(coding)) {
+            header = ByteBuffer.wrap(GZIP_HEADER);
+            trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) zipEntry.getCrc()).putInt((int) zipEntry.getSize()).flip();
+        } else {
+            header = ByteBuffer.wrap(ZLIB_HEADER);
+            trailer = ByteBuffer.allocate(4);
+            try {
+                trailer.putInt((int) zipIndex.getAdler32(zipEntry)).flip();
+            } catch (IOException e) {
+                LOG.error("Could not serve content file", e);
+                completionCallback.onException(exchange, sender, e);
+                return;
+            }
+        }
+        exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, coding);
+        final long length = header.remaining() + zipEntry.getCompressedSize() + trailer.remaining();
+        ContentResponses.setContentLength(exchange, length);
+
+        if (contentCache != null && contentCache.isCacheable(length)) {
+            serveCached(sender, exchange, completionCallback, coding, header, trailer, 0, length);
+            return;
+        }
+        sender.send(header, new ChainedCallback(completionCallback) {
+
+            @Override
+            public void onComplete(final HttpServerExchange exchange, final Sender sender) {
+
+                sender.transferFrom(rawData, new ChainedCallback(completionCallback) {
+
+                    @Override
+                    public void onComplete(final HttpServerExchange exchange, final Sender sender) {
+
+                        sender.send(trailer, completionCallback);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Serves the content of the entry from the cache. If the content is not cached yet, it is read from the archive
+     * and put into the cache. As reading and inflating the content blocks, a request in the IO thread is dispatched
+     * to a worker thread in that case. The representations in different content codings are cached separately.
+     * @param sender
+     *  the sender to send the data
+     * @param exchange
+     *  the current exchange
+     * @param completionCallback
+     *  the callback to notify when the content has been sent
+     * @param coding
+     *  the content coding of the representation or <code>null</code> for the inflated content
+     * @param header
+     *  the header of the content coding, <code>null</code> for the inflated content
+     * @param trailer
+     *  the trailer of the content coding, <code>null</code> for the inflated content
+     * @param first
+     *  the position of the first byte of the content to send
+     * @param length
+     *  the number of bytes to send
+     */
+    private void serveCached(final Sender sender,
+                             final HttpServerExchange exchange,
+                             final IoCallback completionCallback,
+                             final String coding,
+                             final ByteBuffer header,
+                             final ByteBuffer trailer,
+                             final long first,
+                             final long length) {
+
+        final String key = coding == null ? getCacheKey() : getCacheKey() + '-' + coding;
+        final ByteBuffer cached = contentCache.get(key);
+        if (cached != null) {
+            sendSection(sender, completionCallback, cached, first, length);
+            return;
+        }
+        if (exchange.isInIoThread()) {
+            exchange.dispatch(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    loadCached(sender, exchange, completionCallback, key, header, trailer, first, length);
+                }
+            });
+            return;
+        }
+        loadCached(sender, exchange, completionCallback, key, header, trailer, first, length);
+    }
+
+    /**
+     * Reads the content of the entry from the archive, puts it into the cache and sends the requested section.
+     */
+    private void loadCached(final Sender sender,
+                            final HttpServerExchange exchange,
+                            final IoCallback completionCallback,
+                            final String key,
+                            final ByteBuffer header,
+                            final ByteBuffer trailer,
+                            final long first,
+                            final long length) {
+
+        final ByteBuffer content;
+        try {
+            content = contentCache.put(key, readContent(header, trailer));
+        } catch (IOException e) {
+            LOG.error("Could not serve content file", e);
+            completionCallback.onException(exchange, sender, e);
+            return;
+        }
+        sendSection(sender, completionCallback, content, first, length);
+    }
+
+    private static void sendSection(final Sender sender,
+                                    final IoCallback completionCallback,
+                                    final ByteBuffer content,
+                                    final long first,
+                                    final long length) {
+
+        content.position((int) first).limit((int) (first + length));
+        sender.send(content, completionCallback);
+    }
+
+    /**
+     * Reads the entire content of the entry into a buffer.
+     * @param header
+     *  the header of the content coding or <code>null</code> to read the inflated content
+     * @param trailer
+     *  the trailer of the content coding or <code>null</code> to read the inflated content
+     * @return
+     *  a buffer containing the content, ready to be read
+     * @throws IOException
+     *  if the entry could not be read
+     */
+    private ByteBuffer readContent(final ByteBuffer header, final ByteBuffer trailer) throws IOException {
+
+        final ByteBuffer content;
+        if (header == null) {
+            content = ByteBuffer.allocate((int) zipEntry.getSize());
+            try (ReadableByteChannel source = Channels.newChannel(zipIndex.getArchive().getInputStream(zipEntry))) {
+                readFully(source, content, content.capacity());
+            }
+        } else {
+            final int length = (int) zipEntry.getCompressedSize();
+            content = ByteBuffer.allocate(header.remaining() + length + trailer.remaining());
+            content.put(header.duplicate());
+            try (ReadableByteChannel source = zipIndex.getRawDataChannel(zipEntry)) {
+                readFully(source, content, length);
+            }
+            content.put(trailer.duplicate());
+        }
+        content.flip();
+        return content;
+    }
+
+    /**
+     * Reads the specified number of bytes from the channel into the buffer.
+     * @throws EOFException
+     *  if the channel ends before the number of bytes has been read
+     */
+    private void readFully(final ReadableByteChannel source, final ByteBuffer buffer, final int length)
+            throws IOException {
+
+        final int limit = buffer.limit();
+        buffer.limit(buffer.position() + length);
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer) == -1) {
+                throw new EOFException("Unexpected end of entry " + zipEntry.getName());
+            }
+        }
+        buffer.limit(limit);
+    }
+
+    @Override
+    public boolean isRangeSupported() {
+
+        return !zipEntry.isDirectory() && zipEntry.getSize() >= 0;
+    }
+
+    @Override
+    public void serveRange(final Sender sender,
+                           final HttpServerExchange exchange,
+                           final long start,
+                           final long end,
+                           final IoCallback completionCallback) {
+
+        final long size = zipEntry.getSize();
+        final long[] range = ContentResponses.resolveRange(start, end, size);
+        final long first = range[0];
+        final long length = range[1];
+
+        if (zipEntry.getMethod() == ZipEntry.STORED) {
+            final FileChannel rawData = zipIndex.getRawDataChannel(zipEntry, first, length);
+            if (rawData != null) {
+                sender.transferFrom(rawData, completionCallback);
+                return;
+            }
+        }
+        if (contentCache != null && contentCache.isCacheable(size)) {
+            serveCached(sender, exchange, completionCallback, null, null, null, first, length);
+            return;
+        }
+        if (!exchange.isBlocking()) {
+            serveAsync(sender, exchange, completionCallback, first, length);
+            return;
+        }
+        //inflating can not be resumed at an arbitrary position, the content before the range has to be skipped
+        final OutputStream outStream = exchange.getOutputStream();
+        try (InputStream inStream = zipIndex.getArchive().getInputStream(zipEntry)) {
+
+            IOUtils.copyLarge(inStream, outStream, first, length);
+            completionCallback.onComplete(exchange, sender);
+
+        } catch (IOException e) {
+            LOG.error("Could not serve content file", e);
+            completionCallback.onException(exchange, sender, e);
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+
+        return zipIndex.getArchive().getInputStream(zipEntry);
+    }
+
     @Override
     public Long getContentLength() {
 
         return zipEntry.getSize();
     }
 
+    /**
+     * The cache key identifies the content of the entry across resources of the same zip file and is composed of the
+     * path of the zip file, the name of the entry and its entity tag.
+     * @return
+     *  the cache key of the entry
+     */
     @Override
     public String getCacheKey() {
 
-        return null;
+        final ETag etag = getETag();
+        return zipIndex.getArchive().getName() + '!' + zipEntry.getName() + (etag == null ? "" : '#' + etag.getTag());
     }
 
     @Override
@@ -196,4 +582,108 @@ public class ZipFileResource implements Resource {
 
         return null;
     }
+
+    /**
+     * Callback for a step of a sequence of send operations that forwards failures to the callback of the entire
+     * sequence.
+     */
+    private abstract static class ChainedCallback implements IoCallback {
+
+        private final IoCallback completionCallback;
+
+        ChainedCallback(final IoCallback completionCallback) {
+
+            this.completionCallback = completionCallback;
+        }
+
+        @Override
+        public void onException(final HttpServerExchange exchange, final Sender sender, final IOException exception) {
+
+            LOG.error("Could not serve content file", exception);
+            this.completionCallback.onException(exchange, sender, exception);
+        }
+    }
+
+    /**
+     * Callback that sends the content of an input stream, up to a maximum length, chunk by chunk through a pooled
+     * buffer. Each completed send operation triggers reading and sending the next chunk until the end of the stream
+     * or the maximum length is reached. The stream is closed and the buffer is returned to the pool when the content
+     * has been sent or sending failed.
+     */
+    private static final class PooledContentSender implements IoCallback {
+
+        private final InputStream inStream;
+        private final ReadableByteChannel source;
+        private final Pooled<ByteBuffer> pooled;
+        private final IoCallback completionCallback;
+        private long remaining;
+        private boolean endOfStream;
+
+        PooledContentSender(final InputStream inStream,
+                            final Pooled<ByteBuffer> pooled,
+                            final long length,
+                            final IoCallback completionCallback) {
+
+            this.inStream = inStream;
+            this.source = Channels.newChannel(inStream);
+            this.pooled = pooled;
+            this.remaining = length;
+            this.completionCallback = completionCallback;
+        }
+
+        /**
+         * Reads the next chunk into the buffer and sends it. If there is no more content, the completion callback is
+         * notified.
+         */
+        void sendNext(final HttpServerExchange exchange, final Sender sender) {
+
+            final ByteBuffer buffer = pooled.getResource();
+            buffer.clear();
+            if (buffer.remaining() > remaining) {
+                buffer.limit((int) remaining);
+            }
+            try {
+                while (buffer.hasRemaining() && !endOfStream) {
+                    endOfStream = source.read(buffer) == -1;
+                }
+            } catch (IOException e) {
+                onException(exchange, sender, e);
+                return;
+            }
+            buffer.flip();
+            remaining -= buffer.remaining();
+            endOfStream |= remaining == 0;
+            if (buffer.hasRemaining()) {
+                sender.send(buffer, this);
+            } else {
+                release();
+                completionCallback.onComplete(exchange, sender);
+            }
+        }
+
+        @Override
+        public void onComplete(final HttpServerExchange exchange, final Sender sender) {
+
+            if (endOfStream) {
+                release();
+                completionCallback.onComplete(exchange, sender);
+            } else {
+                sendNext(exchange, sender);
+            }
+        }
+
+        @Override
+        public void onException(final HttpServerExchange exchange, final Sender sender, final IOException exception) {
+
+            release();
+            LOG.error("Could not serve content file", exception);
+            completionCallback.onException(exchange, sender, exception);
+        }
+
+        private void release() {
+
+            IOUtils.closeQuietly(inStream);
+            pooled.free();
+        }
+    }
 }
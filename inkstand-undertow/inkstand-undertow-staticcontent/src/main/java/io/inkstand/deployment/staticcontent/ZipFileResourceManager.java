@@ -20,9 +20,8 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Enumeration;
+import java.util.Set;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import org.slf4j.Logger;
 
@@ -37,14 +36,29 @@ import io.undertow.server.handlers.resource.ResourceManager;
  * leave the content structure with relative paths.
  * Created by Gerald on 26.07.2015.
  */
-public class ZipFileResourceManager implements ResourceManager {
+public class ZipFileResourceManager implements IndexedResourceManager {
 
     private static final Logger LOG = getLogger(ZipFileResourceManager.class);
 
     /**
-     * The zip file containing the resource to be served by this manager.
+     * The archive containing the resource to be served by this manager.
      */
-    private final ZipFile zipFile;
+    private final ZipArchive archive;
+
+    /**
+     * The lookup index of the entries of the zip file. It is built once when the manager is created.
+     */
+    private final ZipFileIndex zipIndex;
+
+    /**
+     * Flag to indicate the zip file has been closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * The cache for the content of the zip entries. May be <code>null</code>.
+     */
+    private final ContentCache contentCache;
 
     /**
      * Creates the resource manager for serving the contents of the zip file.
@@ -52,15 +66,48 @@ public class ZipFileResourceManager implements ResourceManager {
      */
     public ZipFileResourceManager(File zipFile) {
 
-        try {
-            this.zipFile = new ZipFile(zipFile);
-            if(LOG.isDebugEnabled()){
-                LOG.debug("Registered resources");
-                final Enumeration<? extends ZipEntry> entries = this.zipFile.entries();
-                while(entries.hasMoreElements()){
-                    LOG.debug("{}", entries.nextElement().getName());
-                }
+        this(zipFile, null);
+    }
+
+    /**
+     * Creates the resource manager for serving the contents of the zip file with the content of hot entries being
+     * cached.
+     * @param zipFile
+     *  the zip file containing the content
+     * @param contentCache
+     *  the cache for the content of the zip entries or <code>null</code> if no content should be cached
+     */
+    public ZipFileResourceManager(File zipFile, ContentCache contentCache) {
+
+        this(openArchive(zipFile), contentCache);
+    }
+
+    /**
+     * Creates the resource manager for serving the contents of the zip archive with the content of hot entries being
+     * cached. The archive is closed when the manager is closed.
+     * @param archive
+     *  the archive containing the content
+     * @param contentCache
+     *  the cache for the content of the zip entries or <code>null</code> if no content should be cached
+     */
+    public ZipFileResourceManager(ZipArchive archive, ContentCache contentCache) {
+
+        this.archive = archive;
+        this.contentCache = contentCache;
+        this.zipIndex = new ZipFileIndex(archive);
+        LOG.info("Indexed {} entries of {}", this.zipIndex.size(), archive.getName());
+        if(LOG.isDebugEnabled()){
+            LOG.debug("Registered resources");
+            for(ZipEntry entry : archive.getEntries()){
+                LOG.debug("{}", entry.getName());
             }
+        }
+    }
+
+    private static ZipArchive openArchive(final File zipFile) {
+
+        try {
+            return new ZipFileArchive(zipFile);
         } catch (IOException e) {
             throw new InkstandRuntimeException("Could not read content from zip file  " + zipFile, e);
         }
@@ -69,25 +116,21 @@ public class ZipFileResourceManager implements ResourceManager {
     @Override
     public Resource getResource(final String path) throws IOException {
 
-        //entries in the zip file can be with leading / or without
-        ZipEntry entry;
-        if(path.startsWith("/")){
-            entry = getEntry(path, path.substring(1));
-        } else {
-            entry = getEntry("/" + path, path);
+        if(closed) {
+            throw new IllegalStateException("zip file closed");
         }
+        //entries in the zip file can be with leading / or without, the index covers both
+        final ZipEntry entry = this.zipIndex.getEntry(path);
         if(entry == null) {
             return null;
         }
-        return new ZipFileResource(this.zipFile, entry, path);
+        return new ZipFileResource(this.zipIndex, entry, path, this.contentCache);
     }
 
-    private ZipEntry getEntry(final String absolutePath, final String relativePath) {
-        ZipEntry entry = this.zipFile.getEntry(absolutePath);
-        if(entry == null) {
-            entry = this.zipFile.getEntry(relativePath);
-        }
-        return entry;
+    @Override
+    public Set<String> getPaths() {
+
+        return this.zipIndex.getPaths();
     }
 
     @Override
@@ -107,6 +150,7 @@ public class ZipFileResourceManager implements ResourceManager {
 
     @Override
     public void close() throws IOException {
-        this.zipFile.close();
+        this.closed = true;
+        this.archive.close();
     }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+import io.undertow.util.Headers;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AcceptEncodingTest {
+
+    @Mock
+    private ServerConnection serverCon;
+
+    private String select(String acceptEncoding) {
+
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        if (acceptEncoding != null) {
+            exchange.getRequestHeaders().put(Headers.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return AcceptEncoding.select(exchange);
+    }
+
+    @Test
+    public void testSelect_noHeader_null() throws Exception {
+
+        assertNull(select(null));
+    }
+
+    @Test
+    public void testSelect_identityOnly_null() throws Exception {
+
+        assertNull(select("identity"));
+    }
+
+    @Test
+    public void testSelect_gzipAndDeflate_gzipPreferred() throws Exception {
+
+        assertEquals("gzip", select("deflate, gzip"));
+    }
+
+    @Test
+    public void testSelect_deflateHigherQuality_deflate() throws Exception {
+
+        assertEquals("deflate", select("gzip;q=0.5, deflate"));
+    }
+
+    @Test
+    public void testSelect_deflateOnly_deflate() throws Exception {
+
+        assertEquals("deflate", select("deflate"));
+    }
+
+    @Test
+    public void testSelect_refused_null() throws Exception {
+
+        assertNull(select("gzip;q=0, deflate;q=0"));
+    }
+
+    @Test
+    public void testSelect_wildcard_gzip() throws Exception {
+
+        assertEquals("gzip", select("*"));
+    }
+
+    @Test
+    public void testSelect_wildcardGzipRefused_deflate() throws Exception {
+
+        assertEquals("deflate", select("gzip;q=0, deflate;q=0.2, *;q=0.5"));
+    }
+
+    private String select(String acceptEncoding, String... available) {
+
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.getRequestHeaders().put(Headers.ACCEPT_ENCODING, acceptEncoding);
+        return AcceptEncoding.select(exchange, available);
+    }
+
+    @Test
+    public void testSelect_available_brotliPreferred() throws Exception {
+
+        assertEquals("br", select("gzip, deflate, br", "br", "gzip"));
+    }
+
+    @Test
+    public void testSelect_available_higherQualityFirst() throws Exception {
+
+        assertEquals("gzip", select("br;q=0.5, gzip", "br", "gzip"));
+    }
+
+    @Test
+    public void testSelect_available_notAccepted_null() throws Exception {
+
+        assertNull(select("deflate", "br", "gzip"));
+    }
+
+    @Test
+    public void testSelect_available_wildcardBrotliRefused_gzip() throws Exception {
+
+        assertEquals("gzip", select("br;q=0, *", "br", "gzip"));
+    }
+
+    @Test
+    public void testSelect_noneAvailable_null() throws Exception {
+
+        assertNull(select("gzip", new String[0]));
+    }
+}
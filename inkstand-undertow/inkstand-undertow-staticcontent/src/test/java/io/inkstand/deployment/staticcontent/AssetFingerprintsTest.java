@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AssetFingerprintsTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static String crc(byte[] data) {
+
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        return String.format("%08x", crc.getValue());
+    }
+
+    @Test
+    public void testToAlias() throws Exception {
+
+        assertEquals("js/app.0000abcd.js", AssetFingerprints.toAlias("js/app.js", 0xabcd));
+        assertEquals("css.d/LICENSE.0000abcd", AssetFingerprints.toAlias("css.d/LICENSE", 0xabcd));
+        assertEquals("app.min.0000abcd.js", AssetFingerprints.toAlias("app.min.js", 0xabcd));
+    }
+
+    @Test
+    public void testFromArchive() throws Exception {
+
+        //prepare
+        final byte[] data = "console.log('app');".getBytes("UTF-8");
+        final File zip = folder.newFile("content.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+            zos.putNextEntry(new ZipEntry("js/"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("/js/app.js"));
+            zos.write(data);
+            zos.closeEntry();
+        }
+
+        //act
+        final AssetFingerprints fingerprints;
+        try (ZipArchive archive = new ZipFileArchive(zip)) {
+            fingerprints = AssetFingerprints.fromArchive(archive);
+        }
+
+        //assert
+        final String alias = "js/app." + crc(data) + ".js";
+        assertEquals(1, fingerprints.getManifest().size());
+        assertEquals(alias, fingerprints.getAlias("js/app.js"));
+        assertEquals("js/app.js", fingerprints.getPath(alias));
+        assertNull(fingerprints.getPath("js/app.js"));
+    }
+
+    @Test
+    public void testFromDirectory() throws Exception {
+
+        //prepare
+        final byte[] data = "body {}".getBytes("UTF-8");
+        final File root = folder.newFolder("content");
+        new File(root, "css").mkdir();
+        Files.write(new File(root, "css/style.css").toPath(), data);
+
+        //act
+        final AssetFingerprints fingerprints = AssetFingerprints.fromDirectory(root);
+
+        //assert
+        assertEquals("css/style." + crc(data) + ".css", fingerprints.getAlias("css/style.css"));
+    }
+
+    @Test
+    public void testFromDirectory_aliasOfExistingAsset_notMapped() throws Exception {
+
+        //prepare
+        final byte[] data = "body {}".getBytes("UTF-8");
+        final File root = folder.newFolder("content");
+        Files.write(new File(root, "style.css").toPath(), data);
+        Files.write(new File(root, "style." + crc(data) + ".css").toPath(), data);
+
+        //act
+        final AssetFingerprints fingerprints = AssetFingerprints.fromDirectory(root);
+
+        //assert
+        assertNull(fingerprints.getAlias("style.css"));
+        assertEquals(1, fingerprints.getManifest().size());
+    }
+
+    @Test
+    public void testFromRoots_firstRootWins() throws Exception {
+
+        //prepare
+        final byte[] tenant = "tenant".getBytes("UTF-8");
+        final File zip = folder.newFile("tenant.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+            zos.putNextEntry(new ZipEntry("theme.css"));
+            zos.write(tenant);
+            zos.closeEntry();
+        }
+        final File root = folder.newFolder("base");
+        Files.write(new File(root, "theme.css").toPath(), "base".getBytes("UTF-8"));
+        Files.write(new File(root, "app.js").toPath(), "app".getBytes("UTF-8"));
+
+        //act
+        final AssetFingerprints fingerprints = AssetFingerprints.fromRoots(Arrays.asList(zip, root));
+
+        //assert
+        assertEquals(2, fingerprints.getManifest().size());
+        assertEquals("theme." + crc(tenant) + ".css", fingerprints.getAlias("theme.css"));
+    }
+
+    @Test
+    public void testToJson() throws Exception {
+
+        //prepare
+        final File root = folder.newFolder("content");
+        Files.write(new File(root, "a\"b.js").toPath(), new byte[0]);
+        Files.write(new File(root, "c.js").toPath(), new byte[0]);
+        final AssetFingerprints fingerprints = AssetFingerprints.fromDirectory(root);
+
+        //act
+        String json = fingerprints.toJson();
+
+        //assert
+        assertEquals("{\n  \"a\\\"b.js\": \"a\\\"b.00000000.js\",\n  \"c.js\": \"c.00000000.js\"\n}", json);
+    }
+}
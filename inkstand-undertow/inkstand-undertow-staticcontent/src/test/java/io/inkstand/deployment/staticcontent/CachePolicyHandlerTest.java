@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+import io.undertow.util.Headers;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachePolicyHandlerTest {
+
+    @Mock
+    private ServerConnection serverCon;
+
+    @Mock
+    private HttpHandler next;
+
+    @Test
+    public void testHandleRequest_nextInvoked() throws Exception {
+
+        //prepare
+        final CachePolicyHandler subject = new CachePolicyHandler(CacheRules.compile("*.js Cache-Control:public"),
+                                                                  next);
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.setRelativePath("/app.js");
+
+        //act
+        subject.handleRequest(exchange);
+
+        //assert
+        verify(next).handleRequest(exchange);
+        //the policy is applied when the response is committed
+        assertNull(exchange.getResponseHeaders().getFirst(Headers.CACHE_CONTROL));
+    }
+
+    @Test
+    public void testBeforeCommit_ok_policyApplied() throws Exception {
+
+        //prepare
+        final CachePolicy policy = CachePolicy.parse("Cache-Control:public, max-age=60; Expires:60; Vary:Origin");
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.getResponseHeaders().put(Headers.VARY, "Accept-Encoding");
+
+        //act
+        new CachePolicyHandler.PolicyCommitListener(policy).beforeCommit(exchange);
+
+        //assert
+        assertEquals("public, max-age=60", exchange.getResponseHeaders().getFirst(Headers.CACHE_CONTROL));
+        assertNotNull(exchange.getResponseHeaders().getFirst(Headers.EXPIRES));
+        assertEquals(2, exchange.getResponseHeaders().get(Headers.VARY).size());
+    }
+
+    @Test
+    public void testBeforeCommit_notModified_policyApplied() throws Exception {
+
+        //prepare
+        final CachePolicy policy = CachePolicy.parse("Cache-Control:no-cache");
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.setResponseCode(304);
+
+        //act
+        new CachePolicyHandler.PolicyCommitListener(policy).beforeCommit(exchange);
+
+        //assert
+        assertEquals("no-cache", exchange.getResponseHeaders().getFirst(Headers.CACHE_CONTROL));
+    }
+
+    @Test
+    public void testBeforeCommit_notFound_notApplied() throws Exception {
+
+        //prepare
+        final CachePolicy policy = CachePolicy.parse("Cache-Control:public");
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.setResponseCode(404);
+
+        //act
+        new CachePolicyHandler.PolicyCommitListener(policy).beforeCommit(exchange);
+
+        //assert
+        assertNull(exchange.getResponseHeaders().getFirst(Headers.CACHE_CONTROL));
+    }
+
+    @Test
+    public void testBeforeCommit_cacheControlPresent_retained() throws Exception {
+
+        //prepare
+        final CachePolicy policy = CachePolicy.parse("Cache-Control:no-cache; Vary:Accept-Encoding");
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, FingerprintHandler.IMMUTABLE_CACHE_CONTROL);
+        exchange.getResponseHeaders().put(Headers.VARY, "accept-encoding");
+
+        //act
+        new CachePolicyHandler.PolicyCommitListener(policy).beforeCommit(exchange);
+
+        //assert
+        assertEquals(FingerprintHandler.IMMUTABLE_CACHE_CONTROL,
+                     exchange.getResponseHeaders().getFirst(Headers.CACHE_CONTROL));
+        assertEquals(1, exchange.getResponseHeaders().get(Headers.VARY).size());
+    }
+}
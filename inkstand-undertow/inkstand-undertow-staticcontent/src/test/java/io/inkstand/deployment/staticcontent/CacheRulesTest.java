@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CacheRulesTest {
+
+    @Test
+    public void testCompile_null_empty() throws Exception {
+
+        assertTrue(CacheRules.compile(null).isEmpty());
+        assertTrue(CacheRules.compile("  ").isEmpty());
+        assertNull(CacheRules.compile(null).getPolicy("/index.html"));
+    }
+
+    @Test
+    public void testGetPolicy_extension() throws Exception {
+
+        //prepare
+        CacheRules subject = CacheRules.compile("*.html Cache-Control:no-cache | *.css,*.js Expires:3600");
+
+        //act
+        CachePolicy html = subject.getPolicy("/index.html");
+        CachePolicy js = subject.getPolicy("/js/app.js");
+
+        //assert
+        assertFalse(subject.isEmpty());
+        assertEquals("no-cache", html.getCacheControl());
+        assertEquals(-1, html.getExpiresSeconds());
+        assertEquals(3600, js.getExpiresSeconds());
+        assertNull(subject.getPolicy("/image.png"));
+    }
+
+    @Test
+    public void testGetPolicy_firstRuleWins() throws Exception {
+
+        //prepare
+        CacheRules subject = CacheRules.compile("assets/** Cache-Control:public, max-age=31536000; Vary:Origin\n"
+                                                        + "*.js Cache-Control:no-cache");
+
+        //act
+        CachePolicy asset = subject.getPolicy("/assets/lib/app.js");
+        CachePolicy other = subject.getPolicy("/app.js");
+
+        //assert
+        assertEquals("public, max-age=31536000", asset.getCacheControl());
+        assertEquals("Origin", asset.getVary());
+        assertEquals("no-cache", other.getCacheControl());
+    }
+
+    @Test
+    public void testGetPolicy_extensionRuleBeforePattern() throws Exception {
+
+        //prepare
+        CacheRules subject = CacheRules.compile("*.js Cache-Control:no-cache | assets/** Cache-Control:public");
+
+        //act
+        CachePolicy js = subject.getPolicy("assets/app.js");
+        CachePolicy css = subject.getPolicy("assets/app.css");
+
+        //assert
+        assertEquals("no-cache", js.getCacheControl());
+        assertEquals("public", css.getCacheControl());
+    }
+
+    @Test
+    public void testGetPolicy_namePattern() throws Exception {
+
+        //prepare
+        CacheRules subject = CacheRules.compile("app.?.js Cache-Control:public");
+
+        //act & assert
+        assertEquals("public", subject.getPolicy("/js/app.1.js").getCacheControl());
+        assertNull(subject.getPolicy("/js/app.12.js"));
+    }
+
+    @Test
+    public void testToRegex() throws Exception {
+
+        assertTrue(CacheRules.toRegex("**/*.js").matcher("app.js").matches());
+        assertTrue(CacheRules.toRegex("**/*.js").matcher("a/b/app.js").matches());
+        assertFalse(CacheRules.toRegex("a/*.js").matcher("a/b/app.js").matches());
+        assertFalse(CacheRules.toRegex("a/*.js").matcher("a/appxjs").matches());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompile_noPolicy_exception() throws Exception {
+
+        CacheRules.compile("*.html");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompile_unsupportedHeader_exception() throws Exception {
+
+        CacheRules.compile("*.html Pragma:no-cache");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompile_invalidExpires_exception() throws Exception {
+
+        CacheRules.compile("*.html Expires:tomorrow");
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.undertow.io.Sender;
+import io.undertow.server.BlockingHttpExchange;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+import io.undertow.server.handlers.resource.FileResourceManager;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.util.Methods;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ComboHandlerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private ServerConnection serverCon;
+
+    @Mock
+    private HttpHandler next;
+
+    @Mock
+    private BlockingHttpExchange blockingExchange;
+
+    @Mock
+    private Sender sender;
+
+    private File root;
+
+    private FileResourceManager resourceManager;
+
+    /**
+     * The class under test
+     */
+    private ComboHandler subject;
+
+    @Before
+    public void setUp() throws Exception {
+
+        root = folder.newFolder("content");
+        new File(root, "js").mkdir();
+        Files.write(new File(root, "js/a.js").toPath(), "var a;".getBytes("UTF-8"));
+        Files.write(new File(root, "js/b.js").toPath(), "var b;".getBytes("UTF-8"));
+        Files.write(new File(root, "site.css").toPath(), "p{}".getBytes("UTF-8"));
+        resourceManager = new FileResourceManager(root, 1024);
+        subject = new ComboHandler(resourceManager, "/combo", next);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        resourceManager.close();
+    }
+
+    private static String toString(final ByteBuffer content) throws Exception {
+
+        final byte[] data = new byte[content.remaining()];
+        content.get(data);
+        return new String(data, "UTF-8");
+    }
+
+    @Test
+    public void testParsePaths() throws Exception {
+
+        assertEquals(Arrays.asList("js/a.js", "js/b.js", "c d.js"),
+                     ComboHandler.parsePaths("js/a.js&/js/b.js=&c%20d.js"));
+    }
+
+    @Test
+    public void testParsePaths_plus_notSpace() throws Exception {
+
+        assertEquals(Arrays.asList("c++.js", "a+b.js", "c d.js"),
+                     ComboHandler.parsePaths("c%2B%2B.js&a+b.js&c%20d.js"));
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+
+        assertEquals("js/a.js", ComboHandler.decode("js/a.js"));
+        assertEquals("js/\u00e4+\u00f6.js", ComboHandler.decode("js/%C3%A4+\u00f6.js"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecode_incompleteEscape_exception() throws Exception {
+
+        ComboHandler.decode("a.js%2");
+    }
+
+    @Test(expected = CharacterCodingException.class)
+    public void testDecode_invalidUtf8_exception() throws Exception {
+
+        ComboHandler.decode("%C3.js");
+    }
+
+    @Test
+    public void testParsePaths_invalid_null() throws Exception {
+
+        assertNull(ComboHandler.parsePaths(null));
+        assertNull(ComboHandler.parsePaths(""));
+        assertNull(ComboHandler.parsePaths("&"));
+        assertNull(ComboHandler.parsePaths("js/../../secret.js"));
+        assertNull(ComboHandler.parsePaths("%zz"));
+        assertNull(ComboHandler.parsePaths("a.js%"));
+    }
+
+    @Test
+    public void testParsePaths_tooManyPaths_null() throws Exception {
+
+        final StringBuilder query = new StringBuilder("a.js");
+        for (int i = 0; i < ComboHandler.MAX_RESOURCES; i++) {
+            query.append("&a.js");
+        }
+        assertNull(ComboHandler.parsePaths(query.toString()));
+    }
+
+    @Test
+    public void testGetResources_missingResource_null() throws Exception {
+
+        assertNull(subject.getResources(Arrays.asList("js/a.js", "js/missing.js")));
+        assertNull(subject.getResources(Arrays.asList("js")));
+    }
+
+    @Test
+    public void testGetContentType_mixedTypes_null() throws Exception {
+
+        //prepare
+        final List<Resource> resources = subject.getResources(Arrays.asList("js/a.js", "site.css"));
+
+        //act
+        final String contentType = ComboHandler.getContentType(resources);
+
+        //assert
+        assertNull(contentType);
+    }
+
+    @Test
+    public void testIsText() throws Exception {
+
+        assertTrue(ComboHandler.isText("text/css"));
+        assertTrue(ComboHandler.isText("application/javascript"));
+        assertTrue(ComboHandler.isText("application/json; charset=UTF-8"));
+        assertFalse(ComboHandler.isText("image/png"));
+        assertFalse(ComboHandler.isText("application/octet-stream"));
+    }
+
+    @Test
+    public void testGetContentLength() throws Exception {
+
+        //prepare
+        final List<Resource> resources = subject.getResources(Arrays.asList("js/a.js", "js/b.js", "js/a.js"));
+
+        //act
+        final long length = ComboHandler.getContentLength(resources);
+
+        //assert
+        assertEquals(20L, length);
+    }
+
+    @Test
+    public void testGetCombo_concatenated() throws Exception {
+
+        //prepare
+        final List<Resource> resources = subject.getResources(Arrays.asList("js/a.js", "js/b.js"));
+
+        //act
+        final ComboHandler.Combo combo = subject.getCombo(Arrays.asList("js/a.js", "js/b.js"),
+                                                          resources,
+                                                          ComboHandler.getContentType(resources));
+
+        //assert
+        assertEquals("var a;\nvar b;", toString(combo.getContent()));
+        assertFalse(combo.getETag().isWeak());
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void testGetCombo_unchanged_cachedComboUsed() throws Exception {
+
+        //prepare
+        final List<Resource> resources = subject.getResources(Arrays.asList("js/a.js", "js/b.js"));
+        final ComboHandler.Combo first = subject.getCombo(Arrays.asList("js/a.js", "js/b.js"),
+                                                          resources,
+                                                          "application/javascript");
+
+        //act
+        final ComboHandler.Combo second = subject.getCombo(Arrays.asList("js/a.js", "js/b.js"),
+                                                           subject.getResources(Arrays.asList("js/a.js",
+                                                                                              "js/b.js")),
+                                                           "application/javascript");
+
+        //assert
+        assertSame(first, second);
+    }
+
+    @Test
+    public void testGetCombo_changedResource_rebuilt() throws Exception {
+
+        //prepare
+        final File file = new File(root, "js/b.js");
+        final ComboHandler.Combo first = subject.getCombo(Arrays.asList("js/a.js", "js/b.js"),
+                                                          subject.getResources(Arrays.asList("js/a.js",
+                                                                                             "js/b.js")),
+                                                          "application/javascript");
+        Files.write(file.toPath(), "var bb;".getBytes("UTF-8"));
+        file.setLastModified(file.lastModified() + 10_000L);
+
+        //act
+        final ComboHandler.Combo second = subject.getCombo(Arrays.asList("js/a.js", "js/b.js"),
+                                                           subject.getResources(Arrays.asList("js/a.js",
+                                                                                              "js/b.js")),
+                                                           "application/javascript");
+
+        //assert
+        assertNotSame(first, second);
+        assertEquals("var a;\nvar bb;", toString(second.getContent()));
+        assertFalse(first.getETag().equals(second.getETag()));
+    }
+
+    @Test
+    public void testGetCombo_equivalentQueries_cachedComboUsed() throws Exception {
+
+        //prepare
+        final List<Resource> resources = subject.getResources(Arrays.asList("js/a.js", "js/b.js"));
+        final ComboHandler.Combo first = subject.getCombo(ComboHandler.parsePaths("js/a.js&js/b.js"),
+                                                          resources,
+                                                          "application/javascript");
+
+        //act
+        final ComboHandler.Combo second = subject.getCombo(ComboHandler.parsePaths("/js/a.js=&js%2Fb.js"),
+                                                           resources,
+                                                           "application/javascript");
+
+        //assert
+        assertSame(first, second);
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void testGetCombo_exceedsMaxSize_null() throws Exception {
+
+        //prepare
+        final ComboHandler handler = new ComboHandler(resourceManager, "/combo", 12L, 1024L, next);
+        final List<Resource> resources = handler.getResources(Arrays.asList("js/a.js", "js/b.js"));
+
+        //act
+        final ComboHandler.Combo combo = handler.getCombo(Arrays.asList("js/a.js", "js/b.js"),
+                                                          resources,
+                                                          "application/javascript");
+
+        //assert
+        assertNull(combo);
+        assertEquals(0, handler.size());
+    }
+
+    @Test
+    public void testGetCombo_cacheSizeExceeded_leastRecentlyUsedEvicted() throws Exception {
+
+        //prepare
+        final ComboHandler handler = new ComboHandler(resourceManager, "/combo", 1024L, 20L, next);
+        final List<String> ab = Arrays.asList("js/a.js", "js/b.js");
+        final List<String> a = Arrays.asList("js/a.js");
+        final List<String> b = Arrays.asList("js/b.js");
+        handler.getCombo(ab, handler.getResources(ab), "application/javascript");
+        handler.getCombo(a, handler.getResources(a), "application/javascript");
+
+        //act
+        handler.getCombo(b, handler.getResources(b), "application/javascript");
+
+        //assert
+        assertEquals(2, handler.size());
+        assertEquals(12L, handler.getCachedSize());
+    }
+
+    @Test
+    public void testGetCombo_largerThanCache_notCached() throws Exception {
+
+        //prepare
+        final ComboHandler handler = new ComboHandler(resourceManager, "/combo", 1024L, 10L, next);
+        final List<String> ab = Arrays.asList("js/a.js", "js/b.js");
+
+        //act
+        final ComboHandler.Combo combo = handler.getCombo(ab, handler.getResources(ab), "application/javascript");
+
+        //assert
+        assertEquals("var a;\nvar b;", toString(combo.getContent()));
+        assertEquals(0, handler.size());
+        assertEquals(0L, handler.getCachedSize());
+    }
+
+    @Test
+    public void testHandleRequest_otherPath_passedOn() throws Exception {
+
+        //prepare
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.setRelativePath("/js/a.js");
+        exchange.setRequestMethod(Methods.GET);
+
+        //act
+        subject.handleRequest(exchange);
+
+        //assert
+        verify(next).handleRequest(exchange);
+    }
+
+    @Test
+    public void testHandleRequest_exceedsMaxSize_forbidden() throws Exception {
+
+        //prepare
+        final ComboHandler handler = new ComboHandler(resourceManager, "/combo", 12L, 1024L, next);
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.setRelativePath("/combo");
+        exchange.setRequestMethod(Methods.GET);
+        exchange.setQueryString("js/a.js&js/b.js");
+        when(blockingExchange.getSender()).thenReturn(sender);
+        exchange.startBlocking(blockingExchange);
+
+        //act
+        handler.handleRequest(exchange);
+
+        //assert
+        assertEquals(403, exchange.getResponseCode());
+        verify(sender).send(contains("exceed 12 bytes"));
+        verify(next, never()).handleRequest(exchange);
+    }
+
+    @Test
+    public void testHandleRequest_postToCombo_passedOn() throws Exception {
+
+        //prepare
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.setRelativePath("/combo");
+        exchange.setRequestMethod(Methods.POST);
+
+        //act
+        subject.handleRequest(exchange);
+
+        //assert
+        verify(next).handleRequest(exchange);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContentCacheTest {
+
+    /**
+     * The class under test
+     */
+    private ContentCache subject;
+
+    @Before
+    public void setUp() throws Exception {
+
+        subject = new ContentCache(400);
+    }
+
+    private static ByteBuffer content(int length) {
+
+        return ByteBuffer.wrap(new byte[length]);
+    }
+
+    @Test
+    public void testIsCacheable() throws Exception {
+
+        assertTrue(subject.isCacheable(0));
+        assertTrue(subject.isCacheable(100));
+        assertFalse(subject.isCacheable(101));
+        assertFalse(subject.isCacheable(-1));
+    }
+
+    @Test
+    public void testGet_notCached_miss() throws Exception {
+
+        //act
+        ByteBuffer content = subject.get("key");
+
+        //assert
+        assertNull(content);
+        assertEquals(1, subject.getMissCount());
+        assertEquals(0, subject.getHitCount());
+    }
+
+    @Test
+    public void testPut_get_hit() throws Exception {
+
+        //prepare
+        final ByteBuffer data = ByteBuffer.wrap("content".getBytes());
+        subject.put("key", data);
+
+        //act
+        ByteBuffer content = subject.get("key");
+
+        //assert
+        assertNotNull(content);
+        assertTrue(content.isDirect());
+        assertTrue(content.isReadOnly());
+        assertEquals(ByteBuffer.wrap("content".getBytes()), content);
+        assertEquals(0, data.position());
+        assertEquals(1, subject.getHitCount());
+        assertEquals(1, subject.getEntryCount());
+        assertEquals(7, subject.getSize());
+    }
+
+    @Test
+    public void testGet_independentBuffers() throws Exception {
+
+        //prepare
+        subject.put("key", content(10));
+
+        //act
+        subject.get("key").position(10);
+        ByteBuffer content = subject.get("key");
+
+        //assert
+        assertEquals(10, content.remaining());
+    }
+
+    @Test
+    public void testPut_notCacheable_notCached() throws Exception {
+
+        //act
+        ByteBuffer content = subject.put("key", content(101));
+
+        //assert
+        assertEquals(101, content.remaining());
+        assertEquals(0, subject.getEntryCount());
+        assertEquals(0, subject.getSize());
+    }
+
+    @Test
+    public void testPut_replace() throws Exception {
+
+        //act
+        subject.put("key", content(50));
+        subject.put("key", content(20));
+
+        //assert
+        assertEquals(1, subject.getEntryCount());
+        assertEquals(20, subject.getSize());
+        assertEquals(0, subject.getEvictionCount());
+    }
+
+    @Test
+    public void testPut_full_leastRecentlyUsedEvicted() throws Exception {
+
+        //prepare
+        subject.put("a", content(100));
+        subject.put("b", content(100));
+        subject.put("c", content(100));
+        subject.put("d", content(100));
+        //a becomes the most recently used entry
+        subject.get("a");
+
+        //act
+        subject.put("e", content(100));
+
+        //assert
+        assertEquals(1, subject.getEvictionCount());
+        assertEquals(4, subject.getEntryCount());
+        assertEquals(400, subject.getSize());
+        assertNotNull(subject.get("a"));
+        assertNull(subject.get("b"));
+        assertNotNull(subject.get("e"));
+    }
+
+    @Test
+    public void testClear() throws Exception {
+
+        //prepare
+        subject.put("a", content(100));
+
+        //act
+        subject.clear();
+
+        //assert
+        assertEquals(0, subject.getEntryCount());
+        assertEquals(0, subject.getSize());
+        assertNull(subject.get("a"));
+    }
+
+    @Test
+    public void testGetMaxSize() throws Exception {
+
+        assertEquals(400, subject.getMaxSize());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+public class ContentResponsesTest {
+
+    @Test
+    public void testResolveRange_closedRange() throws Exception {
+
+        assertArrayEquals(new long[] { 2, 3 }, ContentResponses.resolveRange(2, 4, 10));
+    }
+
+    @Test
+    public void testResolveRange_endBeyondSize_truncated() throws Exception {
+
+        assertArrayEquals(new long[] { 8, 2 }, ContentResponses.resolveRange(8, 20, 10));
+    }
+
+    @Test
+    public void testResolveRange_openEnded() throws Exception {
+
+        assertArrayEquals(new long[] { 4, 6 }, ContentResponses.resolveRange(4, -1, 10));
+    }
+
+    @Test
+    public void testResolveRange_suffix() throws Exception {
+
+        assertArrayEquals(new long[] { 7, 3 }, ContentResponses.resolveRange(-1, 3, 10));
+        assertArrayEquals(new long[] { 0, 10 }, ContentResponses.resolveRange(-1, 20, 10));
+    }
+
+    @Test
+    public void testResolveRange_startBeyondSize_empty() throws Exception {
+
+        assertArrayEquals(new long[] { 12, 0 }, ContentResponses.resolveRange(12, -1, 10));
+    }
+}
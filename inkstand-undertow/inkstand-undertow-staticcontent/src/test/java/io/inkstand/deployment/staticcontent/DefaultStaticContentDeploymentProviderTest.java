@@ -18,17 +18,39 @@ package io.inkstand.deployment.staticcontent;
 
 import static io.inkstand.scribble.Scribble.inject;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import javax.enterprise.inject.Instance;
+import javax.jcr.Repository;
+import javax.jcr.Session;
+import javax.jcr.Workspace;
+import javax.jcr.observation.ObservationManager;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import io.inkstand.scribble.Scribble;
 import io.inkstand.scribble.rules.TemporaryFile;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.handlers.resource.ResourceHandler;
 import io.undertow.server.handlers.resource.ResourceManager;
 import io.undertow.servlet.api.DeploymentInfo;
 
@@ -41,6 +63,9 @@ public class DefaultStaticContentDeploymentProviderTest {
     /**
      * The class under test
      */
+    @Mock
+    private Instance<Repository> repository;
+
     @InjectMocks
     private DefaultStaticContentDeploymentProvider subject;
 
@@ -64,12 +89,361 @@ public class DefaultStaticContentDeploymentProviderTest {
         assertNotNull(di);
         assertEquals("/", di.getContextPath());
         assertEquals("StaticContent", di.getDeploymentName());
+        assertEquals("false", di.getInitParameters().get("inkstand.http.compression"));
         ResourceManager rm = di.getResourceManager();
         //the index.html file is contained in the testfile.zip
         assertNotNull(rm.getResource("index1.html"));
         assertNull(rm.getResource("/testfile.zip"));
     }
 
+    @Test
+    public void testGetDeployment_mappedContentMode() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+        inject("mapped").asConfigProperty("inkstand.http.content.mode").into(subject);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        ResourceManager rm = di.getResourceManager();
+        assertNotNull(rm.getResource("index1.html"));
+        assertNull(rm.getResource("/testfile.zip"));
+        rm.close();
+    }
+
+    @Test
+    public void testGetDeployment_memoryContentMode() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+        inject("memory").asConfigProperty("inkstand.http.content.mode").into(subject);
+        inject(Boolean.FALSE).asConfigProperty("inkstand.http.content.precompressed").into(subject);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        ResourceManager rm = di.getResourceManager();
+        assertTrue(rm instanceof MemoryResourceManager);
+        assertNotNull(rm.getResource("index1.html"));
+    }
+
+    @Test
+    public void testGetDeployment_watchEnabled_watchedArchive() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.content.watch").into(subject);
+        inject(Boolean.FALSE).asConfigProperty("inkstand.http.content.precompressed").into(subject);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        ResourceManager rm = di.getResourceManager();
+        assertTrue(rm instanceof WatchedArchiveResourceManager);
+        assertNotNull(rm.getResource("index1.html"));
+        rm.close();
+    }
+
+    @Test
+    public void testGetDeployment_jcrContentRoot_jcrResourceManager() throws Exception {
+
+        //prepare
+        final Repository repo = mock(Repository.class);
+        final Session session = mock(Session.class);
+        final Workspace workspace = mock(Workspace.class);
+        when(repository.get()).thenReturn(repo);
+        when(repo.login("web")).thenReturn(session);
+        when(session.getWorkspace()).thenReturn(workspace);
+        when(workspace.getObservationManager()).thenReturn(mock(ObservationManager.class));
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject("jcr:/content/web").asConfigProperty("inkstand.http.content.root").into(subject);
+        inject("web").asConfigProperty("inkstand.http.content.jcr.workspace").into(subject);
+        inject(Boolean.FALSE).asConfigProperty("inkstand.http.content.precompressed").into(subject);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        assertTrue(di.getResourceManager() instanceof JcrResourceManager);
+    }
+
+    @Test
+    public void testGetDeployment_precompressedDisabled_zipResourceManager() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+        inject(Boolean.FALSE).asConfigProperty("inkstand.http.content.precompressed").into(subject);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        assertTrue(di.getResourceManager() instanceof ZipFileResourceManager);
+    }
+
+    @Test
+    public void testGetDeployment_default_noPrecompressedVariants() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        assertTrue(di.getResourceManager() instanceof ZipFileResourceManager);
+    }
+
+    @Test
+    public void testGetDeployment_precompressedEnabled_precompressedVariants() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.content.precompressed").into(subject);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        assertTrue(di.getResourceManager() instanceof PrecompressedResourceManager);
+    }
+
+    @Test
+    public void testGetDeployment_default_noResourceHandler() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        assertTrue(di.getInitialHandlerChainWrappers().isEmpty());
+    }
+
+    @Test
+    public void testGetDeployment_async_resourceHandler() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.content.async").into(subject);
+        final HttpHandler next = mock(HttpHandler.class);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        assertEquals(1, di.getInitialHandlerChainWrappers().size());
+        HttpHandler handler = di.getInitialHandlerChainWrappers().get(0).wrap(next);
+        assertTrue(handler instanceof ResourceHandler);
+        assertSame(di.getResourceManager(), ((ResourceHandler) handler).getResourceManager());
+    }
+
+    @Test
+    public void testGetDeployment_fingerprint_fingerprintHandler() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.content.async").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.content.fingerprint").into(subject);
+        final HttpHandler next = mock(HttpHandler.class);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        assertEquals(2, di.getInitialHandlerChainWrappers().size());
+        HttpHandler handler = di.getInitialHandlerChainWrappers().get(1).wrap(next);
+        assertTrue(handler instanceof FingerprintHandler);
+    }
+
+    @Test
+    public void testGetDeployment_fingerprintAndWatch_fingerprintsUpdatedOnSwap() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.content.watch").into(subject);
+        inject(Boolean.FALSE).asConfigProperty("inkstand.http.content.precompressed").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.content.fingerprint").into(subject);
+        final DeploymentInfo di = this.subject.getDeployment();
+        final FingerprintHandler handler = (FingerprintHandler) di.getInitialHandlerChainWrappers()
+                                                                  .get(0)
+                                                                  .wrap(mock(HttpHandler.class));
+        final String previousAlias = handler.getFingerprints().getAlias("index1.html");
+        final WatchedArchiveResourceManager rm = (WatchedArchiveResourceManager) di.getResourceManager();
+
+        try {
+            //act
+            try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file.getFile()))) {
+                zip.putNextEntry(new ZipEntry("index1.html"));
+                zip.write("<html>replaced</html>".getBytes("UTF-8"));
+                zip.closeEntry();
+            }
+            assertTrue(rm.reload());
+
+            //assert
+            final AssetFingerprints current = handler.getFingerprints();
+            assertNotNull(previousAlias);
+            assertNull(current.getPath(previousAlias));
+            assertNotEquals(previousAlias, current.getAlias("index1.html"));
+            assertEquals("index1.html", current.getPath(current.getAlias("index1.html")));
+        } finally {
+            rm.close();
+        }
+    }
+
+    @Test
+    public void testGetDeployment_fingerprintDirectoryRoot_modifiedFileNotAliased() throws Exception {
+
+        //prepare
+        final File root = file.getFile().getParentFile();
+        final File asset = new File(root, "app.js");
+        Files.write(asset.toPath(), "var a;".getBytes("UTF-8"));
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(root.getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.content.fingerprint").into(subject);
+        final DeploymentInfo di = this.subject.getDeployment();
+        final FingerprintHandler handler = (FingerprintHandler) di.getInitialHandlerChainWrappers()
+                                                                  .get(0)
+                                                                  .wrap(mock(HttpHandler.class));
+
+        //act
+        Files.write(asset.toPath(), "var b;".getBytes("UTF-8"));
+
+        //assert
+        //the alias of the previous content would be served with the modified content as immutable
+        assertNull(handler.getFingerprints().getAlias("app.js"));
+        assertNull(handler.getFingerprints().getPath(AssetFingerprints.toAlias("app.js", checksum("var a;"))));
+        assertTrue(handler.getFingerprints().getManifest().isEmpty());
+        di.getResourceManager().close();
+    }
+
+    @Test
+    public void testGetDeployment_fingerprintLayeredRoots_onlyLeadingZipFilesAliased() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath() + ", " + file.getFile().getParentFile().getAbsolutePath())
+                .asConfigProperty("inkstand.http.content.root").into(subject);
+        inject(Boolean.TRUE).asConfigProperty("inkstand.http.content.fingerprint").into(subject);
+        final DeploymentInfo zipFirst = this.subject.getDeployment();
+        inject(file.getFile().getParentFile().getAbsolutePath() + ", " + file.getFile().getAbsolutePath())
+                .asConfigProperty("inkstand.http.content.root").into(subject);
+
+        //act
+        final DeploymentInfo directoryFirst = this.subject.getDeployment();
+
+        //assert
+        final HttpHandler next = mock(HttpHandler.class);
+        final FingerprintHandler zipFirstHandler = (FingerprintHandler) zipFirst.getInitialHandlerChainWrappers()
+                                                                                .get(0)
+                                                                                .wrap(next);
+        final FingerprintHandler directoryFirstHandler = (FingerprintHandler) directoryFirst
+                .getInitialHandlerChainWrappers()
+                .get(0)
+                .wrap(next);
+        assertNotNull(zipFirstHandler.getFingerprints().getAlias("index1.html"));
+        assertNull(zipFirstHandler.getFingerprints().getAlias("testfile.zip"));
+        assertNull(directoryFirstHandler.getFingerprints().getAlias("index1.html"));
+        zipFirst.getResourceManager().close();
+        directoryFirst.getResourceManager().close();
+    }
+
+    private static long checksum(final String content) throws Exception {
+
+        final CRC32 crc = new CRC32();
+        crc.update(content.getBytes("UTF-8"));
+        return crc.getValue();
+    }
+
+    @Test
+    public void testGetDeployment_cachingRules_cachePolicyHandler() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+        inject("*.html Cache-Control:no-cache").asConfigProperty("inkstand.http.content.caching.rules").into(subject);
+        final HttpHandler next = mock(HttpHandler.class);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        assertEquals(1, di.getInitialHandlerChainWrappers().size());
+        HttpHandler handler = di.getInitialHandlerChainWrappers().get(0).wrap(next);
+        assertTrue(handler instanceof CachePolicyHandler);
+    }
+
+    @Test
+    public void testGetDeployment_comboPath_comboHandler() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+        inject("/combo").asConfigProperty("inkstand.http.content.combo.path").into(subject);
+        final HttpHandler next = mock(HttpHandler.class);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        assertEquals(1, di.getInitialHandlerChainWrappers().size());
+        HttpHandler handler = di.getInitialHandlerChainWrappers().get(0).wrap(next);
+        assertTrue(handler instanceof ComboHandler);
+    }
+
+    @Test
+    public void testGetDeployment_cacheSize_cacheMBeanRegistered() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath()).asConfigProperty("inkstand.http.content.root").into(subject);
+        inject(1024L).asConfigProperty("inkstand.http.content.cache.size").into(subject);
+
+        //act
+        this.subject.getDeployment();
+
+        //assert
+        final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("io.inkstand:type=ContentCache,name=StaticContent");
+        assertTrue(mbeanServer.isRegistered(name));
+        assertEquals(1024L, mbeanServer.getAttribute(name, "MaxSize"));
+        mbeanServer.unregisterMBean(name);
+    }
+
+    @Test
+    public void testGetDeployment_layeredContentRoots() throws Exception {
+
+        //prepare
+        inject(null).asConfigProperty("inkstand.http.context.path").into(subject);
+        inject(file.getFile().getAbsolutePath() + ", " + file.getFile().getParentFile().getAbsolutePath())
+                .asConfigProperty("inkstand.http.content.root").into(subject);
+
+        //act
+        DeploymentInfo di = this.subject.getDeployment();
+
+        //assert
+        //the resources of the zip file and of the directory containing the zip are served
+        ResourceManager rm = di.getResourceManager();
+        assertNotNull(rm.getResource("index1.html"));
+        assertNotNull(rm.getResource("/testfile.zip"));
+        rm.close();
+    }
+
     @Test
     public void testGetDeployment_fsContentRoot() throws Exception {
 
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.nio.file.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+import io.undertow.util.Headers;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FingerprintHandlerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private ServerConnection serverCon;
+
+    @Mock
+    private HttpHandler next;
+
+    private AssetFingerprints fingerprints;
+
+    /**
+     * The class under test
+     */
+    private FingerprintHandler subject;
+
+    @Before
+    public void setUp() throws Exception {
+
+        final File root = folder.newFolder("content");
+        new File(root, "js").mkdir();
+        Files.write(new File(root, "js/app.js").toPath(), "app".getBytes("UTF-8"));
+        fingerprints = AssetFingerprints.fromDirectory(root);
+        subject = new FingerprintHandler(fingerprints, "/asset-manifest.json", next);
+    }
+
+    private HttpServerExchange newExchange(String contextPath, String relativePath) {
+
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.setResolvedPath(contextPath);
+        exchange.setRelativePath(relativePath);
+        exchange.setRequestPath(contextPath + relativePath);
+        exchange.setRequestURI(contextPath + relativePath);
+        return exchange;
+    }
+
+    @Test
+    public void testHandleRequest_alias_rewrittenAndImmutable() throws Exception {
+
+        //prepare
+        final String alias = fingerprints.getAlias("js/app.js");
+        final HttpServerExchange exchange = newExchange("/static", "/" + alias);
+
+        //act
+        subject.handleRequest(exchange);
+
+        //assert
+        verify(next).handleRequest(exchange);
+        assertEquals("/js/app.js", exchange.getRelativePath());
+        assertEquals("/static/js/app.js", exchange.getRequestPath());
+        assertEquals("/static/js/app.js", exchange.getRequestURI());
+        assertEquals("public, max-age=31536000, immutable",
+                     exchange.getResponseHeaders().getFirst(Headers.CACHE_CONTROL));
+    }
+
+    @Test
+    public void testHandleRequest_aliasInRootContext_rewritten() throws Exception {
+
+        //prepare
+        final String alias = fingerprints.getAlias("js/app.js");
+        final HttpServerExchange exchange = newExchange("", "/" + alias);
+
+        //act
+        subject.handleRequest(exchange);
+
+        //assert
+        verify(next).handleRequest(exchange);
+        assertEquals("/js/app.js", exchange.getRequestPath());
+    }
+
+    @Test
+    public void testHandleRequest_plainPath_unchanged() throws Exception {
+
+        //prepare
+        final HttpServerExchange exchange = newExchange("/static", "/js/app.js");
+
+        //act
+        subject.handleRequest(exchange);
+
+        //assert
+        verify(next).handleRequest(exchange);
+        assertEquals("/js/app.js", exchange.getRelativePath());
+        assertNull(exchange.getResponseHeaders().getFirst(Headers.CACHE_CONTROL));
+    }
+
+    @Test
+    public void testSetFingerprints_previousAliasNotResolved() throws Exception {
+
+        //prepare
+        final String previousAlias = fingerprints.getAlias("js/app.js");
+        final File root = folder.newFolder("replaced");
+        new File(root, "js").mkdir();
+        Files.write(new File(root, "js/app.js").toPath(), "new app".getBytes("UTF-8"));
+        final AssetFingerprints replaced = AssetFingerprints.fromDirectory(root);
+        final HttpServerExchange previous = newExchange("/static", "/" + previousAlias);
+        final HttpServerExchange current = newExchange("/static", "/" + replaced.getAlias("js/app.js"));
+
+        //act
+        subject.setFingerprints(replaced);
+        subject.handleRequest(previous);
+        subject.handleRequest(current);
+
+        //assert
+        assertSame(replaced, subject.getFingerprints());
+        assertEquals("/" + previousAlias, previous.getRelativePath());
+        assertNull(previous.getResponseHeaders().getFirst(Headers.CACHE_CONTROL));
+        assertEquals("/js/app.js", current.getRelativePath());
+        assertEquals("public, max-age=31536000, immutable",
+                     current.getResponseHeaders().getFirst(Headers.CACHE_CONTROL));
+    }
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.Repository;
+import javax.jcr.Session;
+import javax.jcr.Workspace;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+import javax.jcr.observation.ObservationManager;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Calendar;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.util.MimeMappings;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JcrResourceManagerTest {
+
+    @Mock
+    private Repository repository;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private Workspace workspace;
+
+    @Mock
+    private ObservationManager observationManager;
+
+    @Mock
+    private Node folder;
+
+    private ContentCache contentCache;
+
+    /**
+     * The class under test
+     */
+    private JcrResourceManager subject;
+
+    @Before
+    public void setUp() throws Exception {
+
+        when(session.getWorkspace()).thenReturn(workspace);
+        when(workspace.getObservationManager()).thenReturn(observationManager);
+        when(session.nodeExists(anyString())).thenReturn(false);
+        when(session.nodeExists("/content/web/css")).thenReturn(true);
+        when(session.getNode("/content/web/css")).thenReturn(folder);
+        when(folder.getName()).thenReturn("css");
+        when(folder.isNodeType("nt:folder")).thenReturn(true);
+        when(repository.login("web")).thenReturn(session);
+        contentCache = new ContentCache(1024);
+        subject = new JcrResourceManager(repository, "web", "/content/web/", 4, contentCache);
+    }
+
+    /**
+     * Adds an nt:file node below the content root
+     */
+    private Binary addFile(final String path, final String content, final String mimeType) throws Exception {
+
+        final String absPath = "/content/web/" + path;
+        final Node file = mock(Node.class);
+        final Node resource = mock(Node.class);
+        final Property data = mock(Property.class);
+        final Binary binary = mock(Binary.class);
+        when(session.nodeExists(absPath)).thenReturn(true);
+        when(session.getNode(absPath)).thenReturn(file);
+        when(session.getProperty(absPath + "/jcr:content/jcr:data")).thenReturn(data);
+        when(file.getName()).thenReturn(path.substring(path.lastIndexOf('/') + 1));
+        when(file.isNodeType("nt:file")).thenReturn(true);
+        when(file.getNode("jcr:content")).thenReturn(resource);
+        when(resource.getProperty("jcr:data")).thenReturn(data);
+        when(data.getBinary()).thenReturn(binary);
+        when(binary.getSize()).thenReturn((long) content.length());
+        when(binary.getStream()).thenAnswer(new Answer<InputStream>() {
+
+            @Override
+            public InputStream answer(final InvocationOnMock invocation) throws Throwable {
+
+                return new ByteArrayInputStream(content.getBytes("UTF-8"));
+            }
+        });
+        if (mimeType != null) {
+            final Property mimeTypeProperty = mock(Property.class);
+            when(resource.hasProperty("jcr:mimeType")).thenReturn(true);
+            when(resource.getProperty("jcr:mimeType")).thenReturn(mimeTypeProperty);
+            when(mimeTypeProperty.getString()).thenReturn(mimeType);
+        }
+        final Property lastModified = mock(Property.class);
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(1_440_000_000_000L);
+        when(resource.hasProperty("jcr:lastModified")).thenReturn(true);
+        when(resource.getProperty("jcr:lastModified")).thenReturn(lastModified);
+        when(lastModified.getDate()).thenReturn(calendar);
+        return binary;
+    }
+
+    private EventListener getEventListener() throws Exception {
+
+        final ArgumentCaptor<EventListener> captor = ArgumentCaptor.forClass(EventListener.class);
+        verify(observationManager).addEventListener(captor.capture(),
+                                                    anyInt(),
+                                                    eq("/content/web"),
+                                                    eq(true),
+                                                    (String[]) isNull(),
+                                                    (String[]) isNull(),
+                                                    eq(false));
+        return captor.getValue();
+    }
+
+    private EventIterator event(final String path) throws Exception {
+
+        final Event event = mock(Event.class);
+        when(event.getPath()).thenReturn(path);
+        final EventIterator events = mock(EventIterator.class);
+        when(events.hasNext()).thenReturn(true, false);
+        when(events.nextEvent()).thenReturn(event);
+        return events;
+    }
+
+    @Test
+    public void testGetResource_smallFile_contentCached() throws Exception {
+
+        //prepare
+        addFile("css/a.css", "p{}", "text/css");
+
+        //act
+        final Resource resource = subject.getResource("/css/a.css");
+
+        //assert
+        assertNotNull(resource);
+        assertEquals("/css/a.css", resource.getPath());
+        assertEquals("a.css", resource.getName());
+        assertFalse(resource.isDirectory());
+        assertEquals(Long.valueOf(3), resource.getContentLength());
+        assertEquals("text/css", resource.getContentType(MimeMappings.DEFAULT));
+        assertEquals(1_440_000_000_000L, resource.getLastModified().getTime());
+        assertNotNull(resource.getETag());
+        assertFalse(resource.getETag().isWeak());
+        assertEquals(1, subject.size());
+        assertEquals(1, contentCache.getEntryCount());
+        assertEquals("p{}", IOUtils.toString(((ReadableResource) resource).getInputStream(), "UTF-8"));
+    }
+
+    @Test
+    public void testGetResource_largeFile_contentNotCached() throws Exception {
+
+        //prepare
+        addFile("app.js", "var a;", null);
+
+        //act
+        final Resource resource = subject.getResource("/app.js");
+
+        //assert
+        assertTrue(resource.getETag().isWeak());
+        assertEquals(0, contentCache.getEntryCount());
+    }
+
+    @Test
+    public void testGetResource_evictedContent_readAgain() throws Exception {
+
+        //prepare
+        addFile("css/a.css", "p{}", null);
+        final JcrResource resource = (JcrResource) subject.getResource("/css/a.css");
+        contentCache.clear();
+
+        //act
+        final ByteBuffer content = subject.loadContent(resource);
+
+        //assert
+        assertEquals(3, content.remaining());
+        assertEquals(1, contentCache.getEntryCount());
+        assertNotNull(subject.getCachedContent(resource));
+    }
+
+    @Test
+    public void testGetResource_noContentCache_contentNotCached() throws Exception {
+
+        //prepare
+        final JcrResourceManager manager = new JcrResourceManager(repository, "web", "/content/web", 4, null);
+        addFile("css/a.css", "p{}", null);
+
+        //act
+        final JcrResource resource = (JcrResource) manager.getResource("/css/a.css");
+
+        //assert
+        assertFalse(resource.getETag().isWeak());
+        assertFalse(manager.isCacheable(resource));
+        assertNull(manager.getCachedContent(resource));
+    }
+
+    @Test
+    public void testGetResource_sessionsReused() throws Exception {
+
+        //prepare
+        addFile("css/a.css", "p{}", null);
+        addFile("css/b.css", "a{}", null);
+
+        //act
+        subject.getResource("/css/a.css");
+        subject.getResource("/css/b.css");
+        subject.getResource("/missing.css");
+
+        //assert
+        //one session for observing, one for reading
+        verify(repository, times(2)).login("web");
+    }
+
+    @Test
+    public void testGetResource_cached_repositoryNotAccessed() throws Exception {
+
+        //prepare
+        addFile("css/a.css", "p{}", null);
+        final Resource first = subject.getResource("css/a.css");
+
+        //act
+        final Resource second = subject.getResource("/css/a.css");
+
+        //assert
+        assertSame(first, second);
+        verify(session, times(1)).getNode("/content/web/css/a.css");
+        assertEquals("text/css", second.getContentType(MimeMappings.DEFAULT));
+    }
+
+    @Test
+    public void testGetResource_nonExisting_null() throws Exception {
+
+        assertNull(subject.getResource("/missing.css"));
+    }
+
+    @Test
+    public void testGetResource_nonExisting_repositoryAccessedOnce() throws Exception {
+
+        //prepare
+        subject.getResource("/missing.css");
+
+        //act
+        final Resource resource = subject.getResource("missing.css");
+
+        //assert
+        assertNull(resource);
+        verify(session, times(1)).nodeExists("/content/web/missing.css");
+    }
+
+    @Test
+    public void testEvent_addedNode_missingPathInvalidated() throws Exception {
+
+        //prepare
+        subject.getResource("/css/a.css");
+        addFile("css/a.css", "p{}", null);
+
+        //act
+        getEventListener().onEvent(event("/content/web/css/a.css"));
+
+        //assert
+        assertNotNull(subject.getResource("/css/a.css"));
+    }
+
+    @Test
+    public void testEvent_addedFolder_missingDescendantsInvalidated() throws Exception {
+
+        //prepare
+        subject.getResource("/js/app.js");
+        addFile("js/app.js", "var a;", null);
+
+        //act
+        getEventListener().onEvent(event("/content/web/js"));
+
+        //assert
+        assertNotNull(subject.getResource("/js/app.js"));
+    }
+
+    @Test
+    public void testGetResource_otherNodeType_null() throws Exception {
+
+        //prepare
+        final Node node = mock(Node.class);
+        when(session.nodeExists("/content/web/data")).thenReturn(true);
+        when(session.getNode("/content/web/data")).thenReturn(node);
+
+        //act
+        final Resource resource = subject.getResource("/data");
+
+        //assert
+        assertNull(resource);
+    }
+
+    @Test
+    public void testGetResource_folder_directory() throws Exception {
+
+        //prepare
+        addFile("css/a.css", "p{}", null);
+        final Node child = session.getNode("/content/web/css/a.css");
+        final NodeIterator children = mock(NodeIterator.class);
+        when(children.hasNext()).thenReturn(true, false);
+        when(children.nextNode()).thenReturn(child);
+        when(folder.getNodes()).thenReturn(children);
+
+        //act
+        final Resource resource = subject.getResource("/css");
+
+        //assert
+        assertTrue(resource.isDirectory());
+        assertNull(resource.getETag());
+        final List<Resource> list = resource.list();
+        assertEquals(1, list.size());
+        assertEquals("/css/a.css", list.get(0).getPath());
+    }
+
+    @Test
+    public void testOpenStream_closed_binaryDisposed() throws Exception {
+
+        //prepare
+        final Binary binary = addFile("app.js", "var a;", null);
+        final InputStream inStream = subject.openStream("/app.js");
+        verify(binary, never()).dispose();
+
+        //act
+        inStream.close();
+
+        //assert
+        verify(binary).dispose();
+        //the session is reused for the next read
+        subject.openStream("/app.js").close();
+        verify(repository, times(2)).login("web");
+    }
+
+    @Test
+    public void testOpenStream_largeFile() throws Exception {
+
+        //prepare
+        addFile("app.js", "var a;", null);
+        subject.getResource("/app.js");
+
+        //act
+        try (InputStream inStream = subject.openStream("/app.js")) {
+
+            //assert
+            assertEquals("var a;", IOUtils.toString(inStream, "UTF-8"));
+        }
+    }
+
+    @Test
+    public void testEvent_changedContent_fileInvalidated() throws Exception {
+
+        //prepare
+        addFile("css/a.css", "p{}", null);
+        addFile("css/b.css", "a{}", null);
+        subject.getResource("/css/a.css");
+        subject.getResource("/css/b.css");
+        subject.getResource("/css");
+        assertEquals(3, subject.size());
+
+        //act
+        getEventListener().onEvent(event("/content/web/css/a.css/jcr:content/jcr:data"));
+
+        //assert
+        //the file and its folder are invalidated
+        assertEquals(1, subject.size());
+        subject.getResource("/css/a.css");
+        verify(session, times(2)).getNode("/content/web/css/a.css");
+    }
+
+    @Test
+    public void testEvent_removedFolder_descendantsInvalidated() throws Exception {
+
+        //prepare
+        addFile("css/a.css", "p{}", null);
+        subject.getResource("/css/a.css");
+
+        //act
+        getEventListener().onEvent(event("/content/web/css"));
+
+        //assert
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    public void testEvent_outsideRoot_ignored() throws Exception {
+
+        //prepare
+        addFile("css/a.css", "p{}", null);
+        subject.getResource("/css/a.css");
+
+        //act
+        getEventListener().onEvent(event("/content/website/css"));
+
+        //assert
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void testClose_listenerRemovedAndLoggedOut() throws Exception {
+
+        //prepare
+        final EventListener listener = getEventListener();
+
+        //act
+        subject.close();
+
+        //assert
+        verify(observationManager).removeEventListener(listener);
+        verify(session).logout();
+    }
+
+    @Test
+    public void testClose_idleSessionsLoggedOut() throws Exception {
+
+        //prepare
+        addFile("css/a.css", "p{}", null);
+        subject.getResource("/css/a.css");
+
+        //act
+        subject.close();
+
+        //assert
+        //the observing and the reading session
+        verify(session, times(2)).logout();
+    }
+
+    @Test
+    public void testIsResourceChangeListenerSupported() throws Exception {
+
+        assertFalse(subject.isResourceChangeListenerSupported());
+    }
+}
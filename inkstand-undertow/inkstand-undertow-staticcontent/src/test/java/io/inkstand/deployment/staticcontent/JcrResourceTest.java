@@ -0,0 +1,214 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.zip.CRC32;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+import io.undertow.util.ETag;
+import io.undertow.util.MimeMappings;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JcrResourceTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Mock
+    private JcrResourceManager resourceManager;
+
+    @Mock
+    private Sender sender;
+
+    @Mock
+    private IoCallback callback;
+
+    @Mock
+    private ServerConnection serverCon;
+
+    /**
+     * Creates a small file whose content is in the content cache of the manager
+     */
+    private JcrResource newFile(final String content) {
+
+        final byte[] data = content.getBytes(UTF_8);
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        final JcrResource file = new JcrResource(resourceManager,
+                                                 "/app.js",
+                                                 "app.js",
+                                                 new JcrResource.Metadata(new Date(1_000L),
+                                                                          null,
+                                                                          data.length,
+                                                                          crc.getValue()));
+        when(resourceManager.getCachedContent(file)).thenReturn(ByteBuffer.wrap(data).asReadOnlyBuffer());
+        return file;
+    }
+
+    private String captureSent() {
+
+        final ArgumentCaptor<ByteBuffer> captor = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(sender).send(captor.capture(), any(IoCallback.class));
+        final ByteBuffer sent = captor.getValue();
+        final byte[] data = new byte[sent.remaining()];
+        sent.get(data);
+        return new String(data, UTF_8);
+    }
+
+    @Test
+    public void testServe_cachedBody() throws Exception {
+
+        //prepare
+        final JcrResource subject = newFile("var a;");
+
+        //act
+        subject.serve(sender, null, callback);
+
+        //assert
+        assertEquals("var a;", captureSent());
+    }
+
+    @Test
+    public void testServeRange_cachedBody() throws Exception {
+
+        //prepare
+        final JcrResource subject = newFile("var a;");
+
+        //act
+        subject.serveRange(sender, null, 4, 4, callback);
+
+        //assert
+        assertEquals("a", captureSent());
+    }
+
+    @Test
+    public void testServeRange_suffix() throws Exception {
+
+        //prepare
+        final JcrResource subject = newFile("var a;");
+
+        //act
+        subject.serveRange(sender, null, -1, 2, callback);
+
+        //assert
+        assertEquals("a;", captureSent());
+    }
+
+    @Test
+    public void testServe_notCached_loadedIntoCache() throws Exception {
+
+        //prepare
+        final JcrResource subject = new JcrResource(resourceManager,
+                                                    "/app.js",
+                                                    "app.js",
+                                                    new JcrResource.Metadata(new Date(1_000L), null, 6, 1L));
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        when(resourceManager.isCacheable(subject)).thenReturn(true);
+        when(resourceManager.loadContent(subject)).thenReturn(ByteBuffer.wrap("var a;".getBytes(UTF_8)));
+
+        //act
+        subject.serveRange(sender, exchange, 4, 5, callback);
+
+        //assert
+        assertEquals("a;", captureSent());
+    }
+
+    @Test
+    public void testGetETag_cachedBody_strongTagOfContent() throws Exception {
+
+        assertFalse(newFile("var a;").getETag().isWeak());
+        assertFalse(newFile("var a;").getETag().equals(newFile("var ab;").getETag()));
+        assertFalse(newFile("var a;").getETag().equals(newFile("var b;").getETag()));
+        assertEquals(newFile("var a;").getETag(), newFile("var a;").getETag());
+    }
+
+    @Test
+    public void testGetETag_streamedContent_weakTag() throws Exception {
+
+        //prepare
+        final JcrResource subject = new JcrResource(resourceManager,
+                                                    "/app.js",
+                                                    "app.js",
+                                                    new JcrResource.Metadata(new Date(1_000L), null, 6, null));
+
+        //act
+        final ETag etag = subject.getETag();
+
+        //assert
+        assertTrue(etag.isWeak());
+    }
+
+    @Test
+    public void testGetETag_noLastModified_null() throws Exception {
+
+        //prepare
+        final JcrResource subject = new JcrResource(resourceManager,
+                                                    "/app.js",
+                                                    "app.js",
+                                                    new JcrResource.Metadata(null, null, 6, 1L));
+
+        //act
+        final ETag etag = subject.getETag();
+
+        //assert
+        assertNull(etag);
+        assertNull(subject.getCacheKey());
+    }
+
+    @Test
+    public void testGetContentType_byExtension() throws Exception {
+
+        assertEquals("application/javascript", newFile("").getContentType(MimeMappings.DEFAULT));
+    }
+
+    @Test
+    public void testFolder() throws Exception {
+
+        //prepare
+        final JcrResource subject = new JcrResource(resourceManager, "/css", "css", null);
+
+        //act
+        subject.list();
+
+        //assert
+        assertTrue(subject.isDirectory());
+        assertFalse(subject.isRangeSupported());
+        assertNull(subject.getContentLength());
+        assertNull(subject.getLastModifiedString());
+        assertNull(subject.getCacheKey());
+        verify(resourceManager).list("/css");
+    }
+}
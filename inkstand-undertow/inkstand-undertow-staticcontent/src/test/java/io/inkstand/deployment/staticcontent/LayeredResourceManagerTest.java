@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import io.undertow.server.handlers.resource.FileResourceManager;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceChangeEvent;
+import io.undertow.server.handlers.resource.ResourceChangeListener;
+import io.undertow.server.handlers.resource.ResourceManager;
+
+public class LayeredResourceManagerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private ZipFileResourceManager tenantLayer;
+
+    private FileResourceManager baseLayer;
+
+    /**
+     * The class under test
+     */
+    private LayeredResourceManager subject;
+
+    @Before
+    public void setUp() throws Exception {
+
+        final File tenantZip = folder.newFile("tenant.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(tenantZip))) {
+            zos.putNextEntry(new ZipEntry("/css/theme.css"));
+            zos.write("tenant".getBytes("UTF-8"));
+            zos.closeEntry();
+        }
+        final File baseDir = folder.newFolder("base");
+        new File(baseDir, "css").mkdir();
+        Files.write(new File(baseDir, "css/theme.css").toPath(), "base".getBytes("UTF-8"));
+        Files.write(new File(baseDir, "index.html").toPath(), "<html/>".getBytes("UTF-8"));
+
+        tenantLayer = new ZipFileResourceManager(tenantZip);
+        baseLayer = new FileResourceManager(baseDir, 1024);
+        subject = new LayeredResourceManager(Arrays.<ResourceManager>asList(tenantLayer, baseLayer));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        subject.close();
+    }
+
+    @Test
+    public void testSize() throws Exception {
+
+        //the base directory itself, css, css/theme.css and index.html
+        assertEquals(4, subject.size());
+    }
+
+    @Test
+    public void testGetResource_firstLayerWins() throws Exception {
+
+        //act
+        Resource resource = subject.getResource("/css/theme.css");
+
+        //assert
+        assertNotNull(resource);
+        assertEquals(Long.valueOf(6), resource.getContentLength());
+    }
+
+    @Test
+    public void testGetResource_fromSecondLayer() throws Exception {
+
+        //act
+        Resource resource = subject.getResource("/index.html");
+
+        //assert
+        assertNotNull(resource);
+        assertNotNull(resource.getFile());
+    }
+
+    @Test
+    public void testGetResource_nonExisting_null() throws Exception {
+
+        assertNull(subject.getResource("/other.html"));
+    }
+
+    @Test
+    public void testIsResourceChangeListenerSupported() throws Exception {
+
+        assertFalse(subject.isResourceChangeListenerSupported());
+    }
+
+    @Test
+    public void testHandleChanges_lookupRebuilt() throws Exception {
+
+        //prepare
+        final IndexedResourceManager watched = mock(IndexedResourceManager.class);
+        when(watched.isResourceChangeListenerSupported()).thenReturn(true);
+        when(watched.getPaths()).thenReturn(Collections.singleton("a.css"));
+        final LayeredResourceManager layered = new LayeredResourceManager(Collections.<ResourceManager>singletonList(
+                watched));
+        final ArgumentCaptor<ResourceChangeListener> captor = ArgumentCaptor.forClass(ResourceChangeListener.class);
+        verify(watched).registerResourceChangeListener(captor.capture());
+        when(watched.getPaths()).thenReturn(Collections.singleton("b.css"));
+
+        //act
+        captor.getValue().handleChanges(Collections.singleton(new ResourceChangeEvent("b.css",
+                                                                                      ResourceChangeEvent.Type.ADDED)));
+
+        //assert
+        layered.getResource("b.css");
+        verify(watched).getResource("b.css");
+        assertNull(layered.getResource("a.css"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNew_unindexableLayer_exception() throws Exception {
+
+        new LayeredResourceManager(Collections.singletonList(mock(ResourceManager.class)));
+    }
+
+    @Test
+    public void testClose_allLayersClosed() throws Exception {
+
+        //prepare
+        final IndexedResourceManager first = mock(IndexedResourceManager.class);
+        final IndexedResourceManager second = mock(IndexedResourceManager.class);
+        doThrow(new IOException("test")).when(first).close();
+        final LayeredResourceManager layered = new LayeredResourceManager(Arrays.<ResourceManager>asList(first,
+                                                                                                         second));
+
+        //act
+        try {
+            layered.close();
+        } catch (IOException e) {
+            assertEquals("test", e.getMessage());
+        }
+
+        //assert
+        verify(second).close();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedZipArchiveTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] storedData;
+    private byte[] deflatedData;
+    private File zip;
+
+    /**
+     * The class under test
+     */
+    private MappedZipArchive subject;
+
+    @Before
+    public void setUp() throws Exception {
+
+        storedData = "storedContent".getBytes("UTF-8");
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            buf.append("body { color: #").append(i).append("; }\n");
+        }
+        deflatedData = buf.toString().getBytes("UTF-8");
+
+        zip = folder.newFile("test.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+            zos.putNextEntry(new ZipEntry("css/"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("css/style.css"));
+            zos.write(deflatedData);
+            zos.closeEntry();
+
+            final ZipEntry stored = new ZipEntry("index.html");
+            final CRC32 crc = new CRC32();
+            crc.update(storedData);
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(storedData.length);
+            stored.setCompressedSize(storedData.length);
+            stored.setCrc(crc.getValue());
+            zos.putNextEntry(stored);
+            zos.write(storedData);
+            zos.closeEntry();
+        }
+        subject = new MappedZipArchive(zip);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        subject.close();
+    }
+
+    private ZipEntry getEntry(String name) {
+
+        for (ZipEntry entry : subject.getEntries()) {
+            if (name.equals(entry.getName())) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testGetName() throws Exception {
+
+        assertEquals(zip.getPath(), subject.getName());
+    }
+
+    @Test
+    public void testGetEntries() throws Exception {
+
+        //act
+        final List<ZipEntry> entries = subject.getEntries();
+
+        //assert
+        assertEquals(3, entries.size());
+        assertEquals("css/", entries.get(0).getName());
+        assertEquals(deflatedData.length, getEntry("css/style.css").getSize());
+        assertEquals(ZipEntry.STORED, getEntry("index.html").getMethod());
+    }
+
+    @Test
+    public void testGetInputStream_stored() throws Exception {
+
+        //act
+        try (InputStream in = subject.getInputStream(getEntry("index.html"))) {
+
+            //assert
+            assertArrayEquals(storedData, IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void testGetInputStream_deflated() throws Exception {
+
+        //act
+        try (InputStream in = subject.getInputStream(getEntry("css/style.css"))) {
+
+            //assert
+            assertArrayEquals(deflatedData, IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void testGetInputStream_concurrentStreams() throws Exception {
+
+        //prepare
+        final ZipEntry entry = getEntry("css/style.css");
+
+        //act
+        try (InputStream in1 = subject.getInputStream(entry);
+             InputStream in2 = subject.getInputStream(entry)) {
+            final byte[] head = new byte[100];
+            IOUtils.readFully(in1, head);
+
+            //assert
+            assertArrayEquals(deflatedData, IOUtils.toByteArray(in2));
+            assertEquals(deflatedData.length - 100, IOUtils.toByteArray(in1).length);
+        }
+    }
+
+    @Test(expected = ZipException.class)
+    public void testGetInputStream_unknownEntry_exception() throws Exception {
+
+        subject.getInputStream(new ZipEntry("unknown.html"));
+    }
+
+    @Test
+    public void testGetRawDataChannel() throws Exception {
+
+        //act
+        final FileChannel channel = subject.getRawDataChannel(getEntry("index.html"), 6, 7);
+
+        //assert
+        assertNotNull(channel);
+        final ByteBuffer buf = ByteBuffer.allocate(7);
+        channel.read(buf, 0);
+        assertEquals("Content", new String(buf.array(), "UTF-8"));
+    }
+
+    @Test
+    public void testGetRawDataChannel_unknownEntry_null() throws Exception {
+
+        assertNull(subject.getRawDataChannel(new ZipEntry("unknown.html"), 0, 1));
+    }
+
+    @Test(expected = ZipException.class)
+    public void testNew_noZipFile_exception() throws Exception {
+
+        //prepare
+        final File file = folder.newFile("nozip.zip");
+        Files.write(file.toPath(), new byte[64]);
+
+        //act
+        new MappedZipArchive(file);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.undertow.server.handlers.resource.Resource;
+
+public class MemoryResourceManagerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] script;
+
+    /**
+     * The class under test
+     */
+    private MemoryResourceManager subject;
+
+    @Before
+    public void setUp() throws Exception {
+
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            buf.append("console.log(").append(i).append(");\n");
+        }
+        script = buf.toString().getBytes("UTF-8");
+
+        final File zip = folder.newFile("content.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+            zos.putNextEntry(new ZipEntry("index.html"));
+            zos.write("<html/>".getBytes("UTF-8"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("/index.html"));
+            zos.write("<html>absolute</html>".getBytes("UTF-8"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("js/"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("js/app.js"));
+            zos.write(script);
+            zos.closeEntry();
+        }
+        try (ZipArchive archive = new ZipFileArchive(zip)) {
+            subject = new MemoryResourceManager(archive);
+        }
+    }
+
+    @Test
+    public void testSize() throws Exception {
+
+        //the absolute and relative index.html share the same path
+        assertEquals(3, subject.size());
+    }
+
+    @Test
+    public void testGetArenaSize_shadowedEntryNotLoaded() throws Exception {
+
+        //act
+        int arenaSize = subject.getArenaSize();
+
+        //assert
+        //the script is stored with its compressed variant, the index.html is too small to be compressed
+        assertTrue(arenaSize > script.length + "<html>absolute</html>".length());
+        assertTrue(arenaSize < 2 * script.length);
+    }
+
+    @Test
+    public void testGetResource_sameInstance() throws Exception {
+
+        //act
+        Resource resource = subject.getResource("/js/app.js");
+
+        //assert
+        assertNotNull(resource);
+        assertSame(resource, subject.getResource("js/app.js"));
+        assertEquals(Long.valueOf(script.length), resource.getContentLength());
+    }
+
+    @Test
+    public void testGetResource_leadingSlashEntryPrecedence() throws Exception {
+
+        //act
+        Resource resource = subject.getResource("index.html");
+
+        //assert
+        assertEquals("/index.html", resource.getName());
+    }
+
+    @Test
+    public void testGetResource_nonExisting_null() throws Exception {
+
+        assertNull(subject.getResource("/non-existing.html"));
+    }
+
+    @Test
+    public void testGetResource_directory_children() throws Exception {
+
+        //act
+        Resource dir = subject.getResource("js");
+
+        //assert
+        assertTrue(dir.isDirectory());
+        List<Resource> children = dir.list();
+        assertEquals(1, children.size());
+        assertSame(subject.getResource("js/app.js"), children.get(0));
+    }
+
+    @Test
+    public void testIsResourceChangeListenerSupported() throws Exception {
+
+        assertFalse(subject.isResourceChangeListenerSupported());
+    }
+}
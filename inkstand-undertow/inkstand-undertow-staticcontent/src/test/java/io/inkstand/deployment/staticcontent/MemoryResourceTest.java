@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+import io.undertow.util.Headers;
+import io.undertow.util.MimeMappings;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MemoryResourceTest {
+
+    @Mock
+    private ServerConnection serverCon;
+
+    @Mock
+    private Sender sender;
+
+    @Mock
+    private IoCallback completionCallback;
+
+    private byte[] content;
+    private byte[] compressed;
+    private long crc;
+
+    /**
+     * The class under test
+     */
+    private MemoryResource subject;
+
+    @Before
+    public void setUp() throws Exception {
+
+        content = "0123456789".getBytes("UTF-8");
+        compressed = "gzipped".getBytes("UTF-8");
+        final CRC32 crc32 = new CRC32();
+        crc32.update(content);
+        crc = crc32.getValue();
+
+        //the arena contains some leading bytes, the content and the compressed content
+        final ByteBuffer arena = ByteBuffer.allocate(3 + content.length + compressed.length);
+        arena.put(new byte[3]).put(content).put(compressed).flip();
+        final ZipEntry entry = new ZipEntry("/js/app.js");
+        entry.setTime(0);
+        subject = new MemoryResource(entry,
+                                     arena.asReadOnlyBuffer(),
+                                     new long[] { 3, content.length, crc, 3 + content.length, compressed.length });
+    }
+
+    private byte[] captureSentContent() {
+
+        final ArgumentCaptor<ByteBuffer> captor = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(sender).send(captor.capture(), eq(completionCallback));
+        final ByteBuffer sent = captor.getValue();
+        final byte[] result = new byte[sent.remaining()];
+        sent.get(result);
+        return result;
+    }
+
+    @Test
+    public void testProperties() throws Exception {
+
+        assertEquals("js/app.js", subject.getPath());
+        assertEquals("/js/app.js", subject.getName());
+        assertEquals(Long.valueOf(content.length), subject.getContentLength());
+        assertEquals(Long.toHexString(crc) + "-a", subject.getETag().getTag());
+        assertEquals("application/javascript", subject.getContentType(MimeMappings.DEFAULT));
+        assertTrue(subject.isRangeSupported());
+        assertTrue(subject.list().isEmpty());
+    }
+
+    @Test
+    public void testGetInputStream_identityContent() throws Exception {
+
+        //act
+        try (InputStream inStream = subject.getInputStream()) {
+
+            //assert
+            assertArrayEquals(content, IOUtils.toByteArray(inStream));
+        }
+    }
+
+    @Test
+    public void testServe_noEncodingAccepted_content() throws Exception {
+
+        //prepare
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+
+        //act
+        subject.serve(sender, exchange, completionCallback);
+
+        //assert
+        assertArrayEquals(content, captureSentContent());
+        assertNull(exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        assertEquals("Accept-Encoding", exchange.getResponseHeaders().getFirst(Headers.VARY));
+    }
+
+    @Test
+    public void testServe_gzipAccepted_compressedContent() throws Exception {
+
+        //prepare
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.getRequestHeaders().put(Headers.ACCEPT_ENCODING, "gzip, deflate");
+
+        //act
+        subject.serve(sender, exchange, completionCallback);
+
+        //assert
+        assertArrayEquals(compressed, captureSentContent());
+        assertEquals("gzip", exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        assertEquals("\"" + subject.getETag().getTag() + "-gzip\"",
+                     exchange.getResponseHeaders().getFirst(Headers.ETAG));
+        assertEquals(compressed.length, exchange.getResponseContentLength());
+    }
+
+    @Test
+    public void testServe_gzipETagMatches_notModified() throws Exception {
+
+        //prepare
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.getRequestHeaders().put(Headers.ACCEPT_ENCODING, "gzip");
+        exchange.getRequestHeaders().put(Headers.IF_NONE_MATCH, "\"" + subject.getETag().getTag() + "-gzip\"");
+
+        //act
+        subject.serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(completionCallback).onComplete(exchange, sender);
+        verifyZeroInteractions(sender);
+        assertEquals(304, exchange.getResponseCode());
+    }
+
+    @Test
+    public void testServeRange() throws Exception {
+
+        //prepare
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+
+        //act
+        subject.serveRange(sender, exchange, 2, 4, completionCallback);
+
+        //assert
+        assertArrayEquals("234".getBytes("UTF-8"), captureSentContent());
+    }
+
+    @Test
+    public void testServeRange_suffix() throws Exception {
+
+        //prepare
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+
+        //act
+        subject.serveRange(sender, exchange, -1, 3, completionCallback);
+
+        //assert
+        assertArrayEquals("789".getBytes("UTF-8"), captureSentContent());
+    }
+}
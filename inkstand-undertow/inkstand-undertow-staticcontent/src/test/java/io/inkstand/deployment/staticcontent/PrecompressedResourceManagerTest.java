@@ -0,0 +1,223 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+import io.undertow.server.handlers.resource.RangeAwareResource;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceManager;
+import io.undertow.util.ETag;
+import io.undertow.util.Headers;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PrecompressedResourceManagerTest {
+
+    @Mock
+    private ResourceManager delegate;
+
+    @Mock
+    private RangeAwareResource resource;
+
+    @Mock
+    private Resource gzipVariant;
+
+    @Mock
+    private Resource brotliVariant;
+
+    @Mock
+    private ServerConnection serverCon;
+
+    @Mock
+    private Sender sender;
+
+    @Mock
+    private IoCallback completionCallback;
+
+    /**
+     * The class under test
+     */
+    private PrecompressedResourceManager subject;
+
+    @Before
+    public void setUp() throws Exception {
+
+        subject = new PrecompressedResourceManager(delegate);
+        when(delegate.getResource("app.js")).thenReturn(resource);
+        when(resource.getETag()).thenReturn(new ETag(false, "abc"));
+        when(resource.getContentLength()).thenReturn(1000L);
+        when(gzipVariant.getContentLength()).thenReturn(300L);
+        when(brotliVariant.getContentLength()).thenReturn(250L);
+    }
+
+    private HttpServerExchange newExchange(String acceptEncoding) {
+
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        if (acceptEncoding != null) {
+            exchange.getRequestHeaders().put(Headers.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return exchange;
+    }
+
+    @Test
+    public void testGetResource_noVariants_resource() throws Exception {
+
+        //act
+        Resource result = subject.getResource("app.js");
+
+        //assert
+        assertSame(resource, result);
+    }
+
+    @Test
+    public void testGetResource_nonExisting_null() throws Exception {
+
+        assertNull(subject.getResource("other.js"));
+    }
+
+    @Test
+    public void testGetResource_variants_propertiesOfResource() throws Exception {
+
+        //prepare
+        when(delegate.getResource("app.js.gz")).thenReturn(gzipVariant);
+
+        //act
+        Resource result = subject.getResource("app.js");
+
+        //assert
+        assertTrue(result instanceof PrecompressedResourceManager.PrecompressedResource);
+        assertEquals(Long.valueOf(1000L), result.getContentLength());
+        assertEquals("abc", result.getETag().getTag());
+    }
+
+    @Test
+    public void testServe_gzipAccepted_gzipVariant() throws Exception {
+
+        //prepare
+        when(delegate.getResource("app.js.gz")).thenReturn(gzipVariant);
+        when(delegate.getResource("app.js.br")).thenReturn(brotliVariant);
+        final HttpServerExchange exchange = newExchange("gzip, deflate");
+
+        //act
+        subject.getResource("app.js").serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(gzipVariant).serve(sender, exchange, completionCallback);
+        assertEquals("gzip", exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        assertEquals("Accept-Encoding", exchange.getResponseHeaders().getFirst(Headers.VARY));
+        assertEquals("\"abc-gzip\"", exchange.getResponseHeaders().getFirst(Headers.ETAG));
+        assertEquals(300L, exchange.getResponseContentLength());
+    }
+
+    @Test
+    public void testServe_brotliAndGzipAccepted_brotliVariant() throws Exception {
+
+        //prepare
+        when(delegate.getResource("app.js.gz")).thenReturn(gzipVariant);
+        when(delegate.getResource("app.js.br")).thenReturn(brotliVariant);
+        when(brotliVariant.getETag()).thenReturn(new ETag(false, "xyz"));
+        final HttpServerExchange exchange = newExchange("gzip, deflate, br");
+
+        //act
+        subject.getResource("app.js").serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(brotliVariant).serve(sender, exchange, completionCallback);
+        assertEquals("br", exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        assertEquals("\"xyz\"", exchange.getResponseHeaders().getFirst(Headers.ETAG));
+        assertEquals(250L, exchange.getResponseContentLength());
+    }
+
+    @Test
+    public void testServe_noEncodingAccepted_resource() throws Exception {
+
+        //prepare
+        when(delegate.getResource("app.js.gz")).thenReturn(gzipVariant);
+        final HttpServerExchange exchange = newExchange(null);
+
+        //act
+        subject.getResource("app.js").serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(resource).serve(sender, exchange, completionCallback);
+        verifyZeroInteractions(sender);
+        assertNull(exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        assertEquals("Accept-Encoding", exchange.getResponseHeaders().getFirst(Headers.VARY));
+    }
+
+    @Test
+    public void testServe_variantETagMatches_notModified() throws Exception {
+
+        //prepare
+        when(delegate.getResource("app.js.gz")).thenReturn(gzipVariant);
+        final HttpServerExchange exchange = newExchange("gzip");
+        exchange.getRequestHeaders().put(Headers.IF_NONE_MATCH, "\"abc-gzip\"");
+
+        //act
+        subject.getResource("app.js").serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(completionCallback).onComplete(exchange, sender);
+        assertEquals(304, exchange.getResponseCode());
+        assertFalse(exchange.getResponseHeaders().contains(Headers.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testServeRange_servedFromResource() throws Exception {
+
+        //prepare
+        when(delegate.getResource("app.js.gz")).thenReturn(gzipVariant);
+        when(resource.isRangeSupported()).thenReturn(true);
+        final HttpServerExchange exchange = newExchange("gzip");
+        final RangeAwareResource result = (RangeAwareResource) subject.getResource("app.js");
+
+        //act
+        result.serveRange(sender, exchange, 0, 99, completionCallback);
+
+        //assert
+        assertTrue(result.isRangeSupported());
+        verify(resource).serveRange(sender, exchange, 0, 99, completionCallback);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+
+        //act
+        subject.close();
+
+        //assert
+        verify(delegate).close();
+    }
+}
@@ -16,6 +16,7 @@
 
 package io.inkstand.deployment.staticcontent;
 
+import static io.inkstand.deployment.staticcontent.DefaultStaticContentDeploymentProvider.HTTP_CONTENT_MODE_PROPERTY;
 import static io.inkstand.deployment.staticcontent.DefaultStaticContentDeploymentProvider.HTTP_CONTENT_ROOT_PROPERTY;
 import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertEquals;
@@ -68,8 +69,9 @@ public class StaticContentLauncherArgsTest {
 
         //assert
         assertNotNull(argNames);
-        assertEquals(1, argNames.size());
+        assertEquals(2, argNames.size());
         assertTrue(argNames.contains("contentRoot"));
+        assertTrue(argNames.contains("contentMode"));
     }
 
     @Test
@@ -93,6 +95,27 @@ public class StaticContentLauncherArgsTest {
 
     }
 
+    @Test
+    public void testApply_contentMode() throws Exception {
+
+        //prepare
+        assumeThat(System.getProperty(HTTP_CONTENT_MODE_PROPERTY), nullValue());
+
+        //act
+        subject.apply("contentMode", "mapped");
+
+        //assert
+        assertEquals("mapped", System.getProperty(HTTP_CONTENT_MODE_PROPERTY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testApply_contentMode_unknownMode() throws Exception {
+
+        //act
+        subject.apply("contentMode", "unknown");
+
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testApply_unknownArg() throws Exception {
 
@@ -112,7 +135,19 @@ public class StaticContentLauncherArgsTest {
         String desc = subject.getDescription("contentRoot");
 
         //assert
-        assertEquals("The path to the directory or zip file containing the static content.", desc);
+        assertEquals("The path to the directory or zip file containing the static content. Several directories or "
+                             + "zip files may be specified as comma separated list, the first containing a resource "
+                             + "takes precedence.", desc);
+    }
+
+    @Test
+    public void testGetDescription_contentMode() throws Exception {
+
+        //act
+        String desc = subject.getDescription("contentMode");
+
+        //assert
+        assertNotNull(desc);
     }
 
     @Test(expected = IllegalArgumentException.class)
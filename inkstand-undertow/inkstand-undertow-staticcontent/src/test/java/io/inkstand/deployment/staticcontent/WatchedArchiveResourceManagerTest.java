@@ -0,0 +1,311 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceChangeEvent;
+import io.undertow.server.handlers.resource.ResourceChangeListener;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WatchedArchiveResourceManagerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private ResourceChangeListener listener;
+
+    @Mock
+    private Sender sender;
+
+    @Mock
+    private IoCallback callback;
+
+    private File archive;
+
+    /**
+     * The resource managers created by the loader, in order of creation
+     */
+    private final List<IndexedResourceManager> loaded = new ArrayList<>();
+
+    private final WatchedArchiveResourceManager.Loader loader = new WatchedArchiveResourceManager.Loader() {
+
+        @Override
+        public IndexedResourceManager load(final File file) throws IOException {
+
+            final IndexedResourceManager manager = new ZipFileResourceManager(new ZipFileArchive(file), null);
+            loaded.add(manager);
+            return manager;
+        }
+    };
+
+    /**
+     * The class under test
+     */
+    private WatchedArchiveResourceManager subject;
+
+    @Before
+    public void setUp() throws Exception {
+
+        archive = new File(folder.getRoot(), "content.zip");
+        final Map<String, String> content = new HashMap<>();
+        content.put("index.html", "<html/>");
+        content.put("app.js", "v1");
+        content.put("old.css", "body{}");
+        writeZip(archive, content);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        if (subject != null) {
+            subject.close();
+        }
+    }
+
+    private void writeZip(final File file, final Map<String, String> content) throws IOException {
+
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file))) {
+            for (Map.Entry<String, String> entry : content.entrySet()) {
+                zos.putNextEntry(new ZipEntry(entry.getKey()));
+                zos.write(entry.getValue().getBytes("UTF-8"));
+                zos.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Publishes new content by moving a new archive onto the watched path
+     */
+    private void publish(final Map<String, String> content) throws IOException {
+
+        final File next = folder.newFile();
+        writeZip(next, content);
+        Files.move(next.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Map<String, String> nextContent() {
+
+        final Map<String, String> content = new HashMap<>();
+        content.put("index.html", "<html/>");
+        content.put("app.js", "v2");
+        content.put("new.css", "p{}");
+        return content;
+    }
+
+    @Test
+    public void testGetResource() throws Exception {
+
+        //prepare
+        subject = new WatchedArchiveResourceManager(archive, loader, 0);
+
+        //act
+        final Resource resource = subject.getResource("/app.js");
+
+        //assert
+        assertNotNull(resource);
+        assertEquals("/app.js", resource.getPath());
+        assertEquals(Long.valueOf(2), resource.getContentLength());
+        assertNull(subject.getResource("/missing.js"));
+        assertTrue(subject.isResourceChangeListenerSupported());
+        assertEquals(3, subject.getPaths().size());
+    }
+
+    @Test
+    public void testReload_contentSwappedAndListenersNotified() throws Exception {
+
+        //prepare
+        subject = new WatchedArchiveResourceManager(archive, loader, 0);
+        subject.registerResourceChangeListener(listener);
+        publish(nextContent());
+
+        //act
+        final boolean swapped = subject.reload();
+
+        //assert
+        assertTrue(swapped);
+        assertNotNull(subject.getResource("new.css"));
+        assertNull(subject.getResource("old.css"));
+        final ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(listener).handleChanges(captor.capture());
+        final Map<String, ResourceChangeEvent.Type> changes = new HashMap<>();
+        for (Object event : captor.getValue()) {
+            changes.put(((ResourceChangeEvent) event).getResource(), ((ResourceChangeEvent) event).getType());
+        }
+        assertEquals(3, changes.size());
+        assertEquals(ResourceChangeEvent.Type.ADDED, changes.get("new.css"));
+        assertEquals(ResourceChangeEvent.Type.REMOVED, changes.get("old.css"));
+        assertEquals(ResourceChangeEvent.Type.MODIFIED, changes.get("app.js"));
+    }
+
+    @Test
+    public void testReload_previousArchiveClosedAfterGracePeriod() throws Exception {
+
+        //prepare
+        subject = new WatchedArchiveResourceManager(archive, loader, 0);
+        final IndexedResourceManager previous = loaded.get(0);
+        publish(nextContent());
+
+        //act
+        subject.reload();
+
+        //assert
+        assertClosedEventually(previous);
+    }
+
+    @Test
+    public void testRetire_inFlightRequest_closedOnCompletion() throws Exception {
+
+        //prepare
+        final IndexedResourceManager delegate = mock(IndexedResourceManager.class);
+        final Resource delegateResource = mock(Resource.class);
+        final List<IoCallback> pending = new ArrayList<>();
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+
+                pending.add((IoCallback) invocation.getArguments()[2]);
+                return null;
+            }
+        }).when(delegateResource).serve(any(Sender.class), any(HttpServerExchange.class), any(IoCallback.class));
+        final WatchedArchiveResourceManager.Generation generation = new WatchedArchiveResourceManager.Generation(
+                delegate);
+        final Resource inFlight = new WatchedArchiveResourceManager.GenerationResource(delegateResource, generation);
+
+        //act
+        inFlight.serve(sender, null, callback);
+        generation.retire();
+
+        //assert
+        assertFalse(generation.isClosed());
+        pending.get(0).onComplete(null, sender);
+        assertTrue(generation.isClosed());
+        verify(delegate).close();
+        verify(callback).onComplete(null, sender);
+    }
+
+    @Test
+    public void testServe_closedGeneration_exceptionPassedToCallback() throws Exception {
+
+        //prepare
+        final IndexedResourceManager delegate = mock(IndexedResourceManager.class);
+        final Resource delegateResource = mock(Resource.class);
+        final WatchedArchiveResourceManager.Generation generation = new WatchedArchiveResourceManager.Generation(
+                delegate);
+        final Resource resource = new WatchedArchiveResourceManager.GenerationResource(delegateResource, generation);
+        generation.retire();
+
+        //act
+        resource.serve(sender, null, callback);
+
+        //assert
+        verify(callback).onException(eq((HttpServerExchange) null), eq(sender), any(IOException.class));
+    }
+
+    @Test
+    public void testReload_invalidArchive_currentContentKept() throws Exception {
+
+        //prepare
+        subject = new WatchedArchiveResourceManager(archive, loader, 0);
+        subject.registerResourceChangeListener(listener);
+        final File invalid = folder.newFile();
+        Files.write(invalid.toPath(), "no zip".getBytes("UTF-8"));
+        Files.move(invalid.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        //act
+        final boolean swapped = subject.reload();
+
+        //assert
+        assertFalse(swapped);
+        assertNotNull(subject.getResource("old.css"));
+        verify(listener, never()).handleChanges(any(Collection.class));
+    }
+
+    @Test
+    public void testWatch_replacedArchiveLoaded() throws Exception {
+
+        //prepare
+        subject = new WatchedArchiveResourceManager(archive, loader, 0);
+
+        //act
+        publish(nextContent());
+
+        //assert
+        final long timeout = System.currentTimeMillis() + 30_000L;
+        while (subject.getResource("new.css") == null && System.currentTimeMillis() < timeout) {
+            Thread.sleep(100);
+        }
+        assertNotNull(subject.getResource("new.css"));
+    }
+
+    private void assertClosedEventually(final IndexedResourceManager manager) throws Exception {
+
+        final long timeout = System.currentTimeMillis() + 5_000L;
+        boolean closed = false;
+        while (!closed && System.currentTimeMillis() < timeout) {
+            try {
+                manager.getResource("app.js");
+                Thread.sleep(50);
+            } catch (IllegalStateException e) {
+                closed = true;
+            }
+        }
+        assertTrue(closed);
+    }
+}
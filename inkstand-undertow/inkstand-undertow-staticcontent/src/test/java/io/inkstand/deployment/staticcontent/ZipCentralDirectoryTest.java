@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ZipCentralDirectoryTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Creates a zip file with a stored and a deflated entry. The stored entry has an extra field in its local header
+     * so that the offset calculation has to consider it.
+     */
+    private File createZip(byte[] storedData, byte[] deflatedData) throws Exception {
+
+        final File zip = folder.newFile("test.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+            zos.setComment("archive comment");
+            final ZipEntry deflated = new ZipEntry("/css/style.css");
+            zos.putNextEntry(deflated);
+            zos.write(deflatedData);
+            zos.closeEntry();
+
+            final ZipEntry stored = new ZipEntry("img/logo.png");
+            final CRC32 crc = new CRC32();
+            crc.update(storedData);
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(storedData.length);
+            stored.setCompressedSize(storedData.length);
+            stored.setCrc(crc.getValue());
+            stored.setExtra(new byte[] { (byte) 0xCA, (byte) 0xFE, 2, 0, 1, 2 });
+            zos.putNextEntry(stored);
+            zos.write(storedData);
+            zos.closeEntry();
+        }
+        return zip;
+    }
+
+    @Test
+    public void testReadDataOffsets_storedEntry() throws Exception {
+
+        //prepare
+        final byte[] storedData = "storedContent".getBytes("UTF-8");
+        final File zip = createZip(storedData, "body { color: red; }".getBytes("UTF-8"));
+
+        try (FileChannel channel = FileChannel.open(zip.toPath(), StandardOpenOption.READ)) {
+
+            //act
+            final Map<String, Long> offsets = ZipCentralDirectory.readDataOffsets(channel);
+
+            //assert
+            assertEquals(2, offsets.size());
+            assertTrue(offsets.containsKey("/css/style.css"));
+            final ByteBuffer buf = ByteBuffer.allocate(storedData.length);
+            channel.read(buf, offsets.get("img/logo.png"));
+            assertArrayEquals(storedData, buf.array());
+        }
+    }
+
+    @Test
+    public void testReadEntries_sameAsZipFile() throws Exception {
+
+        //prepare
+        final File zip = createZip("storedContent".getBytes("UTF-8"), "body { color: red; }".getBytes("UTF-8"));
+        final Map<String, Long> offsets = new HashMap<>();
+
+        try (FileChannel channel = FileChannel.open(zip.toPath(), StandardOpenOption.READ);
+             ZipFile zipFile = new ZipFile(zip)) {
+
+            //act
+            final List<ZipEntry> entries = ZipCentralDirectory.readEntries(channel, offsets);
+
+            //assert
+            assertEquals(2, entries.size());
+            assertEquals(2, offsets.size());
+            for (ZipEntry entry : entries) {
+                final ZipEntry expected = zipFile.getEntry(entry.getName());
+                assertEquals(expected.getMethod(), entry.getMethod());
+                assertEquals(expected.getCrc(), entry.getCrc());
+                assertEquals(expected.getSize(), entry.getSize());
+                assertEquals(expected.getCompressedSize(), entry.getCompressedSize());
+                assertEquals(expected.getTime(), entry.getTime());
+            }
+        }
+    }
+
+    @Test
+    public void testReadDataOffsets_emptyArchive() throws Exception {
+
+        //prepare
+        final File zip = folder.newFile("empty.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+            zos.setComment("empty");
+        }
+
+        try (FileChannel channel = FileChannel.open(zip.toPath(), StandardOpenOption.READ)) {
+
+            //act
+            final Map<String, Long> offsets = ZipCentralDirectory.readDataOffsets(channel);
+
+            //assert
+            assertTrue(offsets.isEmpty());
+        }
+    }
+
+    @Test(expected = ZipException.class)
+    public void testReadDataOffsets_noZipFile_exception() throws Exception {
+
+        //prepare
+        final File file = folder.newFile("nozip.zip");
+        Files.write(file.toPath(), new byte[64]);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            //act
+            ZipCentralDirectory.readDataOffsets(channel);
+        }
+    }
+}
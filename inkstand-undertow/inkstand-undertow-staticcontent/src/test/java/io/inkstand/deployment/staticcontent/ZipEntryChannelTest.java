@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ZipEntryChannelTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private FileChannel archive;
+
+    /**
+     * The class under test
+     */
+    private ZipEntryChannel subject;
+
+    @Before
+    public void setUp() throws Exception {
+
+        final File file = folder.newFile("archive.bin");
+        Files.write(file.toPath(), "headerREGIONtrailer".getBytes("US-ASCII"));
+        archive = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        subject = new ZipEntryChannel(archive, 6, 6);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        archive.close();
+    }
+
+    @Test
+    public void testSize() throws Exception {
+
+        assertEquals(6, subject.size());
+    }
+
+    @Test
+    public void testRead_limitedToRegion() throws Exception {
+
+        //prepare
+        final ByteBuffer buf = ByteBuffer.allocate(32);
+
+        //act
+        final int read = subject.read(buf);
+
+        //assert
+        assertEquals(6, read);
+        assertEquals(6, subject.position());
+        assertArrayEquals("REGION".getBytes("US-ASCII"), Arrays.copyOf(buf.array(), read));
+        assertEquals(-1, subject.read(buf));
+    }
+
+    @Test
+    public void testRead_positional() throws Exception {
+
+        //prepare
+        final ByteBuffer buf = ByteBuffer.allocate(3);
+
+        //act
+        final int read = subject.read(buf, 3);
+
+        //assert
+        assertEquals(3, read);
+        assertArrayEquals("ION".getBytes("US-ASCII"), buf.array());
+        assertEquals(0, subject.position());
+    }
+
+    @Test
+    public void testTransferTo_limitedToRegion() throws Exception {
+
+        //prepare
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //act
+        final long transferred = subject.transferTo(2, 100, Channels.newChannel(out));
+
+        //assert
+        assertEquals(4, transferred);
+        assertArrayEquals("GION".getBytes("US-ASCII"), out.toByteArray());
+    }
+
+    @Test
+    public void testTransferTo_beyondRegion_nothing() throws Exception {
+
+        //prepare
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //act
+        final long transferred = subject.transferTo(6, 100, Channels.newChannel(out));
+
+        //assert
+        assertEquals(0, transferred);
+    }
+
+    @Test
+    public void testMap() throws Exception {
+
+        //act
+        final MappedByteBuffer buf = subject.map(FileChannel.MapMode.READ_ONLY, 0, 6);
+
+        //assert
+        final byte[] data = new byte[6];
+        buf.get(data);
+        assertArrayEquals("REGION".getBytes("US-ASCII"), data);
+    }
+
+    @Test(expected = NonWritableChannelException.class)
+    public void testWrite_notWritable() throws Exception {
+
+        subject.write(ByteBuffer.allocate(1));
+    }
+
+    @Test
+    public void testClose_archiveRemainsOpen() throws Exception {
+
+        //act
+        subject.close();
+
+        //assert
+        assertTrue(archive.isOpen());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ZipFileArchiveTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] content = "<html>content</html>".getBytes();
+
+    private File zip;
+
+    @Before
+    public void setUp() throws Exception {
+
+        zip = folder.newFile("test.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+            zos.putNextEntry(new ZipEntry("index.html"));
+            zos.write(content);
+            zos.closeEntry();
+        }
+    }
+
+    @Test
+    public void testGetEntriesAndContent() throws Exception {
+
+        //prepare
+        try (ZipFileArchive subject = new ZipFileArchive(zip)) {
+
+            //act
+            final ZipEntry entry = subject.getEntries().get(0);
+
+            //assert
+            assertEquals(1, subject.getEntries().size());
+            assertEquals("index.html", entry.getName());
+            try (InputStream in = subject.getInputStream(entry)) {
+                assertArrayEquals(content, IOUtils.toByteArray(in));
+            }
+        }
+    }
+
+    @Test
+    public void testGetRawDataChannel() throws Exception {
+
+        //prepare
+        try (ZipFileArchive subject = new ZipFileArchive(zip)) {
+            final ZipEntry entry = subject.getEntries().get(0);
+
+            //act
+            final FileChannel channel = subject.getRawDataChannel(entry, 0, entry.getCompressedSize());
+
+            //assert
+            assertNotNull(channel);
+            assertEquals(entry.getCompressedSize(), channel.size());
+            assertEquals(entry.getCompressedSize(), channel.read(ByteBuffer.allocate(1024), 0));
+        }
+    }
+
+    @Test
+    public void testGetRawDataChannel_noChannel_null() throws Exception {
+
+        //prepare
+        try (ZipFileArchive subject = new ZipFileArchive(new ZipFile(zip))) {
+
+            //act
+            final FileChannel channel = subject.getRawDataChannel(subject.getEntries().get(0), 0, 1);
+
+            //assert
+            assertNull(channel);
+        }
+    }
+}
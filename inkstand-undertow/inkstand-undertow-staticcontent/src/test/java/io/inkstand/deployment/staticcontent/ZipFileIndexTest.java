@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015 Gerald Muecke, gerald.muecke@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.inkstand.deployment.staticcontent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ZipFileIndexTest {
+
+    @Mock
+    private ZipFile zipFile;
+
+    private final ZipEntry rootFile = new ZipEntry("index.html");
+    private final ZipEntry absoluteRootFile = new ZipEntry("/index.html");
+    private final ZipEntry dir = new ZipEntry("/css/");
+    private final ZipEntry dirFile = new ZipEntry("css/style.css");
+    private final ZipEntry subDir = new ZipEntry("css/theme/");
+    private final ZipEntry subDirFile = new ZipEntry("css/theme/dark.css");
+
+    /**
+     * The class under test
+     */
+    private ZipFileIndex subject;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Enumeration enumeration = Collections.enumeration(Arrays.asList(rootFile,
+                                                                        dir,
+                                                                        dirFile,
+                                                                        subDir,
+                                                                        subDirFile,
+                                                                        absoluteRootFile));
+        when(zipFile.entries()).thenReturn(enumeration);
+        subject = new ZipFileIndex(zipFile);
+    }
+
+    @Test
+    public void testGetArchive() throws Exception {
+
+        //prepare
+        final ZipArchive archive = mock(ZipArchive.class);
+        when(archive.getEntries()).thenReturn(Arrays.asList(rootFile));
+
+        //act
+        final ZipFileIndex index = new ZipFileIndex(archive);
+
+        //assert
+        assertSame(archive, index.getArchive());
+        assertSame(rootFile, index.getEntry("/index.html"));
+    }
+
+    @Test
+    public void testSize() throws Exception {
+
+        //the absolute and relative index.html share the same path
+        assertEquals(5, subject.size());
+    }
+
+    @Test
+    public void testGetPaths() throws Exception {
+
+        assertEquals(new HashSet<>(Arrays.asList("index.html",
+                                                 "css",
+                                                 "css/style.css",
+                                                 "css/theme",
+                                                 "css/theme/dark.css")), subject.getPaths());
+    }
+
+    @Test
+    public void testGetEntry_leadingSlashEntryPrecedence() throws Exception {
+
+        assertSame(absoluteRootFile, subject.getEntry("index.html"));
+        assertSame(absoluteRootFile, subject.getEntry("/index.html"));
+    }
+
+    @Test
+    public void testGetEntry_directory() throws Exception {
+
+        assertSame(dir, subject.getEntry("css"));
+        assertSame(dir, subject.getEntry("/css/"));
+        assertSame(subDir, subject.getEntry("css/theme/"));
+    }
+
+    @Test
+    public void testGetEntry_nonExisting_null() throws Exception {
+
+        assertNull(subject.getEntry("/non-existing.html"));
+        assertNull(subject.getEntry("/"));
+    }
+
+    @Test
+    public void testGetChildren_directory() throws Exception {
+
+        //act
+        List<ZipEntry> children = subject.getChildren(dir);
+
+        //assert
+        assertEquals(Arrays.asList(dirFile, subDir), children);
+    }
+
+    @Test
+    public void testGetChildren_subDirectory() throws Exception {
+
+        //act
+        List<ZipEntry> children = subject.getChildren(subDir);
+
+        //assert
+        assertEquals(Arrays.asList(subDirFile), children);
+    }
+
+    @Test
+    public void testGetChildren_file_emptyList() throws Exception {
+
+        //act
+        List<ZipEntry> children = subject.getChildren(dirFile);
+
+        //assert
+        assertTrue(children.isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetChildren_unmodifiable() throws Exception {
+
+        subject.getChildren(dir).clear();
+    }
+
+    @Test
+    public void testGetRawDataChannel_noArchiveChannel_null() throws Exception {
+
+        assertNull(subject.getRawDataChannel(dirFile));
+    }
+
+    @Test
+    public void testNormalize() throws Exception {
+
+        assertEquals("", ZipFileIndex.normalize("/"));
+        assertEquals("a/b", ZipFileIndex.normalize("/a/b/"));
+        assertEquals("a", ZipFileIndex.normalize("a"));
+    }
+
+    @Test
+    public void testGetParent() throws Exception {
+
+        assertEquals("", ZipFileIndex.getParent("a"));
+        assertEquals("a/b", ZipFileIndex.getParent("a/b/c"));
+    }
+}
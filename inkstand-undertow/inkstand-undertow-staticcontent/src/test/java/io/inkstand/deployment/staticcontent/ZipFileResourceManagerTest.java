@@ -115,6 +115,22 @@ public class ZipFileResourceManagerTest {
         assertEquals("/index2.html", resource.getPath());
     }
 
+    @Test
+    public void testGetResource_mappedArchive_success() throws Exception {
+
+        //prepare
+        final ZipFileResourceManager mappedManager = new ZipFileResourceManager(new MappedZipArchive(file.getFile()),
+                                                                                null);
+
+        //act
+        Resource resource = mappedManager.getResource("/index2.html");
+
+        //assert
+        assertNotNull(resource);
+        assertEquals("/index2.html", resource.getPath());
+        mappedManager.close();
+    }
+
     @Test
     public void testGetResource_nonExistingResource_null() throws Exception {
 
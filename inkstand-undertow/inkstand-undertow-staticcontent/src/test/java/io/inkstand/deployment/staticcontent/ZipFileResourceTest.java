@@ -23,39 +23,68 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.time.FastDateFormat;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
+import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.xnio.BufferAllocator;
+import org.xnio.ByteBufferSlicePool;
 
+import io.inkstand.scribble.net.NetworkUtils;
+import io.undertow.Undertow;
 import io.undertow.io.IoCallback;
 import io.undertow.io.Sender;
 import io.undertow.server.BlockingHttpExchange;
+import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.ServerConnection;
 import io.undertow.server.handlers.resource.Resource;
 import io.undertow.util.ETag;
+import io.undertow.util.Headers;
 import io.undertow.util.MimeMappings;
 
 /**
@@ -66,6 +95,11 @@ public class ZipFileResourceTest {
 
     public static final String FILE_ENTRY_PATH = "somepath/file.pdf";
     public static final String DIR_ENTRY_PATH = "somepath/";
+    public static final String SUBDIR_ENTRY_PATH = "somepath/subpath/";
+    public static final String SUBDIR_FILE_ENTRY_PATH = "somepath/subpath/file.txt";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
 
     @Mock
     private ZipFile zipFile;
@@ -88,6 +122,8 @@ public class ZipFileResourceTest {
     @Mock
     private IoCallback completionCallback;
 
+    private final List<Closeable> closeables = new ArrayList<>();
+
 
     /**
      * The class under test
@@ -95,6 +131,14 @@ public class ZipFileResourceTest {
     private ZipFileResource subject_file_resource;
     private ZipFileResource subject_dir_resource;
 
+    @After
+    public void tearDown() throws Exception {
+
+        for (Closeable closeable : closeables) {
+            closeable.close();
+        }
+    }
+
     @Before
     public void setUp() throws Exception {
 
@@ -107,8 +151,15 @@ public class ZipFileResourceTest {
         when(zipFile.getEntry(FILE_ENTRY_PATH)).thenReturn(zipEntry);
         when(zipFile.getEntry(DIR_ENTRY_PATH)).thenReturn(dirEntry);
 
-        subject_file_resource = new ZipFileResource(zipFile, zipEntry, FILE_ENTRY_PATH);
-        subject_dir_resource = new ZipFileResource(zipFile, dirEntry, DIR_ENTRY_PATH);
+        Enumeration enumeration = Collections.enumeration(Arrays.asList(zipEntry,
+                                                                        dirEntry,
+                                                                        new ZipEntry(SUBDIR_ENTRY_PATH),
+                                                                        new ZipEntry(SUBDIR_FILE_ENTRY_PATH)));
+        when(zipFile.entries()).thenReturn(enumeration);
+        final ZipFileIndex zipIndex = new ZipFileIndex(zipFile);
+
+        subject_file_resource = new ZipFileResource(zipIndex, zipEntry, FILE_ENTRY_PATH);
+        subject_dir_resource = new ZipFileResource(zipIndex, dirEntry, DIR_ENTRY_PATH);
     }
 
     @Test
@@ -230,6 +281,23 @@ public class ZipFileResourceTest {
     public void testGetETag() throws Exception {
 
         //prepare
+        when(zipEntry.getCrc()).thenReturn(0x16bee04cL);
+        when(zipEntry.getSize()).thenReturn(847L);
+
+        //act
+        ETag etag = subject_file_resource.getETag();
+
+        //assert
+        assertNotNull(etag);
+        assertFalse(etag.isWeak());
+        assertEquals("16bee04c-34f", etag.getTag());
+    }
+
+    @Test
+    public void testGetETag_noCrc_null() throws Exception {
+
+        //prepare
+        when(zipEntry.getCrc()).thenReturn(-1L);
 
         //act
         ETag etag = subject_file_resource.getETag();
@@ -238,6 +306,18 @@ public class ZipFileResourceTest {
         assertNull(etag);
     }
 
+    @Test
+    public void testGetETag_directory_null() throws Exception {
+
+        //prepare
+
+        //act
+        ETag etag = subject_dir_resource.getETag();
+
+        //assert
+        assertNull(etag);
+    }
+
     @Test
     public void testGetName() throws Exception {
         //prepare
@@ -264,9 +344,6 @@ public class ZipFileResourceTest {
     public void testList_fileEntry_emptyList() throws Exception {
 
         //prepare
-        Enumeration enumeration = Collections.enumeration(Arrays.asList(zipEntry, dirEntry));
-        when(zipFile.entries()).thenReturn(enumeration);
-
 
         //act
         List<Resource> resources = subject_file_resource.list();
@@ -277,22 +354,35 @@ public class ZipFileResourceTest {
     }
 
     @Test
-    public void testList_dirEntry_fileList() throws Exception {
+    public void testList_dirEntry_directChildrenOnly() throws Exception {
         //prepare
-        Enumeration enumeration = Collections.enumeration(Arrays.asList(zipEntry, dirEntry));
-        when(zipFile.entries()).thenReturn(enumeration);
 
         //act
         List<Resource> resources = subject_dir_resource.list();
 
         //assert
         assertNotNull(resources);
-        assertEquals(1, resources.size());
-        ZipFileResource res = (ZipFileResource) resources.get(0);
-        assertEquals(FILE_ENTRY_PATH, res.getPath());
+        assertEquals(2, resources.size());
+        assertEquals(FILE_ENTRY_PATH, resources.get(0).getPath());
+        assertEquals(SUBDIR_ENTRY_PATH, resources.get(1).getPath());
+        assertTrue(resources.get(1).isDirectory());
 
     }
 
+    @Test
+    public void testList_subdirEntry_fileList() throws Exception {
+        //prepare
+        final ZipFileResource subdir = (ZipFileResource) subject_dir_resource.list().get(1);
+
+        //act
+        List<Resource> resources = subdir.list();
+
+        //assert
+        assertNotNull(resources);
+        assertEquals(1, resources.size());
+        assertEquals(SUBDIR_FILE_ENTRY_PATH, resources.get(0).getPath());
+    }
+
     @Test
     public void testGetContentType_DefaultMimeMappings() throws Exception {
         //prepare
@@ -327,6 +417,474 @@ public class ZipFileResourceTest {
         verify(completionCallback).onComplete(exchange, sender);
     }
 
+    @Test
+    public void testServe_storedEntry_transferredFromArchive() throws Exception {
+        //prepare
+        final byte[] data = "StoredText".getBytes();
+        final ZipFileIndex index = newZipIndex("stored.txt", data, ZipEntry.STORED);
+        final ZipFileResource subject = new ZipFileResource(index, index.getEntry("stored.txt"), "stored.txt");
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        final ArgumentCaptor<FileChannel> channelCaptor = ArgumentCaptor.forClass(FileChannel.class);
+
+        //act
+        subject.serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(sender).transferFrom(channelCaptor.capture(), eq(completionCallback));
+        final FileChannel region = channelCaptor.getValue();
+        final ByteBuffer buf = ByteBuffer.allocate(data.length);
+        region.read(buf);
+        assertArrayEquals(data, buf.array());
+        assertEquals(data.length, region.size());
+    }
+
+    @Test
+    public void testServe_deflatedEntry_gzipAccepted_passThrough() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("deflated.txt", data, ZipEntry.DEFLATED);
+        final ZipEntry entry = index.getEntry("deflated.txt");
+        final ZipFileResource subject = new ZipFileResource(index, entry, "deflated.txt");
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.getRequestHeaders().put(Headers.ACCEPT_ENCODING, "deflate;q=0.5, gzip");
+        final ByteArrayOutputStream out = recordSentContent(exchange);
+
+        //act
+        subject.serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(completionCallback).onComplete(exchange, sender);
+        assertEquals("gzip", exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        assertEquals("Accept-Encoding", exchange.getResponseHeaders().getFirst(Headers.VARY));
+        assertEquals(new ETag(false, subject.getETag().getTag() + "-gzip").toString(),
+                     exchange.getResponseHeaders().getFirst(Headers.ETAG));
+        assertEquals(out.size(), exchange.getResponseContentLength());
+        assertEquals(entry.getCompressedSize() + 18, out.size());
+        assertArrayEquals(data, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    @Test
+    public void testServe_deflatedEntry_deflateAccepted_passThrough() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("deflated.txt", data, ZipEntry.DEFLATED);
+        final ZipEntry entry = index.getEntry("deflated.txt");
+        final ZipFileResource subject = new ZipFileResource(index, entry, "deflated.txt");
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.getRequestHeaders().put(Headers.ACCEPT_ENCODING, "deflate");
+        final ByteArrayOutputStream out = recordSentContent(exchange);
+
+        //act
+        subject.serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(completionCallback).onComplete(exchange, sender);
+        assertEquals("deflate", exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        assertEquals(out.size(), exchange.getResponseContentLength());
+        //the inflater verifies the Adler-32 checksum of the zlib trailer
+        final Inflater inflater = new Inflater();
+        inflater.setInput(out.toByteArray());
+        final byte[] inflated = new byte[data.length];
+        assertEquals(data.length, inflater.inflate(inflated));
+        assertTrue(inflater.finished());
+        assertArrayEquals(data, inflated);
+    }
+
+    @Test
+    public void testServe_deflatedEntry_gzipETagMatches_notModified() throws Exception {
+        //prepare
+        final ZipFileIndex index = newZipIndex("deflated.txt", newTextContent(), ZipEntry.DEFLATED);
+        final ZipFileResource subject = new ZipFileResource(index, index.getEntry("deflated.txt"), "deflated.txt");
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.getRequestHeaders().put(Headers.ACCEPT_ENCODING, "gzip");
+        exchange.getRequestHeaders().put(Headers.IF_NONE_MATCH, "\"" + subject.getETag().getTag() + "-gzip\"");
+
+        //act
+        subject.serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(completionCallback).onComplete(exchange, sender);
+        verifyZeroInteractions(sender);
+        assertEquals(304, exchange.getResponseCode());
+        assertEquals(0, exchange.getResponseContentLength());
+    }
+
+    @Test
+    public void testServe_deflatedEntry_noEncodingAccepted_inflated() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("deflated.txt", data, ZipEntry.DEFLATED);
+        final ZipFileResource subject = new ZipFileResource(index, index.getEntry("deflated.txt"), "deflated.txt");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(httpExchange.getOutputStream()).thenReturn(out);
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.getRequestHeaders().put(Headers.ACCEPT_ENCODING, "identity, gzip;q=0");
+        exchange.startBlocking(httpExchange);
+
+        //act
+        subject.serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(completionCallback).onComplete(exchange, sender);
+        assertNull(exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        assertEquals("Accept-Encoding", exchange.getResponseHeaders().getFirst(Headers.VARY));
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void testServe_deflatedEntry_contentEncodingSelected_sentAsIs() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("app.js.gz", data, ZipEntry.DEFLATED);
+        final ZipFileResource subject = new ZipFileResource(index, index.getEntry("app.js.gz"), "app.js.gz");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(httpExchange.getOutputStream()).thenReturn(out);
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.getRequestHeaders().put(Headers.ACCEPT_ENCODING, "gzip");
+        exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, "gzip");
+        exchange.startBlocking(httpExchange);
+
+        //act
+        subject.serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(completionCallback).onComplete(exchange, sender);
+        assertNull(exchange.getResponseHeaders().getFirst(Headers.VARY));
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void testServe_nonBlocking_sentInPooledChunks() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("deflated.txt", data, ZipEntry.DEFLATED);
+        final ZipFileResource subject = new ZipFileResource(index, index.getEntry("deflated.txt"), "deflated.txt");
+        when(serverCon.getBufferPool()).thenReturn(new ByteBufferSlicePool(BufferAllocator.BYTE_BUFFER_ALLOCATOR,
+                                                                           1024,
+                                                                           4096));
+        //the exchange is not blocking
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        final ByteArrayOutputStream out = recordSentContent(exchange);
+
+        //act
+        subject.serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(completionCallback).onComplete(exchange, sender);
+        verify(sender, times(data.length / 1024 + 1)).send(any(ByteBuffer.class), any(IoCallback.class));
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void testServe_nonBlocking_ioException_error() throws Exception {
+        //prepare
+        final IOException iox = new IOException("Expected");
+        when(zipFile.getInputStream(zipEntry)).thenReturn(new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+
+                throw iox;
+            }
+        });
+        when(serverCon.getBufferPool()).thenReturn(new ByteBufferSlicePool(BufferAllocator.BYTE_BUFFER_ALLOCATOR,
+                                                                           1024,
+                                                                           4096));
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+
+        //act
+        subject_file_resource.serve(sender, exchange, completionCallback);
+
+        //assert
+        verifyZeroInteractions(sender);
+        verify(completionCallback, times(0)).onComplete(exchange, sender);
+        verify(completionCallback).onException(exchange, sender, iox);
+    }
+
+    @Test
+    public void testServe_cachedEntry_inflatedOnce() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("deflated.txt", data, ZipEntry.DEFLATED);
+        final ContentCache cache = new ContentCache(1 << 20);
+        final ZipFileResource subject = new ZipFileResource(index,
+                                                            index.getEntry("deflated.txt"),
+                                                            "deflated.txt",
+                                                            cache);
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        final ByteArrayOutputStream out = recordSentContent(exchange);
+
+        //act
+        subject.serve(sender, exchange, completionCallback);
+        subject.serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(completionCallback, times(2)).onComplete(exchange, sender);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(data.length, cache.getSize());
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(data);
+        expected.write(data);
+        assertArrayEquals(expected.toByteArray(), out.toByteArray());
+    }
+
+    @Test
+    public void testServe_cacheMissInIoThread_inflatedInWorkerThread() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("deflated.txt", data, ZipEntry.DEFLATED);
+        final List<String> loadingThreads = Collections.synchronizedList(new ArrayList<String>());
+        final ContentCache cache = new ContentCache(1 << 20) {
+
+            @Override
+            public ByteBuffer put(final String key, final ByteBuffer content) {
+
+                loadingThreads.add(Thread.currentThread().getName());
+                return super.put(key, content);
+            }
+        };
+        final ZipFileResource subject = new ZipFileResource(index,
+                                                            index.getEntry("deflated.txt"),
+                                                            "deflated.txt",
+                                                            cache);
+        final int port = NetworkUtils.findAvailablePort();
+        final Undertow undertow = Undertow.builder().addHttpListener(port, "localhost", new HttpHandler() {
+
+            @Override
+            public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+                subject.serve(exchange.getResponseSender(), exchange, IoCallback.END_EXCHANGE);
+            }
+        }).build();
+        undertow.start();
+
+        try {
+            //act
+            final byte[] first = IOUtils.toByteArray(new URL("http://localhost:" + port + "/").openStream());
+            final byte[] second = IOUtils.toByteArray(new URL("http://localhost:" + port + "/").openStream());
+
+            //assert
+            assertArrayEquals(data, first);
+            assertArrayEquals(data, second);
+            assertEquals(1, loadingThreads.size());
+            assertFalse(loadingThreads.get(0), loadingThreads.get(0).contains("I/O"));
+            assertEquals(1, cache.getHitCount());
+        } finally {
+            undertow.stop();
+        }
+    }
+
+    @Test
+    public void testServe_cachedEntry_gzipRepresentationCachedSeparately() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("deflated.txt", data, ZipEntry.DEFLATED);
+        final ContentCache cache = new ContentCache(1 << 20);
+        final ZipFileResource subject = new ZipFileResource(index,
+                                                            index.getEntry("deflated.txt"),
+                                                            "deflated.txt",
+                                                            cache);
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.getRequestHeaders().put(Headers.ACCEPT_ENCODING, "gzip");
+        final ByteArrayOutputStream out = recordSentContent(exchange);
+
+        //act
+        subject.serve(sender, exchange, completionCallback);
+
+        //assert
+        verify(completionCallback).onComplete(exchange, sender);
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(out.size(), cache.getSize());
+        assertEquals(out.size(), exchange.getResponseContentLength());
+        assertArrayEquals(data, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    @Test
+    public void testIsRangeSupported_fileEntry_true() throws Exception {
+
+        //prepare
+        when(zipEntry.getSize()).thenReturn(123L);
+
+        //act
+        boolean supported = subject_file_resource.isRangeSupported();
+
+        //assert
+        assertTrue(supported);
+    }
+
+    @Test
+    public void testIsRangeSupported_dirEntry_false() throws Exception {
+
+        //act
+        boolean supported = subject_dir_resource.isRangeSupported();
+
+        //assert
+        assertFalse(supported);
+    }
+
+    @Test
+    public void testServeRange_storedEntry_regionTransferred() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("stored.txt", data, ZipEntry.STORED);
+        final ZipFileResource subject = new ZipFileResource(index, index.getEntry("stored.txt"), "stored.txt");
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        final ByteArrayOutputStream out = recordSentContent(exchange);
+
+        //act
+        subject.serveRange(sender, exchange, 100, 199, completionCallback);
+
+        //assert
+        verify(completionCallback).onComplete(exchange, sender);
+        assertArrayEquals(Arrays.copyOfRange(data, 100, 200), out.toByteArray());
+    }
+
+    @Test
+    public void testServeRange_storedEntry_suffixRange() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("stored.txt", data, ZipEntry.STORED);
+        final ZipFileResource subject = new ZipFileResource(index, index.getEntry("stored.txt"), "stored.txt");
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        final ByteArrayOutputStream out = recordSentContent(exchange);
+
+        //act
+        subject.serveRange(sender, exchange, -1, 50, completionCallback);
+
+        //assert
+        assertArrayEquals(Arrays.copyOfRange(data, data.length - 50, data.length), out.toByteArray());
+    }
+
+    @Test
+    public void testServeRange_deflatedEntry_blocking() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("deflated.txt", data, ZipEntry.DEFLATED);
+        final ZipFileResource subject = new ZipFileResource(index, index.getEntry("deflated.txt"), "deflated.txt");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(httpExchange.getOutputStream()).thenReturn(out);
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        exchange.startBlocking(httpExchange);
+
+        //act
+        subject.serveRange(sender, exchange, 5000, -1, completionCallback);
+
+        //assert
+        verify(completionCallback).onComplete(exchange, sender);
+        assertArrayEquals(Arrays.copyOfRange(data, 5000, data.length), out.toByteArray());
+    }
+
+    @Test
+    public void testServeRange_deflatedEntry_nonBlocking() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("deflated.txt", data, ZipEntry.DEFLATED);
+        final ZipFileResource subject = new ZipFileResource(index, index.getEntry("deflated.txt"), "deflated.txt");
+        when(serverCon.getBufferPool()).thenReturn(new ByteBufferSlicePool(BufferAllocator.BYTE_BUFFER_ALLOCATOR,
+                                                                           1024,
+                                                                           4096));
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        final ByteArrayOutputStream out = recordSentContent(exchange);
+
+        //act
+        subject.serveRange(sender, exchange, 1000, 3499, completionCallback);
+
+        //assert
+        verify(completionCallback).onComplete(exchange, sender);
+        verify(sender, times(3)).send(any(ByteBuffer.class), any(IoCallback.class));
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 3500), out.toByteArray());
+    }
+
+    @Test
+    public void testServeRange_deflatedEntry_fromCache() throws Exception {
+        //prepare
+        final byte[] data = newTextContent();
+        final ZipFileIndex index = newZipIndex("deflated.txt", data, ZipEntry.DEFLATED);
+        final ContentCache cache = new ContentCache(1 << 20);
+        final ZipFileResource subject = new ZipFileResource(index,
+                                                            index.getEntry("deflated.txt"),
+                                                            "deflated.txt",
+                                                            cache);
+        final HttpServerExchange exchange = new HttpServerExchange(serverCon);
+        final ByteArrayOutputStream out = recordSentContent(exchange);
+
+        //act
+        subject.serveRange(sender, exchange, 10, 19, completionCallback);
+        subject.serveRange(sender, exchange, 20, 29, completionCallback);
+
+        //assert
+        assertEquals(1, cache.getHitCount());
+        assertArrayEquals(Arrays.copyOfRange(data, 10, 30), out.toByteArray());
+    }
+
+    /**
+     * Creates a zip file with a single entry and an index for that zip file including the archive channel.
+     */
+    private ZipFileIndex newZipIndex(String name, byte[] data, int method) throws IOException {
+
+        final File file = folder.newFile();
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file))) {
+            final ZipEntry entry = new ZipEntry(name);
+            entry.setMethod(method);
+            if (method == ZipEntry.STORED) {
+                final CRC32 crc = new CRC32();
+                crc.update(data);
+                entry.setSize(data.length);
+                entry.setCrc(crc.getValue());
+            }
+            zos.putNextEntry(entry);
+            zos.write(data);
+        }
+        final ZipFile archive = new ZipFile(file);
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        closeables.add(archive);
+        closeables.add(channel);
+        return new ZipFileIndex(archive, channel);
+    }
+
+    private byte[] newTextContent() {
+
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            buf.append("Line ").append(i).append(" of the test content\n");
+        }
+        return buf.toString().getBytes();
+    }
+
+    /**
+     * Lets the mocked sender record all sent content and complete each send operation immediately.
+     */
+    private ByteArrayOutputStream recordSentContent(final HttpServerExchange exchange) throws IOException {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+
+                final ByteBuffer buf = (ByteBuffer) invocation.getArguments()[0];
+                final byte[] data = new byte[buf.remaining()];
+                buf.get(data);
+                out.write(data);
+                ((IoCallback) invocation.getArguments()[1]).onComplete(exchange, sender);
+                return null;
+            }
+        }).when(sender).send(any(ByteBuffer.class), any(IoCallback.class));
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+
+                final FileChannel channel = (FileChannel) invocation.getArguments()[0];
+                channel.transferTo(0, channel.size(), Channels.newChannel(out));
+                ((IoCallback) invocation.getArguments()[1]).onComplete(exchange, sender);
+                return null;
+            }
+        }).when(sender).transferFrom(any(FileChannel.class), any(IoCallback.class));
+        return out;
+    }
+
     @Test
     public void testServe_ioException_error() throws Exception {
         //prepare
@@ -364,11 +922,15 @@ public class ZipFileResourceTest {
 
         //prepare
 
+        when(zipFile.getName()).thenReturn("/content/content.zip");
+        when(zipEntry.getCrc()).thenReturn(0x16bee04cL);
+        when(zipEntry.getSize()).thenReturn(847L);
+
         //act
         String cacheKey = subject_file_resource.getCacheKey();
 
         //assert
-        assertNull(cacheKey);
+        assertEquals("/content/content.zip!somepath/file.pdf#16bee04c-34f", cacheKey);
     }
 
     @Test